@@ -12,6 +12,13 @@ java {
     }
 }
 
+// RgbImage.Storage.OFF_HEAP_FLOAT and MAPPED_FLOAT use the Foreign Function & Memory API, final on this toolchain
+sourceSets {
+    main {
+        java.srcDir("src/main/java-ffm")
+    }
+}
+
 repositories {
     mavenCentral()
     mavenLocal()
@@ -32,6 +39,17 @@ dependencies {
     implementation("com.github.wendykierp:JTransforms:3.1")
     testImplementation("org.assertj:assertj-core:3.21.0")
     testImplementation(libs.bundles.junit.jupiter)
+    testImplementation("org.openjdk.jmh:jmh-core:1.37")
+    testAnnotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+// The Vector API (kofa.maths.Matrix3Kernel) is an incubator module; without it, a scalar fallback is used
+tasks.withType<JavaCompile>().configureEach {
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+}
+
+tasks.withType<Test>().configureEach {
+    jvmArgs("--add-modules", "jdk.incubator.vector")
 }
 
 group = "kofa"
@@ -0,0 +1,142 @@
+package kofa.io;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.lang.foreign.ValueLayout.JAVA_FLOAT;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Interleaved RGB floats (like {@link InterleavedFloatPixelBuffer}) outside the Java heap, either in native memory or
+ * in a memory-mapped scratch file, so the size of the image is not limited by {@code -Xmx} or by the maximum array
+ * length. The memory is released by {@link #close()}, not by the garbage collector; the buffer must not be used after
+ * that.
+ * <p>
+ * Uses the Foreign Function &amp; Memory API, so it is compiled separately from the rest of the library, and created
+ * through {@link OffHeapPixelBuffers}.
+ */
+class OffHeapFloatPixelBuffer implements PixelBuffer {
+    private final int width;
+    private final int height;
+    // shared: the tiles are processed by several threads
+    private final Arena arena = Arena.ofShared();
+    private final MemorySegment segment;
+
+    private OffHeapFloatPixelBuffer(int width, int height, Path scratchDirectory) {
+        this.width = width;
+        this.height = height;
+        long byteSize = 3L * width * height * Float.BYTES;
+        if (scratchDirectory == null) {
+            segment = arena.allocate(byteSize, Float.BYTES);
+        } else {
+            try {
+                Path path = Files.createTempFile(scratchDirectory, "rgb-image-", ".pixels");
+                // the mapping outlives the channel: closing it deletes the file right away, or, where a mapped file
+                // cannot be deleted, once the arena unmaps it
+                try (var channel = FileChannel.open(path, READ, WRITE, DELETE_ON_CLOSE)) {
+                    segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, byteSize, arena);
+                }
+            } catch (IOException e) {
+                arena.close();
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * @return a buffer in native memory
+     */
+    static OffHeapFloatPixelBuffer allocate(int width, int height) {
+        return new OffHeapFloatPixelBuffer(width, height, null);
+    }
+
+    /**
+     * @return a buffer mapped to a scratch file in the given directory; its disk space is released when the buffer is closed
+     */
+    static OffHeapFloatPixelBuffer mapped(int width, int height, Path scratchDirectory) {
+        return new OffHeapFloatPixelBuffer(width, height, scratchDirectory);
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public double red(int row, int column) {
+        return segment.getAtIndex(JAVA_FLOAT, index(row, column));
+    }
+
+    @Override
+    public double green(int row, int column) {
+        return segment.getAtIndex(JAVA_FLOAT, index(row, column) + 1);
+    }
+
+    @Override
+    public double blue(int row, int column) {
+        return segment.getAtIndex(JAVA_FLOAT, index(row, column) + 2);
+    }
+
+    @Override
+    public void set(int row, int column, double red, double green, double blue) {
+        long index = index(row, column);
+        segment.setAtIndex(JAVA_FLOAT, index, (float) red);
+        segment.setAtIndex(JAVA_FLOAT, index + 1, (float) green);
+        segment.setAtIndex(JAVA_FLOAT, index + 2, (float) blue);
+    }
+
+    @Override
+    public void readRow(int row, double[] rgb) {
+        long rowStart = index(row, 0);
+        int rowLength = 3 * width;
+        for (int i = 0; i < rowLength; i++) {
+            rgb[i] = segment.getAtIndex(JAVA_FLOAT, rowStart + i);
+        }
+    }
+
+    @Override
+    public void writeRow(int row, double[] rgb) {
+        long rowStart = index(row, 0);
+        int rowLength = 3 * width;
+        for (int i = 0; i < rowLength; i++) {
+            segment.setAtIndex(JAVA_FLOAT, rowStart + i, (float) rgb[i]);
+        }
+    }
+
+    @Override
+    public void copyRowsFrom(PixelBuffer source, int firstRow, int endRow) {
+        if (source instanceof OffHeapFloatPixelBuffer offHeap) {
+            long start = index(firstRow, 0) * Float.BYTES;
+            long end = index(endRow, 0) * Float.BYTES;
+            MemorySegment.copy(offHeap.segment, start, segment, start, end - start);
+        } else {
+            PixelBuffer.super.copyRowsFrom(source, firstRow, endRow);
+        }
+    }
+
+    /**
+     * Copies the pixels to the heap; only possible if they fit into an array.
+     */
+    @Override
+    public float[] asInterleavedFloats() {
+        return segment.toArray(JAVA_FLOAT);
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    private long index(int row, int column) {
+        return 3 * ((long) row * width + column);
+    }
+}
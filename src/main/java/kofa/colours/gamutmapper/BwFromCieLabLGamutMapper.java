@@ -1,6 +1,7 @@
 package kofa.colours.gamutmapper;
 
 import kofa.colours.model.CIELAB;
+import kofa.colours.model.LchKernel;
 import kofa.colours.model.Srgb;
 import kofa.colours.tonemapper.SimpleCurveBasedToneMapper;
 import kofa.io.RgbImage;
@@ -18,4 +19,16 @@ public class BwFromCieLabLGamutMapper extends GamutMapper {
         var lab = CIELAB.from(srgb.toXyz()).usingD65_2DEGREE_STANDARD_OBSERVER();
         return Srgb.from(new CIELAB(lab.L(), 0, 0).toXyz().usingD65_2DEGREE_STANDARD_OBSERVER());
     }
+
+    /**
+     * Converts with the primitive {@link LchKernel}: the L of LCh is the L of LAB.
+     */
+    @Override
+    protected void mapInsideGamut(int row, double[] sRgb, int[] offsets, int count) {
+        double[] lch = new double[3];
+        for (int i = 0; i < count; i++) {
+            LchKernel.FOR_CIELAB.fromSrgb(sRgb, offsets[i], lch, 0);
+            LchKernel.FOR_CIELAB.toSrgb(lch[0], 0, 0, sRgb, offsets[i]);
+        }
+    }
 }
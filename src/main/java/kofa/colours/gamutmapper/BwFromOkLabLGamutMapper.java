@@ -1,5 +1,6 @@
 package kofa.colours.gamutmapper;
 
+import kofa.colours.model.LchKernel;
 import kofa.colours.model.OkLAB;
 import kofa.colours.model.Srgb;
 import kofa.colours.tonemapper.SimpleCurveBasedToneMapper;
@@ -18,4 +19,16 @@ public class BwFromOkLabLGamutMapper extends GamutMapper {
         var lab = OkLAB.from(srgb.toXyz()).usingD65_2DEGREE_STANDARD_OBSERVER();
         return Srgb.from(new OkLAB(lab.L(), 0, 0).toXyz().usingD65_2DEGREE_STANDARD_OBSERVER());
     }
+
+    /**
+     * Converts with the primitive {@link LchKernel}: the L of LCh is the L of LAB.
+     */
+    @Override
+    protected void mapInsideGamut(int row, double[] sRgb, int[] offsets, int count) {
+        double[] lch = new double[3];
+        for (int i = 0; i < count; i++) {
+            LchKernel.FOR_OKLAB.fromSrgb(sRgb, offsets[i], lch, 0);
+            LchKernel.FOR_OKLAB.toSrgb(lch[0], 0, 0, sRgb, offsets[i]);
+        }
+    }
 }
@@ -7,7 +7,6 @@ import kofa.io.RgbImage;
 import kofa.maths.Vector3Constructor;
 
 import java.util.function.Function;
-import java.util.function.ToDoubleFunction;
 
 import static java.util.Objects.requireNonNull;
 
@@ -21,11 +20,13 @@ import static java.util.Objects.requireNonNull;
  * @param <P> the corresponding polar LCh type
  */
 public class ChromaClippingLchBasedGamutMapper<P extends LCh<P, S>, S extends ConvertibleToLch<S, P>> extends GamutMapper {
-    private final ToDoubleFunction<P> maxCFinder;
+    private final MaxCSolver<P> solver;
     private final String name;
     private final Vector3Constructor<P> lchConstructor;
     private final Function<Srgb, P> sRgbToLch;
     private final Function<P, Srgb> lchToSrgb;
+    private final LchKernel kernel;
+    private final ThreadLocal<MaxCQuery> queries = ThreadLocal.withInitial(MaxCQuery::new);
 
     public static ChromaClippingLchBasedGamutMapper<CIELCh_ab, CIELAB> forLchAb(RgbImage image) {
         return new ChromaClippingLchBasedGamutMapper<>(
@@ -44,37 +45,81 @@ public class ChromaClippingLchBasedGamutMapper<P extends LCh<P, S>, S extends Co
     }
 
     public static ChromaClippingLchBasedGamutMapper<OkLCh, OkLAB> forOkLch(RgbImage image) {
+        return forOkLch(image, false);
+    }
+
+    /**
+     * @param analyticMaxC whether to compute max C with {@link OkLChMaxCSolver} instead of searching for it
+     */
+    public static ChromaClippingLchBasedGamutMapper<OkLCh, OkLAB> forOkLch(RgbImage image, boolean analyticMaxC) {
+        var searchParams = GamutBoundarySearchParams.FOR_OKLAB;
         return new ChromaClippingLchBasedGamutMapper<>(
-                GamutBoundarySearchParams.FOR_OKLAB,
-                SimpleCurveBasedToneMapper.forOkLab(image),
-                image
+                searchParams,
+                analyticMaxC ? OkLChMaxCSolver.INSTANCE : GamutBoundaryMaxCSolver.createFor(searchParams, image),
+                SimpleCurveBasedToneMapper.forOkLab(image)
         );
     }
 
-    private ChromaClippingLchBasedGamutMapper(
+    /**
+     * For custom search params, e.g. {@link GamutBoundarySearchParams#withMaxCLut() with a max C look-up table}.
+     */
+    public ChromaClippingLchBasedGamutMapper(
             GamutBoundarySearchParams<P> searchParams,
             ToneMapper<S> toneMapper,
             RgbImage image
+    ) {
+        this(searchParams, GamutBoundaryMaxCSolver.createFor(searchParams, image), toneMapper);
+    }
+
+    /**
+     * @param searchParams provide the conversions; max C is found by the solver
+     */
+    public ChromaClippingLchBasedGamutMapper(
+            GamutBoundarySearchParams<P> searchParams,
+            MaxCSolver<P> solver,
+            ToneMapper<S> toneMapper
     ) {
         super(toneMapper);
         requireNonNull(searchParams);
-        this.name = searchParams.type().getSimpleName();
+        requireNonNull(solver);
+        this.name = searchParams.type().getSimpleName() + (solver instanceof OkLChMaxCSolver ? "-analytic" : "");
         this.sRgbToLch = requireNonNull(searchParams.sRgbToLch());
         this.lchToSrgb = requireNonNull(searchParams.lchToSrgb());
         this.lchConstructor = requireNonNull(searchParams.lchConstructor());
-        var solver = GamutBoundaryMaxCSolver.createFor(searchParams, image);
-        this.maxCFinder = lch -> solver.maxCFor(lch);
+        this.kernel = requireNonNull(searchParams.kernel());
+        this.solver = solver;
     }
 
 
     @Override
     public Srgb getInsideGamut(Srgb sRgb) {
         P lchFromInput = sRgbToLch.apply(sRgb);
-        var cAtGamutBoundary = maxCFinder.applyAsDouble(lchFromInput);
+        var cAtGamutBoundary = solver.maxCFor(lchFromInput);
         P lchWithChromaAtGamutBoundary = lchConstructor.createFrom(lchFromInput.L(), cAtGamutBoundary, lchFromInput.h());
         return lchToSrgb.apply(lchWithChromaAtGamutBoundary);
     }
 
+    /**
+     * Finds max C for the whole row with a single batch query; converts with the primitive {@link LchKernel}.
+     */
+    @Override
+    protected void mapInsideGamut(int row, double[] sRgb, int[] offsets, int count) {
+        MaxCQuery query = queries.get().ensureCapacity(count);
+        double[] lch = query.lch;
+        double[] l = query.l;
+        double[] h = query.h;
+        double[] cAtGamutBoundary = query.maxC;
+        for (int i = 0; i < count; i++) {
+            kernel.fromSrgb(sRgb, offsets[i], lch, 3 * i);
+            l[i] = lch[3 * i];
+            h[i] = lch[3 * i + 2];
+        }
+        solver.maxCFor(l, h, cAtGamutBoundary, count);
+        for (int i = 0; i < count; i++) {
+            kernel.toSrgb(l[i], cAtGamutBoundary[i], h[i], sRgb, offsets[i]);
+        }
+    }
+
     @Override
     public String name() {
         return super.name() + name;
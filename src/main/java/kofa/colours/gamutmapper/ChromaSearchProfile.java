@@ -0,0 +1,31 @@
+package kofa.colours.gamutmapper;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * How {@link GamutBoundaryMaxCSolver} searches for max C: C grows from 0 in steps until out of gamut, then max C is
+ * refined within the last step.
+ *
+ * @param initialStep  the first step
+ * @param growthFactor each step is this many times the previous one: 1 to walk in equal steps, which takes more
+ *                     conversions, but cannot step over a part of the gamut narrower than the step; greater than 1 to
+ *                     gallop, finding the boundary in a number of steps logarithmic in max C
+ * @param tolerance    the precision of max C
+ */
+public record ChromaSearchProfile(double initialStep, double growthFactor, double tolerance) {
+    public static final double GALLOPING_GROWTH_FACTOR = 2;
+
+    public ChromaSearchProfile {
+        checkArgument(initialStep > 0, "initialStep = %s", initialStep);
+        checkArgument(growthFactor >= 1, "growthFactor = %s", growthFactor);
+        checkArgument(tolerance > 0, "tolerance = %s", tolerance);
+    }
+
+    public static ChromaSearchProfile linear(double step, double tolerance) {
+        return new ChromaSearchProfile(step, 1, tolerance);
+    }
+
+    public static ChromaSearchProfile galloping(double initialStep, double tolerance) {
+        return new ChromaSearchProfile(initialStep, GALLOPING_GROWTH_FACTOR, tolerance);
+    }
+}
@@ -3,12 +3,15 @@ package kofa.colours.gamutmapper;
 import kofa.colours.model.*;
 import kofa.colours.tonemapper.SimpleCurveBasedToneMapper;
 import kofa.colours.tonemapper.ToneMapper;
+import kofa.io.PixelMetric;
 import kofa.io.RgbImage;
 import kofa.maths.Vector3Constructor;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.function.Function;
-import java.util.function.ToDoubleFunction;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -20,64 +23,221 @@ import static java.util.Objects.requireNonNull;
  * @param <P> the corresponding polar LCh type
  */
 public class DesaturatingLchBasedGamutMapper<P extends LCh<P, S>, S extends ConvertibleToLch<S, P>> extends GamutMapper {
+    /**
+     * How the image is analysed to find the divisor of C.
+     */
+    public enum Analysis {
+        /**
+         * Solves max C for every out-of-gamut pixel.
+         */
+        EXACT,
+        /**
+         * Estimates the divisor from every {@value #SUBSAMPLING_STRIDE}th pixel in both directions, then solves max C
+         * only for the pixels that the estimate does not bring into gamut, which takes a single conversion per pixel
+         * to check. The result is the same as {@link #EXACT}'s, up to the tolerance of the solver, as long as max C is
+         * the outer crossing of the boundary where it dents inwards (see {@link GamutBoundaryMaxCSolver}). The analysis
+         * runs before tone mapping, so the mapping converts the pixels again. If the image's statistics already know the {@link #chromaRatio exact ratio}, that is used instead.
+         */
+        SUBSAMPLED
+    }
+
+    static final int SUBSAMPLING_STRIDE = 8;
+
     private final String name;
     private final Vector3Constructor<P> lchConstructor;
     private final Function<Srgb, P> sRgbToLch;
     private final Function<P, Srgb> lchToSrgb;
+    private final LchKernel kernel;
     private final double cDivisor;
 
     public static DesaturatingLchBasedGamutMapper<CIELCh_ab, CIELAB> forLchAb(RgbImage image) {
+        return forLchAb(image, Analysis.EXACT);
+    }
+
+    public static DesaturatingLchBasedGamutMapper<CIELCh_ab, CIELAB> forLchAb(RgbImage image, Analysis analysis) {
+        if (analysis == Analysis.EXACT) {
+            prepareExactAnalysis(image, GamutBoundarySearchParams.FOR_CIELAB, SimpleCurveBasedToneMapper.CIELAB_BRIGHTNESS);
+        }
         return new DesaturatingLchBasedGamutMapper<>(
                 image,
                 GamutBoundarySearchParams.FOR_CIELAB,
-                SimpleCurveBasedToneMapper.forCieLab(image)
+                SimpleCurveBasedToneMapper.forCieLab(image),
+                analysis
         );
     }
 
     public static DesaturatingLchBasedGamutMapper<CIELCh_uv, CIELUV> forLchUv(RgbImage image) {
+        return forLchUv(image, Analysis.EXACT);
+    }
+
+    public static DesaturatingLchBasedGamutMapper<CIELCh_uv, CIELUV> forLchUv(RgbImage image, Analysis analysis) {
+        if (analysis == Analysis.EXACT) {
+            prepareExactAnalysis(image, GamutBoundarySearchParams.FOR_CIELUV, SimpleCurveBasedToneMapper.CIELUV_BRIGHTNESS);
+        }
         return new DesaturatingLchBasedGamutMapper<>(
                 image,
                 GamutBoundarySearchParams.FOR_CIELUV,
-                SimpleCurveBasedToneMapper.forCieLuv(image)
+                SimpleCurveBasedToneMapper.forCieLuv(image),
+                analysis
         );
     }
 
     public static DesaturatingLchBasedGamutMapper<OkLCh, OkLAB> forOkLch(RgbImage image) {
+        return forOkLch(image, Analysis.EXACT);
+    }
+
+    public static DesaturatingLchBasedGamutMapper<OkLCh, OkLAB> forOkLch(RgbImage image, Analysis analysis) {
+        if (analysis == Analysis.EXACT) {
+            prepareExactAnalysis(image, GamutBoundarySearchParams.FOR_OKLAB, SimpleCurveBasedToneMapper.OKLAB_BRIGHTNESS);
+        }
         return new DesaturatingLchBasedGamutMapper<>(
                 image,
                 GamutBoundarySearchParams.FOR_OKLAB,
-                SimpleCurveBasedToneMapper.forOkLab(image)
+                SimpleCurveBasedToneMapper.forOkLab(image),
+                analysis
         );
     }
 
-    private DesaturatingLchBasedGamutMapper(
+    // the tone mapper and the exact analysis both read the image before it is modified, so a single pass serves both
+    private static void prepareExactAnalysis(
+            RgbImage image, GamutBoundarySearchParams<?> searchParams, PixelMetric toneMapperBrightness
+    ) {
+        image.statistics().prepareMaxima(toneMapperBrightness, chromaRatio(searchParams, image));
+    }
+
+    /**
+     * @return the ratio of C to max C of the pixels outside sRGB (not applicable to the others); its maximum is the
+     * divisor of the {@link Analysis#EXACT exact analysis}
+     */
+    public static PixelMetric chromaRatio(GamutBoundarySearchParams<?> searchParams, RgbImage image) {
+        return new ChromaRatio(searchParams, GamutBoundaryMaxCSolver.createFor(searchParams, image));
+    }
+
+    /**
+     * For custom search params, e.g. {@link GamutBoundarySearchParams#withMaxCLut() with a max C look-up table}.
+     */
+    public DesaturatingLchBasedGamutMapper(
             RgbImage image,
             GamutBoundarySearchParams<P> searchParams,
             ToneMapper<S> toneMapper
+    ) {
+        this(image, searchParams, toneMapper, Analysis.EXACT);
+    }
+
+    public DesaturatingLchBasedGamutMapper(
+            RgbImage image,
+            GamutBoundarySearchParams<P> searchParams,
+            ToneMapper<S> toneMapper,
+            Analysis analysis
+    ) {
+        super(true, toneMapper);
+        this.name = searchParams.type().getSimpleName() + (analysis == Analysis.SUBSAMPLED ? "-subsampled" : "");
+        this.sRgbToLch = requireNonNull(searchParams.sRgbToLch());
+        this.lchToSrgb = requireNonNull(searchParams.lchToSrgb());
+        this.lchConstructor = requireNonNull(searchParams.lchConstructor());
+        this.kernel = requireNonNull(searchParams.kernel());
+
+        var solver = GamutBoundaryMaxCSolver.createFor(searchParams, image);
+        var exactRatio = new ChromaRatio(searchParams, solver);
+        if (requireNonNull(analysis) == Analysis.SUBSAMPLED && !image.statistics().isKnown(exactRatio)) {
+            cDivisor = findCDivisorFromSubsample(image, solver);
+        } else {
+            double maxRatio = image.statistics().maxOf(exactRatio);
+            cDivisor = maxRatio > 1 ? maxRatio : 1;
+        }
+    }
+
+    /**
+     * Uses a fixed divisor instead of analysing an image, e.g. the {@link #cDivisor()} of a mapper created for a
+     * reference image, so that the result can be baked into a {@link kofa.colours.lut.Lut3D}.
+     */
+    public DesaturatingLchBasedGamutMapper(
+            double cDivisor,
+            GamutBoundarySearchParams<P> searchParams,
+            ToneMapper<S> toneMapper
     ) {
         super(true, toneMapper);
-        this.name = searchParams.type().getSimpleName();
+        checkArgument(cDivisor >= 1, "cDivisor = %s", cDivisor);
+        this.name = searchParams.type().getSimpleName() + "-fixed";
         this.sRgbToLch = requireNonNull(searchParams.sRgbToLch());
         this.lchToSrgb = requireNonNull(searchParams.lchToSrgb());
         this.lchConstructor = requireNonNull(searchParams.lchConstructor());
+        this.kernel = requireNonNull(searchParams.kernel());
+        this.cDivisor = cDivisor;
+    }
+
+    /**
+     * @return whether the Rec2020 colour is outside sRGB; if so, its LCh values are stored in the partial result,
+     * and its sRGB values in its scratch space
+     */
+    private boolean toLchIfOutOfGamut(double red, double green, double blue, PartialAnalysis partialResult) {
+        double[] pixel = partialResult.pixel;
+        pixel[0] = red;
+        pixel[1] = green;
+        pixel[2] = blue;
+        Rec2020.TO_SRGB.multiply(pixel, 0, pixel, 0);
+        if (isOutOfGamut(pixel[0]) || isOutOfGamut(pixel[1]) || isOutOfGamut(pixel[2])) {
+            kernel.fromSrgb(pixel, 0, partialResult.lch, 0);
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isOutOfGamut(double component) {
+        return component < 0 || component > 1;
+    }
+
+    private static double divisorFor(double[] lch, MaxCSolver<?> solver) {
+        double divisor = 1;
+        if (lch[1] != 0) {
+            var maxC = solver.maxCFor(lch[0], lch[2]);
+            if (maxC != 0) {
+                divisor = lch[1] / maxC;
+            }
+        }
+        return divisor;
+    }
 
-        ToDoubleFunction<P> maxCFinder = lch -> GamutBoundaryMaxCSolver.createFor(searchParams, image).maxCFor(lch);
-
-        cDivisor = image.pixelStream().mapToDouble(pixel -> {
-            var rec2020 = new Rec2020(pixel[0], pixel[1], pixel[2]);
-            Srgb sRgb = rec2020.toSRGB();
-            double divisor = 1;
-            if (sRgb.isOutOfGamut()) {
-                var lch = searchParams.sRgbToLch().apply(sRgb);
-                if (lch.C() != 0) {
-                    var maxC = maxCFinder.applyAsDouble(lch);
-                    if (maxC != 0) {
-                        divisor = lch.C() / maxC;
+    private double findCDivisorFromSubsample(RgbImage image, MaxCSolver<P> solver) {
+        double estimate = image.reduce(
+                PartialAnalysis::new,
+                (partialResult, row, column, red, green, blue) -> {
+                    if (row % SUBSAMPLING_STRIDE == 0 && column % SUBSAMPLING_STRIDE == 0
+                            && toLchIfOutOfGamut(red, green, blue, partialResult)) {
+                        partialResult.raiseDivisor(divisorFor(partialResult.lch, solver));
                     }
-                }
+                },
+                PartialAnalysis::combine
+        ).divisor;
+        // C / divisor is in gamut if and only if C / max C <= divisor, except in a dent of the boundary, which is out
+        // of gamut; so this only keeps the pixels that would increase the divisor, the ones with no max C, and the
+        // few whose reduced C falls into a dent
+        PartialAnalysis refinement = image.reduce(
+                PartialAnalysis::new,
+                (partialResult, row, column, red, green, blue) -> {
+                    if (toLchIfOutOfGamut(red, green, blue, partialResult)) {
+                        double[] lch = partialResult.lch;
+                        if (lch[1] != 0 && kernel.isOutOfGamut(lch[0], lch[1] / estimate, lch[2], partialResult.pixel)) {
+                            partialResult.addCandidate(lch);
+                        }
+                    }
+                },
+                PartialAnalysis::combine
+        );
+        double[] candidates = refinement.candidates;
+        double[] lch = refinement.lch;
+        double divisor = estimate;
+        // the most saturated ones are likely to raise the divisor the most, so the rest can be skipped
+        Integer[] bySaturation = new Integer[refinement.candidateCount];
+        Arrays.setAll(bySaturation, i -> i);
+        Arrays.sort(bySaturation, Comparator.comparingDouble((Integer i) -> candidates[3 * i + 1]).reversed());
+        for (int candidate : bySaturation) {
+            System.arraycopy(candidates, 3 * candidate, lch, 0, 3);
+            if (kernel.isOutOfGamut(lch[0], lch[1] / divisor, lch[2], refinement.pixel)) {
+                divisor = Math.max(divisor, divisorFor(lch, solver));
             }
-            return divisor;
-        }).max().orElse(1.0);
+        }
+        return divisor;
     }
 
     @Override
@@ -88,6 +248,99 @@ public class DesaturatingLchBasedGamutMapper<P extends LCh<P, S>, S extends Conv
         return lchToSrgb.apply(lchWithChromaAtGamutBoundary);
     }
 
+    /**
+     * Converts with the primitive {@link LchKernel}.
+     */
+    @Override
+    protected void mapInsideGamut(int row, double[] sRgb, int[] offsets, int count) {
+        double[] lch = new double[3];
+        for (int i = 0; i < count; i++) {
+            int index = offsets[i];
+            kernel.fromSrgb(sRgb, index, lch, 0);
+            kernel.toSrgbInGamut(lch[0], lch[1] / cDivisor, lch[2], sRgb, index);
+        }
+    }
+
+    /**
+     * Equal for equal search params, which determine max C, whichever solver instance it was created with: the registry
+     * may have evicted the solver of an earlier instance, and created a new one for the same params.
+     */
+    static final class ChromaRatio implements PixelMetric {
+        private final GamutBoundarySearchParams<?> searchParams;
+        private final LchKernel kernel;
+        private final MaxCSolver<?> solver;
+
+        ChromaRatio(GamutBoundarySearchParams<?> searchParams, MaxCSolver<?> solver) {
+            this.searchParams = requireNonNull(searchParams);
+            this.kernel = requireNonNull(searchParams.kernel());
+            this.solver = requireNonNull(solver);
+        }
+
+        @Override
+        public double valueOf(double red, double green, double blue, double[] scratch) {
+            scratch[0] = red;
+            scratch[1] = green;
+            scratch[2] = blue;
+            Rec2020.TO_SRGB.multiply(scratch, 0, scratch, 0);
+            if (!isOutOfGamut(scratch[0]) && !isOutOfGamut(scratch[1]) && !isOutOfGamut(scratch[2])) {
+                return Double.NaN;
+            }
+            kernel.fromSrgb(scratch, 0, scratch, 3);
+            double c = scratch[4];
+            double maxC = c == 0 ? 0 : solver.maxCFor(scratch[3], scratch[5]);
+            return maxC == 0 ? Double.NaN : c / maxC;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ChromaRatio ratio && searchParams.equals(ratio.searchParams);
+        }
+
+        @Override
+        public int hashCode() {
+            return searchParams.hashCode();
+        }
+    }
+
+    // per thread: scratch space, the divisor found so far and the candidates of the refinement
+    private static class PartialAnalysis {
+        private final double[] pixel = new double[3];
+        private final double[] lch = new double[3];
+        private double divisor = 1;
+        // L, C, h triplets
+        private double[] candidates = new double[3 * 16];
+        private int candidateCount;
+
+        void raiseDivisor(double divisor) {
+            this.divisor = Math.max(this.divisor, divisor);
+        }
+
+        void addCandidate(double[] lch) {
+            addCandidates(lch, 1);
+        }
+
+        private void addCandidates(double[] values, int count) {
+            if (3 * (candidateCount + count) > candidates.length) {
+                candidates = Arrays.copyOf(candidates, Math.max(2 * candidates.length, 3 * (candidateCount + count)));
+            }
+            System.arraycopy(values, 0, candidates, 3 * candidateCount, 3 * count);
+            candidateCount += count;
+        }
+
+        PartialAnalysis combine(PartialAnalysis other) {
+            raiseDivisor(other.divisor);
+            addCandidates(other.candidates, other.candidateCount);
+            return this;
+        }
+    }
+
+    /**
+     * @return the value C is divided by; 1 if all colours were in gamut
+     */
+    public double cDivisor() {
+        return cDivisor;
+    }
+
     @Override
     public String name() {
         return super.name() + name;
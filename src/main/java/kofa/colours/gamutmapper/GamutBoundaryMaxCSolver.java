@@ -1,102 +1,296 @@
 package kofa.colours.gamutmapper;
 
 import kofa.colours.model.LCh;
-import kofa.colours.model.Rgb;
-import kofa.colours.model.Srgb;
+import kofa.colours.model.LchKernel;
 import kofa.io.RgbImage;
-import kofa.maths.PrimitiveDoubleToDoubleFunction;
-import kofa.maths.Solver;
-import kofa.maths.Vector3Constructor;
+import kofa.maths.RootFinder;
+import kofa.parallel.ProcessingContext;
 
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.max;
 import static java.util.Objects.requireNonNull;
 
 /**
  * Tries to find max C values for LCh(ab) and LCh(uv) by scanning the LCh spaces in L and h, solving for
  * C where at least one sRGB components is 0 or 1.
+ * <p>
+ * If the search params {@link GamutBoundarySearchParams#usesMaxCLut() use a look-up table}, max C is interpolated
+ * from it; an interpolated value that would be out of gamut is replaced by the exact solution, so the result is
+ * always in gamut.
+ * <p>
+ * The search assumes that along C, colours are in gamut up to max C, and out beyond. Near some cusps the boundary
+ * dents inwards, so a short stretch of C below max C is slightly out (by less than 2E-5 in an sRGB component for
+ * OkLCh); a galloping step can step over it, and the result is then the outer crossing. The gamut mappers convert with
+ * {@link LchKernel#toSrgbInGamut}, which reduces C out of such a dent.
  */
-public class GamutBoundaryMaxCSolver<L extends LCh<L, ?>> {
-    private final Function<L, Srgb> lchToSrgb;
-    private final Vector3Constructor<L> lchConstructor;
-    private final double roughChromaSearchStep;
-    private final double solutionThreshold;
+public class GamutBoundaryMaxCSolver<L extends LCh<L, ?>> implements MaxCSolver<L> {
+    // part of the key of stored look-up tables: increment when the search changes, so they are recomputed
+    private static final int ALGORITHM_VERSION = 4;
+    // the batch query is ordered by keys packing the hue bucket, the L bucket and the index of the query
+    private static final int BUCKET_BITS = 12;
+    private static final long BUCKETS = 1L << BUCKET_BITS;
+    private static final int INDEX_BITS = 31;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+    private final String typeName;
+    private final LchKernel kernel;
+    private final double initialChromaSearchStep;
+    private final double chromaSearchGrowthFactor;
+    // the width of the final bracket around max C
+    private final double solutionTolerance;
+    private final RootFinder rootFinder = RootFinder.brent();
     private final Map<CacheKey, Double> cachedMaxCbyLh;
-    private static final Map<Integer, GamutBoundaryMaxCSolver<?>> solvers = new ConcurrentHashMap<>();
+    private final int maxCachedSolutions;
+    // slots of the cache taken; a slot is reserved before inserting, so the cache never grows beyond the limit
+    private final AtomicInteger cachedSolutions = new AtomicInteger();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    // the order keys of batch queries, per thread
+    private final ThreadLocal<long[]> batchOrders = ThreadLocal.withInitial(() -> new long[0]);
+    // for checking the values interpolated from the look-up table, per thread
+    private final ThreadLocal<double[]> lutScratch = ThreadLocal.withInitial(() -> new double[3]);
+    // null if solving each pixel exactly
+    private final MaxChromaLut lut;
     private final double maxL;
 
+    /**
+     * @return the solver for the params from the {@link GamutBoundarySolverRegistry#shared() shared registry}
+     */
     static <L extends LCh<L, ?>> GamutBoundaryMaxCSolver<L> createFor(GamutBoundarySearchParams<L> searchParams, RgbImage image) {
-        int key = Objects.hash(searchParams, image);
-        return (GamutBoundaryMaxCSolver<L>) solvers.computeIfAbsent(key, ignored -> new GamutBoundaryMaxCSolver<>(searchParams, image.size()));
+        return GamutBoundarySolverRegistry.shared().solverFor(searchParams, image.scheduler().context());
+    }
+
+    GamutBoundaryMaxCSolver(GamutBoundarySearchParams<L> searchParams, int maxCachedSolutions, ProcessingContext context) {
+        this(searchParams, maxCachedSolutions, context, null);
     }
 
-    private GamutBoundaryMaxCSolver(GamutBoundarySearchParams<L> searchParams, int size) {
+    /**
+     * @param maxCachedSolutions once this many exact solutions are cached, new ones are no longer stored
+     * @param context            used for filling the look-up table, if any
+     * @param atlasDirectory     where the look-up table is stored, so it is only computed once; {@code null} to
+     *                           compute it for this solver only. The conversions are identified by the LCh type in
+     *                           the stored table's key, so params with custom conversions need their own directory.
+     */
+    GamutBoundaryMaxCSolver(
+            GamutBoundarySearchParams<L> searchParams, int maxCachedSolutions, ProcessingContext context,
+            Path atlasDirectory
+    ) {
         requireNonNull(searchParams);
-        this.cachedMaxCbyLh = new ConcurrentHashMap<>(size);
-        this.lchToSrgb = requireNonNull(searchParams.lchToSrgb());
-        this.lchConstructor = requireNonNull(searchParams.lchConstructor());
-        checkArgument(searchParams.roughChromaSearchStep() > 0, "roughChromaSearchStep = %s", searchParams.roughChromaSearchStep());
-        this.roughChromaSearchStep = searchParams.roughChromaSearchStep();
-        checkArgument(searchParams.solutionThreshold() > 0, "solutionThreshold = %s", searchParams.solutionThreshold());
-        this.solutionThreshold = searchParams.solutionThreshold();
+        this.maxCachedSolutions = maxCachedSolutions;
+        // the table replaces the cache
+        this.cachedMaxCbyLh = searchParams.usesMaxCLut() ? null : new ConcurrentHashMap<>();
+        this.typeName = searchParams.type().getSimpleName();
+        this.kernel = requireNonNull(searchParams.kernel());
+        this.initialChromaSearchStep = searchParams.searchProfile().initialStep();
+        this.chromaSearchGrowthFactor = searchParams.searchProfile().growthFactor();
+        this.solutionTolerance = searchParams.searchProfile().tolerance();
         checkArgument(searchParams.maxL() > 0, "maxL = %s", searchParams.maxL());
         this.maxL = searchParams.maxL();
+        this.lut = searchParams.usesMaxCLut() ?
+                new MaxChromaLut(
+                        searchParams.maxCLutLightnessSteps(), searchParams.maxCLutHueSteps(), maxL,
+                        this::lutNodeMaxCFor,
+                        context,
+                        atlasDirectory, atlasKey(searchParams)
+                ) :
+                null;
     }
 
+    private static String atlasKey(GamutBoundarySearchParams<?> searchParams) {
+        return "max C of %s in sRGB, v%d; L <= %s; %s".formatted(
+                searchParams.type().getName(), ALGORITHM_VERSION, searchParams.maxL(), searchParams.searchProfile()
+        );
+    }
+
+    @Override
     public double maxCFor(L lch) {
-        var key = new CacheKey(lch.L(), lch.h());
-        return cachedMaxCbyLh.computeIfAbsent(key, ignoredKey -> solveMaxCFor(lch));
+        if (lut != null) {
+            return maxCFor(lch.L(), lch.h());
+        }
+        return cachedMaxCFor(lch.L(), lch.h(), 0);
+    }
+
+    /**
+     * Solves the queries in the order of their hue, then L, so each exact solution is the starting point of the
+     * search for the next one: in a row of an image, pixels with similar colours usually have close boundaries, only
+     * a step or two away. Interpolating from the look-up table needs no ordering.
+     */
+    @Override
+    public void maxCFor(double[] l, double[] h, double[] maxC, int count) {
+        MaxCQuery.checkArguments(l, h, maxC, count);
+        if (lut != null) {
+            for (int i = 0; i < count; i++) {
+                maxC[i] = maxCFor(l[i], h[i]);
+            }
+            return;
+        }
+        long[] order = batchOrders.get();
+        if (order.length < count) {
+            order = new long[count];
+            batchOrders.set(order);
+        }
+        for (int i = 0; i < count; i++) {
+            order[i] = orderKey(l[i], h[i], i);
+        }
+        Arrays.sort(order, 0, count);
+        double previousMaxC = 0;
+        for (int position = 0; position < count; position++) {
+            int i = (int) (order[position] & INDEX_MASK);
+            maxC[i] = cachedMaxCFor(l[i], h[i], previousMaxC);
+            previousMaxC = maxC[i];
+        }
+    }
+
+    // hue bucket, L bucket, index of the query
+    private long orderKey(double l, double h, int index) {
+        double turns = h / (2 * Math.PI);
+        long hueBucket = (long) ((turns - Math.floor(turns)) * BUCKETS);
+        long lightnessBucket = (long) (Math.min(1, Math.max(0, l / maxL)) * (BUCKETS - 1));
+        return (Math.min(hueBucket, BUCKETS - 1) << (BUCKET_BITS + INDEX_BITS)) | (lightnessBucket << INDEX_BITS) | index;
+    }
+
+    private double cachedMaxCFor(double l, double h, double seedC) {
+        var key = new CacheKey(l, h);
+        Double cached = cachedMaxCbyLh.get(key);
+        if (cached != null) {
+            cacheHits.increment();
+            return cached;
+        }
+        cacheMisses.increment();
+        double maxC = solveMaxCFor(l, h, seedC);
+        boolean slotReserved = cachedSolutions.getAndUpdate(count -> count < maxCachedSolutions ? count + 1 : count)
+                < maxCachedSolutions;
+        if (slotReserved && cachedMaxCbyLh.putIfAbsent(key, maxC) != null) {
+            // another thread solved and cached the same query
+            cachedSolutions.decrementAndGet();
+        }
+        return maxC;
+    }
+
+    /**
+     * @return the number of exact solutions in the cache
+     */
+    int cachedSolutionCount() {
+        return cachedMaxCbyLh == null ? 0 : cachedMaxCbyLh.size();
+    }
+
+    /**
+     * @return the number of exact solutions found in the cache
+     */
+    public long cacheHits() {
+        return cacheHits.sum();
     }
 
-    private double solveMaxCFor(L lch) {
-        double l = lch.L();
+    /**
+     * @return the number of exact solutions that had to be computed (including the fallbacks of the look-up table)
+     */
+    public long cacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * @return the root finder that refines max C after the rough search, with its counters
+     */
+    public RootFinder rootFinder() {
+        return rootFinder;
+    }
+
+    /**
+     * Like {@link #maxCFor(LCh)}, without creating an LCh instance if interpolating from the look-up table.
+     */
+    @Override
+    public double maxCFor(double l, double h) {
+        if (lut == null) {
+            return cachedMaxCFor(l, h, 0);
+        }
         if (l >= maxL || l <= 0) {
             return 0;
         }
-        double h = lch.h();
-        double maxCUpperBound = findMaxCUpperBound(l, h);
-        return findExactMaxC(lch, l, h, maxCUpperBound);
+        double interpolated = lut.interpolatedMaxCFor(l, h);
+        if (kernel.isOutOfGamut(l, interpolated, h, lutScratch.get())) {
+            cacheMisses.increment();
+            return solveMaxCFor(l, h);
+        }
+        return interpolated;
+    }
+
+    private double lutNodeMaxCFor(double l, double h) {
+        try {
+            return solveMaxCFor(l, h);
+        } catch (IllegalArgumentException e) {
+            // 0 is always in gamut, so the values interpolated around this node stay conservative
+            return 0;
+        }
+    }
+
+    private double solveMaxCFor(double l, double h) {
+        return solveMaxCFor(l, h, 0);
     }
 
-    private double findExactMaxC(L lch, double l, double h, double cOutOfGamut) {
-        var solver = new Solver(clipDetectorForLch(l, h));
-        Optional<Double> solution = solver.solve(cOutOfGamut - roughChromaSearchStep, cOutOfGamut, 0);
-        if (solution.isEmpty() && solver.lastValue() > solutionThreshold) {
+    /**
+     * @param seedC where the search for the boundary starts, e.g. max C of a neighbouring query; 0 to start from the
+     *              grey axis
+     */
+    private double solveMaxCFor(double l, double h, double seedC) {
+        if (l >= maxL || l <= 0) {
+            return 0;
+        }
+        double[] sRgb = new double[3];
+        double step = initialChromaSearchStep;
+        double inGamutC;
+        double outOfGamutC;
+        if (seedC > 0 && kernel.isOutOfGamut(l, seedC, h, sRgb)) {
+            // shrink C until in gamut; the grey axis always is
+            outOfGamutC = seedC;
+            inGamutC = seedC - step;
+            while (inGamutC > 0 && kernel.isOutOfGamut(l, inGamutC, h, sRgb)) {
+                outOfGamutC = inGamutC;
+                step *= chromaSearchGrowthFactor;
+                inGamutC -= step;
+            }
+            return findExactMaxC(l, h, max(0, inGamutC), outOfGamutC, sRgb);
+        }
+        // grow C until out of gamut
+        inGamutC = max(0, seedC);
+        outOfGamutC = inGamutC + step;
+        while (!kernel.isOutOfGamut(l, outOfGamutC, h, sRgb)) {
+            inGamutC = outOfGamutC;
+            step *= chromaSearchGrowthFactor;
+            outOfGamutC += step;
+        }
+        return findExactMaxC(l, h, inGamutC, outOfGamutC, sRgb);
+    }
+
+    private double findExactMaxC(double l, double h, double inGamutC, double outOfGamutC, double[] sRgb) {
+        double maxC = rootFinder.findRoot(
+                c -> distanceFromGamutBoundary(l, c, h, sRgb), inGamutC, outOfGamutC, solutionTolerance
+        );
+        if (Double.isNaN(maxC)) {
             throw new IllegalArgumentException(
-                    "Unable to solve C in %s for L=%f, h=%f. Best guess: C=%f".formatted(
-                            lch.getClass().getSimpleName(), l, h, solver.lastValue()
+                    "Unable to solve C in %s for L=%f, h=%f between C=%f and C=%f".formatted(
+                            typeName, l, h, inGamutC, outOfGamutC
                     )
             );
         }
-        return solution.orElse(0.0);
+        return maxC;
     }
 
-    private double findMaxCUpperBound(double l, double h) {
-        double cOutOfGamut = 0;
-        do {
-            cOutOfGamut += roughChromaSearchStep;
-        } while (!lchToSrgb.apply(lchConstructor.createFrom(l, cOutOfGamut, h)).isOutOfGamut());
-        return cOutOfGamut;
+    /**
+     * @return how far the colour is outside the sRGB cube: negative inside, 0 on the boundary, positive outside
+     */
+    private double distanceFromGamutBoundary(double l, double c, double h, double[] sRgb) {
+        kernel.toSrgb(l, c, h, sRgb, 0);
+        return max(distanceFromUnitRange(sRgb[0]), max(distanceFromUnitRange(sRgb[1]), distanceFromUnitRange(sRgb[2])));
     }
 
-    private static final double COMPONENT_MIN = Rgb.BLACK_THRESHOLD;
-    private static final double COMPONENT_MAX = 1 - COMPONENT_MIN;
-
-    private PrimitiveDoubleToDoubleFunction clipDetectorForLch(double l, double h) {
-        return (double c) -> {
-            Srgb sRgb = lchToSrgb.apply(lchConstructor.createFrom(l, c, h));
-            if (sRgb.isOutOfGamut()) {
-                return 1.0;
-            }
-            if (sRgb.anyCoordinateMatches(coordinate -> (coordinate > COMPONENT_MAX) || (coordinate < COMPONENT_MIN))) {
-                return 0.0;
-            }
-            return -1.0;
-        };
+    private static double distanceFromUnitRange(double component) {
+        return max(component - 1, -component);
     }
 }
@@ -5,22 +5,38 @@ import kofa.maths.Vector3Constructor;
 
 import java.util.function.Function;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * @param kernel                the same conversions as {@code sRgbToLch} and {@code lchToSrgb}, on primitive values;
+ *                              used for the per-pixel work
+ * @param searchProfile         trades speed for robustness and precision of the search for max C
+ * @param maxCLutLightnessSteps the number of L intervals of the max C look-up table; 0 to solve each pixel exactly
+ * @param maxCLutHueSteps       the number of h intervals of the max C look-up table; 0 to solve each pixel exactly
+ */
 public record GamutBoundarySearchParams<L extends LCh<L, ?>>(
         Class<L> type,
         Function<Srgb, L> sRgbToLch,
         Function<L, Srgb> lchToSrgb,
         Vector3Constructor<L> lchConstructor,
-        double roughChromaSearchStep, double solutionThreshold,
-        double maxL) {
+        LchKernel kernel,
+        ChromaSearchProfile searchProfile,
+        double maxL,
+        int maxCLutLightnessSteps, int maxCLutHueSteps) {
+
+    public static final int DEFAULT_LUT_LIGHTNESS_STEPS = 200;
+    public static final int DEFAULT_LUT_HUE_STEPS = 360;
 
     public static final GamutBoundarySearchParams<CIELCh_ab> FOR_CIELAB = new GamutBoundarySearchParams<>(
             CIELCh_ab.class,
             sRgb -> CIELAB.from(sRgb.toXyz()).usingD65_2DEGREE_STANDARD_OBSERVER().toLch(),
             lch -> Srgb.from(lch.toLab().toXyz().usingD65_2DEGREE_STANDARD_OBSERVER()),
             CIELCh_ab::new,
-            1,
-            1E-6,
-            CIELCh_ab.WHITE_L
+            LchKernel.FOR_CIELAB,
+            ChromaSearchProfile.galloping(1, 1E-6),
+            CIELCh_ab.WHITE_L,
+            0, 0
     );
 
     public static final GamutBoundarySearchParams<CIELCh_uv> FOR_CIELUV = new GamutBoundarySearchParams<>(
@@ -28,9 +44,10 @@ public record GamutBoundarySearchParams<L extends LCh<L, ?>>(
             sRgb -> CIELUV.from(sRgb.toXyz()).usingD65_2DEGREE_STANDARD_OBSERVER().toLch(),
             lch -> Srgb.from(lch.toLuv().toXyz().usingD65_2DEGREE_STANDARD_OBSERVER()),
             CIELCh_uv::new,
-            1,
-            1E-6,
-            CIELCh_uv.WHITE_L
+            LchKernel.FOR_CIELUV,
+            ChromaSearchProfile.galloping(1, 1E-6),
+            CIELCh_uv.WHITE_L,
+            0, 0
     );
 
     public static final GamutBoundarySearchParams<OkLCh> FOR_OKLAB = new GamutBoundarySearchParams<>(
@@ -38,8 +55,49 @@ public record GamutBoundarySearchParams<L extends LCh<L, ?>>(
             sRgb -> OkLAB.from(sRgb.toXyz()).usingD65_2DEGREE_STANDARD_OBSERVER().toLch(),
             lch -> Srgb.from(lch.toLab().toXyz().usingD65_2DEGREE_STANDARD_OBSERVER()),
             OkLCh::new,
-            0.01,
-            1E-6,
-            OkLCh.WHITE_L
+            LchKernel.FOR_OKLAB,
+            ChromaSearchProfile.galloping(0.01, 1E-8),
+            OkLCh.WHITE_L,
+            0, 0
     );
-}
\ No newline at end of file
+
+    public GamutBoundarySearchParams {
+        requireNonNull(kernel);
+        requireNonNull(searchProfile);
+        checkArgument(
+                maxCLutLightnessSteps >= 0 && maxCLutHueSteps >= 0 && (maxCLutLightnessSteps == 0) == (maxCLutHueSteps == 0),
+                "Invalid max C look-up table resolution: %s x %s", maxCLutLightnessSteps, maxCLutHueSteps
+        );
+    }
+
+    /**
+     * @return these params, with max C interpolated from a table of {@code lightnessSteps x hueSteps} cells instead
+     * of being solved for each pixel, see {@link MaxChromaLut}
+     */
+    public GamutBoundarySearchParams<L> withMaxCLut(int lightnessSteps, int hueSteps) {
+        checkArgument(lightnessSteps > 0 && hueSteps > 0, "Invalid resolution: %s x %s", lightnessSteps, hueSteps);
+        return new GamutBoundarySearchParams<>(
+                type, sRgbToLch, lchToSrgb, lchConstructor, kernel, searchProfile, maxL,
+                lightnessSteps, hueSteps
+        );
+    }
+
+    /**
+     * @return these params, searching for max C as specified, e.g. {@link ChromaSearchProfile#linear(double, double)
+     * in equal steps} for the most robust search
+     */
+    public GamutBoundarySearchParams<L> withSearchProfile(ChromaSearchProfile searchProfile) {
+        return new GamutBoundarySearchParams<>(
+                type, sRgbToLch, lchToSrgb, lchConstructor, kernel, searchProfile, maxL,
+                maxCLutLightnessSteps, maxCLutHueSteps
+        );
+    }
+
+    public GamutBoundarySearchParams<L> withMaxCLut() {
+        return withMaxCLut(DEFAULT_LUT_LIGHTNESS_STEPS, DEFAULT_LUT_HUE_STEPS);
+    }
+
+    public boolean usesMaxCLut() {
+        return maxCLutLightnessSteps > 0;
+    }
+}
@@ -0,0 +1,124 @@
+package kofa.colours.gamutmapper;
+
+import com.google.common.base.Suppliers;
+import kofa.colours.model.LCh;
+import kofa.io.GamutBoundaryAtlas;
+import kofa.parallel.ProcessingContext;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Shares {@link GamutBoundaryMaxCSolver}s between images and threads. Max C only depends on the search params (which
+ * include the conversion to the target gamut), so they are the key. The registry keeps the most recently used
+ * solvers, up to a limit; each solver caches a limited number of exact solutions, so the memory used is bounded
+ * however many images are processed.
+ */
+public class GamutBoundarySolverRegistry implements AutoCloseable {
+    public static final int DEFAULT_MAX_SOLVERS = 16;
+    public static final int DEFAULT_MAX_CACHED_SOLUTIONS = 1 << 20;
+
+    private static final GamutBoundarySolverRegistry SHARED = new GamutBoundarySolverRegistry(
+            DEFAULT_MAX_SOLVERS, DEFAULT_MAX_CACHED_SOLUTIONS, GamutBoundaryAtlas.defaultDirectory()
+    );
+
+    private final int maxCachedSolutions;
+    private final Path atlasDirectory;
+    // access-ordered: the eldest entry is the least recently used; guarded by 'this'
+    private final Map<GamutBoundarySearchParams<?>, Supplier<GamutBoundaryMaxCSolver<?>>> solvers;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxSolvers         the number of solvers kept; the least recently used is evicted
+     * @param maxCachedSolutions the number of exact solutions cached by each solver
+     */
+    public GamutBoundarySolverRegistry(int maxSolvers, int maxCachedSolutions) {
+        this(maxSolvers, maxCachedSolutions, null);
+    }
+
+    /**
+     * @param atlasDirectory where the solvers store their look-up tables, see {@link GamutBoundaryAtlas};
+     *                       {@code null} to keep them in memory
+     */
+    public GamutBoundarySolverRegistry(int maxSolvers, int maxCachedSolutions, Path atlasDirectory) {
+        checkArgument(maxSolvers > 0, "maxSolvers = %s", maxSolvers);
+        checkArgument(maxCachedSolutions >= 0, "maxCachedSolutions = %s", maxCachedSolutions);
+        this.maxCachedSolutions = maxCachedSolutions;
+        this.atlasDirectory = atlasDirectory;
+        solvers = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<GamutBoundarySearchParams<?>, Supplier<GamutBoundaryMaxCSolver<?>>> eldest) {
+                return size() > maxSolvers;
+            }
+        };
+    }
+
+    /**
+     * @return the registry used by the gamut mappers; look-up tables are stored in the
+     * {@link GamutBoundaryAtlas#defaultDirectory() default directory}
+     */
+    public static GamutBoundarySolverRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param context used for filling the look-up table of a new solver, if the params ask for one
+     */
+    @SuppressWarnings("unchecked")
+    public <L extends LCh<L, ?>> GamutBoundaryMaxCSolver<L> solverFor(
+            GamutBoundarySearchParams<L> searchParams,
+            ProcessingContext context
+    ) {
+        Supplier<GamutBoundaryMaxCSolver<?>> solver;
+        synchronized (this) {
+            solver = solvers.get(searchParams);
+            if (solver == null) {
+                misses.increment();
+                // created outside the lock: filling a look-up table takes a while
+                solver = Suppliers.memoize(() -> new GamutBoundaryMaxCSolver<>(
+                        searchParams, maxCachedSolutions, context, atlasDirectory
+                ));
+                solvers.put(searchParams, solver);
+            } else {
+                hits.increment();
+            }
+        }
+        return (GamutBoundaryMaxCSolver<L>) solver.get();
+    }
+
+    /**
+     * @return the number of lookups that found an existing solver
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that created a new solver
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    public synchronized int size() {
+        return solvers.size();
+    }
+
+    /**
+     * Drops all solvers; the ones still used by mappers keep working.
+     */
+    public synchronized void clear() {
+        solvers.clear();
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+}
@@ -2,6 +2,7 @@ package kofa.colours.gamutmapper;
 
 import kofa.colours.model.*;
 import kofa.colours.tonemapper.ToneMapper;
+import kofa.io.RenderPipeline;
 import kofa.io.RgbImage;
 
 import static java.lang.Math.max;
@@ -13,6 +14,8 @@ import static java.lang.Math.min;
 public abstract class GamutMapper {
     private final boolean processInGamutPixels;
     private final ToneMapper<?> toneMapper;
+    // the offsets of the pixels of a row that need mapping, per thread
+    private final ThreadLocal<int[]> rowOffsets = ThreadLocal.withInitial(() -> new int[0]);
 
     protected GamutMapper(ToneMapper<?> toneMapper) {
         this(false, toneMapper);
@@ -26,45 +29,116 @@ public abstract class GamutMapper {
     public void mapToSrgb(RgbImage image) {
         image.init();
         toneMapper.toneMap(image);
-        image.transformAllPixels((row, column, red, green, blue) -> {
-            Srgb transformed = mapToSrgb(red, green, blue, row, column);
-            return new double[]{
-                    applyGamma(transformed.r()),
-                    applyGamma(transformed.g()),
-                    applyGamma(transformed.b())
-            };
+        image.transformAllRows((row, rec2020, sRgb) -> {
+            mapRowToLinearSrgb(row, rec2020, sRgb);
+            applyGamma(sRgb);
         });
     }
 
-    private Srgb mapToSrgb(
-            double rec2020Red,
-            double rec2020Green,
-            double rec2020Blue,
-            int row, int column
-    ) {
-        var sRgb = new Rec2020(rec2020Red, rec2020Green, rec2020Blue).toSRGB();
-        if (processInGamutPixels || sRgb.isOutOfGamut()) {
-            sRgb = getInsideGamut(sRgb);
+    /**
+     * The single-pass equivalent of {@link #mapToSrgb(RgbImage)}: adds tone mapping, gamut mapping and the sRGB
+     * transfer function to the pipeline, which then reads the image only once, and does not modify it.
+     */
+    public RenderPipeline.Builder addStagesTo(RenderPipeline.Builder pipeline) {
+        return pipeline
+                .then(toneMapper.rowTransformer())
+                .then(this::mapRowToLinearSrgb)
+                .then((row, linear, encoded) -> {
+                    System.arraycopy(linear, 0, encoded, 0, linear.length);
+                    applyGamma(encoded);
+                });
+    }
+
+    /**
+     * Tone mapping, gamut mapping and the sRGB transfer function as a single row transformer, for callers that do not
+     * build a {@link RenderPipeline} (e.g. baking a {@link kofa.colours.lut.Lut3D}); the intermediate row is kept per
+     * thread.
+     */
+    public RgbImage.RowTransformer rowTransformer() {
+        RgbImage.RowTransformer toneMapping = toneMapper.rowTransformer();
+        ThreadLocal<double[]> toneMappedRows = ThreadLocal.withInitial(() -> new double[0]);
+        return (row, rec2020, encoded) -> {
+            double[] toneMapped = toneMappedRows.get();
+            if (toneMapped.length != rec2020.length) {
+                toneMapped = new double[rec2020.length];
+                toneMappedRows.set(toneMapped);
+            }
+            toneMapping.transformRow(row, rec2020, toneMapped);
+            mapRowToLinearSrgb(row, toneMapped, encoded);
+            applyGamma(encoded);
+        };
+    }
+
+    private void mapRowToLinearSrgb(int row, double[] rec2020, double[] sRgb) {
+        Rec2020.TO_SRGB.kernel().applyInterleaved(rec2020, 0, sRgb, 0, rec2020.length / 3);
+        int[] offsets = rowOffsets.get();
+        if (offsets.length < rec2020.length / 3) {
+            offsets = new int[rec2020.length / 3];
+            rowOffsets.set(offsets);
+        }
+        int count = 0;
+        for (int index = 0; index < rec2020.length; index += 3) {
+            if (processInGamutPixels || isOutOfGamut(sRgb, index)) {
+                offsets[count++] = index;
+            }
+        }
+        if (count == 0) {
+            return;
         }
-        return ensurePixelIsWithinGamut(sRgb, row, column, rec2020Red, rec2020Green, rec2020Blue);
+        mapInsideGamut(row, sRgb, offsets, count);
+        for (int i = 0; i < count; i++) {
+            int index = offsets[i];
+            ensurePixelIsWithinGamut(sRgb, index, row, rec2020);
+            // clip away any remaining tiny error
+            sRgb[index] = min(1, max(0, sRgb[index]));
+            sRgb[index + 1] = min(1, max(0, sRgb[index + 1]));
+            sRgb[index + 2] = min(1, max(0, sRgb[index + 2]));
+        }
+    }
+
+    private static boolean isOutOfGamut(double[] rgb, int index) {
+        return isOutOfGamut(rgb[index]) || isOutOfGamut(rgb[index + 1]) || isOutOfGamut(rgb[index + 2]);
+    }
+
+    private static boolean isOutOfGamut(double component) {
+        return component < 0 || component > 1;
     }
 
-    private Srgb ensurePixelIsWithinGamut(
-            Srgb mappedPixel,
-            int row, int column,
-            double rec2020Red, double rec2020Green, double rec2020Blue) {
+    /**
+     * Maps the pixels of a row that need mapping, in place. Only these are wrapped in objects, in-gamut pixels are
+     * skipped unless the mapper processes all pixels. Mappers that can handle a whole row at once (e.g. with a batch
+     * max C query) override this; the others only implement {@link #getInsideGamut(Srgb)}.
+     *
+     * @param row     the number of the row
+     * @param sRgb    the row as interleaved linear sRGB
+     * @param offsets the offsets of the pixels to map (of their red component), the first {@code count} are valid
+     */
+    protected void mapInsideGamut(int row, double[] sRgb, int[] offsets, int count) {
+        for (int i = 0; i < count; i++) {
+            int index = offsets[i];
+            set(sRgb, index, getInsideGamut(new Srgb(sRgb[index], sRgb[index + 1], sRgb[index + 2])));
+        }
+    }
+
+    protected static void set(double[] rgb, int index, Srgb value) {
+        rgb[index] = value.r();
+        rgb[index + 1] = value.g();
+        rgb[index + 2] = value.b();
+    }
+
+    private static void ensurePixelIsWithinGamut(double[] sRgb, int index, int row, double[] rec2020) {
         // if error is greater than what 16-bit integer rounding would mask, die
-        if (mappedPixel.anyCoordinateMatches(value -> value < -1.0 / 65535 / 2 || value > 1 + 1.0 / 65535 / 2)) {
-            throw exception(mappedPixel, row, column, rec2020Red, rec2020Green, rec2020Blue);
+        if (isBeyondRounding(sRgb[index]) || isBeyondRounding(sRgb[index + 1]) || isBeyondRounding(sRgb[index + 2])) {
+            throw exception(
+                    new Srgb(sRgb[index], sRgb[index + 1], sRgb[index + 2]),
+                    row, index / 3,
+                    rec2020[index], rec2020[index + 1], rec2020[index + 2]
+            );
         }
-        return mappedPixel.isOutOfGamut() ?
-                // clip away any remaining tiny error
-                new Srgb(
-                        min(1, max(0, mappedPixel.r())),
-                        min(1, max(0, mappedPixel.g())),
-                        min(1, max(0, mappedPixel.b()))
-                ) :
-                mappedPixel;
+    }
+
+    private static boolean isBeyondRounding(double component) {
+        return component < -1.0 / 65535 / 2 || component > 1 + 1.0 / 65535 / 2;
     }
 
     @SuppressWarnings("StringConcatenationMissingWhitespace")
@@ -118,7 +192,13 @@ public abstract class GamutMapper {
 
     private static final double LINEAR_THRESHOLD = 0.0031308;
 
-    private double applyGamma(double linear) {
+    private static void applyGamma(double[] rgb) {
+        for (int index = 0; index < rgb.length; index++) {
+            rgb[index] = applyGamma(rgb[index]);
+        }
+    }
+
+    private static double applyGamma(double linear) {
         return linear <= LINEAR_THRESHOLD ?
                 12.92 * linear :
                 1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
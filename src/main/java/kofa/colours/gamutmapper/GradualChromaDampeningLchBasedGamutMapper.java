@@ -4,11 +4,12 @@ import kofa.colours.model.*;
 import kofa.colours.tonemapper.SimpleCurveBasedToneMapper;
 import kofa.colours.tonemapper.ToneMapper;
 import kofa.io.RgbImage;
+import kofa.maths.Curve;
 import kofa.maths.ThanatomanicCurve6;
 import kofa.maths.Vector3Constructor;
+import kofa.parallel.ProcessingContext;
 
 import java.util.function.Function;
-import java.util.function.ToDoubleFunction;
 
 /**
  * A gamut mapper type that gradually dampens LCh chroma to the maximum value, independently for each pixel.
@@ -19,14 +20,16 @@ import java.util.function.ToDoubleFunction;
  * @param <P> the polar LCh type
  */
 public class GradualChromaDampeningLchBasedGamutMapper<P extends LCh<P, S>, S extends ConvertibleToLch<S, P>> extends GamutMapper {
-    private final ToDoubleFunction<P> maxCFinder;
+    private final MaxCSolver<P> solver;
     private final String name;
-    private final ThanatomanicCurve6 dampeningCurve;
+    private final Curve dampeningCurve;
     // the shoulder of the curve; also, the ratio to maxC below which C is not modified
     private final double shoulder;
     private final Function<Srgb, P> sRgbToLch;
     private final Function<P, Srgb> lchToSrgb;
+    private final LchKernel kernel;
     private final Vector3Constructor<P> lchConstructor;
+    private final ThreadLocal<MaxCQuery> queries = ThreadLocal.withInitial(MaxCQuery::new);
 
     public static GradualChromaDampeningLchBasedGamutMapper<CIELCh_ab, CIELAB> forLchAb(double shoulder, RgbImage image) {
         return new GradualChromaDampeningLchBasedGamutMapper<>(
@@ -47,53 +50,116 @@ public class GradualChromaDampeningLchBasedGamutMapper<P extends LCh<P, S>, S ex
     }
 
     public static GradualChromaDampeningLchBasedGamutMapper<OkLCh, OkLAB> forOkLch(double shoulder, RgbImage image) {
+        return forOkLch(shoulder, image, false);
+    }
+
+    /**
+     * @param analyticMaxC whether to compute max C with {@link OkLChMaxCSolver} instead of searching for it
+     */
+    public static GradualChromaDampeningLchBasedGamutMapper<OkLCh, OkLAB> forOkLch(
+            double shoulder, RgbImage image, boolean analyticMaxC
+    ) {
+        var searchParams = GamutBoundarySearchParams.FOR_OKLAB;
         return new GradualChromaDampeningLchBasedGamutMapper<>(
                 shoulder,
-                GamutBoundarySearchParams.FOR_OKLAB,
-                SimpleCurveBasedToneMapper.forOkLab(image),
-                image
+                searchParams,
+                analyticMaxC ? OkLChMaxCSolver.INSTANCE : GamutBoundaryMaxCSolver.createFor(searchParams, image),
+                SimpleCurveBasedToneMapper.forOkLab(image)
         );
     }
 
-    private GradualChromaDampeningLchBasedGamutMapper(
+    /**
+     * Does not depend on an image if the tone mapper does not (e.g.
+     * {@link SimpleCurveBasedToneMapper#forOkLab(double)}), so it can be baked into a {@link kofa.colours.lut.Lut3D}.
+     */
+    public static GradualChromaDampeningLchBasedGamutMapper<OkLCh, OkLAB> forOkLch(
+            double shoulder, ToneMapper<OkLAB> toneMapper
+    ) {
+        var searchParams = GamutBoundarySearchParams.FOR_OKLAB;
+        return new GradualChromaDampeningLchBasedGamutMapper<>(
+                shoulder,
+                searchParams,
+                GamutBoundarySolverRegistry.shared().solverFor(searchParams, ProcessingContext.common()),
+                toneMapper
+        );
+    }
+
+    /**
+     * For custom search params, e.g. {@link GamutBoundarySearchParams#withMaxCLut() with a max C look-up table}.
+     */
+    public GradualChromaDampeningLchBasedGamutMapper(
             double shoulder,
             GamutBoundarySearchParams<P> searchParams,
             ToneMapper<S> toneMapper,
             RgbImage image
+    ) {
+        this(shoulder, searchParams, GamutBoundaryMaxCSolver.createFor(searchParams, image), toneMapper);
+    }
+
+    /**
+     * @param searchParams provide the conversions; max C is found by the solver
+     */
+    public GradualChromaDampeningLchBasedGamutMapper(
+            double shoulder,
+            GamutBoundarySearchParams<P> searchParams,
+            MaxCSolver<P> solver,
+            ToneMapper<S> toneMapper
     ) {
         super(true, toneMapper);
         this.shoulder = shoulder;
-        this.name = searchParams.type().getSimpleName();
-        this.dampeningCurve = new ThanatomanicCurve6(1, shoulder);
+        this.name = searchParams.type().getSimpleName() + (solver instanceof OkLChMaxCSolver ? "-analytic" : "");
+        this.dampeningCurve = new ThanatomanicCurve6(1, shoulder).sampled();
         this.sRgbToLch = searchParams.sRgbToLch();
         this.lchToSrgb = searchParams.lchToSrgb();
         this.lchConstructor = searchParams.lchConstructor();
-        var solver = GamutBoundaryMaxCSolver.createFor(searchParams, image);
-        this.maxCFinder = lch -> solver.maxCFor(lch);
+        this.kernel = searchParams.kernel();
+        this.solver = solver;
     }
 
     @Override
     public Srgb getInsideGamut(Srgb sRgb) {
         var originalLch = sRgbToLch.apply(sRgb);
-        var cAtGamutBoundary = maxCFinder.applyAsDouble(originalLch);
-        double originalC = originalLch.C();
-        double dampenedC;
-        if (cAtGamutBoundary != 0) {
-            var ratioToMaxC = originalC / cAtGamutBoundary;
-            if (ratioToMaxC > shoulder) {
-                var curveValue = dampeningCurve.mappedValueOf(ratioToMaxC);
-                dampenedC = curveValue * cAtGamutBoundary;
-            } else {
-                dampenedC = originalC;
-            }
-        } else {
-            dampenedC = 0;
-        }
+        var cAtGamutBoundary = solver.maxCFor(originalLch);
+        double dampenedC = dampenedC(originalLch.C(), cAtGamutBoundary);
         return lchToSrgb.apply(
                 lchConstructor.createFrom(originalLch.L(), dampenedC, originalLch.h())
         );
     }
 
+    /**
+     * Finds max C for the whole row with a single batch query; converts with the primitive {@link LchKernel}.
+     */
+    @Override
+    protected void mapInsideGamut(int row, double[] sRgb, int[] offsets, int count) {
+        MaxCQuery query = queries.get().ensureCapacity(count);
+        double[] lch = query.lch;
+        double[] l = query.l;
+        double[] h = query.h;
+        double[] cAtGamutBoundary = query.maxC;
+        for (int i = 0; i < count; i++) {
+            kernel.fromSrgb(sRgb, offsets[i], lch, 3 * i);
+            l[i] = lch[3 * i];
+            h[i] = lch[3 * i + 2];
+        }
+        solver.maxCFor(l, h, cAtGamutBoundary, count);
+        for (int i = 0; i < count; i++) {
+            double dampenedC = dampenedC(lch[3 * i + 1], cAtGamutBoundary[i]);
+            kernel.toSrgbInGamut(l[i], dampenedC, h[i], sRgb, offsets[i]);
+        }
+    }
+
+    private double dampenedC(double originalC, double cAtGamutBoundary) {
+        if (cAtGamutBoundary == 0) {
+            return 0;
+        }
+        var ratioToMaxC = originalC / cAtGamutBoundary;
+        if (ratioToMaxC > shoulder) {
+            var curveValue = dampeningCurve.mappedValueOf(ratioToMaxC);
+            return curveValue * cAtGamutBoundary;
+        }
+        return originalC;
+    }
+
     @Override
     public String name() {
         return super.name() + name + "-shoulder-%d".formatted((int) (shoulder * 100));
@@ -0,0 +1,35 @@
+package kofa.colours.gamutmapper;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The arrays of a {@link MaxCSolver#maxCFor(double[], double[], double[], int) batch max C query}. The gamut mappers
+ * keep one per thread, and grow it as needed, so mapping a row does not allocate them.
+ */
+final class MaxCQuery {
+    // L, C, h triplets
+    double[] lch = new double[0];
+    double[] l = new double[0];
+    double[] h = new double[0];
+    double[] maxC = new double[0];
+
+    /**
+     * @return this, with room for at least {@code count} queries
+     */
+    MaxCQuery ensureCapacity(int count) {
+        if (l.length < count) {
+            lch = new double[3 * count];
+            l = new double[count];
+            h = new double[count];
+            maxC = new double[count];
+        }
+        return this;
+    }
+
+    static void checkArguments(double[] l, double[] h, double[] maxC, int count) {
+        checkArgument(
+                count >= 0 && count <= l.length && count <= h.length && count <= maxC.length,
+                "count = %s, l: %s, h: %s, maxC: %s", count, l.length, h.length, maxC.length
+        );
+    }
+}
@@ -0,0 +1,28 @@
+package kofa.colours.gamutmapper;
+
+import kofa.colours.model.LCh;
+
+/**
+ * Finds max C at the sRGB gamut boundary for given L and h.
+ *
+ * @param <L> the polar LCh type
+ */
+public interface MaxCSolver<L extends LCh<L, ?>> {
+    double maxCFor(double l, double h);
+
+    default double maxCFor(L lch) {
+        return maxCFor(lch.L(), lch.h());
+    }
+
+    /**
+     * Answers a whole row or tile at once: {@code maxC[i]} receives max C for {@code l[i]} and {@code h[i]}, for
+     * the first {@code count} elements. Solvers may reorder the queries internally, e.g. to use solutions as the
+     * starting point for their neighbours.
+     */
+    default void maxCFor(double[] l, double[] h, double[] maxC, int count) {
+        MaxCQuery.checkArguments(l, h, maxC, count);
+        for (int i = 0; i < count; i++) {
+            maxC[i] = maxCFor(l[i], h[i]);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package kofa.colours.gamutmapper;
+
+import kofa.io.GamutBoundaryAtlas;
+import kofa.parallel.ProcessingContext;
+
+import java.nio.file.Path;
+import java.util.function.DoubleBinaryOperator;
+
+import static java.lang.Math.PI;
+import static java.lang.Math.floor;
+import static java.lang.Math.min;
+
+/**
+ * Max C at the gamut boundary, precomputed on a grid over L x h, and interpolated bilinearly (periodically along h).
+ * The boundary is not linear between the grid points (especially around the cusps), so an interpolated value may be
+ * slightly out of gamut: the caller must verify it, and fall back to solving exactly, see
+ * {@link GamutBoundaryMaxCSolver#maxCFor(double, double)}.
+ */
+class MaxChromaLut {
+    private static final double TWO_PI = 2 * PI;
+
+    private final int lightnessSteps;
+    private final int hueSteps;
+    private final double maxL;
+    // [lightness index][hue index], L = 0 and L = maxL included; h = -PI at hue index 0
+    private final GamutBoundaryAtlas maxC;
+
+    /**
+     * @param exactMaxC      solves max C for (L, h); called once for each grid point, from the threads of the context,
+     *                       unless the table is found in the atlas directory
+     * @param atlasDirectory where the table is stored, see {@link GamutBoundaryAtlas}; {@code null} to keep it in memory
+     * @param atlasKey       identifies everything the values depend on, except the resolution
+     */
+    MaxChromaLut(
+            int lightnessSteps, int hueSteps, double maxL, DoubleBinaryOperator exactMaxC, ProcessingContext context,
+            Path atlasDirectory, String atlasKey
+    ) {
+        this.lightnessSteps = lightnessSteps;
+        this.hueSteps = hueSteps;
+        this.maxL = maxL;
+        maxC = GamutBoundaryAtlas.loadOrCreate(
+                atlasDirectory, "%s; %d x %d".formatted(atlasKey, lightnessSteps, hueSteps),
+                lightnessSteps + 1, hueSteps,
+                () -> solve(exactMaxC, context)
+        );
+    }
+
+    private double[][] solve(DoubleBinaryOperator exactMaxC, ProcessingContext context) {
+        double[][] grid = new double[lightnessSteps + 1][hueSteps];
+        context.forEachIndex(0, lightnessSteps + 1, lightnessIndex -> {
+            double l = maxL * lightnessIndex / lightnessSteps;
+            double[] maxCForL = grid[lightnessIndex];
+            for (int hueIndex = 0; hueIndex < hueSteps; hueIndex++) {
+                maxCForL[hueIndex] = exactMaxC.applyAsDouble(l, hueOf(hueIndex));
+            }
+        });
+        return grid;
+    }
+
+    private double hueOf(int hueIndex) {
+        return TWO_PI * hueIndex / hueSteps - PI;
+    }
+
+    double interpolatedMaxCFor(double l, double h) {
+        double lightnessPosition = Math.max(0, min(lightnessSteps, l / maxL * lightnessSteps));
+        int lightnessIndex = min(lightnessSteps - 1, (int) lightnessPosition);
+        double lightnessWeight = lightnessPosition - lightnessIndex;
+
+        double huePosition = (h + PI) / TWO_PI * hueSteps;
+        double hueFloor = floor(huePosition);
+        double hueWeight = huePosition - hueFloor;
+        int hueIndex = Math.floorMod((int) hueFloor, hueSteps);
+        int nextHueIndex = hueIndex + 1 == hueSteps ? 0 : hueIndex + 1;
+
+        double lower = maxC.get(lightnessIndex, hueIndex);
+        double lowerNext = maxC.get(lightnessIndex, nextHueIndex);
+        double upper = maxC.get(lightnessIndex + 1, hueIndex);
+        double upperNext = maxC.get(lightnessIndex + 1, nextHueIndex);
+        double maxCAtLowerL = lower + (lowerNext - lower) * hueWeight;
+        double maxCAtUpperL = upper + (upperNext - upper) * hueWeight;
+        return maxCAtLowerL + (maxCAtUpperL - maxCAtLowerL) * lightnessWeight;
+    }
+}
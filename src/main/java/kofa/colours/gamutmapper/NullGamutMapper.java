@@ -4,12 +4,16 @@ import kofa.colours.model.Srgb;
 
 public class NullGamutMapper extends GamutMapper {
     public NullGamutMapper() {
-        super(ignoredImageWontMap -> {
-        });
+        super(() -> (row, in, out) -> System.arraycopy(in, 0, out, 0, in.length));
     }
 
     @Override
     public Srgb getInsideGamut(Srgb sRgb) {
         return sRgb;
     }
+
+    @Override
+    protected void mapInsideGamut(int row, double[] sRgb, int[] offsets, int count) {
+        // leaves the pixels unchanged
+    }
 }
@@ -0,0 +1,210 @@
+package kofa.colours.gamutmapper;
+
+import kofa.colours.model.OkLAB;
+import kofa.colours.model.OkLCh;
+import kofa.colours.model.Srgb;
+
+import static java.lang.Math.*;
+
+/**
+ * Computes max C of OkLCh at the sRGB gamut boundary in a few arithmetic steps, without creating objects; the results
+ * match {@link GamutBoundarySearchParams#FOR_OKLAB}, which steps C until out of gamut, then bisects.
+ * <p>
+ * Follows https://bottosson.github.io/posts/gamutclipping/: for each hue, the boundary consists of a straight line
+ * from black to the cusp (where one sRGB component is 0), and a curve from the cusp to white (where one component is
+ * 1). The saturation (C / L) of the cusp is estimated by a polynomial, then refined with Halley's method; above the
+ * cusp, the estimate from the triangle black-cusp-white is refined the same way. Unlike the article, the matrices are
+ * the ones this project uses for the conversion, and the refinement is iterated to double precision. A result that
+ * would still be out of gamut is bisected to the boundary.
+ */
+public class OkLChMaxCSolver implements MaxCSolver<OkLCh> {
+    /**
+     * Stateless, may be shared.
+     */
+    public static final OkLChMaxCSolver INSTANCE = new OkLChMaxCSolver();
+
+    // Halley's method converges cubically: usually 2 or 3 iterations, more close to the hues where the polynomial fit
+    // switches components
+    private static final int MAX_HALLEY_ITERATIONS = 10;
+    private static final double HALLEY_TOLERANCE = 1E-15;
+    private static final int BISECTION_ITERATIONS = 60;
+    // pulls the result a bit inside, so conversions rounding differently still find it in gamut
+    private static final double SAFETY_FACTOR = 1 - 1E-9;
+
+    // L'M'S' = labToLmsPrime x (L, a, b)
+    private final double[][] labToLmsPrime;
+    // linear sRGB = lmsToSrgb x (L'^3, M'^3, S'^3)
+    private final double[][] lmsToSrgb;
+
+    private OkLChMaxCSolver() {
+        labToLmsPrime = OkLAB.labToLmsPrimeMatrix();
+        double[][] xyzToSrgb = Srgb.FROM_XYZ.values();
+        double[][] lmsToXyz = OkLAB.lmsToXyzMatrixD65_2DEGREE_STANDARD_OBSERVER();
+        lmsToSrgb = new double[3][3];
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 3; column++) {
+                for (int i = 0; i < 3; i++) {
+                    lmsToSrgb[row][column] += xyzToSrgb[row][i] * lmsToXyz[i][column];
+                }
+            }
+        }
+    }
+
+    @Override
+    public double maxCFor(double l, double h) {
+        if (l >= OkLCh.WHITE_L || l <= 0) {
+            return 0;
+        }
+        double cosH = cos(h);
+        double sinH = sin(h);
+        // L' = aL * L + kL * C, and similarly for M' and S'
+        double aL = labToLmsPrime[0][0];
+        double aM = labToLmsPrime[1][0];
+        double aS = labToLmsPrime[2][0];
+        double kL = labToLmsPrime[0][1] * cosH + labToLmsPrime[0][2] * sinH;
+        double kM = labToLmsPrime[1][1] * cosH + labToLmsPrime[1][2] * sinH;
+        double kS = labToLmsPrime[2][1] * cosH + labToLmsPrime[2][2] * sinH;
+
+        double cuspSaturation = cuspSaturation(cosH, sinH, aL, aM, aS, kL, kM, kS);
+        // scale the cusp (L = 1, C = saturation) down until its largest component is 1
+        double maxComponentAtL1 = max(
+                component(0, aL + kL * cuspSaturation, aM + kM * cuspSaturation, aS + kS * cuspSaturation),
+                max(
+                        component(1, aL + kL * cuspSaturation, aM + kM * cuspSaturation, aS + kS * cuspSaturation),
+                        component(2, aL + kL * cuspSaturation, aM + kM * cuspSaturation, aS + kS * cuspSaturation)
+                )
+        );
+        double cuspL = cbrt(1 / maxComponentAtL1);
+        double cuspC = cuspL * cuspSaturation;
+
+        double maxC;
+        if (l <= cuspL) {
+            // black-to-cusp is a straight line: scaling linear RGB scales L'M'S', so L and C, by the cube root
+            maxC = l * cuspSaturation;
+        } else {
+            maxC = cuspC * (OkLCh.WHITE_L - l) / (OkLCh.WHITE_L - cuspL);
+            for (int iteration = 0; iteration < MAX_HALLEY_ITERATIONS; iteration++) {
+                double step = halleyStepTowardsOne(l, maxC, aL, aM, aS, kL, kM, kS);
+                maxC += step;
+                if (abs(step) <= HALLEY_TOLERANCE * maxC) {
+                    break;
+                }
+            }
+        }
+        maxC = max(0, maxC * SAFETY_FACTOR);
+        if (!isInGamut(l, maxC, aL, aM, aS, kL, kM, kS)) {
+            maxC = bisect(l, maxC, aL, aM, aS, kL, kM, kS);
+        }
+        return maxC;
+    }
+
+    /**
+     * @return C / L of the cusp, where the component that reaches 0 first for this hue is 0
+     */
+    private double cuspSaturation(
+            double cosH, double sinH, double aL, double aM, double aS, double kL, double kM, double kS
+    ) {
+        // polynomial fit from the article, to find which component reaches 0 and to start the refinement
+        int component;
+        double saturation;
+        if (-1.88170328 * cosH - 0.80936493 * sinH > 1) {
+            component = 0;
+            saturation = 1.19086277 + 1.76576728 * cosH + 0.59662641 * sinH + 0.75515197 * cosH * cosH + 0.56771245 * cosH * sinH;
+        } else if (1.81444104 * cosH - 1.19445276 * sinH > 1) {
+            component = 1;
+            saturation = 0.73956515 - 0.45954404 * cosH + 0.08285427 * sinH + 0.12541070 * cosH * cosH + 0.14503204 * cosH * sinH;
+        } else {
+            component = 2;
+            saturation = 1.35733652 - 0.00915799 * cosH - 1.15130210 * sinH - 0.50559606 * cosH * cosH + 0.00692167 * cosH * sinH;
+        }
+        double[] weights = lmsToSrgb[component];
+        for (int iteration = 0; iteration < MAX_HALLEY_ITERATIONS; iteration++) {
+            double lPrime = aL + kL * saturation;
+            double mPrime = aM + kM * saturation;
+            double sPrime = aS + kS * saturation;
+            double value = weights[0] * lPrime * lPrime * lPrime
+                    + weights[1] * mPrime * mPrime * mPrime
+                    + weights[2] * sPrime * sPrime * sPrime;
+            double derivative = 3 * (weights[0] * kL * lPrime * lPrime
+                    + weights[1] * kM * mPrime * mPrime
+                    + weights[2] * kS * sPrime * sPrime);
+            double secondDerivative = 6 * (weights[0] * kL * kL * lPrime
+                    + weights[1] * kM * kM * mPrime
+                    + weights[2] * kS * kS * sPrime);
+            double step = value * derivative / (derivative * derivative - 0.5 * value * secondDerivative);
+            saturation -= step;
+            if (abs(step) <= HALLEY_TOLERANCE * saturation) {
+                break;
+            }
+        }
+        return saturation;
+    }
+
+    /**
+     * @return the smallest Halley step along C that takes a component to 1
+     */
+    private double halleyStepTowardsOne(
+            double l, double c, double aL, double aM, double aS, double kL, double kM, double kS
+    ) {
+        double lPrime = aL * l + kL * c;
+        double mPrime = aM * l + kM * c;
+        double sPrime = aS * l + kS * c;
+        double lms0 = lPrime * lPrime * lPrime;
+        double lms1 = mPrime * mPrime * mPrime;
+        double lms2 = sPrime * sPrime * sPrime;
+        double lms0Derivative = 3 * kL * lPrime * lPrime;
+        double lms1Derivative = 3 * kM * mPrime * mPrime;
+        double lms2Derivative = 3 * kS * sPrime * sPrime;
+        double lms0SecondDerivative = 6 * kL * kL * lPrime;
+        double lms1SecondDerivative = 6 * kM * kM * mPrime;
+        double lms2SecondDerivative = 6 * kS * kS * sPrime;
+
+        double step = Double.MAX_VALUE;
+        for (double[] weights : lmsToSrgb) {
+            double value = weights[0] * lms0 + weights[1] * lms1 + weights[2] * lms2 - 1;
+            double derivative = weights[0] * lms0Derivative + weights[1] * lms1Derivative + weights[2] * lms2Derivative;
+            double secondDerivative = weights[0] * lms0SecondDerivative
+                    + weights[1] * lms1SecondDerivative
+                    + weights[2] * lms2SecondDerivative;
+            double u = derivative / (derivative * derivative - 0.5 * value * secondDerivative);
+            // a component moving away from 1 does not limit C
+            if (u >= 0) {
+                step = min(step, -value * u);
+            }
+        }
+        return step == Double.MAX_VALUE ? 0 : step;
+    }
+
+    private double bisect(double l, double outOfGamutC, double aL, double aM, double aS, double kL, double kM, double kS) {
+        double inGamutC = 0;
+        for (int iteration = 0; iteration < BISECTION_ITERATIONS; iteration++) {
+            double c = (inGamutC + outOfGamutC) / 2;
+            if (isInGamut(l, c, aL, aM, aS, kL, kM, kS)) {
+                inGamutC = c;
+            } else {
+                outOfGamutC = c;
+            }
+        }
+        return inGamutC;
+    }
+
+    private boolean isInGamut(double l, double c, double aL, double aM, double aS, double kL, double kM, double kS) {
+        double lPrime = aL * l + kL * c;
+        double mPrime = aM * l + kM * c;
+        double sPrime = aS * l + kS * c;
+        for (int component = 0; component < 3; component++) {
+            double value = component(component, lPrime, mPrime, sPrime);
+            if (value < 0 || value > 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private double component(int component, double lPrime, double mPrime, double sPrime) {
+        double[] weights = lmsToSrgb[component];
+        return weights[0] * lPrime * lPrime * lPrime
+                + weights[1] * mPrime * mPrime * mPrime
+                + weights[2] * sPrime * sPrime * sPrime;
+    }
+}
@@ -21,6 +21,16 @@ public class SrgbClippingGamutMapper extends GamutMapper {
         );
     }
 
+    @Override
+    protected void mapInsideGamut(int row, double[] sRgb, int[] offsets, int count) {
+        for (int i = 0; i < count; i++) {
+            int index = offsets[i];
+            sRgb[index] = clip(sRgb[index]);
+            sRgb[index + 1] = clip(sRgb[index + 1]);
+            sRgb[index + 2] = clip(sRgb[index + 2]);
+        }
+    }
+
     private double clip(double value) {
         return max(0, min(value, 1));
     }
@@ -0,0 +1,125 @@
+package kofa.colours.lut;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads and writes {@link Lut3D}s in the {@code .cube} format (Adobe / Resolve): a header with {@code LUT_3D_SIZE}
+ * and optionally {@code TITLE}, {@code DOMAIN_MIN} and {@code DOMAIN_MAX}, followed by the nodes, one RGB triplet per
+ * line, red changing fastest.
+ * <p>
+ * The format has no logarithmic shaper: a {@link LutShaper.Log2} is written as a comment, and the domain is [0, 1]
+ * in its encoding, so other applications have to apply the shaper to the input themselves; this class restores it.
+ * A linear shaper is written as the domain, which must be the same for all components when reading. 1D LUTs are not
+ * supported.
+ */
+public class CubeFile {
+    private static final String SHAPER_COMMENT = "# KOFA_SHAPER LOG2";
+
+    private CubeFile() {
+    }
+
+    public static void write(Lut3D lut, String title, Path file) {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, UTF_8)) {
+            writer.write("TITLE \"%s\"%n".formatted(title.replace('"', '\'')));
+            double domainMin = 0;
+            double domainMax = 1;
+            if (lut.shaper() instanceof LutShaper.Log2 log2) {
+                writer.write(String.format(Locale.ROOT, "%s %s %s%n", SHAPER_COMMENT, log2.blackOffset(), log2.max()));
+            } else if (lut.shaper() instanceof LutShaper.Linear linear) {
+                domainMin = linear.min();
+                domainMax = linear.max();
+            }
+            writer.write("LUT_3D_SIZE %d%n".formatted(lut.size()));
+            writer.write(String.format(Locale.ROOT, "DOMAIN_MIN %s %s %s%n", domainMin, domainMin, domainMin));
+            writer.write(String.format(Locale.ROOT, "DOMAIN_MAX %s %s %s%n", domainMax, domainMax, domainMax));
+            float[] nodes = lut.nodes();
+            for (int index = 0; index < nodes.length; index += 3) {
+                writer.write(String.format(Locale.ROOT, "%.7f %.7f %.7f%n", nodes[index], nodes[index + 1], nodes[index + 2]));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the file is not a valid 3D {@code .cube} file
+     */
+    public static Lut3D read(Path file) {
+        try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+            int size = 0;
+            LutShaper shaper = null;
+            double domainMin = 0;
+            double domainMax = 1;
+            float[] nodes = null;
+            int valueCount = 0;
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.startsWith(SHAPER_COMMENT)) {
+                    String[] values = line.substring(SHAPER_COMMENT.length()).strip().split("\\s+");
+                    shaper = LutShaper.log2(parse(values[0], lineNumber), parse(values[1], lineNumber));
+                    continue;
+                }
+                if (line.isEmpty() || line.startsWith("#") || line.startsWith("TITLE")) {
+                    continue;
+                }
+                String[] tokens = line.split("\\s+");
+                switch (tokens[0]) {
+                    case "LUT_3D_SIZE" -> {
+                        size = (int) parse(tokens[1], lineNumber);
+                        checkArgument(size >= 2 && size <= Lut3D.MAX_SIZE, "Invalid size %s in line %s", size, lineNumber);
+                        nodes = new float[3 * size * size * size];
+                    }
+                    case "DOMAIN_MIN" -> domainMin = sameForAllComponents(tokens, lineNumber);
+                    case "DOMAIN_MAX" -> domainMax = sameForAllComponents(tokens, lineNumber);
+                    case "LUT_1D_SIZE", "LUT_1D_INPUT_RANGE", "LUT_3D_INPUT_RANGE" ->
+                            throw new IllegalArgumentException("Unsupported keyword in line %d: %s".formatted(lineNumber, line));
+                    default -> {
+                        checkArgument(nodes != null, "Values before LUT_3D_SIZE in line %s", lineNumber);
+                        checkArgument(tokens.length == 3, "Expected 3 values in line %s: %s", lineNumber, line);
+                        checkArgument(valueCount < nodes.length, "Too many values in line %s", lineNumber);
+                        for (String token : tokens) {
+                            nodes[valueCount++] = (float) parse(token, lineNumber);
+                        }
+                    }
+                }
+            }
+            checkArgument(nodes != null, "No LUT_3D_SIZE in %s", file);
+            checkArgument(valueCount == nodes.length, "Expected %s values in %s, found %s", nodes.length, file, valueCount);
+            if (shaper == null) {
+                shaper = LutShaper.linear(domainMin, domainMax);
+            }
+            return new Lut3D(size, shaper, nodes);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static double sameForAllComponents(String[] tokens, int lineNumber) {
+        checkArgument(tokens.length == 4, "Expected 3 values in line %s", lineNumber);
+        double value = parse(tokens[1], lineNumber);
+        checkArgument(
+                parse(tokens[2], lineNumber) == value && parse(tokens[3], lineNumber) == value,
+                "Different domains per component are not supported, line %s", lineNumber
+        );
+        return value;
+    }
+
+    private static double parse(String value, int lineNumber) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in line %d: %s".formatted(lineNumber, value), e);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package kofa.colours.lut;
+
+import kofa.colours.gamutmapper.GamutMapper;
+import kofa.io.RgbImage;
+import kofa.parallel.ProcessingContext;
+
+import java.util.Random;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.*;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A transform of RGB colours, sampled on a {@code size x size x size} lattice and interpolated tetrahedrally in
+ * between. Baking a fixed tone and gamut mapping chain (e.g. {@link GamutMapper#rowTransformer()}) replaces the
+ * per-pixel max C searches and transcendental functions with a look-up and 4 weighted nodes.
+ * <p>
+ * The lattice is laid out in the input space as encoded by the {@link LutShaper}. The chain must not depend on the
+ * image it is applied to: mappers that analyse the image (e.g. the shoulder found by
+ * {@link kofa.colours.tonemapper.SimpleCurveBasedToneMapper#forOkLab(RgbImage)}, or the divisor of
+ * {@link kofa.colours.gamutmapper.DesaturatingLchBasedGamutMapper}) have to be created with fixed parameters.
+ * <p>
+ * Immutable, so it can be shared between threads.
+ */
+public class Lut3D {
+    /**
+     * The usual sizes; 65 nodes per axis take 3.3 MB, and halve the error of 33.
+     */
+    public static final int SIZE_33 = 33;
+    public static final int SIZE_65 = 65;
+    static final int MAX_SIZE = 256;
+
+    private final int size;
+    private final LutShaper shaper;
+    // RGB triplets, red changing fastest, then green, then blue (the order of .cube files)
+    private final float[] nodes;
+
+    Lut3D(int size, LutShaper shaper, float[] nodes) {
+        checkArgument(size >= 2 && size <= MAX_SIZE, "Invalid size: %s", size);
+        checkArgument(nodes.length == 3 * size * size * size, "%s values for size %s", nodes.length, size);
+        this.size = size;
+        this.shaper = requireNonNull(shaper);
+        this.nodes = nodes;
+    }
+
+    /**
+     * Samples the mapper at the nodes, see {@link #bake(RgbImage.RowTransformer, int, LutShaper, ProcessingContext)}.
+     */
+    public static Lut3D bake(GamutMapper mapper, int size, LutShaper shaper, ProcessingContext context) {
+        return bake(mapper.rowTransformer(), size, shaper, context);
+    }
+
+    /**
+     * Samples the transform at the nodes, one lattice row (varying red) at a time, the rows in parallel.
+     *
+     * @param transform receives linear values decoded from the lattice; the row numbers passed are those of the
+     *                  lattice rows, {@code green + size * blue}
+     */
+    public static Lut3D bake(RgbImage.RowTransformer transform, int size, LutShaper shaper, ProcessingContext context) {
+        checkArgument(size >= 2 && size <= MAX_SIZE, "Invalid size: %s", size);
+        double[] decodedNodes = new double[size];
+        for (int node = 0; node < size; node++) {
+            decodedNodes[node] = shaper.decode((double) node / (size - 1));
+        }
+        float[] nodes = new float[3 * size * size * size];
+        int rowLength = 3 * size;
+        ThreadLocal<double[][]> buffers = ThreadLocal.withInitial(() -> new double[][]{new double[rowLength], new double[rowLength]});
+        context.forEachIndex(0, size * size, latticeRow -> {
+            double[][] inAndOut = buffers.get();
+            double[] in = inAndOut[0];
+            double[] out = inAndOut[1];
+            double green = decodedNodes[latticeRow % size];
+            double blue = decodedNodes[latticeRow / size];
+            for (int red = 0; red < size; red++) {
+                in[3 * red] = decodedNodes[red];
+                in[3 * red + 1] = green;
+                in[3 * red + 2] = blue;
+            }
+            transform.transformRow(latticeRow, in, out);
+            int start = latticeRow * rowLength;
+            for (int index = 0; index < rowLength; index++) {
+                nodes[start + index] = (float) out[index];
+            }
+        });
+        return new Lut3D(size, shaper, nodes);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public LutShaper shaper() {
+        return shaper;
+    }
+
+    /**
+     * @return the value of a node; the indices are in [0, size)
+     */
+    public double node(int red, int green, int blue, int component) {
+        return nodes[3 * ((blue * size + green) * size + red) + component];
+    }
+
+    /**
+     * Writes the interpolated transform of the colour to {@code out[offset...offset + 2]}.
+     */
+    public void apply(double red, double green, double blue, double[] out, int offset) {
+        int maxBase = size - 2;
+        double r = shaper.encode(red) * (size - 1);
+        double g = shaper.encode(green) * (size - 1);
+        double b = shaper.encode(blue) * (size - 1);
+        int rBase = min((int) r, maxBase);
+        int gBase = min((int) g, maxBase);
+        int bBase = min((int) b, maxBase);
+        double fr = r - rBase;
+        double fg = g - gBase;
+        double fb = b - bBase;
+
+        int rStride = 3;
+        int gStride = 3 * size;
+        int bStride = 3 * size * size;
+        int base = bBase * bStride + gBase * gStride + rBase * rStride;
+        // the tetrahedron containing the point has the nodes at base and base + all strides, and two in between:
+        // first step along the axis with the largest fraction, then along the second largest
+        int first;
+        int second;
+        double w0;
+        double w1;
+        double w2;
+        double w3;
+        if (fr >= fg) {
+            if (fg >= fb) {
+                first = rStride;
+                second = rStride + gStride;
+                w0 = 1 - fr;
+                w1 = fr - fg;
+                w2 = fg - fb;
+                w3 = fb;
+            } else if (fr >= fb) {
+                first = rStride;
+                second = rStride + bStride;
+                w0 = 1 - fr;
+                w1 = fr - fb;
+                w2 = fb - fg;
+                w3 = fg;
+            } else {
+                first = bStride;
+                second = rStride + bStride;
+                w0 = 1 - fb;
+                w1 = fb - fr;
+                w2 = fr - fg;
+                w3 = fg;
+            }
+        } else {
+            if (fb >= fg) {
+                first = bStride;
+                second = gStride + bStride;
+                w0 = 1 - fb;
+                w1 = fb - fg;
+                w2 = fg - fr;
+                w3 = fr;
+            } else if (fb >= fr) {
+                first = gStride;
+                second = gStride + bStride;
+                w0 = 1 - fg;
+                w1 = fg - fb;
+                w2 = fb - fr;
+                w3 = fr;
+            } else {
+                first = gStride;
+                second = rStride + gStride;
+                w0 = 1 - fg;
+                w1 = fg - fr;
+                w2 = fr - fb;
+                w3 = fb;
+            }
+        }
+        int last = rStride + gStride + bStride;
+        for (int component = 0; component < 3; component++) {
+            int node = base + component;
+            out[offset + component] = w0 * nodes[node]
+                    + w1 * nodes[node + first]
+                    + w2 * nodes[node + second]
+                    + w3 * nodes[node + last];
+        }
+    }
+
+    /**
+     * @return the look-up as a stage of a {@link kofa.io.RenderPipeline}, replacing the transform baked
+     */
+    public RgbImage.RowTransformer rowTransformer() {
+        return (row, in, out) -> {
+            for (int index = 0; index < in.length; index += 3) {
+                apply(in[index], in[index + 1], in[index + 2], out, index);
+            }
+        };
+    }
+
+    /**
+     * Applies the look-up to the image in place, in parallel on the image's scheduler.
+     */
+    public void applyTo(RgbImage image) {
+        image.transformAllRows(rowTransformer());
+    }
+
+    /**
+     * Compares the look-up to the transform baked, at random points of the domain, uniformly distributed in the
+     * shaper's encoding (so each stop gets the same share); most of them fall between the nodes.
+     *
+     * @param transform the transform baked, or an equivalent
+     */
+    public LutErrorReport measureError(RgbImage.RowTransformer transform, int samples, long seed, ProcessingContext context) {
+        checkArgument(samples > 0, "samples = %s", samples);
+        int rowLength = 256;
+        int rows = (samples + rowLength - 1) / rowLength;
+        LutErrorReport.Accumulator[] partialResults = new LutErrorReport.Accumulator[rows];
+        context.forEachIndex(0, rows, row -> {
+            int pixels = min(rowLength, samples - row * rowLength);
+            var random = new Random(seed + row);
+            double[] in = new double[3 * pixels];
+            double[] exact = new double[3 * pixels];
+            double[] interpolated = new double[3 * pixels];
+            for (int index = 0; index < in.length; index++) {
+                in[index] = shaper.decode(random.nextDouble());
+            }
+            transform.transformRow(row, in, exact);
+            rowTransformer().transformRow(row, in, interpolated);
+            var partialResult = new LutErrorReport.Accumulator();
+            partialResult.add(in, exact, interpolated);
+            partialResults[row] = partialResult;
+        });
+        var result = partialResults[0];
+        for (int row = 1; row < rows; row++) {
+            result.combine(partialResults[row]);
+        }
+        return result.toReport();
+    }
+
+    /**
+     * Compares the look-up to the transform baked on the pixels of an image, which should not have been modified by
+     * the transform yet.
+     *
+     * @param transform the transform baked, or an equivalent; called for single pixels, with row numbers of the image
+     */
+    public LutErrorReport measureError(RgbImage.RowTransformer transform, RgbImage image) {
+        return image.reduce(
+                LutErrorReport.Accumulator::new,
+                (partialResult, row, column, red, green, blue) -> {
+                    double[] in = {red, green, blue};
+                    double[] exact = new double[3];
+                    double[] interpolated = new double[3];
+                    transform.transformRow(row, in, exact);
+                    apply(red, green, blue, interpolated, 0);
+                    partialResult.add(in, exact, interpolated);
+                },
+                LutErrorReport.Accumulator::combine
+        ).toReport();
+    }
+
+    float[] nodes() {
+        return nodes;
+    }
+}
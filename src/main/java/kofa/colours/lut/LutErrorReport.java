@@ -0,0 +1,97 @@
+package kofa.colours.lut;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import static java.lang.Math.*;
+
+/**
+ * The difference between a {@link Lut3D} and the transform it was baked from, per component, in output units (for a
+ * gamut mapper, encoded sRGB in [0, 1]).
+ *
+ * @param worstInput the input with the largest error; copied, so the report is immutable
+ */
+public record LutErrorReport(long samples, double meanError, double rmsError, double maxError, double[] worstInput) {
+    public LutErrorReport {
+        worstInput = worstInput.clone();
+    }
+
+    @Override
+    public double[] worstInput() {
+        return worstInput.clone();
+    }
+
+    /**
+     * @return the largest error in steps of an 8-bit output, e.g. below 0.5 the look-up rounds to the same values
+     */
+    public double maxErrorIn8BitSteps() {
+        return maxError * 255;
+    }
+
+    public double maxErrorIn16BitSteps() {
+        return maxError * 65535;
+    }
+
+    @Override
+    public String toString() {
+        return "%d samples: mean error %.3g, RMS %.3g, max %.3g (%.2f 8-bit steps) at [%s, %s, %s]".formatted(
+                samples, meanError, rmsError, maxError, maxErrorIn8BitSteps(),
+                worstInput[0], worstInput[1], worstInput[2]
+        );
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof LutErrorReport report
+                && samples == report.samples
+                && Double.compare(meanError, report.meanError) == 0
+                && Double.compare(rmsError, report.rmsError) == 0
+                && Double.compare(maxError, report.maxError) == 0
+                && Arrays.equals(worstInput, report.worstInput);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(samples, meanError, rmsError, maxError, Arrays.hashCode(worstInput));
+    }
+
+    // mutable, per thread
+    static class Accumulator {
+        private long components;
+        private double sum;
+        private double sumOfSquares;
+        private double max = -1;
+        private final double[] worstInput = new double[3];
+
+        void add(double[] in, double[] exact, double[] interpolated) {
+            for (int index = 0; index < in.length; index++) {
+                double error = abs(exact[index] - interpolated[index]);
+                components++;
+                sum += error;
+                sumOfSquares += error * error;
+                if (error > max) {
+                    max = error;
+                    System.arraycopy(in, index - index % 3, worstInput, 0, 3);
+                }
+            }
+        }
+
+        Accumulator combine(Accumulator other) {
+            components += other.components;
+            sum += other.sum;
+            sumOfSquares += other.sumOfSquares;
+            if (other.max > max) {
+                max = other.max;
+                System.arraycopy(other.worstInput, 0, worstInput, 0, 3);
+            }
+            return this;
+        }
+
+        LutErrorReport toReport() {
+            long samples = components / 3;
+            return components == 0 ?
+                    new LutErrorReport(0, 0, 0, 0, new double[3]) :
+                    new LutErrorReport(samples, sum / components, sqrt(sumOfSquares / components), max, worstInput);
+        }
+    }
+}
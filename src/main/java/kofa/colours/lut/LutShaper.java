@@ -0,0 +1,100 @@
+package kofa.colours.lut;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.*;
+
+/**
+ * Encodes the linear input of a {@link Lut3D} to the [0, 1] coordinates of its lattice, per component. Scene-referred
+ * values span many stops, so a linear lattice would waste most of its nodes on highlights; a logarithmic one spreads
+ * them evenly over the stops. Values outside the domain are clamped.
+ */
+public sealed interface LutShaper {
+    /**
+     * 16 stops below 1 to 4 stops above: the range of scene-referred Rec2020 before tone mapping.
+     */
+    LutShaper SCENE_LINEAR = log2(1.0 / 65536, 16);
+
+    /**
+     * The lattice is linear between the bounds; the domain of a {@code .cube} file without a shaper.
+     */
+    static LutShaper linear(double min, double max) {
+        return new Linear(min, max);
+    }
+
+    /**
+     * The lattice is linear in {@code log2(value + blackOffset)}, so 0 is encoded exactly, and values well above the
+     * offset get the same number of nodes per stop.
+     */
+    static LutShaper log2(double blackOffset, double max) {
+        return new Log2(blackOffset, max);
+    }
+
+    /**
+     * @return the lattice coordinate of the value, in [0, 1]
+     */
+    double encode(double value);
+
+    /**
+     * The inverse of {@link #encode(double)} inside the domain.
+     */
+    double decode(double encoded);
+
+    record Linear(double min, double max) implements LutShaper {
+        public Linear {
+            checkArgument(min < max, "min %s must be < max %s", min, max);
+        }
+
+        @Override
+        public double encode(double value) {
+            return clamp((value - min) / (max - min));
+        }
+
+        @Override
+        public double decode(double encoded) {
+            return min + encoded * (max - min);
+        }
+    }
+
+    final class Log2 implements LutShaper {
+        private final double blackOffset;
+        private final double max;
+        // 1 / the encoded max
+        private final double scale;
+
+        private Log2(double blackOffset, double max) {
+            checkArgument(blackOffset > 0, "blackOffset = %s", blackOffset);
+            checkArgument(max > 0, "max = %s", max);
+            this.blackOffset = blackOffset;
+            this.max = max;
+            scale = 1 / log1p(max / blackOffset);
+        }
+
+        public double blackOffset() {
+            return blackOffset;
+        }
+
+        public double max() {
+            return max;
+        }
+
+        @Override
+        public double encode(double value) {
+            return value <= 0 ? 0 : clamp(log1p(value / blackOffset) * scale);
+        }
+
+        @Override
+        public double decode(double encoded) {
+            return blackOffset * expm1(encoded / scale);
+        }
+
+        @Override
+        public String toString() {
+            return "Log2[blackOffset=%s, max=%s]".formatted(blackOffset, max);
+        }
+    }
+
+    private static double clamp(double encoded) {
+        // NaN becomes 0
+        return encoded >= 0 ? min(1, encoded) : 0;
+    }
+}
@@ -0,0 +1,234 @@
+package kofa.colours.model;
+
+import kofa.maths.SpaceConversionMatrix;
+
+import static java.lang.Math.*;
+import static kofa.colours.model.ConversionHelper.*;
+
+/**
+ * Converts between linear sRGB and an LCh space on primitive values, without creating objects (or checking for
+ * {@code NaN}s, like {@link kofa.maths.Vector3} does); for the per-pixel work of gamut mappers. The results match
+ * the conversions of the model classes using {@code usingD65_2DEGREE_STANDARD_OBSERVER()} (e.g.
+ * {@code CIELAB.from(sRgb.toXyz()).usingD65_2DEGREE_STANDARD_OBSERVER().toLch()}): the operations are the same, in
+ * the same order, so a colour found to be in gamut by one is in gamut for the other, too.
+ * <p>
+ * Results are written to an array at an offset, like {@link SpaceConversionMatrix#multiply(double[], int, double[], int)};
+ * h is in radians, in [0, 2 * PI). Instances are stateless, so they can be shared.
+ */
+public abstract class LchKernel {
+    public static final LchKernel FOR_CIELAB = new CieLabKernel();
+    public static final LchKernel FOR_CIELUV = new CieLuvKernel();
+    public static final LchKernel FOR_OKLAB = new OkLabKernel();
+
+    private static final int IN_GAMUT_BISECTION_ITERATIONS = 50;
+    private static final CIEXYZ REFERENCE_WHITE = CIEXYZ.D65_WHITE_2DEGREE_STANDARD_OBSERVER;
+
+    // rows of Srgb.TO_XYZ and Srgb.FROM_XYZ
+    private static final double[][] SRGB_TO_XYZ = Srgb.TO_XYZ.values();
+    private static final double[][] XYZ_TO_SRGB = Srgb.FROM_XYZ.values();
+
+    /**
+     * Writes L, C and h of the linear sRGB colour to {@code lch[offset...offset + 2]}.
+     */
+    public abstract void fromSrgb(double r, double g, double b, double[] lch, int offset);
+
+    /**
+     * Writes the linear sRGB colour of L, C and h to {@code rgb[offset...offset + 2]}.
+     */
+    public abstract void toSrgb(double l, double c, double h, double[] rgb, int offset);
+
+    /**
+     * Like {@link #fromSrgb(double, double, double, double[], int)}, reading the colour from an array; {@code rgb}
+     * and {@code lch} may be the same array.
+     */
+    public final void fromSrgb(double[] rgb, int rgbOffset, double[] lch, int lchOffset) {
+        fromSrgb(rgb[rgbOffset], rgb[rgbOffset + 1], rgb[rgbOffset + 2], lch, lchOffset);
+    }
+
+    /**
+     * @return whether the colour is outside the sRGB gamut; {@code scratch} receives the sRGB colour at offset 0
+     */
+    public final boolean isOutOfGamut(double l, double c, double h, double[] scratch) {
+        toSrgb(l, c, h, scratch, 0);
+        return isOutOfGamut(scratch, 0);
+    }
+
+    /**
+     * Like {@link #toSrgb(double, double, double, double[], int)}, but reduces C until the colour is inside sRGB: the
+     * gamut boundary is not convex everywhere (e.g. close to some cusps), so a C below max C for L and h may still be
+     * slightly out of gamut. Colours already inside only take the check.
+     *
+     * @return the C used
+     */
+    public final double toSrgbInGamut(double l, double c, double h, double[] rgb, int offset) {
+        toSrgb(l, c, h, rgb, offset);
+        if (!isOutOfGamut(rgb, offset)) {
+            return c;
+        }
+        // the grey axis is inside
+        double inGamutC = 0;
+        double outOfGamutC = c;
+        for (int iteration = 0; iteration < IN_GAMUT_BISECTION_ITERATIONS; iteration++) {
+            double middle = (inGamutC + outOfGamutC) / 2;
+            toSrgb(l, middle, h, rgb, offset);
+            if (isOutOfGamut(rgb, offset)) {
+                outOfGamutC = middle;
+            } else {
+                inGamutC = middle;
+            }
+        }
+        toSrgb(l, inGamutC, h, rgb, offset);
+        return inGamutC;
+    }
+
+    private static boolean isOutOfGamut(double[] rgb, int offset) {
+        return isOutOfGamut(rgb[offset]) || isOutOfGamut(rgb[offset + 1]) || isOutOfGamut(rgb[offset + 2]);
+    }
+
+    private static boolean isOutOfGamut(double component) {
+        return component < 0 || component > 1;
+    }
+
+    static void toLch(double l, double colour1, double colour2, double[] lch, int offset) {
+        double h = atan2(colour2, colour1);
+        lch[offset] = l;
+        lch[offset + 1] = sqrt(colour1 * colour1 + colour2 * colour2);
+        lch[offset + 2] = h < 0 ? h + 2 * PI : h;
+    }
+
+    static void xyzToSrgb(double x, double y, double z, double[] rgb, int offset) {
+        rgb[offset] = XYZ_TO_SRGB[0][0] * x + XYZ_TO_SRGB[0][1] * y + XYZ_TO_SRGB[0][2] * z;
+        rgb[offset + 1] = XYZ_TO_SRGB[1][0] * x + XYZ_TO_SRGB[1][1] * y + XYZ_TO_SRGB[1][2] * z;
+        rgb[offset + 2] = XYZ_TO_SRGB[2][0] * x + XYZ_TO_SRGB[2][1] * y + XYZ_TO_SRGB[2][2] * z;
+    }
+
+    private static class CieLabKernel extends LchKernel {
+        @Override
+        public void fromSrgb(double r, double g, double b, double[] lch, int offset) {
+            double y = SRGB_TO_XYZ[1][0] * r + SRGB_TO_XYZ[1][1] * g + SRGB_TO_XYZ[1][2] * b;
+            if (y < CIEXYZ.BLACK_Y_LEVEL) {
+                toLch(0, 0, 0, lch, offset);
+                return;
+            }
+            double x = SRGB_TO_XYZ[0][0] * r + SRGB_TO_XYZ[0][1] * g + SRGB_TO_XYZ[0][2] * b;
+            double z = SRGB_TO_XYZ[2][0] * r + SRGB_TO_XYZ[2][1] * g + SRGB_TO_XYZ[2][2] * b;
+            double fx = f(x / REFERENCE_WHITE.X());
+            double fy = f(y / REFERENCE_WHITE.Y());
+            double fz = f(z / REFERENCE_WHITE.Z());
+            toLch(116 * fy - 16, 500 * (fx - fy), 200 * (fy - fz), lch, offset);
+        }
+
+        private static double f(double componentRatio) {
+            return componentRatio > EPSILON ?
+                    cubeRootOf(componentRatio) :
+                    (KAPPA * componentRatio + 16) / 116;
+        }
+
+        @Override
+        public void toSrgb(double l, double c, double h, double[] rgb, int offset) {
+            if (l < CIELAB.BLACK_L_THRESHOLD) {
+                xyzToSrgb(0, 0, 0, rgb, offset);
+                return;
+            }
+            double fy = (l + 16) / 116;
+            double fx = c * cos(h) / 500 + fy;
+            double fz = fy - c * sin(h) / 200;
+            double yr = l > KAPPA_EPSILON ?
+                    cubeOf(fy) :
+                    l / KAPPA;
+            xyzToSrgb(
+                    fxz(fx) * REFERENCE_WHITE.X(), yr * REFERENCE_WHITE.Y(), fxz(fz) * REFERENCE_WHITE.Z(),
+                    rgb, offset
+            );
+        }
+
+        private static double fxz(double value) {
+            return value > DELTA ?
+                    cubeOf(value) :
+                    (116 * value - 16) / KAPPA;
+        }
+    }
+
+    private static class CieLuvKernel extends LchKernel {
+        private static final UV REFERENCE_UV = UV.D65_2DEGREE_STANDARD_OBSERVER;
+
+        @Override
+        public void fromSrgb(double r, double g, double b, double[] lch, int offset) {
+            double y = SRGB_TO_XYZ[1][0] * r + SRGB_TO_XYZ[1][1] * g + SRGB_TO_XYZ[1][2] * b;
+            if (y < CIEXYZ.BLACK_Y_LEVEL) {
+                toLch(0, 0, 0, lch, offset);
+                return;
+            }
+            double x = SRGB_TO_XYZ[0][0] * r + SRGB_TO_XYZ[0][1] * g + SRGB_TO_XYZ[0][2] * b;
+            double z = SRGB_TO_XYZ[2][0] * r + SRGB_TO_XYZ[2][1] * g + SRGB_TO_XYZ[2][2] * b;
+            double yr = y / REFERENCE_WHITE.Y();
+            // as in UV.from
+            double denominator = x + 15 * y + 3 * z;
+            if (denominator == 0) {
+                denominator = 1E-9;
+            }
+            double l = yr > EPSILON ?
+                    (116 * cubeRootOf(yr)) - 16 :
+                    KAPPA * yr;
+            double l13 = 13 * l;
+            toLch(l, l13 * (4 * x / denominator - REFERENCE_UV.u()), l13 * (9 * y / denominator - REFERENCE_UV.v()), lch, offset);
+        }
+
+        @Override
+        public void toSrgb(double l, double c, double h, double[] rgb, int offset) {
+            if (l < CIELUV.BLACK_L_THRESHOLD) {
+                xyzToSrgb(0, 0, 0, rgb, offset);
+                return;
+            }
+            double l13 = 13 * l;
+            double uPrime = c * cos(h) / l13 + REFERENCE_UV.u();
+            double vPrime = c * sin(h) / l13 + REFERENCE_UV.v();
+            double y = l > KAPPA_EPSILON ?
+                    REFERENCE_WHITE.Y() * cubeOf((l + 16) / 116) :
+                    REFERENCE_WHITE.Y() * l / KAPPA;
+            double denominator = 4 * vPrime;
+            xyzToSrgb(
+                    y * 9 * uPrime / denominator, y, y * (12 - 3 * uPrime - 20 * vPrime) / denominator,
+                    rgb, offset
+            );
+        }
+    }
+
+    private static class OkLabKernel extends LchKernel {
+        private static final double[][] XYZ_TO_LMS = OkLAB.XYZ_TO_LMS_D65_2DEGREE_STANDARD_OBSERVER.values();
+        private static final double[][] LMS_TO_XYZ = OkLAB.LMS_TO_XYZ_D65_2DEGREE_STANDARD_OBSERVER.values();
+        private static final double[][] LMS_PRIME_TO_LAB = OkLAB.LMS_PRIME_TO_LAB.values();
+        private static final double[][] LAB_TO_LMS_PRIME = OkLAB.LAB_TO_LMS_PRIME.values();
+
+        @Override
+        public void fromSrgb(double r, double g, double b, double[] lch, int offset) {
+            double x = SRGB_TO_XYZ[0][0] * r + SRGB_TO_XYZ[0][1] * g + SRGB_TO_XYZ[0][2] * b;
+            double y = SRGB_TO_XYZ[1][0] * r + SRGB_TO_XYZ[1][1] * g + SRGB_TO_XYZ[1][2] * b;
+            double z = SRGB_TO_XYZ[2][0] * r + SRGB_TO_XYZ[2][1] * g + SRGB_TO_XYZ[2][2] * b;
+            double lPrime = cubeRootOf(XYZ_TO_LMS[0][0] * x + XYZ_TO_LMS[0][1] * y + XYZ_TO_LMS[0][2] * z);
+            double mPrime = cubeRootOf(XYZ_TO_LMS[1][0] * x + XYZ_TO_LMS[1][1] * y + XYZ_TO_LMS[1][2] * z);
+            double sPrime = cubeRootOf(XYZ_TO_LMS[2][0] * x + XYZ_TO_LMS[2][1] * y + XYZ_TO_LMS[2][2] * z);
+            toLch(
+                    LMS_PRIME_TO_LAB[0][0] * lPrime + LMS_PRIME_TO_LAB[0][1] * mPrime + LMS_PRIME_TO_LAB[0][2] * sPrime,
+                    LMS_PRIME_TO_LAB[1][0] * lPrime + LMS_PRIME_TO_LAB[1][1] * mPrime + LMS_PRIME_TO_LAB[1][2] * sPrime,
+                    LMS_PRIME_TO_LAB[2][0] * lPrime + LMS_PRIME_TO_LAB[2][1] * mPrime + LMS_PRIME_TO_LAB[2][2] * sPrime,
+                    lch, offset
+            );
+        }
+
+        @Override
+        public void toSrgb(double l, double c, double h, double[] rgb, int offset) {
+            double a = c * cos(h);
+            double b = c * sin(h);
+            double lms0 = cubeOf(LAB_TO_LMS_PRIME[0][0] * l + LAB_TO_LMS_PRIME[0][1] * a + LAB_TO_LMS_PRIME[0][2] * b);
+            double lms1 = cubeOf(LAB_TO_LMS_PRIME[1][0] * l + LAB_TO_LMS_PRIME[1][1] * a + LAB_TO_LMS_PRIME[1][2] * b);
+            double lms2 = cubeOf(LAB_TO_LMS_PRIME[2][0] * l + LAB_TO_LMS_PRIME[2][1] * a + LAB_TO_LMS_PRIME[2][2] * b);
+            xyzToSrgb(
+                    LMS_TO_XYZ[0][0] * lms0 + LMS_TO_XYZ[0][1] * lms1 + LMS_TO_XYZ[0][2] * lms2,
+                    LMS_TO_XYZ[1][0] * lms0 + LMS_TO_XYZ[1][1] * lms1 + LMS_TO_XYZ[1][2] * lms2,
+                    LMS_TO_XYZ[2][0] * lms0 + LMS_TO_XYZ[2][1] * lms1 + LMS_TO_XYZ[2][2] * lms2,
+                    rgb, offset
+            );
+        }
+    }
+}
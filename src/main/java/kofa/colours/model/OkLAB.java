@@ -110,6 +110,20 @@ public class OkLAB extends LAB<OkLAB, OkLCh> {
 
     static final SpaceConversionMatrix<OkLAB, LMSPrime> LAB_TO_LMS_PRIME = LMS_PRIME_TO_LAB.invert(LMSPrime::new);
 
+    /**
+     * @return the matrix converting OkLAB to L'M'S' (the cube roots of LMS), for computations on raw coordinates
+     */
+    public static double[][] labToLmsPrimeMatrix() {
+        return LAB_TO_LMS_PRIME.values();
+    }
+
+    /**
+     * @return the matrix converting LMS to XYZ, as in {@link LabXyzConverter#usingD65_2DEGREE_STANDARD_OBSERVER()}
+     */
+    public static double[][] lmsToXyzMatrixD65_2DEGREE_STANDARD_OBSERVER() {
+        return LMS_TO_XYZ_D65_2DEGREE_STANDARD_OBSERVER.values();
+    }
+
     public OkLAB(double L, double a, double b) {
         super(L, a, b, OkLCh::new);
     }
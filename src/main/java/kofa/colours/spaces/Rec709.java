@@ -1,5 +1,7 @@
 package kofa.colours.spaces;
 
+import kofa.maths.Matrix3Kernel;
+
 import static kofa.colours.spaces.CIExyY.D65_WHITE_2DEG_x;
 import static kofa.colours.spaces.CIExyY.D65_WHITE_2DEG_y;
 
@@ -24,21 +26,33 @@ public class Rec709 {
             Rec709::XYZ_to_rec709
     );
 
+    public static final Matrix3Kernel REC709_TO_XYZ = Matrix3Kernel.of(new double[][]{
+            {0.41238656325299233, 0.35759149092062525, 0.1804504912035636},
+            {0.21263682167732417, 0.7151829818412505, 0.07218019648142544},
+            {0.019330620152483994, 0.1191971636402084, 0.950372587005435}
+    });
+
+    public static final Matrix3Kernel XYZ_TO_REC709 = Matrix3Kernel.of(new double[][]{
+            {3.241003232976353, -1.5373989694887833, -0.4986158819963621},
+            {-0.9692242522025167, 1.8759299836951773, 0.04155422634008489},
+            {0.05563941985197549, -0.20401120612391002, 1.0571489771875335}
+    });
+
+    public static final Matrix3Kernel REC709_TO_REC2020 = Matrix3Kernel.of(new double[][]{
+            {0.6274019247222371, 0.3292919717550017, 0.0433061035227624},
+            {0.06909548973926104, 0.9195442812673945, 0.011360228993344304},
+            {0.016393709088163195, 0.08802816239790055, 0.8955781285139356}
+    });
+
     public static void rec709_to_XYZ(double[] rgb, double[] xyz) {
-        xyz[0] = 0.41238656325299233  * rgb[0] + 0.35759149092062525 * rgb[1] + 0.1804504912035636  * rgb[2];
-        xyz[1] = 0.21263682167732417  * rgb[0] + 0.7151829818412505  * rgb[1] + 0.07218019648142544 * rgb[2];
-        xyz[2] = 0.019330620152483994 * rgb[0] + 0.1191971636402084  * rgb[1] + 0.950372587005435   * rgb[2];
+        REC709_TO_XYZ.applyInterleaved(rgb, 0, xyz, 0, 1);
     }
 
     public static void XYZ_to_rec709(double[] xyz, double[] rgb) {
-        rgb[0] =  3.241003232976353   * xyz[0] - 1.5373989694887833  * xyz[1] - 0.4986158819963621  * xyz[2];
-        rgb[1] = -0.9692242522025167  * xyz[0] + 1.8759299836951773  * xyz[1] + 0.04155422634008489 * xyz[2];
-        rgb[2] =  0.05563941985197549 * xyz[0] - 0.20401120612391002 * xyz[1] + 1.0571489771875335  * xyz[2];
+        XYZ_TO_REC709.applyInterleaved(xyz, 0, rgb, 0, 1);
     }
 
     public static void rec709toRec2020(double[] rec709, double[] rec2020) {
-        rec2020[0] = 0.6274019247222371   * rec709[0] + 0.3292919717550017  * rec709[1] + 0.0433061035227624   * rec709[2];
-        rec2020[1] = 0.06909548973926104  * rec709[0] + 0.9195442812673945  * rec709[1] + 0.011360228993344304 * rec709[2];
-        rec2020[2] = 0.016393709088163195 * rec709[0] + 0.08802816239790055 * rec709[1] + 0.8955781285139356   * rec709[2];
+        REC709_TO_REC2020.applyInterleaved(rec709, 0, rec2020, 0, 1);
     }
 }
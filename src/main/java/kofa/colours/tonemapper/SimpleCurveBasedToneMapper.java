@@ -4,23 +4,41 @@ import kofa.colours.model.CIELAB;
 import kofa.colours.model.CIELUV;
 import kofa.colours.model.OkLAB;
 import kofa.colours.model.Rec2020;
+import kofa.io.PixelMetric;
 import kofa.io.RgbImage;
-import kofa.maths.Solver;
+import kofa.maths.Curve;
 import kofa.maths.ThanatomanicCurve6;
 
-import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.ToDoubleFunction;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.max;
 import static java.util.Objects.requireNonNull;
 
 /**
  * @param <S> the space used for tone mapping
  */
 public class SimpleCurveBasedToneMapper<S> implements ToneMapper<S> {
-    private final ThanatomanicCurve6 curve;
+    /**
+     * The brightness the mappers created for an image find their shoulder from, for
+     * {@link kofa.io.ImageStatistics#prepare preparing} it together with the metrics of other stages.
+     */
+    public static final PixelMetric CIELAB_BRIGHTNESS = ToneMappingParams.FOR_CIELAB.brightness();
+    public static final PixelMetric CIELUV_BRIGHTNESS = ToneMappingParams.FOR_CIELUV.brightness();
+    public static final PixelMetric OKLAB_BRIGHTNESS = ToneMappingParams.FOR_OKLAB.brightness();
+
+    /**
+     * Fits the curve to the brightest pixel.
+     */
+    public static final double MAX_BRIGHTNESS = 100;
+
+    private static final double MIN_SHOULDER_START = 0.5;
+    // the brightness the curve maps the max brightness to, relative to white
+    private static final double MAPPED_MAX_BRIGHTNESS = 0.9999;
+
+    private final Curve curve;
     private final double brightnessScaling;
     private final Function<Rec2020, S> rec2020ToMappingSpace;
     private final Function<S, Rec2020> mappingSpaceToRec2020;
@@ -39,6 +57,54 @@ public class SimpleCurveBasedToneMapper<S> implements ToneMapper<S> {
         return new SimpleCurveBasedToneMapper<>(image, ToneMappingParams.FOR_OKLAB);
     }
 
+    /**
+     * Like {@link #forOkLab(RgbImage, double)}.
+     */
+    public static SimpleCurveBasedToneMapper<CIELAB> forCieLab(RgbImage image, double brightnessPercentile) {
+        return new SimpleCurveBasedToneMapper<>(image, brightnessPercentile, ToneMappingParams.FOR_CIELAB);
+    }
+
+    /**
+     * Like {@link #forOkLab(RgbImage, double)}.
+     */
+    public static SimpleCurveBasedToneMapper<CIELUV> forCieLuv(RgbImage image, double brightnessPercentile) {
+        return new SimpleCurveBasedToneMapper<>(image, brightnessPercentile, ToneMappingParams.FOR_CIELUV);
+    }
+
+    /**
+     * Fits the curve to a percentile of the brightness instead of the brightest pixel, so a few hot pixels do not
+     * compress the whole image; pixels above it are clipped by the gamut mapping.
+     *
+     * @param brightnessPercentile e.g. 99.9; {@link #MAX_BRIGHTNESS} for the brightest pixel
+     */
+    public static SimpleCurveBasedToneMapper<OkLAB> forOkLab(RgbImage image, double brightnessPercentile) {
+        return new SimpleCurveBasedToneMapper<>(image, brightnessPercentile, ToneMappingParams.FOR_OKLAB);
+    }
+
+    /**
+     * Like {@link #forOkLab(double)}.
+     */
+    public static SimpleCurveBasedToneMapper<CIELAB> forCieLab(double shoulderStart) {
+        return new SimpleCurveBasedToneMapper<>(shoulderStart, ToneMappingParams.FOR_CIELAB);
+    }
+
+    /**
+     * Like {@link #forOkLab(double)}.
+     */
+    public static SimpleCurveBasedToneMapper<CIELUV> forCieLuv(double shoulderStart) {
+        return new SimpleCurveBasedToneMapper<>(shoulderStart, ToneMappingParams.FOR_CIELUV);
+    }
+
+    /**
+     * The factories taking an image find the shoulder from its brightest pixel; this one uses a fixed shoulder, so
+     * the result does not depend on the image, e.g. for baking into a {@link kofa.colours.lut.Lut3D}.
+     *
+     * @param shoulderStart where the curve stops being linear; 1 for no tone mapping
+     */
+    public static SimpleCurveBasedToneMapper<OkLAB> forOkLab(double shoulderStart) {
+        return new SimpleCurveBasedToneMapper<>(shoulderStart, ToneMappingParams.FOR_OKLAB);
+    }
+
     public SimpleCurveBasedToneMapper(
             ToneMappingParams<S> params
     ) {
@@ -49,7 +115,19 @@ public class SimpleCurveBasedToneMapper<S> implements ToneMapper<S> {
             RgbImage image,
             ToneMappingParams<S> params
     ) {
-        this(findOptimalShoulderStart(image, params), params);
+        this(image, MAX_BRIGHTNESS, params);
+    }
+
+    /**
+     * @param brightnessPercentile the percentile of the brightness the curve is fitted to, see
+     *                             {@link kofa.io.ImageStatistics.Summary#percentile(double)}
+     */
+    public SimpleCurveBasedToneMapper(
+            RgbImage image,
+            double brightnessPercentile,
+            ToneMappingParams<S> params
+    ) {
+        this(findOptimalShoulderStart(image, brightnessPercentile, params), params);
     }
 
     public SimpleCurveBasedToneMapper(
@@ -65,63 +143,71 @@ public class SimpleCurveBasedToneMapper<S> implements ToneMapper<S> {
         if (shoulderStart == 1) {
             curve = null;
         } else {
-            curve = ThanatomanicCurve6.linearUntil(shoulderStart);
+            curve = ThanatomanicCurve6.linearUntil(shoulderStart).sampled();
         }
     }
 
     private static <S> double findOptimalShoulderStart(
             RgbImage image,
+            double brightnessPercentile,
             ToneMappingParams<S> params
     ) {
         double brightnessScaling = params.brightnessScaling();
         checkArgument(brightnessScaling > 0, "brightnessScaling=%s", brightnessScaling);
-        Function<Rec2020, S> rec2020ToLSpace = requireNonNull(params.rec2020ToMappingSpace());
-        ToDoubleFunction<S> brightnessFunction = requireNonNull(params.brightnessFunction());
+        requireNonNull(params.rec2020ToMappingSpace());
+        requireNonNull(params.brightnessFunction());
 
-        double shoulderStart;
-        double maxBrightness = maxBrightness(image, rec2020ToLSpace, brightnessFunction);
+        return shoulderStartFor(maxBrightness(image, brightnessPercentile, params), brightnessScaling);
+    }
+
+    /**
+     * @return the shoulder start that maps {@code maxBrightness} to {@link #MAPPED_MAX_BRIGHTNESS} of white, at least
+     * {@link #MIN_SHOULDER_START}; 1 if tone mapping is not needed
+     */
+    static double shoulderStartFor(double maxBrightness, double brightnessScaling) {
         if (maxBrightness <= brightnessScaling) {
-            System.out.println("Tone mapping is not needed, maxBrightness = " + maxBrightness);
-            shoulderStart = 1;
-        } else {
-            var shoulderSearchLow = 0.99;
-            Optional<Double> shoulder;
-            do {
-                var shoulderSolver = new Solver(currentShoulder -> {
-                    var curve = ThanatomanicCurve6.linearUntil(currentShoulder);
-                    double mappedValue = applyCurve(curve, maxBrightness);
-                    return mappedValue < 0.99 ?
-                            -1.0 :
-                            mappedValue > 0.9999 ?
-                                    1 :
-                                    0;
-                });
-                shoulder = shoulderSolver.solve(shoulderSearchLow, shoulderSearchLow + 0.01, 0);
-                if (shoulder.isEmpty()) {
-                    shoulderSearchLow -= 0.01;
-                }
-            } while (shoulder.isEmpty() && shoulderSearchLow >= 0.5);
-            shoulderStart = shoulder.orElse(0.5);
-            System.out.println("Will use shoulderStart = " + shoulderStart + " for tone mapping, maxBrightness = " + maxBrightness);
+            // tone mapping is not needed
+            return 1;
         }
-        return shoulderStart;
+        if (!Double.isFinite(maxBrightness)) {
+            // NaN or infinite: no shoulder maps it below white
+            return MIN_SHOULDER_START;
+        }
+        // the curve is applied to the normalised brightness
+        return max(
+                MIN_SHOULDER_START,
+                ThanatomanicCurve6.shoulderStartMapping(maxBrightness / brightnessScaling, MAPPED_MAX_BRIGHTNESS)
+        );
     }
 
+    @Override
     public void toneMap(RgbImage image) {
         if (curve == null) {
             return;
         }
-        image.transformAllPixels((row, column, red, green, blue) -> {
-            var rec2020 = new Rec2020(
-                    red,
-                    green,
-                    blue
-            );
-            var lSpaceRepresentation = rec2020ToMappingSpace.apply(rec2020);
-            var mappedLSpaceRepresentation = toneMap(lSpaceRepresentation);
-            var mappedRec2020 = mappingSpaceToRec2020.apply(mappedLSpaceRepresentation);
-            return new double[]{mappedRec2020.r(), mappedRec2020.g(), mappedRec2020.b()};
-        });
+        image.transformAllRows(rowTransformer());
+    }
+
+    @Override
+    public RgbImage.RowTransformer rowTransformer() {
+        if (curve == null) {
+            return (row, in, out) -> System.arraycopy(in, 0, out, 0, in.length);
+        }
+        return (row, in, out) -> {
+            for (int index = 0; index < in.length; index += 3) {
+                var rec2020 = new Rec2020(
+                        in[index],
+                        in[index + 1],
+                        in[index + 2]
+                );
+                var lSpaceRepresentation = rec2020ToMappingSpace.apply(rec2020);
+                var mappedLSpaceRepresentation = toneMap(lSpaceRepresentation);
+                var mappedRec2020 = mappingSpaceToRec2020.apply(mappedLSpaceRepresentation);
+                out[index] = mappedRec2020.r();
+                out[index + 1] = mappedRec2020.g();
+                out[index + 2] = mappedRec2020.b();
+            }
+        };
     }
 
     private S toneMap(S input) {
@@ -138,15 +224,21 @@ public class SimpleCurveBasedToneMapper<S> implements ToneMapper<S> {
         return constructorWithMappedBrightness.apply(input, mappedL);
     }
 
-    private static double applyCurve(ThanatomanicCurve6 curve, double x) {
+    private static double applyCurve(Curve curve, double x) {
         return curve.mappedValueOf(x);
     }
 
-    private static <S> double maxBrightness(RgbImage image, Function<Rec2020, S> rec2020ToLSpace, ToDoubleFunction<S> brightnessFunction) {
-        return image.pixelStream().mapToDouble(rgb -> {
-            var rec2020 = new Rec2020(rgb[0], rgb[1], rgb[2]);
-            return brightnessFunction.applyAsDouble(rec2020ToLSpace.apply(rec2020));
-        }).max().orElse(0.0);
+    private static double maxBrightness(RgbImage image, double brightnessPercentile, ToneMappingParams<?> params) {
+        if (brightnessPercentile == MAX_BRIGHTNESS) {
+            double max = image.statistics().maxOf(params.brightness());
+            // NaN: no pixels
+            return Double.isNaN(max) ? 0 : max;
+        }
+        var brightness = image.statistics().of(params.brightness());
+        if (brightness.count() == 0) {
+            return 0;
+        }
+        return brightness.percentile(brightnessPercentile);
     }
 
 }
@@ -8,5 +8,12 @@ import kofa.io.RgbImage;
  * @param <S> the colour space the instance uses
  */
 public interface ToneMapper<S> {
-    void toneMap(RgbImage image);
+    default void toneMap(RgbImage image) {
+        image.transformAllRows(rowTransformer());
+    }
+
+    /**
+     * @return the tone mapping of linear Rec2020 pixels, e.g. as a stage of a {@link kofa.io.RenderPipeline}
+     */
+    RgbImage.RowTransformer rowTransformer();
 }
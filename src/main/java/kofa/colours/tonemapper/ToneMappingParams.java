@@ -1,6 +1,7 @@
 package kofa.colours.tonemapper;
 
 import kofa.colours.model.*;
+import kofa.io.PixelMetric;
 
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -37,4 +38,18 @@ record ToneMappingParams<S>(
             (okLab, mappedL) -> new OkLAB(mappedL, okLab.a(), okLab.b()),
             OkLAB::L
     );
+
+    /**
+     * @return the brightness of the pixels, in the mapping space; equal for equal params
+     */
+    PixelMetric brightness() {
+        return new Brightness<>(this);
+    }
+
+    private record Brightness<S>(ToneMappingParams<S> params) implements PixelMetric {
+        @Override
+        public double valueOf(double red, double green, double blue, double[] scratch) {
+            return params.brightnessFunction().applyAsDouble(params.rec2020ToMappingSpace().apply(new Rec2020(red, green, blue)));
+        }
+    }
 }
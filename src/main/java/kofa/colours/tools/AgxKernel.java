@@ -0,0 +1,141 @@
+package kofa.colours.tools;
+
+import kofa.io.RgbImage;
+import kofa.maths.Matrix3Kernel;
+
+import static kofa.colours.tools.AgxToneMapper.*;
+
+/**
+ * {@link AgxToneMapper#agx} for whole rows, without allocating per pixel: the pixels are split into planar channel
+ * buffers, and each step (inset, log encoding and sigmoid, look, outset, linearisation) runs over the whole buffer
+ * in place, the matrices with a {@link Matrix3Kernel}.
+ * <p>
+ * {@link #of(AgxToneMapper.Look)} returns a kernel using the Vector API for the arithmetic steps if the module is
+ * available (see {@link Matrix3Kernel}), otherwise this scalar implementation. The scalar kernel gives the same results
+ * as {@link AgxToneMapper#agx}; the vectorised {@code log} and {@code pow} may differ in the last bits.
+ */
+public class AgxKernel {
+    protected static final double LN_2 = Math.log(2);
+    protected static final double EV_RANGE = AgxMaxEv - AgxMinEv;
+    protected static final double GAMMA = 2.2;
+    protected static final double MIN_VALUE = 1E-10;
+
+    private final Matrix3Kernel inset;
+    private final Matrix3Kernel outset;
+    private final AgxToneMapper.Look look;
+    // 'Look' params, unused for the default look
+    protected final double[] slope;
+    protected final double[] offsets;
+    protected final double[] power;
+    protected final double sat;
+
+    protected AgxKernel(AgxToneMapper.Look look) {
+        this.look = look;
+        inset = Matrix3Kernel.of(INSET);
+        outset = Matrix3Kernel.of(OUTSET);
+        offsets = OFFSET.clone();
+        switch (look) {
+            case GOLDEN -> {
+                slope = GOLDEN_SLOPE.clone();
+                power = GOLDEN_POWER.clone();
+                sat = GOLDEN_SAT;
+            }
+            case PUNCHY -> {
+                slope = PUNCHY_SLOPE.clone();
+                power = PUNCHY_POWER.clone();
+                sat = PUNCHY_SAT;
+            }
+            default -> {
+                slope = null;
+                power = null;
+                sat = 1;
+            }
+        }
+    }
+
+    /**
+     * @return the fastest kernel available on this JVM
+     */
+    public static AgxKernel of(AgxToneMapper.Look look) {
+        return Matrix3Kernel.isVectorApiAvailable() ? new VectorAgxKernel(look) : scalar(look);
+    }
+
+    public static AgxKernel scalar(AgxToneMapper.Look look) {
+        return new AgxKernel(look);
+    }
+
+    /**
+     * Maps the pixels {@code [offset, offset + pixels)} of the channel arrays in place; in and out: linear Rec2020.
+     */
+    public void applyPlanar(double[] red, double[] green, double[] blue, int offset, int pixels) {
+        inset.applyPlanar(red, green, blue, red, green, blue, offset, pixels);
+        encodeLogAndApplySigmoid(red, offset, pixels);
+        encodeLogAndApplySigmoid(green, offset, pixels);
+        encodeLogAndApplySigmoid(blue, offset, pixels);
+        if (look != AgxToneMapper.Look.DEFAULT) {
+            applyLook(red, green, blue, offset, pixels);
+        }
+        outset.applyPlanar(red, green, blue, red, green, blue, offset, pixels);
+        linearise(red, offset, pixels);
+        linearise(green, offset, pixels);
+        linearise(blue, offset, pixels);
+    }
+
+    /**
+     * The kernel for interleaved rows; the planar buffers are kept per thread.
+     */
+    public RgbImage.RowTransformer rowTransformer() {
+        ThreadLocal<double[][]> planarBuffers = ThreadLocal.withInitial(() -> new double[3][0]);
+        return (row, in, out) -> {
+            int pixels = in.length / 3;
+            double[][] channels = planarBuffers.get();
+            if (channels[0].length < pixels) {
+                channels = new double[3][pixels];
+                planarBuffers.set(channels);
+            }
+            double[] red = channels[0];
+            double[] green = channels[1];
+            double[] blue = channels[2];
+            for (int pixel = 0, index = 0; pixel < pixels; pixel++, index += 3) {
+                red[pixel] = in[index];
+                green[pixel] = in[index + 1];
+                blue[pixel] = in[index + 2];
+            }
+            applyPlanar(red, green, blue, 0, pixels);
+            for (int pixel = 0, index = 0; pixel < pixels; pixel++, index += 3) {
+                out[index] = red[pixel];
+                out[index + 1] = green[pixel];
+                out[index + 2] = blue[pixel];
+            }
+        };
+    }
+
+    protected void encodeLogAndApplySigmoid(double[] channel, int offset, int pixels) {
+        for (int index = offset; index < offset + pixels; index++) {
+            double log2 = Math.log(Math.max(channel[index], MIN_VALUE)) / LN_2;
+            double encoded = (Math.clamp(log2, AgxMinEv, AgxMaxEv) - AgxMinEv) / EV_RANGE;
+            channel[index] = sigmoid(Math.clamp(encoded, 0.0, 1.0));
+        }
+    }
+
+    protected void applyLook(double[] red, double[] green, double[] blue, int offset, int pixels) {
+        for (int index = offset; index < offset + pixels; index++) {
+            double r = red[index];
+            double g = green[index];
+            double b = blue[index];
+            double luma = r * lw[0] + g * lw[1] + b * lw[2];
+            r = Math.pow(r * slope[0] + offsets[0], power[0]);
+            g = Math.pow(g * slope[1] + offsets[1], power[1]);
+            b = Math.pow(b * slope[2] + offsets[2], power[2]);
+            red[index] = luma + sat * (r - luma);
+            green[index] = luma + sat * (g - luma);
+            blue[index] = luma + sat * (b - luma);
+        }
+    }
+
+    protected void linearise(double[] channel, int offset, int pixels) {
+        for (int index = offset; index < offset + pixels; index++) {
+            channel[index] = Math.pow(Math.clamp(channel[index], 0.0, 1.0), GAMMA);
+        }
+    }
+}
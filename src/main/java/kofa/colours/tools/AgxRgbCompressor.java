@@ -27,20 +27,6 @@ public class AgxRgbCompressor {
     }
 
     private static void toneMapUsingAgx(RgbImage image, AgxToneMapper.Look look) {
-        var transformer = new AgxPixelTransformer(look);
-        image.transformAllPixels(transformer);
-    }
-
-    private static class AgxPixelTransformer implements RgbImage.PixelTransformer {
-        private final AgxToneMapper.Look look;
-
-        AgxPixelTransformer(AgxToneMapper.Look look) {
-            this.look = look;
-        }
-
-        @Override
-        public double[] transform(int row, int column, double red, double green, double blue) {
-            return AgxToneMapper.agx(red, green, blue, look);
-        }
+        image.transformAllRows(AgxKernel.of(look).rowTransformer());
     }
 }
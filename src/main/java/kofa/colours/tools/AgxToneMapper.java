@@ -6,7 +6,7 @@ import static kofa.maths.MathHelpers.*;
 // https://iolite-engine.com/blog_posts/minimal_agx_implementation
 // and https://www.shadertoy.com/view/cd3XWr
 public class AgxToneMapper {
-    private static final double[] lw = {0.2126, 0.7152, 0.0722};
+    static final double[] lw = {0.2126, 0.7152, 0.0722};
     // 'Look' params
     public static final double[] OFFSET = {0, 0, 0};
 
@@ -24,8 +24,19 @@ public class AgxToneMapper {
         return add(luma, mul(sat, sub(color, luma)));
     }
 
-    private static final double AgxMinEv = -12.47393;
-    private static final double AgxMaxEv = 4.026069;
+    static final double AgxMinEv = -12.47393;
+    static final double AgxMaxEv = 4.026069;
+
+    static final double[][] INSET = {
+            {0.856627153315983, 0.0951212405381588, 0.0482516061458583},
+            {0.137318972929847, 0.761241990602591, 0.101439036467562},
+            {0.11189821299995, 0.0767994186031903, 0.811302368396859}
+    };
+    static final double[][] OUTSET = {
+            {1.1271005818144368, -0.11060664309660323, -0.016493938717834573},
+            {-0.1413297634984383, 1.157823702216272, -0.016493938717834257},
+            {-0.14132976349843826, -0.11060664309660294, 1.2519364065950405}
+    };
 
     public static final double[] GAMMA_2_2 = {2.2, 2.2, 2.2};
 
@@ -56,12 +67,11 @@ public class AgxToneMapper {
     private static double[] outSet(double[] color) {
         // 3. agxEotf()
         // Inverse input transform (outset)
-        color = new double[] {
-                 1.1271005818144368  * color[0] - 0.11060664309660323 * color[1] - 0.016493938717834573 * color[2],
-                -0.1413297634984383  * color[0] + 1.157823702216272   * color[1] - 0.016493938717834257 * color[2],
-                -0.14132976349843826 * color[0] - 0.11060664309660294 * color[1] + 1.2519364065950405  * color[2]
+        return new double[]{
+                OUTSET[0][0] * color[0] + OUTSET[0][1] * color[1] + OUTSET[0][2] * color[2],
+                OUTSET[1][0] * color[0] + OUTSET[1][1] * color[1] + OUTSET[1][2] * color[2],
+                OUTSET[2][0] * color[0] + OUTSET[2][1] * color[1] + OUTSET[2][2] * color[2]
         };
-        return color;
     }
 
     private static void applySigmoid(double[] color) {
@@ -84,13 +94,11 @@ public class AgxToneMapper {
 
     private static double[] inset(double r, double g, double b) {
         // Input transform (inset)
-
-        double insetR = 0.856627153315983  * r + 0.0951212405381588 * g + 0.0482516061458583   * b;
-        double insetG = 0.137318972929847 * r + 0.761241990602591 * g + 0.101439036467562 * b;
-        double insetB = 0.11189821299995 * r + 0.0767994186031903 * g + 0.811302368396859  * b;
-
-        double[] color = new double[]{insetR, insetG, insetB};
-        return color;
+        return new double[]{
+                INSET[0][0] * r + INSET[0][1] * g + INSET[0][2] * b,
+                INSET[1][0] * r + INSET[1][1] * g + INSET[1][2] * b,
+                INSET[2][0] * r + INSET[2][1] * g + INSET[2][2] * b
+        };
     }
 
     private static double[] applyLook(Look look, double[] color) {
@@ -102,7 +110,7 @@ public class AgxToneMapper {
         return color;
     }
 
-    private static double sigmoid(double x) {
+    static double sigmoid(double x) {
         double x2 = x * x;
         double x4 = x2 * x2;
 
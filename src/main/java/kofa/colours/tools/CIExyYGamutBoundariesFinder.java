@@ -3,9 +3,12 @@ package kofa.colours.tools;
 import kofa.colours.spaces.Rec2020;
 import kofa.colours.spaces.Rec709;
 import kofa.colours.spaces.SpaceParameters;
+import kofa.io.GamutBoundaryAtlas;
+import kofa.parallel.ProcessingContext;
 
+import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.stream.IntStream;
+import java.util.function.Supplier;
 
 import static java.lang.Math.*;
 import static java.util.Arrays.fill;
@@ -15,8 +18,46 @@ import static kofa.maths.MathHelpers.vec3;
 public class CIExyYGamutBoundariesFinder {
     private static final double TWO_PI = 2 * Math.PI;
     private static final double STARTING_MAX_DISTANCE = 2;
+    // part of the atlas key: increment when the search changes, so stored atlases are recomputed
+    private static final int ALGORITHM_VERSION = 1;
 
     public static double[][] findRgbGamutBoundaries(int lumaResolution, int chromaResolution, SpaceParameters spaceParameters) {
+        return findRgbGamutBoundaries(lumaResolution, chromaResolution, spaceParameters, ProcessingContext.common());
+    }
+
+    /**
+     * Like {@link #findRgbGamutBoundaries(int, int, SpaceParameters, ProcessingContext)}, but the boundaries are only
+     * searched once, and stored in the atlas directory; later calls (also from other processes) map the stored table.
+     *
+     * @param atlasDirectory see {@link GamutBoundaryAtlas#loadOrCreate(Path, String, int, int, Supplier)}
+     */
+    public static GamutBoundaryAtlas loadOrFindRgbGamutBoundaries(
+            int lumaResolution, int chromaResolution, SpaceParameters spaceParameters, ProcessingContext context,
+            Path atlasDirectory
+    ) {
+        return GamutBoundaryAtlas.loadOrCreate(
+                atlasDirectory,
+                atlasKey(lumaResolution, chromaResolution, spaceParameters),
+                lumaResolution, chromaResolution,
+                () -> findRgbGamutBoundaries(lumaResolution, chromaResolution, spaceParameters, context)
+        );
+    }
+
+    private static String atlasKey(int lumaResolution, int chromaResolution, SpaceParameters spaceParameters) {
+        // the primaries and the white point determine XYZ_to_rgb
+        return "CIExyY distance from white, v%d; white: %s, %s; red: %s, %s; green: %s, %s; blue: %s, %s; %d x %d".formatted(
+                ALGORITHM_VERSION,
+                spaceParameters.whitePointX(), spaceParameters.whitePointY(),
+                spaceParameters.redX(), spaceParameters.redY(),
+                spaceParameters.greenX(), spaceParameters.greenY(),
+                spaceParameters.blueX(), spaceParameters.blueY(),
+                lumaResolution, chromaResolution
+        );
+    }
+
+    public static double[][] findRgbGamutBoundaries(
+            int lumaResolution, int chromaResolution, SpaceParameters spaceParameters, ProcessingContext context
+    ) {
         double lumaStep = 1.0 / lumaResolution;
         double polarStep = TWO_PI / chromaResolution;
         double[][] boundaries = new double[lumaResolution][chromaResolution];
@@ -28,7 +69,7 @@ public class CIExyYGamutBoundariesFinder {
         long start = System.currentTimeMillis();
 
         // start with indexY = 1, skip black
-        IntStream.range(1, lumaResolution).parallel().forEach(indexY -> {
+        context.forEachIndex(1, lumaResolution, indexY -> {
             double[] rgb = vec3();
             double[] XYZ = vec3();
             double[] xyY = vec3();
@@ -37,9 +78,8 @@ public class CIExyYGamutBoundariesFinder {
             for (int indexPolar = 0; indexPolar < chromaResolution; indexPolar++) {
                 double angle = polarStep * indexPolar;
                 double minDistanceForThisRound = findBoundaryDistance(angle, xyY, XYZ, rgb, spaceParameters);
-                synchronized (boundaries[indexY]) {
-                    boundaries[indexY][indexPolar] = min(boundaries[indexY][indexPolar], minDistanceForThisRound);
-                }
+                // each row is only written by a single thread
+                boundaries[indexY][indexPolar] = min(boundaries[indexY][indexPolar], minDistanceForThisRound);
             }
         });
         System.out.println("Gamut search took %d ms".formatted(System.currentTimeMillis() - start));
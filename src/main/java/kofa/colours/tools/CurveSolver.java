@@ -1,43 +1,30 @@
 package kofa.colours.tools;
 
-import kofa.maths.Solver;
 import kofa.maths.ThanatomanicCurve6;
 
-import java.util.Optional;
+import static java.lang.Math.max;
 
 public class CurveSolver {
 
     public static final double MIN_SHOULDER_START = 0.8;
+    /**
+     * The value the largest input is mapped to.
+     */
+    public static final double MAPPED_MAX_VALUE = 0.9999;
 
-    public static <S> double findOptimalShoulderStart(double maxValue) {
-        if (maxValue > 1000) {
-            System.out.println("ouch");
-        }
-        double shoulderStart;
+    /**
+     * @return the shoulder start of the {@link ThanatomanicCurve6#linearUntil(double)} curve that maps
+     * {@code maxValue} to {@link #MAPPED_MAX_VALUE}, at least {@link #MIN_SHOULDER_START}; 1 if no compression is
+     * needed
+     */
+    public static double findOptimalShoulderStart(double maxValue) {
         if (maxValue <= 1) {
-            System.out.println("Compression is not needed, maxValue = " + maxValue);
-            shoulderStart = 1;
-        } else {
-            var shoulderSearchLow = 0.9999;
-            Optional<Double> shoulder;
-            do {
-                var shoulderSolver = new Solver(currentShoulder -> {
-                    var curve = ThanatomanicCurve6.linearUntil(currentShoulder);
-                    double mappedValue = curve.mappedValueOf(maxValue);
-                    return mappedValue < 0.99 ?
-                            -1.0 :
-                            mappedValue > 0.9999 ?
-                                    1 :
-                                    0;
-                });
-                shoulder = shoulderSolver.solve(shoulderSearchLow, 1 - 1e-6, 0);
-                if (shoulder.isEmpty()) {
-                    shoulderSearchLow -= 0.01;
-                }
-            } while (shoulder.isEmpty() && shoulderSearchLow > MIN_SHOULDER_START);
-            shoulderStart = shoulder.orElse(MIN_SHOULDER_START);
-            System.out.println("Will use shoulderStart = " + shoulderStart + " for compression, maxValue = " + maxValue);
+            return 1;
+        }
+        if (!Double.isFinite(maxValue)) {
+            // NaN or infinite: no shoulder maps it below 1
+            return MIN_SHOULDER_START;
         }
-        return shoulderStart;
+        return max(MIN_SHOULDER_START, ThanatomanicCurve6.shoulderStartMapping(maxValue, MAPPED_MAX_VALUE));
     }
 }
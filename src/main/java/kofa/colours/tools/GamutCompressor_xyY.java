@@ -1,12 +1,17 @@
 package kofa.colours.tools;
 
-import com.google.common.util.concurrent.AtomicDouble;
 import kofa.colours.spaces.CIExyY;
 import kofa.colours.spaces.Rec2020;
 import kofa.colours.spaces.Rec709;
 import kofa.colours.spaces.SpaceParameters;
+import kofa.io.GamutBoundaryAtlas;
+import kofa.io.PixelMetric;
 import kofa.io.RgbImage;
+import kofa.maths.Curve;
 import kofa.maths.ThanatomanicCurve6;
+import kofa.parallel.ProcessingContext;
+
+import java.nio.file.Path;
 
 import static java.lang.Math.*;
 import static kofa.colours.spaces.CIExyY.D65_WHITE_2DEG_x;
@@ -17,9 +22,11 @@ import static kofa.maths.MathHelpers.vec3;
 public class GamutCompressor_xyY {
     private static final double PI2 = 2 * PI;
 
-    private final double[][] boundaries;
+    private final GamutBoundaryAtlas boundaries;
     private final int lumaResolution;
     private final int chromaResolution;
+    // one per instance, so the images' statistics keep it for the boundaries of this instance
+    private final PixelMetric gamutCompression;
 
     public static GamutCompressor_xyY forRec709(int lumaResolution, int chromaResolution) {
         return new GamutCompressor_xyY(lumaResolution, chromaResolution, Rec709.PARAMS);
@@ -30,18 +37,39 @@ public class GamutCompressor_xyY {
     }
 
     public GamutCompressor_xyY(int lumaResolution, int chromaResolution, SpaceParameters spaceParameters) {
+        this(lumaResolution, chromaResolution, spaceParameters, ProcessingContext.common());
+    }
+
+    /**
+     * @param context used for finding the gamut boundaries; the image is processed using its own context
+     */
+    public GamutCompressor_xyY(
+            int lumaResolution, int chromaResolution, SpaceParameters spaceParameters, ProcessingContext context
+    ) {
+        this(lumaResolution, chromaResolution, spaceParameters, context, GamutBoundaryAtlas.defaultDirectory());
+    }
+
+    /**
+     * @param atlasDirectory where the gamut boundaries are stored, so they are only searched once; {@code null} to
+     *                       search them for this instance only
+     */
+    public GamutCompressor_xyY(
+            int lumaResolution, int chromaResolution, SpaceParameters spaceParameters, ProcessingContext context,
+            Path atlasDirectory
+    ) {
         this.lumaResolution = lumaResolution;
         this.chromaResolution = chromaResolution;
-        boundaries = CIExyYGamutBoundariesFinder.findRgbGamutBoundaries(lumaResolution, chromaResolution, spaceParameters);
+        boundaries = CIExyYGamutBoundariesFinder.loadOrFindRgbGamutBoundaries(
+                lumaResolution, chromaResolution, spaceParameters, context, atlasDirectory
+        );
+        gamutCompression = (red, green, blue, scratch) -> gamutCompression(red, green, blue, boundaries);
     }
 
     public void compressGamut_in_xyY(RgbImage image) {
-        var maxGamutCompressionHolder = new AtomicDouble(1);
-        image.forEachPixel((int row, int column, double red, double green, double blue) ->
-                updateMaxGamutCompression(red, green, blue, maxGamutCompressionHolder, boundaries)
-        );
+        double maxValue = image.statistics().maxOf(gamutCompression);
+        double maxGamutCompression = maxValue > 1 ? maxValue : 1;
 
-        double shoulderStart = findOptimalShoulderStart(maxGamutCompressionHolder.get());
+        double shoulderStart = findOptimalShoulderStart(maxGamutCompression);
 
         if (shoulderStart != 1) {
             var gamutCompressor = new CurveBased_xyY_gamutCompressor(shoulderStart, boundaries);
@@ -49,7 +77,10 @@ public class GamutCompressor_xyY {
         }
     }
 
-    private void updateMaxGamutCompression(double red, double green, double blue, AtomicDouble maxGamutCompressionHolder, double[][] boundaries) {
+    /**
+     * @return the distance of the pixel from neutral relative to the gamut boundary, or 1 if it cannot be computed
+     */
+    private double gamutCompression(double red, double green, double blue, GamutBoundaryAtlas boundaries) {
         double[] valuesXYZ = rec2020_to_XYZ(red, green, blue);
         if (valuesXYZ[1] > 0.01 && valuesXYZ[1] < 1 - 0.01) {
             double[] values_xyY = vec3();
@@ -67,27 +98,27 @@ public class GamutCompressor_xyY {
                     // may wrap around the circle because of the rounding, 0 radian vs 2*PI radian
                     double normalisedAngle = ((angle < 0) ? (angle + PI2) : angle) / PI2;
                     int indexPolar = (int) (round(normalisedAngle * chromaResolution) % chromaResolution);
-                    double maxDistanceFromNeutral = boundaries[indexY][indexPolar];
+                    double maxDistanceFromNeutral = boundaries.get(indexY, indexPolar);
                     if (maxDistanceFromNeutral > 1e-4) {
-                        double compression = distanceFromNeutral / maxDistanceFromNeutral;
-                        maxGamutCompressionHolder.accumulateAndGet(compression, Math::max);
+                        return distanceFromNeutral / maxDistanceFromNeutral;
                     }
                 }
             }
         }
+        return 1;
     }
 
     private static class CurveBased_xyY_gamutCompressor implements RgbImage.PixelTransformer {
-        private final ThanatomanicCurve6 curve;
-        private final double[][] boundaries;
+        private final Curve curve;
+        private final GamutBoundaryAtlas boundaries;
         private final int lumaResolution;
         private final int chromaResolution;
 
-        private CurveBased_xyY_gamutCompressor(double shoulder, double[][] boundaries) {
-            curve = ThanatomanicCurve6.linearUntil(shoulder);
+        private CurveBased_xyY_gamutCompressor(double shoulder, GamutBoundaryAtlas boundaries) {
+            curve = ThanatomanicCurve6.linearUntil(shoulder).sampled();
             this.boundaries = boundaries;
-            this.lumaResolution = boundaries.length;
-            this.chromaResolution = boundaries[0].length;
+            this.lumaResolution = boundaries.rows();
+            this.chromaResolution = boundaries.columns();
         }
 
         @Override
@@ -108,7 +139,7 @@ public class GamutCompressor_xyY {
                     // may wrap around the circle because of the rounding, 0 radian vs 2*PI radian
                     double normalisedAngle = ((angle < 0) ? (angle + PI2) : angle) / PI2;
                     int indexPolar = (int) (round(normalisedAngle * chromaResolution) % chromaResolution);
-                    double maxDistanceFromNeutral = boundaries[indexY][indexPolar];
+                    double maxDistanceFromNeutral = boundaries.get(indexY, indexPolar);
                     double ratioFromMax = distanceFromNeutral / maxDistanceFromNeutral;
                     double compressedRatioFromMax = curve.mappedValueOf(ratioFromMax);
                     double compressedDistance = maxDistanceFromNeutral * compressedRatioFromMax;
@@ -3,6 +3,7 @@ package kofa.colours.tools;
 import kofa.colours.gamutmapper.*;
 import kofa.io.ImageLoader;
 import kofa.io.Png16Output;
+import kofa.io.RenderPipeline;
 import kofa.io.RgbImage;
 
 import java.util.Arrays;
@@ -19,26 +20,27 @@ public class LoadAndSaveSrgb {
         String inputFile = args[0];
         String baseName = inputFile.substring(0, inputFile.lastIndexOf("."));
 
-        var image = new ImageLoader().loadImageFrom(inputFile);
-
-        for (int mapperId : mapperIds) {
-            image.init();
-
-            GamutMapper gamutMapper = getGamutMapper(image, mapperId);
-
-            if (gamutMapper != null) {
-                System.out.println("Using " + gamutMapper.name());
-                gamutMapper.mapToSrgb(image);
-                Png16Output.write(baseName + "-" + gamutMapper.name(), image);
-            } else {
-                printHelpAndExit();
+        // decoded once, and never copied: the mappers analyse a read-only view, rendering in a single pass from the
+        // source straight into the output raster
+        try (var source = new ImageLoader().loadSourceFrom(inputFile)) {
+            RgbImage image = source.readOnlyView();
+            for (int mapperId : mapperIds) {
+                GamutMapper gamutMapper = getGamutMapper(image, mapperId);
+
+                if (gamutMapper != null) {
+                    System.out.println("Using " + gamutMapper.name());
+                    var pipeline = gamutMapper.addStagesTo(RenderPipeline.from(source)).build();
+                    Png16Output.write(baseName + "-" + gamutMapper.name(), pipeline);
+                } else {
+                    printHelpAndExit();
+                }
             }
         }
     }
 
     private static int[] parseMapperIds(String[] args) {
         if (args.length == 2 && args[1].equals("all")) {
-            return IntStream.rangeClosed(1, 17).toArray();
+            return IntStream.rangeClosed(1, 18).toArray();
         }
 
         int[] ids = null;
@@ -81,6 +83,8 @@ public class LoadAndSaveSrgb {
             case 16 -> GradualChromaDampeningLchBasedGamutMapper.forLchUv(0.9, image);
             case 17 -> GradualChromaDampeningLchBasedGamutMapper.forOkLch(0.9, image);
 
+            case 18 -> ChromaClippingLchBasedGamutMapper.forOkLch(image, true);
+
             default -> null;
         };
     }
@@ -114,6 +118,8 @@ public class LoadAndSaveSrgb {
         System.out.println("Transformer 16: Dampen C of LCh(uv), shoulder = 0.9");
         System.out.println("Transformer 17: Dampen C of OKLCh,   shoulder = 0.9");
 
+        System.out.println("Transformer 18: Clip C of OKLCh, analytic gamut boundary");
+
         System.exit(1);
     }
 }
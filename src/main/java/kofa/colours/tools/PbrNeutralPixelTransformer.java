@@ -1,13 +1,16 @@
 package kofa.colours.tools;
 
+import kofa.colours.lut.Lut3D;
+import kofa.colours.lut.LutShaper;
 import kofa.io.RgbImage;
+import kofa.parallel.ProcessingContext;
 
+import static java.lang.Math.max;
 import static java.lang.Math.min;
-import static kofa.maths.MathHelpers.*;
 
 // see https://modelviewer.dev/examples/tone-mapping for the design; some sections quoted below (in comments: "design")
 // see https://github.com/KhronosGroup/ToneMapping/blob/main/PBR_Neutral/README.md (in comments: "Readme")
-public class PbrNeutralPixelTransformer implements RgbImage.PixelTransformer {
+public class PbrNeutralPixelTransformer implements RgbImage.RowTransformer {
     /* design: [...] for a common dielectric material with index of refraction of 1.5, the normal Fresnel
        reflection adds 4% of the incident light color (the highlight) to the material's colored diffuse reflection.
        Assuming the lighting is even and white, this leads to a 4% desaturation of the rendered color as compared
@@ -31,24 +34,51 @@ public class PbrNeutralPixelTransformer implements RgbImage.PixelTransformer {
     //  Readme: Kd = 0.15 , parameter controlling the speed of desaturation.
     private static final double DESATURATION = 0.15;
 
+    /**
+     * @return the transformer baked into a look-up over {@link LutShaper#SCENE_LINEAR}; components above its max are
+     * clamped, so neutral values above it are mapped at most 0.4% darker, but brighter colours lose saturation and
+     * shift in hue
+     */
+    public static Lut3D lut(int size, ProcessingContext context) {
+        return Lut3D.bake(new PbrNeutralPixelTransformer(), size, LutShaper.SCENE_LINEAR, context);
+    }
+
     @Override
-    public double[] transform(int row, int column, double red, double green, double blue) {
+    public void transformRow(int row, double[] in, double[] out) {
+        for (int index = 0; index < in.length; index += 3) {
+            transformPixel(in, out, index);
+        }
+    }
+
+    private static void transformPixel(double[] in, double[] out, int index) {
+        double red = in[index];
+        double green = in[index + 1];
+        double blue = in[index + 2];
+
         double x = min(red, min(green, blue));
         // Readme: x − x^2 / (4 * F90) -> 1 / (4 * 0.04) = 6.25
         double offset = (x < 2 * FRESNEL_OFFSET_CORRECTION) ? x - 6.25 * x * x : FRESNEL_OFFSET_CORRECTION;
 
-        double[] color = vec3(red - offset, green - offset, blue - offset);
+        red -= offset;
+        green -= offset;
+        blue -= offset;
 
         // Readme: p = max (R − f, G − f, B − f)
-        double peak = maxComponentValue(color);
+        double peak = max(red, max(green, blue));
 
         if (peak < START_COMPRESSION) {
-            return color;
+            out[index] = red;
+            out[index + 1] = green;
+            out[index + 2] = blue;
+            return;
         }
 
         //  pn = 1 − (1 − Ks)^2 / (p + 1 − 2 * Ks)
         double newPeak = 1 - D_SQUARED / (peak + D - START_COMPRESSION);
-        color = mul(color, newPeak / peak);
+        double scale = newPeak / peak;
+        red *= scale;
+        green *= scale;
+        blue *= scale;
 
         /* design: The final piece is to create the path to white for desaturating bright highlights. [..]
          * I accomplish this by taking a convex combination of the compressed color and white, only in the nonlinear
@@ -60,6 +90,11 @@ public class PbrNeutralPixelTransformer implements RgbImage.PixelTransformer {
          */
         double g = 1 / (DESATURATION * (peak - newPeak) + 1);
         double mixFactor = 1 - g;
-        return mix(color, vec3(newPeak), mixFactor);
+        // mix(color, vec3(newPeak), mixFactor)
+        double colorWeight = 1 - mixFactor;
+        double white = newPeak * mixFactor;
+        out[index] = red * colorWeight + white;
+        out[index + 1] = green * colorWeight + white;
+        out[index + 2] = blue * colorWeight + white;
     }
 }
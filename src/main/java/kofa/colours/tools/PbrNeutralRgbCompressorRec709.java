@@ -27,6 +27,6 @@ public class PbrNeutralRgbCompressorRec709 {
 
     private static void toneMapUsingPbrNeutral(RgbImage image) {
         var transformer = new PbrNeutralPixelTransformer();
-        image.transformAllPixels(transformer);
+        image.transformAllRows(transformer);
     }
 }
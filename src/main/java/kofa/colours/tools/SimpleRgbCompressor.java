@@ -1,6 +1,5 @@
 package kofa.colours.tools;
 
-import com.google.common.util.concurrent.AtomicDouble;
 import kofa.io.ImageLoader;
 import kofa.io.JpgOutput;
 import kofa.io.RgbImage;
@@ -24,11 +23,11 @@ public class SimpleRgbCompressor {
     }
 
     private static void toneMapUsingRGB(RgbImage image) {
-        var max_holder = new AtomicDouble(0);
-        image.forEachPixel((int row, int column, double red, double green, double blue) -> {
-            findMaxComponent(red, green, blue, max_holder);
-        });
-        double maxComponent = max_holder.get();
+        double maxComponent = image.reduceToDouble(
+                (int row, int column, double red, double green, double blue) -> max(red, max(green, blue)),
+                0,
+                Math::max
+        );
 
         double shoulderStart = findOptimalShoulderStart(maxComponent);
 
@@ -38,10 +37,6 @@ public class SimpleRgbCompressor {
         }
     }
 
-    private static void findMaxComponent(double red, double green, double blue, AtomicDouble maxHolder) {
-        maxHolder.getAndAccumulate(max(red, max(green, blue)), Math::max);
-    }
-
     private static class CurveBasedRgbCompressor implements RgbImage.PixelTransformer {
         private final ThanatomanicCurve6 curve;
 
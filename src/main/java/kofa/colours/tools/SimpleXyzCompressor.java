@@ -1,9 +1,9 @@
 package kofa.colours.tools;
 
-import com.google.common.util.concurrent.AtomicDouble;
 import kofa.colours.spaces.Rec2020;
 import kofa.io.ImageLoader;
 import kofa.io.JpgOutput;
+import kofa.io.PixelMetric;
 import kofa.io.RgbImage;
 import kofa.maths.ThanatomanicCurve6;
 
@@ -12,6 +12,8 @@ import static kofa.colours.tools.CurveSolver.findOptimalShoulderStart;
 public class SimpleXyzCompressor {
     private static final int lumaResolution = 4096;
     private static final int chromaResolution = 4096;
+    private static final PixelMetric Y = (red, green, blue, scratch) -> rec2020_to_XYZ(red, green, blue)[1];
+
     public static void main(String[] args) {
         String baseName = args[0];
         RgbImage image = new ImageLoader().loadImageFrom(baseName);
@@ -24,11 +26,8 @@ public class SimpleXyzCompressor {
     }
 
     private static void toneMapUsingY(RgbImage image) {
-        var maxY_holder = new AtomicDouble(0);
-        image.forEachPixel((int row, int column, double red, double green, double blue) -> {
-            findMaxY(red, green, blue, maxY_holder);
-        });
-        double maxY = maxY_holder.get();
+        double maxValue = image.statistics().maxOf(Y);
+        double maxY = maxValue > 0 ? maxValue : 0;
 
         double shoulderYStart = findOptimalShoulderStart(maxY);
 
@@ -38,11 +37,6 @@ public class SimpleXyzCompressor {
         }
     }
 
-    private static void findMaxY(double red, double green, double blue, AtomicDouble maxY_holder) {
-        double[] valuesXYZ = rec2020_to_XYZ(red, green, blue);
-        maxY_holder.getAndAccumulate(valuesXYZ[1], Math::max);
-    }
-
     private static double[] rec2020_to_XYZ(double red, double green, double blue) {
         double[] valuesRec2020 = new double[] {red, green, blue};
         double[] valuesXYZ = new double[3];
@@ -52,7 +46,6 @@ public class SimpleXyzCompressor {
 
     private static class CurveBasedYCompressor implements RgbImage.PixelTransformer {
         private final ThanatomanicCurve6 curve;
-        private final AtomicDouble maxMappedY = new AtomicDouble(0);
 
         private CurveBasedYCompressor(double shoulder) {
             curve = ThanatomanicCurve6.linearUntil(shoulder);
@@ -63,7 +56,6 @@ public class SimpleXyzCompressor {
             double[] valuesXYZ = rec2020_to_XYZ(red, green, blue);
             double mappedY = curve.mappedValueOf(valuesXYZ[1]);
             valuesXYZ[1] = mappedY;
-            maxMappedY.accumulateAndGet(mappedY, Math::max);
             var valuesRec2020 = new double[3];
             Rec2020.XYZ_to_rec2020(valuesXYZ, valuesRec2020);
             return new double[] {valuesRec2020[0], valuesRec2020[1], valuesRec2020[2]};
@@ -3,14 +3,14 @@ package kofa.colours.tools;
 import kofa.io.RgbImage;
 
 public class SrgbOut {
-    public static final RgbImage.PixelTransformer SRGB_OUT = new RgbImage.PixelTransformer() {
+    public static final RgbImage.RowTransformer SRGB_OUT = new RgbImage.RowTransformer() {
         private static final double LINEAR_THRESHOLD = 0.0031308;
 
         @Override
-        public double[] transform(int row, int column, double red, double green, double blue) {
-            return new double[] {
-                    applyGamma(red), applyGamma(green), applyGamma(blue)
-            };
+        public void transformRow(int row, double[] in, double[] out) {
+            for (int index = 0; index < in.length; index++) {
+                out[index] = applyGamma(in[index]);
+            }
         }
 
         private static double applyGamma(double linear) {
@@ -56,9 +56,7 @@ public class TestImageGeneratorRec2020ToRec709SaturationSeries {
                     CIExyY.xyY_to_XYZ(xyY, XYZ);
                     Rec709.XYZ_to_rec709(XYZ, rec709);
                     for (int rowForColour = 0; rowForColour < BAND; rowForColour++) {
-                        image.redChannel()[row][lumaIndex] = clamp(rec709[0], 0, 1);
-                        image.greenChannel()[row][lumaIndex] = clamp(rec709[1], 0, 1);
-                        image.blueChannel()[row][lumaIndex] = clamp(rec709[2], 0, 1);
+                        image.setPixel(row, lumaIndex, clamp(rec709[0], 0, 1), clamp(rec709[1], 0, 1), clamp(rec709[2], 0, 1));
                         row++;
                     }
 
@@ -72,9 +70,12 @@ public class TestImageGeneratorRec2020ToRec709SaturationSeries {
                     CIExyY.xyY_to_XYZ(xyY, XYZ);
                     Rec709.XYZ_to_rec709(XYZ, rec709);
                     for (int rowForColour = 0; rowForColour < BAND; rowForColour++) {
-                        image.redChannel()[row][lumaIndex] = falseColourfOutOfGamut(rec709[0]);
-                        image.greenChannel()[row][lumaIndex] = falseColourfOutOfGamut(rec709[1]);
-                        image.blueChannel()[row][lumaIndex] = falseColourfOutOfGamut(rec709[2]);
+                        image.setPixel(
+                                row, lumaIndex,
+                                falseColourfOutOfGamut(rec709[0]),
+                                falseColourfOutOfGamut(rec709[1]),
+                                falseColourfOutOfGamut(rec709[2])
+                        );
                         row++;
                     }
 
@@ -85,23 +86,19 @@ public class TestImageGeneratorRec2020ToRec709SaturationSeries {
                     CIExyY.xyY_to_XYZ(xyY, XYZ);
                     Rec709.XYZ_to_rec709(XYZ, rec709);
                     for (int rowForColour = 0; rowForColour < BAND; rowForColour++) {
-                        image.redChannel()[row][lumaIndex] = clamp(rec709[0], 0, 1);
-                        image.greenChannel()[row][lumaIndex] = clamp(rec709[1], 0, 1);
-                        image.blueChannel()[row][lumaIndex] = clamp(rec709[2], 0, 1);
+                        image.setPixel(row, lumaIndex, clamp(rec709[0], 0, 1), clamp(rec709[1], 0, 1), clamp(rec709[2], 0, 1));
                         row++;
                     }
 
                     double compressionStrength = distanceRec2020 > 0 ? 1 - compressedDistance / distanceRec2020 : 0;
                     for (int rowForColour = 0; rowForColour < BAND; rowForColour++) {
-                        image.redChannel()[row][lumaIndex] = compressionStrength;
-                        image.greenChannel()[row][lumaIndex] = compressionStrength;
-                        image.blueChannel()[row][lumaIndex] = compressionStrength;
+                        image.setPixel(row, lumaIndex, compressionStrength, compressionStrength, compressionStrength);
                         row++;
                     }
                 }
             }
 
-            image.transformAllPixels(SrgbOut.SRGB_OUT);
+            image.transformAllRows(SrgbOut.SRGB_OUT);
             Png16Output.write("/tmp/Rec2020-%03d-Rec709".formatted(percent), image);
         }
     }
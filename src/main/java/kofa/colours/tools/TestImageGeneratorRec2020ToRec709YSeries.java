@@ -64,13 +64,16 @@ public class TestImageGeneratorRec2020ToRec709YSeries {
                     CIExyY.xyY_to_XYZ(compressedxyY, compressedXYZ);
                     double[] compressedRec709 = vec3();
                     Rec709.XYZ_to_rec709(compressedXYZ, compressedRec709);
-                    image.redChannel()[polarIndex][saturationIndex] = falseColourfOutOfGamut(compressedRec709[0]);//clamp(rec709[0], 0, 1);
-                    image.greenChannel()[polarIndex][saturationIndex] = falseColourfOutOfGamut(compressedRec709[1]);//clamp(rec709[1], 0, 1);
-                    image.blueChannel()[polarIndex][saturationIndex] = falseColourfOutOfGamut(compressedRec709[2]);//clamp(rec709[2], 0, 1);
+                    image.setPixel(
+                            polarIndex, saturationIndex,
+                            falseColourfOutOfGamut(compressedRec709[0]),
+                            falseColourfOutOfGamut(compressedRec709[1]),
+                            falseColourfOutOfGamut(compressedRec709[2])
+                    );
                 }
             }
 
-            image.transformAllPixels(SrgbOut.SRGB_OUT);
+            image.transformAllRows(SrgbOut.SRGB_OUT);
             Png16Output.write("/tmp/Rec2020-Y%02d-Rec709".formatted(percent), image);
         }
     }
@@ -62,9 +62,7 @@ public class TestImageGeneratorRec709ExposureSeries {
                     CIExyY.xyY_to_XYZ(xyY, XYZ);
                     Rec709.XYZ_to_rec709(XYZ, rec709);
 
-                    image.redChannel()[polarIndex][saturationIndex] = rec709[0] * multiplier;
-                    image.greenChannel()[polarIndex][saturationIndex] = rec709[1] * multiplier;
-                    image.blueChannel()[polarIndex][saturationIndex] = rec709[2] * multiplier;
+                    image.setPixel(polarIndex, saturationIndex, rec709[0] * multiplier, rec709[1] * multiplier, rec709[2] * multiplier);
                 }
             }
 
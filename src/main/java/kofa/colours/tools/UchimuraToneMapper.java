@@ -1,5 +1,8 @@
 package kofa.colours.tools;
 
+import kofa.maths.Curve;
+import kofa.maths.SampledCurve;
+
 import static java.lang.Math.exp;
 import static java.lang.Math.pow;
 import static kofa.maths.MathHelpers.smoothstep;
@@ -15,11 +18,29 @@ public class UchimuraToneMapper {
     private static final double l = 0.4;  // linear section length
     private static final double c = 1.33; // black
     private static final double b = 0.0;  // pedestal
+    // above, the curve is within 1E-9 of P
+    private static final double MAX_SAMPLED = 16;
+
+    /**
+     * {@link #toneMap(double)} as a {@link Curve}.
+     */
+    public static final Curve CURVE = UchimuraToneMapper::toneMap;
 
     public static double toneMap(double value) {
         return value > 0 ? uchimura(value, P, a, m, l, c, b) : 0;
     }
 
+    /**
+     * @return {@link #toneMap(double)} from a table of {@link SampledCurve.Interpolation#CUBIC_HERMITE} samples, dense
+     * near black where the toe bends most, within {@link SampledCurve#DEFAULT_TOLERANCE}
+     */
+    public static SampledCurve sampled() {
+        return SampledCurve.of(
+                CURVE, 0, MAX_SAMPLED, SampledCurve.DEFAULT_TOLERANCE,
+                SampledCurve.Interpolation.CUBIC_HERMITE, SampledCurve.Spacing.DENSE_NEAR_MIN
+        );
+    }
+
     private static double uchimura(double x, double P, double a, double m, double l, double c, double b) {
         double l0 = ((P - m) * l) / a;
         double S0 = m + l0;
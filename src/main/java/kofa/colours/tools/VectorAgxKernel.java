@@ -0,0 +1,79 @@
+package kofa.colours.tools;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static kofa.colours.tools.AgxToneMapper.*;
+
+/**
+ * The Vector API implementation of {@link AgxKernel}; only loaded if the {@code jdk.incubator.vector} module is
+ * present. The pixels that do not fill a whole vector are processed by the scalar code. The arithmetic is evaluated in
+ * the same order as in the scalar kernel, without fused multiply-add; {@code log} and {@code pow} use the vector
+ * library of the JVM, so the results may differ from the scalar kernel in the last bits.
+ */
+class VectorAgxKernel extends AgxKernel {
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    VectorAgxKernel(AgxToneMapper.Look look) {
+        super(look);
+    }
+
+    @Override
+    protected void encodeLogAndApplySigmoid(double[] channel, int offset, int pixels) {
+        int end = offset + pixels - pixels % DOUBLES.length();
+        for (int index = offset; index < end; index += DOUBLES.length()) {
+            var log2 = DoubleVector.fromArray(DOUBLES, channel, index)
+                    .max(MIN_VALUE)
+                    .lanewise(VectorOperators.LOG)
+                    .div(LN_2);
+            var x = log2.max(AgxMinEv).min(AgxMaxEv).sub(AgxMinEv).div(EV_RANGE).max(0.0).min(1.0);
+            sigmoid(x).intoArray(channel, index);
+        }
+        super.encodeLogAndApplySigmoid(channel, end, offset + pixels - end);
+    }
+
+    @Override
+    protected void applyLook(double[] red, double[] green, double[] blue, int offset, int pixels) {
+        int end = offset + pixels - pixels % DOUBLES.length();
+        for (int index = offset; index < end; index += DOUBLES.length()) {
+            var r = DoubleVector.fromArray(DOUBLES, red, index);
+            var g = DoubleVector.fromArray(DOUBLES, green, index);
+            var b = DoubleVector.fromArray(DOUBLES, blue, index);
+            var luma = r.mul(lw[0]).add(g.mul(lw[1])).add(b.mul(lw[2]));
+            r = r.mul(slope[0]).add(offsets[0]).lanewise(VectorOperators.POW, power[0]);
+            g = g.mul(slope[1]).add(offsets[1]).lanewise(VectorOperators.POW, power[1]);
+            b = b.mul(slope[2]).add(offsets[2]).lanewise(VectorOperators.POW, power[2]);
+            r.sub(luma).mul(sat).add(luma).intoArray(red, index);
+            g.sub(luma).mul(sat).add(luma).intoArray(green, index);
+            b.sub(luma).mul(sat).add(luma).intoArray(blue, index);
+        }
+        super.applyLook(red, green, blue, end, offset + pixels - end);
+    }
+
+    @Override
+    protected void linearise(double[] channel, int offset, int pixels) {
+        int end = offset + pixels - pixels % DOUBLES.length();
+        for (int index = offset; index < end; index += DOUBLES.length()) {
+            DoubleVector.fromArray(DOUBLES, channel, index)
+                    .max(0.0)
+                    .min(1.0)
+                    .lanewise(VectorOperators.POW, GAMMA)
+                    .intoArray(channel, index);
+        }
+        super.linearise(channel, end, offset + pixels - end);
+    }
+
+    // AgxToneMapper.sigmoid, in the same order
+    private static DoubleVector sigmoid(DoubleVector x) {
+        var x2 = x.mul(x);
+        var x4 = x2.mul(x2);
+        return x4.mul(15.5).mul(x2)
+                .sub(x4.mul(40.14).mul(x))
+                .add(x4.mul(31.96))
+                .sub(x2.mul(6.868).mul(x))
+                .add(x2.mul(0.4298))
+                .add(x.mul(0.1191))
+                .sub(0.00232);
+    }
+}
@@ -2,10 +2,12 @@ package kofa.io;
 
 public class ArrayImage3 {
     private final int width;
+    private final int height;
     private final float[] channels;
 
     public ArrayImage3(int width, int height) {
         this.width = width;
+        this.height = height;
         this.channels = new float[3 * width * height];
     }
 
@@ -17,6 +19,7 @@ public class ArrayImage3 {
             );
         }
         this.width = width;
+        this.height = height;
         this.channels = channels;
     }
 
@@ -28,6 +31,7 @@ public class ArrayImage3 {
             );
         }
         this.width = width;
+        this.height = height;
         channels = new float[3 * size];
         int index = 0;
         for (int i = 0; i < r.length; i++) {
@@ -82,4 +86,16 @@ public class ArrayImage3 {
     public int index(int x, int y) {
         return 3 * (y * width + x);
     }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public float[] channels() {
+        return channels;
+    }
 }
@@ -0,0 +1,235 @@
+package kofa.io;
+
+import com.google.common.hash.Hashing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A table of gamut boundaries ({@code rows x columns} doubles, e.g. max distance by luma x hue), computed once and
+ * stored in a file that later runs map read-only; processes on the same host share the pages through the page cache.
+ * <p>
+ * The file starts with a header: magic number, format version, the key (describing the colour space, target gamut,
+ * white point and anything else the values depend on), the resolution and a CRC32 of the values. Everything is
+ * little-endian, the native order of the usual hosts, so reading the mapped values does not swap bytes. A file with a
+ * different header or a wrong checksum is stale: it is recomputed and replaced. Files are written to a temporary file
+ * first, and moved into place atomically, so readers never see a partially written atlas.
+ */
+public class GamutBoundaryAtlas {
+    /**
+     * The system property that overrides the {@link #defaultDirectory() default directory}.
+     */
+    public static final String DIRECTORY_PROPERTY = "kofa.atlas.dir";
+
+    private static final int MAGIC = 0x4B474241; // "KGBA"
+    // 2: little-endian
+    private static final int VERSION = 2;
+    private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final String EXTENSION = ".atlas";
+
+    private final String key;
+    private final int rows;
+    private final int columns;
+    private final DoubleBuffer values;
+
+    private GamutBoundaryAtlas(String key, int rows, int columns, DoubleBuffer values) {
+        this.key = key;
+        this.rows = rows;
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * @return the value of {@value #DIRECTORY_PROPERTY}, if set; {@code ~/.cache/kofa-colours/atlas} otherwise
+     */
+    public static Path defaultDirectory() {
+        String configured = System.getProperty(DIRECTORY_PROPERTY);
+        if (configured != null) {
+            return Path.of(configured);
+        }
+        return Path.of(System.getProperty("user.home"), ".cache", "kofa-colours", "atlas");
+    }
+
+    /**
+     * Maps the atlas stored for the key, or computes, stores and maps it if there is none, or it is stale. If the file
+     * cannot be written or read back, the computed values are kept in memory.
+     *
+     * @param directory where atlases are stored; {@code null} to keep the computed values in memory
+     * @param compute   called if there is no valid file; must return {@code rows} arrays of {@code columns} values
+     */
+    public static GamutBoundaryAtlas loadOrCreate(
+            Path directory, String key, int rows, int columns, Supplier<double[][]> compute
+    ) {
+        checkArgument(rows > 0 && columns > 0, "Invalid resolution: %s x %s", rows, columns);
+        checkArgument((long) rows * columns * Double.BYTES <= Integer.MAX_VALUE, "Too large: %s x %s", rows, columns);
+        if (directory == null) {
+            return inMemory(key, compute.get());
+        }
+        Path file = fileFor(directory, key);
+        Optional<GamutBoundaryAtlas> existing = load(file, key, rows, columns);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        double[][] values = compute.get();
+        try {
+            write(file, key, values);
+        } catch (IOException e) {
+            System.err.println("Unable to store gamut boundary atlas in %s: %s".formatted(file, e));
+            return inMemory(key, values);
+        }
+        return load(file, key, rows, columns).orElseGet(() -> inMemory(key, values));
+    }
+
+    /**
+     * @return the atlas mapped from the file, or empty if it is missing, stale, corrupt or cannot be read
+     */
+    public static Optional<GamutBoundaryAtlas> load(Path file, String key, int rows, int columns) {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try (var channel = FileChannel.open(file, READ)) {
+            byte[] expectedKey = key.getBytes(UTF_8);
+            int headerSize = headerSize(expectedKey.length);
+            long dataSize = (long) rows * columns * Double.BYTES;
+            if (channel.size() != headerSize + dataSize) {
+                return Optional.empty();
+            }
+            ByteBuffer header = ByteBuffer.allocate(headerSize).order(BYTE_ORDER);
+            if (!readFully(channel, header)) {
+                return Optional.empty();
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != expectedKey.length) {
+                return Optional.empty();
+            }
+            byte[] storedKey = new byte[expectedKey.length];
+            header.get(storedKey);
+            if (!key.equals(new String(storedKey, UTF_8)) || header.getInt() != rows || header.getInt() != columns) {
+                return Optional.empty();
+            }
+            long storedChecksum = header.getLong();
+            // the mapping stays valid after the channel is closed
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, headerSize, dataSize).order(BYTE_ORDER);
+            var crc = new CRC32();
+            crc.update(data.duplicate());
+            if (crc.getValue() != storedChecksum) {
+                return Optional.empty();
+            }
+            return Optional.of(new GamutBoundaryAtlas(key, rows, columns, data.asDoubleBuffer()));
+        } catch (IOException e) {
+            System.err.println("Unable to read gamut boundary atlas %s: %s".formatted(file, e));
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores the values for the key, replacing the previous file atomically.
+     */
+    public static void write(Path file, String key, double[][] values) throws IOException {
+        int rows = values.length;
+        int columns = values[0].length;
+        byte[] keyBytes = key.getBytes(UTF_8);
+        int headerSize = headerSize(keyBytes.length);
+
+        Files.createDirectories(file.getParent());
+        Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (var channel = FileChannel.open(temporaryFile, WRITE)) {
+                var crc = new CRC32();
+                ByteBuffer row = ByteBuffer.allocate(columns * Double.BYTES).order(BYTE_ORDER);
+                long position = headerSize;
+                for (double[] rowValues : values) {
+                    checkArgument(rowValues.length == columns, "Ragged rows: %s vs %s", rowValues.length, columns);
+                    row.clear();
+                    row.asDoubleBuffer().put(rowValues);
+                    crc.update(row.duplicate());
+                    position += writeFully(channel, row, position);
+                }
+
+                ByteBuffer header = ByteBuffer.allocate(headerSize).order(BYTE_ORDER);
+                header.putInt(MAGIC).putInt(VERSION).putInt(keyBytes.length).put(keyBytes)
+                        .putInt(rows).putInt(columns).putLong(crc.getValue());
+                header.clear();
+                writeFully(channel, header, 0);
+                channel.force(true);
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * @return the file an atlas with the given key is stored in; the name is derived from the key
+     */
+    public static Path fileFor(Path directory, String key) {
+        return directory.resolve(Hashing.sha256().hashString(key, UTF_8) + EXTENSION);
+    }
+
+    private static GamutBoundaryAtlas inMemory(String key, double[][] values) {
+        int columns = values[0].length;
+        DoubleBuffer buffer = DoubleBuffer.allocate(values.length * columns);
+        for (double[] row : values) {
+            checkArgument(row.length == columns, "Ragged rows: %s vs %s", row.length, columns);
+            buffer.put(row);
+        }
+        return new GamutBoundaryAtlas(key, values.length, columns, buffer.flip());
+    }
+
+    private static int headerSize(int keyLength) {
+        // magic, version, key length, key, rows, columns, checksum; padded, so the values are aligned
+        int size = 3 * Integer.BYTES + keyLength + 2 * Integer.BYTES + Long.BYTES;
+        return (size + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    // false if the file ended before the buffer was full
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        long position = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return false;
+            }
+            position += read;
+        }
+        return true;
+    }
+
+    public double get(int row, int column) {
+        return values.get(row * columns + column);
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int columns() {
+        return columns;
+    }
+}
@@ -8,6 +8,21 @@ import java.io.IOException;
 
 public class ImageLoader {
     public RgbImage loadImageFrom(String path) {
+        return loadImageFrom(path, RgbImage.Storage.PLANAR_DOUBLE);
+    }
+
+    public RgbImage loadImageFrom(String path, RgbImage.Storage storage) {
+        return new RgbImage(loadRasterFrom(path), storage);
+    }
+
+    /**
+     * For processing the same image several times: see {@link SourceImage}.
+     */
+    public SourceImage loadSourceFrom(String path) {
+        return new SourceImage(loadRasterFrom(path));
+    }
+
+    private static Raster loadRasterFrom(String path) {
         BufferedImage image;
         try {
             image = ImageIO.read(new File(path));
@@ -16,8 +31,6 @@ public class ImageLoader {
         }
 
         // createChild is for debugging, to only load a small part
-        Raster raster = image.getRaster(); //.createChild(1000, 1000, 100, 100, 0, 0, null);
-
-        return new RgbImage(raster);
+        return image.getRaster(); //.createChild(1000, 1000, 100, 100, 0, 0, null);
     }
 }
@@ -0,0 +1,213 @@
+package kofa.io;
+
+import org.HdrHistogram.DoubleHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Statistics of {@link PixelMetric}s over the pixels of an image, computed once and kept until the pixels change; see
+ * {@link RgbImage#statistics()}. Adaptive stages (e.g. a tone mapper finding its shoulder from the brightest pixel)
+ * read them from here instead of making their own pass over the image, and {@link #prepare} computes the metrics of
+ * several stages in a single parallel pass.
+ * <p>
+ * Besides the exact maximum, each metric has a histogram with 3 significant digits for its percentiles, which are
+ * robust against a few extreme pixels. Negative values are counted as 0. Stages that only need the maximum use
+ * {@link #maxOf} and {@link #prepareMaxima}, which skip the histogram.
+ */
+public class ImageStatistics {
+    private static final int SIGNIFICANT_DIGITS = 3;
+    // smaller values are counted as 0, keeping the range of the histograms bounded
+    private static final double MIN_RECORDED_VALUE = 1E-9;
+
+    private final RgbImage image;
+    private final Map<PixelMetric, Summary> summaries = new ConcurrentHashMap<>();
+    private final LongAdder passes = new LongAdder();
+
+    ImageStatistics(RgbImage image) {
+        this.image = image;
+    }
+
+    /**
+     * @return the statistics of the metric, computed in a pass of its own unless already known with percentiles
+     */
+    public Summary of(PixelMetric metric) {
+        Summary summary = summaries.get(metric);
+        if (summary == null || summary.histogram == null) {
+            prepare(metric);
+            summary = summaries.get(metric);
+        }
+        return summary;
+    }
+
+    /**
+     * @return the exact maximum of the metric, {@code NaN} if it applied to no pixel; computed in a pass of its own
+     * that only finds the maximum, unless already known
+     */
+    public double maxOf(PixelMetric metric) {
+        Summary summary = summaries.get(metric);
+        if (summary == null) {
+            prepareMaxima(metric);
+            summary = summaries.get(metric);
+        }
+        return summary.max();
+    }
+
+    public boolean isKnown(PixelMetric metric) {
+        return summaries.containsKey(metric);
+    }
+
+    /**
+     * Computes the metrics that are not known yet, in a single parallel pass over the image.
+     */
+    public void prepare(PixelMetric... metrics) {
+        prepare(metrics, true);
+    }
+
+    /**
+     * Like {@link #prepare}, for metrics whose percentiles are not needed: only finds their maxima, see
+     * {@link #maxOf}.
+     */
+    public void prepareMaxima(PixelMetric... metrics) {
+        prepare(metrics, false);
+    }
+
+    private synchronized void prepare(PixelMetric[] metrics, boolean percentiles) {
+        List<PixelMetric> missing = new ArrayList<>();
+        for (PixelMetric metric : metrics) {
+            Summary summary = summaries.get(metric);
+            boolean known = summary != null && (!percentiles || summary.histogram != null);
+            if (!known && !missing.contains(metric)) {
+                missing.add(metric);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        PixelMetric[] pending = missing.toArray(PixelMetric[]::new);
+        passes.increment();
+        Accumulator accumulator = image.reduce(
+                () -> new Accumulator(pending.length, percentiles),
+                (partialResult, row, column, red, green, blue) -> {
+                    for (int index = 0; index < pending.length; index++) {
+                        partialResult.add(index, pending[index].valueOf(red, green, blue, partialResult.scratch));
+                    }
+                },
+                Accumulator::combine
+        );
+        for (int index = 0; index < pending.length; index++) {
+            summaries.put(pending[index], new Summary(accumulator.counts[index], accumulator.maxima[index], accumulator.histograms[index]));
+        }
+    }
+
+    /**
+     * @return the number of passes made over the image
+     */
+    public long passes() {
+        return passes.sum();
+    }
+
+    /**
+     * The statistics of a metric; immutable.
+     */
+    public static class Summary {
+        private final long count;
+        private final double max;
+        // null if only the maximum was asked for; such summaries are not handed out
+        private final DoubleHistogram histogram;
+
+        private Summary(long count, double max, DoubleHistogram histogram) {
+            this.count = count;
+            this.max = max;
+            this.histogram = histogram;
+        }
+
+        /**
+         * @return the number of pixels the metric applied to
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * @return the exact maximum; {@code NaN} if the metric applied to no pixel
+         */
+        public double max() {
+            return max;
+        }
+
+        /**
+         * @param percentile in [0, 100]; e.g. 99.9 ignores the brightest 0.1% of the pixels
+         * @return the value below which the percentage of values falls, to 3 significant digits, at most the
+         * {@link #max()}; {@code NaN} if the metric applied to no pixel
+         */
+        public double percentile(double percentile) {
+            checkArgument(percentile >= 0 && percentile <= 100, "percentile = %s", percentile);
+            if (count == 0) {
+                return Double.NaN;
+            }
+            return Math.min(max, histogram.getValueAtPercentile(percentile));
+        }
+
+        @Override
+        public String toString() {
+            return "%d values, max %s, p50 %s, p99.9 %s".formatted(count, max, percentile(50), percentile(99.9));
+        }
+    }
+
+    // per thread
+    private static class Accumulator {
+        private final double[] scratch = new double[PixelMetric.SCRATCH_LENGTH];
+        private final long[] counts;
+        private final double[] maxima;
+        // elements are null if percentiles are not needed
+        private final DoubleHistogram[] histograms;
+
+        Accumulator(int metrics, boolean percentiles) {
+            counts = new long[metrics];
+            maxima = new double[metrics];
+            histograms = new DoubleHistogram[metrics];
+            for (int index = 0; index < metrics; index++) {
+                maxima[index] = Double.NaN;
+                if (percentiles) {
+                    histograms[index] = new DoubleHistogram(SIGNIFICANT_DIGITS);
+                }
+            }
+        }
+
+        void add(int metric, double value) {
+            if (Double.isNaN(value)) {
+                return;
+            }
+            counts[metric]++;
+            // NaN until the first value
+            if (!(value <= maxima[metric])) {
+                maxima[metric] = value;
+            }
+            if (histograms[metric] != null) {
+                histograms[metric].recordValue(value < MIN_RECORDED_VALUE ? 0 : value);
+            }
+        }
+
+        Accumulator combine(Accumulator other) {
+            for (int index = 0; index < counts.length; index++) {
+                if (other.counts[index] == 0) {
+                    continue;
+                }
+                counts[index] += other.counts[index];
+                if (!(other.maxima[index] <= maxima[index])) {
+                    maxima[index] = other.maxima[index];
+                }
+                if (histograms[index] != null) {
+                    histograms[index].add(other.histograms[index]);
+                }
+            }
+            return this;
+        }
+    }
+}
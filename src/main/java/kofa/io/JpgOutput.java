@@ -24,9 +24,21 @@ public class JpgOutput {
         writeJpg(bufferedImage, filePrefix);
     }
 
+    /**
+     * Renders the pipeline straight into the 8-bit raster that is written; see {@link RenderPipeline}.
+     * Unlike {@link #write(String, RgbImage)}, does not apply the transfer function: the pipeline must include it.
+     */
+    public static void write(String filePrefix, RenderPipeline pipeline) {
+        BufferedImage bufferedImage = asBufferedImage(pipeline.renderTo8Bits());
+        writeJpg(bufferedImage, filePrefix);
+    }
+
     private static BufferedImage asBufferedImage(RgbImage image) {
-        image.transformAllPixels(SrgbOut.SRGB_OUT);
-        WritableRaster raster = rasterFrom(image);
+        image.transformAllRows(SrgbOut.SRGB_OUT);
+        return asBufferedImage(rasterFrom(image));
+    }
+
+    private static BufferedImage asBufferedImage(WritableRaster raster) {
         ColorSpace sRgb = ColorSpace.getInstance(ColorSpace.CS_sRGB);
         ColorModel colourModel = new ComponentColorModel(sRgb, false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
         return new BufferedImage(colourModel, raster, colourModel.isAlphaPremultiplied(), null);
@@ -37,18 +49,15 @@ public class JpgOutput {
         DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
         byte[] bankData = buffer.getData();
 
-        double[][] redChannel = image.redChannel();
-        double[][] greenChannel = image.greenChannel();
-        double[][] blueChannel = image.blueChannel();
         int index = 0;
         int height = image.height();
         int width = image.width();
         for (int row = 0; row < height; row++) {
             for (int column = 0; column < width; column++) {
                 try {
-                    bankData[index++] = roundPixelToByte(redChannel[row][column]);
-                    bankData[index++] = roundPixelToByte(greenChannel[row][column]);
-                    bankData[index++] = roundPixelToByte(blueChannel[row][column]);
+                    bankData[index++] = roundPixelToByte(image.red(row, column));
+                    bankData[index++] = roundPixelToByte(image.green(row, column));
+                    bankData[index++] = roundPixelToByte(image.blue(row, column));
                 } catch (IllegalArgumentException e) {
                     throw new IllegalArgumentException("%s at (%d, %d)".formatted(e.getMessage(), row, column), e);
                 }
@@ -57,7 +66,7 @@ public class JpgOutput {
         return raster;
     }
 
-    private static byte roundPixelToByte(double pixel) {
+    static byte roundPixelToByte(double pixel) {
         long value = Math.round(255 * pixel);
 
         if (value > 255 || value < 0) {
@@ -0,0 +1,48 @@
+package kofa.io;
+
+import com.google.common.base.Throwables;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+
+/**
+ * Creates the pixel buffers of {@link RgbImage.Storage#OFF_HEAP_FLOAT} and {@link RgbImage.Storage#MAPPED_FLOAT}.
+ * Their implementation uses the Foreign Function &amp; Memory API, final from JDK 22 and a preview feature in JDK 21,
+ * so it is compiled separately ({@code src/main/java-ffm}, see pom.xml) and only loaded when one of these storages is
+ * used: the rest of the library runs on a plain JVM.
+ */
+final class OffHeapPixelBuffers {
+    private static final String IMPLEMENTATION = "kofa.io.OffHeapFloatPixelBuffer";
+
+    private OffHeapPixelBuffers() {
+    }
+
+    static PixelBuffer allocate(int width, int height) {
+        return create("allocate", new Class<?>[]{int.class, int.class}, width, height);
+    }
+
+    static PixelBuffer mapped(int width, int height, Path scratchDirectory) {
+        return create("mapped", new Class<?>[]{int.class, int.class, Path.class}, width, height, scratchDirectory);
+    }
+
+    private static PixelBuffer create(String factory, Class<?>[] parameterTypes, Object... arguments) {
+        Method method;
+        try {
+            method = Class.forName(IMPLEMENTATION).getDeclaredMethod(factory, parameterTypes);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // a class compiled with preview features fails to load without --enable-preview
+            throw new UnsupportedOperationException(
+                    "Off-heap storage needs JDK 22+, or JDK 21 with --enable-preview", e
+            );
+        }
+        try {
+            return (PixelBuffer) method.invoke(null, arguments);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package kofa.io;
+
+/**
+ * Backing store for the pixels of an {@link RgbImage}. Coordinates are (row, column), as in {@link RgbImage}.
+ */
+interface PixelBuffer extends AutoCloseable {
+    int width();
+
+    int height();
+
+    double red(int row, int column);
+
+    double green(int row, int column);
+
+    double blue(int row, int column);
+
+    void set(int row, int column, double red, double green, double blue);
+
+    /**
+     * Copies a row into {@code rgb} as interleaved RGB triplets; {@code rgb} must hold at least 3 * width values.
+     */
+    void readRow(int row, double[] rgb);
+
+    /**
+     * Overwrites a row with the interleaved RGB triplets in {@code rgb}.
+     */
+    void writeRow(int row, double[] rgb);
+
+    /**
+     * Copies the rows {@code [firstRow, endRow)} of {@code source}, which must be of the same size.
+     * Implementations copy in bulk if the source has the same layout.
+     */
+    default void copyRowsFrom(PixelBuffer source, int firstRow, int endRow) {
+        double[] rgb = new double[3 * width()];
+        for (int row = firstRow; row < endRow; row++) {
+            source.readRow(row, rgb);
+            writeRow(row, rgb);
+        }
+    }
+
+    /**
+     * @return the pixels as interleaved RGB floats, row by row; may be the backing array itself
+     */
+    float[] asInterleavedFloats();
+
+    /**
+     * Releases memory that is not managed by the garbage collector; a no-op for on-heap buffers.
+     */
+    @Override
+    default void close() {
+    }
+}
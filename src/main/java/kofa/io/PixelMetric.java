@@ -0,0 +1,20 @@
+package kofa.io;
+
+/**
+ * A value computed from each pixel for {@link ImageStatistics}, e.g. the L of a colour space, or how far a colour is
+ * outside a gamut. Metrics are the keys of the statistics, so two metrics computing the same value should be equal
+ * (e.g. records of the parameters they depend on), to share the results between stages.
+ */
+@FunctionalInterface
+public interface PixelMetric {
+    /**
+     * The length of the scratch array passed to {@link #valueOf}.
+     */
+    int SCRATCH_LENGTH = 8;
+
+    /**
+     * @param scratch {@value #SCRATCH_LENGTH} values of working space, owned by the calling thread
+     * @return the value for the pixel; {@code NaN} if the metric does not apply to it, which is then not counted
+     */
+    double valueOf(double red, double green, double blue, double[] scratch);
+}
@@ -0,0 +1,105 @@
+package kofa.io;
+
+/**
+ * The original layout: one {@code double[height][width]} array per channel.
+ */
+class PlanarDoublePixelBuffer implements PixelBuffer {
+    private final double[][] redChannel;
+    private final double[][] greenChannel;
+    private final double[][] blueChannel;
+    private final int width;
+    private final int height;
+
+    PlanarDoublePixelBuffer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        redChannel = new double[height][width];
+        greenChannel = new double[height][width];
+        blueChannel = new double[height][width];
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public double red(int row, int column) {
+        return redChannel[row][column];
+    }
+
+    @Override
+    public double green(int row, int column) {
+        return greenChannel[row][column];
+    }
+
+    @Override
+    public double blue(int row, int column) {
+        return blueChannel[row][column];
+    }
+
+    @Override
+    public void set(int row, int column, double red, double green, double blue) {
+        redChannel[row][column] = red;
+        greenChannel[row][column] = green;
+        blueChannel[row][column] = blue;
+    }
+
+    @Override
+    public void readRow(int row, double[] rgb) {
+        double[] redRow = redChannel[row];
+        double[] greenRow = greenChannel[row];
+        double[] blueRow = blueChannel[row];
+        int index = 0;
+        for (int column = 0; column < width; column++) {
+            rgb[index++] = redRow[column];
+            rgb[index++] = greenRow[column];
+            rgb[index++] = blueRow[column];
+        }
+    }
+
+    @Override
+    public void writeRow(int row, double[] rgb) {
+        double[] redRow = redChannel[row];
+        double[] greenRow = greenChannel[row];
+        double[] blueRow = blueChannel[row];
+        int index = 0;
+        for (int column = 0; column < width; column++) {
+            redRow[column] = rgb[index++];
+            greenRow[column] = rgb[index++];
+            blueRow[column] = rgb[index++];
+        }
+    }
+
+    @Override
+    public void copyRowsFrom(PixelBuffer source, int firstRow, int endRow) {
+        if (source instanceof PlanarDoublePixelBuffer planar) {
+            for (int row = firstRow; row < endRow; row++) {
+                System.arraycopy(planar.redChannel[row], 0, redChannel[row], 0, width);
+                System.arraycopy(planar.greenChannel[row], 0, greenChannel[row], 0, width);
+                System.arraycopy(planar.blueChannel[row], 0, blueChannel[row], 0, width);
+            }
+        } else {
+            PixelBuffer.super.copyRowsFrom(source, firstRow, endRow);
+        }
+    }
+
+    @Override
+    public float[] asInterleavedFloats() {
+        float[] interleaved = new float[3 * width * height];
+        int index = 0;
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                interleaved[index++] = (float) redChannel[row][column];
+                interleaved[index++] = (float) greenChannel[row][column];
+                interleaved[index++] = (float) blueChannel[row][column];
+            }
+        }
+        return interleaved;
+    }
+}
@@ -17,30 +17,38 @@ public class Png16Output {
         writePng(bufferedImage, filePrefix);
     }
 
+    /**
+     * Renders the pipeline straight into the 16-bit raster that is written; see {@link RenderPipeline}.
+     */
+    public static void write(String filePrefix, RenderPipeline pipeline) {
+        BufferedImage bufferedImage = asBufferedImage(pipeline.renderTo16Bits());
+        writePng(bufferedImage, filePrefix);
+    }
+
     private static BufferedImage asBufferedImage(RgbImage image) {
-        WritableRaster raster = rasterFrom(image);
+        return asBufferedImage(rasterFrom(image));
+    }
+
+    private static BufferedImage asBufferedImage(WritableRaster raster) {
         ColorSpace linearRgb = ColorSpace.getInstance(ColorSpace.CS_sRGB);
         ColorModel colourModel = new ComponentColorModel(linearRgb, false, false, Transparency.OPAQUE, DataBuffer.TYPE_USHORT);
         return new BufferedImage(colourModel, raster, colourModel.isAlphaPremultiplied(), null);
     }
 
-    private static WritableRaster rasterFrom(RgbImage image) {
+    static WritableRaster rasterFrom(RgbImage image) {
         WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, image.width(), image.height(), 3, null);
         DataBufferUShort buffer = (DataBufferUShort) raster.getDataBuffer();
         short[][] bankData = buffer.getBankData();
 
-        double[][] redChannel = image.redChannel();
-        double[][] greenChannel = image.greenChannel();
-        double[][] blueChannel = image.blueChannel();
         int index = 0;
         int height = image.height();
         int width = image.width();
         for (int row = 0; row < height; row++) {
             for (int column = 0; column < width; column++) {
                 try {
-                    bankData[0][index++] = roundPixelToShort(redChannel[row][column]);
-                    bankData[0][index++] = roundPixelToShort(greenChannel[row][column]);
-                    bankData[0][index++] = roundPixelToShort(blueChannel[row][column]);
+                    bankData[0][index++] = roundPixelToShort(image.red(row, column));
+                    bankData[0][index++] = roundPixelToShort(image.green(row, column));
+                    bankData[0][index++] = roundPixelToShort(image.blue(row, column));
                 } catch (IllegalArgumentException e) {
                     throw new IllegalArgumentException("%s at (%d, %d)".formatted(e.getMessage(), row, column), e);
                 }
@@ -49,7 +57,7 @@ public class Png16Output {
         return raster;
     }
 
-    private static short roundPixelToShort(double pixel) {
+    static short roundPixelToShort(double pixel) {
         long value = Math.round(65535 * pixel);
 
         if (value > 65535 || value < 0) {
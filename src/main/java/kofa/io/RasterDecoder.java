@@ -0,0 +1,171 @@
+package kofa.io;
+
+import kofa.parallel.TileScheduler;
+
+import java.awt.image.*;
+
+import static java.awt.image.DataBuffer.*;
+
+/**
+ * Converts the rows of a {@link Raster} to normalised, interleaved RGB doubles.
+ * If the raster stores its samples in a single {@code ushort}, {@code byte} or {@code float} array (the case for
+ * everything {@code ImageIO} loads from PNG, JPEG and TIFF files), the array is read directly; otherwise, the row is
+ * fetched via {@link Raster#getPixels}. Only the first 3 bands are used.
+ */
+class RasterDecoder {
+    private final Raster raster;
+    private final int width;
+    private final double divisor;
+
+    // direct access; data == null: use the Raster API
+    private final Object data;
+    private final int pixelStride;
+    private final int scanlineStride;
+    // offset of the first sample of (0, 0), including the translation of child rasters and the band offsets
+    private final int redOffset;
+    private final int greenOffset;
+    private final int blueOffset;
+
+    RasterDecoder(Raster raster) {
+        this.raster = raster;
+        width = raster.getWidth();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        int dataType = dataBuffer.getDataType();
+        divisor = switch (dataType) {
+            case TYPE_BYTE -> 255;
+            case TYPE_USHORT -> 65536;
+            case TYPE_FLOAT, TYPE_DOUBLE -> 1;
+            default -> throw new IllegalArgumentException("Unsupported data type: " + dataType);
+        };
+
+        if (raster.getSampleModel() instanceof ComponentSampleModel sampleModel
+                && raster.getNumBands() >= 3
+                && dataBuffer.getNumBanks() == 1
+                && isSupportedBuffer(dataBuffer)) {
+            data = switch (dataBuffer) {
+                case DataBufferByte bytes -> bytes.getData();
+                case DataBufferUShort shorts -> shorts.getData();
+                case DataBufferFloat floats -> floats.getData();
+                default -> throw new IllegalStateException("Unexpected buffer: " + dataBuffer);
+            };
+            pixelStride = sampleModel.getPixelStride();
+            scanlineStride = sampleModel.getScanlineStride();
+            int[] bandOffsets = sampleModel.getBandOffsets();
+            // child rasters share the buffer of their parent, with their coordinates translated
+            int origin = dataBuffer.getOffset()
+                    + (raster.getMinY() - raster.getSampleModelTranslateY()) * scanlineStride
+                    + (raster.getMinX() - raster.getSampleModelTranslateX()) * pixelStride;
+            redOffset = origin + bandOffsets[0];
+            greenOffset = origin + bandOffsets[1];
+            blueOffset = origin + bandOffsets[2];
+        } else {
+            data = null;
+            pixelStride = 0;
+            scanlineStride = 0;
+            redOffset = 0;
+            greenOffset = 0;
+            blueOffset = 0;
+        }
+    }
+
+    /**
+     * Decodes the whole raster into {@code pixels}, in parallel row bands.
+     */
+    static void decode(Raster raster, PixelBuffer pixels, TileScheduler scheduler) {
+        var decoder = new RasterDecoder(raster);
+        int rowLength = 3 * pixels.width();
+        ThreadLocal<double[]> buffers = ThreadLocal.withInitial(() -> new double[rowLength]);
+        scheduler.forEachRowBand(pixels.width(), pixels.height(), band -> {
+            double[] rgb = buffers.get();
+            for (int row = band.firstRow(); row < band.endRow(); row++) {
+                decoder.decodeRow(row, rgb);
+                pixels.writeRow(row, rgb);
+            }
+        });
+    }
+
+    private static boolean isSupportedBuffer(DataBuffer dataBuffer) {
+        return dataBuffer instanceof DataBufferByte
+                || dataBuffer instanceof DataBufferUShort
+                || dataBuffer instanceof DataBufferFloat;
+    }
+
+    /**
+     * @param row the row, counted from the top of the raster
+     * @param rgb receives 3 * width values
+     */
+    void decodeRow(int row, double[] rgb) {
+        switch (data) {
+            case byte[] bytes -> decodeRow(row, bytes, rgb);
+            case short[] shorts -> decodeRow(row, shorts, rgb);
+            case float[] floats -> decodeRow(row, floats, rgb);
+            case null, default -> decodeRowViaRaster(row, rgb);
+        }
+    }
+
+    private void decodeRow(int row, byte[] bytes, double[] rgb) {
+        int rowStart = row * scanlineStride;
+        if (isPackedRgb()) {
+            int start = rowStart + redOffset;
+            for (int i = 0; i < 3 * width; i++) {
+                rgb[i] = (bytes[start + i] & 0xFF) / divisor;
+            }
+        } else {
+            for (int column = 0, pixel = rowStart, out = 0; column < width; column++, pixel += pixelStride, out += 3) {
+                rgb[out] = (bytes[pixel + redOffset] & 0xFF) / divisor;
+                rgb[out + 1] = (bytes[pixel + greenOffset] & 0xFF) / divisor;
+                rgb[out + 2] = (bytes[pixel + blueOffset] & 0xFF) / divisor;
+            }
+        }
+    }
+
+    private void decodeRow(int row, short[] shorts, double[] rgb) {
+        int rowStart = row * scanlineStride;
+        if (isPackedRgb()) {
+            int start = rowStart + redOffset;
+            for (int i = 0; i < 3 * width; i++) {
+                rgb[i] = (shorts[start + i] & 0xFFFF) / divisor;
+            }
+        } else {
+            for (int column = 0, pixel = rowStart, out = 0; column < width; column++, pixel += pixelStride, out += 3) {
+                rgb[out] = (shorts[pixel + redOffset] & 0xFFFF) / divisor;
+                rgb[out + 1] = (shorts[pixel + greenOffset] & 0xFFFF) / divisor;
+                rgb[out + 2] = (shorts[pixel + blueOffset] & 0xFFFF) / divisor;
+            }
+        }
+    }
+
+    private void decodeRow(int row, float[] floats, double[] rgb) {
+        // the divisor is 1
+        int rowStart = row * scanlineStride;
+        if (isPackedRgb()) {
+            int start = rowStart + redOffset;
+            for (int i = 0; i < 3 * width; i++) {
+                rgb[i] = floats[start + i];
+            }
+        } else {
+            for (int column = 0, pixel = rowStart, out = 0; column < width; column++, pixel += pixelStride, out += 3) {
+                rgb[out] = floats[pixel + redOffset];
+                rgb[out + 1] = floats[pixel + greenOffset];
+                rgb[out + 2] = floats[pixel + blueOffset];
+            }
+        }
+    }
+
+    /**
+     * RGBRGB...: the row can be processed as one contiguous run of samples, which the JIT can vectorise.
+     */
+    private boolean isPackedRgb() {
+        return pixelStride == 3 && greenOffset == redOffset + 1 && blueOffset == redOffset + 2;
+    }
+
+    private void decodeRowViaRaster(int row, double[] rgb) {
+        int bands = raster.getNumBands();
+        double[] samples = raster.getPixels(raster.getMinX(), raster.getMinY() + row, width, 1, (double[]) null);
+        for (int column = 0; column < width; column++) {
+            for (int band = 0; band < 3; band++) {
+                rgb[3 * column + band] = band < bands ? samples[bands * column + band] / divisor : 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package kofa.io;
+
+import kofa.parallel.ProcessingContext;
+import kofa.parallel.TileScheduler;
+
+import java.awt.image.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders an image in a single pass: each row is read (or decoded from a raster), passed through all the stages in
+ * buffers owned by the worker thread, and quantised straight into the {@link DataBuffer} of the output raster.
+ * Unlike calling {@link RgbImage#transformAllRows} for each step, no intermediate image is written to memory, so
+ * the cost is one read of the input and one write of the output.
+ * <p>
+ * The stages are {@link RgbImage.RowTransformer}s; tone and gamut mappers provide theirs.
+ * The last stage must produce encoded values in [0..1].
+ */
+public class RenderPipeline {
+    private interface RowSource {
+        void readRow(int row, double[] rgb);
+    }
+
+    private final int width;
+    private final int height;
+    private final RowSource source;
+    private final List<RgbImage.RowTransformer> stages;
+    private final TileScheduler scheduler;
+
+    private RenderPipeline(Builder builder) {
+        width = builder.width;
+        height = builder.height;
+        source = builder.source;
+        stages = List.copyOf(builder.stages);
+        scheduler = builder.scheduler;
+    }
+
+    /**
+     * Decodes the raster as part of the pass; nothing is stored apart from the output.
+     */
+    public static Builder from(Raster raster) {
+        var decoder = new RasterDecoder(raster);
+        return new Builder(raster.getWidth(), raster.getHeight(), decoder::decodeRow);
+    }
+
+    /**
+     * Reads the pixels of the image, without modifying them; runs on the scheduler of the image by default.
+     */
+    public static Builder from(RgbImage image) {
+        return new Builder(image.width(), image.height(), image::readRow).scheduler(image.scheduler());
+    }
+
+    public static Builder from(SourceImage image) {
+        return new Builder(image.width(), image.height(), image::readRow).scheduler(image.scheduler());
+    }
+
+    public static class Builder {
+        private final int width;
+        private final int height;
+        private final RowSource source;
+        private final List<RgbImage.RowTransformer> stages = new ArrayList<>();
+        private TileScheduler scheduler = ProcessingContext.common().scheduler();
+
+        private Builder(int width, int height, RowSource source) {
+            this.width = width;
+            this.height = height;
+            this.source = source;
+        }
+
+        public Builder then(RgbImage.RowTransformer stage) {
+            stages.add(stage);
+            return this;
+        }
+
+        public Builder scheduler(TileScheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Runs the pipeline on the threads of the context, keeping the tile size of the current scheduler.
+         */
+        public Builder context(ProcessingContext context) {
+            this.scheduler = scheduler.withContext(context);
+            return this;
+        }
+
+        public RenderPipeline build() {
+            return new RenderPipeline(this);
+        }
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * @return the rendered image as 16-bit interleaved RGB
+     */
+    public WritableRaster renderTo16Bits() {
+        WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, width, height, 3, null);
+        short[] data = ((DataBufferUShort) raster.getDataBuffer()).getData();
+        render((row, rgb) -> {
+            int rowStart = 3 * width * row;
+            int index = 0;
+            try {
+                for (; index < rgb.length; index++) {
+                    data[rowStart + index] = Png16Output.roundPixelToShort(rgb[index]);
+                }
+            } catch (IllegalArgumentException e) {
+                throw withPosition(e, row, index / 3);
+            }
+        });
+        return raster;
+    }
+
+    /**
+     * @return the rendered image as 8-bit interleaved RGB
+     */
+    public WritableRaster renderTo8Bits() {
+        WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, width, height, 3, null);
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        render((row, rgb) -> {
+            int rowStart = 3 * width * row;
+            int index = 0;
+            try {
+                for (; index < rgb.length; index++) {
+                    data[rowStart + index] = JpgOutput.roundPixelToByte(rgb[index]);
+                }
+            } catch (IllegalArgumentException e) {
+                throw withPosition(e, row, index / 3);
+            }
+        });
+        return raster;
+    }
+
+    private interface RowSink {
+        void writeRow(int row, double[] rgb);
+    }
+
+    private static IllegalArgumentException withPosition(IllegalArgumentException e, int row, int column) {
+        return new IllegalArgumentException("%s at (%d, %d)".formatted(e.getMessage(), row, column), e);
+    }
+
+    private void render(RowSink sink) {
+        int rowLength = 3 * width;
+        ThreadLocal<double[][]> buffers = ThreadLocal.withInitial(() -> new double[][]{new double[rowLength], new double[rowLength]});
+        scheduler.forEachRowBand(width, height, band -> {
+            double[][] pingPong = buffers.get();
+            for (int row = band.firstRow(); row < band.endRow(); row++) {
+                double[] in = pingPong[0];
+                double[] out = pingPong[1];
+                source.readRow(row, in);
+                for (RgbImage.RowTransformer stage : stages) {
+                    stage.transformRow(row, in, out);
+                    double[] swap = in;
+                    in = out;
+                    out = swap;
+                }
+                sink.writeRow(row, in);
+            }
+        });
+    }
+}
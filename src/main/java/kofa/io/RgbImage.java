@@ -1,63 +1,226 @@
 package kofa.io;
 
-import java.awt.image.ComponentSampleModel;
+import kofa.parallel.ProcessingContext;
+import kofa.parallel.TileScheduler;
+
 import java.awt.image.Raster;
-import java.awt.image.SampleModel;
-import java.util.function.Function;
-import java.util.stream.IntStream;
-import java.util.stream.Stream;
+import java.nio.file.Path;
+import java.util.OptionalDouble;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.Supplier;
 
-import static java.awt.image.DataBuffer.*;
+import static com.google.common.base.Preconditions.checkArgument;
 
-public class RgbImage {
-    // disable for easier debugging
-    private final boolean PARALLEL = true;
+public class RgbImage implements AutoCloseable {
+    /**
+     * How the pixels are kept in memory.
+     */
+    public enum Storage {
+        /**
+         * One {@code double[height][width]} per channel: 24 bytes per pixel.
+         */
+        PLANAR_DOUBLE,
+        /**
+         * A single interleaved {@code float[]} (RGBRGB...): 12 bytes per pixel, half of {@link #PLANAR_DOUBLE}'s, no
+         * per-row objects.
+         */
+        INTERLEAVED_FLOAT,
+        /**
+         * Interleaved floats in native memory: not limited by the heap size; freed by {@link #close()}. Needs JDK 22+,
+         * or JDK 21 with {@code --enable-preview}.
+         */
+        OFF_HEAP_FLOAT,
+        /**
+         * Interleaved floats in a memory-mapped scratch file in {@code java.io.tmpdir}, for images larger than the RAM;
+         * the disk space is released by {@link #close()}. Needs JDK 22+, or JDK 21 with {@code --enable-preview}.
+         */
+        MAPPED_FLOAT
+    }
 
+    // exactly one of raster and source is set
     private final Raster raster;
-    private final double[][] redChannel;
-    private final double[][] greenChannel;
-    private final double[][] blueChannel;
+    private final SourceImage source;
+    private final PixelBuffer pixels;
+    // a view of the pixels of a SourceImage, see SourceImage#readOnlyView()
+    private final boolean readOnly;
     private final int height;
     private final int width;
+    private volatile TileScheduler scheduler;
+    // of the current pixels; dropped when they change
+    private volatile ImageStatistics statistics;
+    private final AtomicBoolean closed = new AtomicBoolean();
 
     public RgbImage(Raster raster) {
+        this(raster, Storage.PLANAR_DOUBLE);
+    }
+
+    public RgbImage(Raster raster, Storage storage) {
+        this(raster, storage, ProcessingContext.common());
+    }
+
+    /**
+     * @param context the threads and cancellation flag to use for this image, see {@link #setProcessingContext}
+     */
+    public RgbImage(Raster raster, Storage storage, ProcessingContext context) {
+        this.scheduler = context.scheduler();
         this.raster = raster;
+        this.source = null;
         this.width = raster.getWidth();
         this.height = raster.getHeight();
-        redChannel = new double[height][width];
-        greenChannel = new double[height][width];
-        blueChannel = new double[height][width];
+        pixels = newPixelBuffer(storage, width, height);
+        readOnly = false;
         init();
     }
 
-    public void init() {
-        var dataType = raster.getDataBuffer().getDataType();
-        double divisor = switch (dataType) {
-            case TYPE_BYTE -> 255;
-            case TYPE_USHORT -> 65536;
-            case TYPE_FLOAT, TYPE_DOUBLE -> 1;
-            default -> throw new IllegalArgumentException("Unsupported data type: " + dataType);
+    /**
+     * A working copy of a {@link SourceImage}, see {@link SourceImage#workingCopy()}.
+     */
+    RgbImage(SourceImage source, PixelBuffer pixels) {
+        this.scheduler = source.scheduler();
+        this.raster = null;
+        this.source = source;
+        this.width = pixels.width();
+        this.height = pixels.height();
+        this.pixels = pixels;
+        readOnly = false;
+        init();
+    }
+
+    /**
+     * A view of the pixels of a {@link SourceImage}, see {@link SourceImage#readOnlyView()}.
+     */
+    RgbImage(SourceImage source) {
+        this.scheduler = source.scheduler();
+        this.raster = null;
+        this.source = source;
+        this.width = source.width();
+        this.height = source.height();
+        this.pixels = source.pixels();
+        readOnly = true;
+    }
+
+    static PixelBuffer newPixelBuffer(Storage storage, int width, int height) {
+        return switch (storage) {
+            case PLANAR_DOUBLE -> new PlanarDoublePixelBuffer(width, height);
+            case INTERLEAVED_FLOAT -> new InterleavedFloatPixelBuffer(width, height);
+            case OFF_HEAP_FLOAT -> OffHeapPixelBuffers.allocate(width, height);
+            case MAPPED_FLOAT -> OffHeapPixelBuffers.mapped(width, height, Path.of(System.getProperty("java.io.tmpdir")));
         };
-        forEachPixel((row, column, ignoredRed, ignoredGreen, ignoredBlue) -> {
-                    double[] components = new double[3];
-                    raster.getPixel(column, row, components);
-                    redChannel[row][column] = components[0] / divisor;
-                    greenChannel[row][column] = components[1] / divisor;
-                    blueChannel[row][column] = components[2] / divisor;
+    }
+
+    /**
+     * Sets the threads and the cancellation flag used by the methods without a {@link TileScheduler} parameter, so
+     * that everything processing this image (e.g. the analysis done by gamut and tone mappers) honours it.
+     * The common pool is used by default; a working copy inherits the context of its {@link SourceImage}.
+     */
+    public void setProcessingContext(ProcessingContext context) {
+        scheduler = scheduler.withContext(context);
+    }
+
+    /**
+     * @return the scheduler used by the methods without a {@link TileScheduler} parameter
+     */
+    public TileScheduler scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * (Re-)loads the pixels from the raster, or, for a working copy, from its {@link SourceImage}.
+     */
+    public void init() {
+        init(scheduler);
+    }
+
+    public void init(TileScheduler scheduler) {
+        checkWritable();
+        if (source != null) {
+            source.copyInto(pixels, scheduler);
+        } else {
+            RasterDecoder.decode(raster, pixels, scheduler);
+        }
+        pixelsChanged();
+    }
+
+    /**
+     * @return the statistics of the current pixels, shared by all stages processing the image; a new instance once
+     * the pixels are modified through this image
+     */
+    public ImageStatistics statistics() {
+        ImageStatistics current = statistics;
+        if (current == null) {
+            synchronized (this) {
+                current = statistics;
+                if (current == null) {
+                    current = new ImageStatistics(this);
+                    statistics = current;
                 }
-        );
+            }
+        }
+        return current;
     }
 
-    public double[][] redChannel() {
-        return redChannel;
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("The view of a source image cannot be modified, use a working copy");
+        }
     }
 
-    public double[][] greenChannel() {
-        return greenChannel;
+    private void pixelsChanged() {
+        // setPixel calls this for every pixel: reading is cheaper than writing a volatile
+        if (statistics != null) {
+            statistics = null;
+        }
     }
 
-    public double[][] blueChannel() {
-        return blueChannel;
+    public double red(int row, int column) {
+        return pixels.red(row, column);
+    }
+
+    public double green(int row, int column) {
+        return pixels.green(row, column);
+    }
+
+    public double blue(int row, int column) {
+        return pixels.blue(row, column);
+    }
+
+    public void setPixel(int row, int column, double red, double green, double blue) {
+        checkWritable();
+        pixels.set(row, column, red, green, blue);
+        pixelsChanged();
+    }
+
+    void readRow(int row, double[] rgb) {
+        pixels.readRow(row, rgb);
+    }
+
+    /**
+     * @return the pixels as interleaved RGB floats; for {@link Storage#INTERLEAVED_FLOAT}, this is the backing array,
+     * for the off-heap storages, a copy
+     */
+    float[] asInterleavedFloats() {
+        return pixels.asInterleavedFloats();
+    }
+
+    /**
+     * Releases the pixel memory right away for the off-heap storages; a working copy returns its buffer to its
+     * {@link SourceImage} instead, and closing a read-only view does nothing, as the source owns its pixels.
+     * The image must not be used afterwards; closing it again has no effect.
+     */
+    @Override
+    public void close() {
+        if (readOnly || !closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (source != null) {
+            source.recycle(pixels);
+        } else {
+            pixels.close();
+        }
     }
 
     public int width() {
@@ -80,47 +243,210 @@ public class RgbImage {
         double[] transform(int row, int column, double red, double green, double blue);
     }
 
+    /**
+     * Transforms a whole row at a time, without allocating per pixel.
+     */
+    public interface RowTransformer {
+        /**
+         * @param row the number of the row
+         * @param in  the pixels of the row as interleaved RGB triplets, 3 * width values
+         * @param out receives the transformed pixels in the same layout; never the same array as {@code in}
+         */
+        void transformRow(int row, double[] in, double[] out);
+    }
+
     public void forEachPixel(PixelConsumer consumer) {
-        rows().forEach(row -> {
-            for (int column = 0; column < raster.getWidth(); column++) {
-                consumer.consume(
-                        row, column,
-                        redChannel[row][column],
-                        greenChannel[row][column],
-                        blueChannel[row][column]
-                );
+        forEachPixel(consumer, scheduler);
+    }
+
+    /**
+     * @param scheduler decides the tile size and the pool that runs the job;
+     *                  use {@link TileScheduler#sequential()} for easier debugging
+     */
+    public void forEachPixel(PixelConsumer consumer, TileScheduler scheduler) {
+        scheduler.forEachTile(width, height, tile -> {
+            for (int row = tile.firstRow(); row < tile.endRow(); row++) {
+                for (int column = tile.firstColumn(); column < tile.endColumn(); column++) {
+                    consumer.consume(
+                            row, column,
+                            pixels.red(row, column),
+                            pixels.green(row, column),
+                            pixels.blue(row, column)
+                    );
+                }
             }
         });
     }
 
     public void transformAllPixels(PixelTransformer transformer) {
+        transformAllPixels(transformer, scheduler);
+    }
+
+    public void transformAllPixels(PixelTransformer transformer, TileScheduler scheduler) {
+        checkWritable();
         forEachPixel((row, column, red, green, blue) -> {
-                    double[] transformed = transformer.transform(
+                    double[] transformed = transformer.transform(row, column, red, green, blue);
+                    pixels.set(row, column, transformed[0], transformed[1], transformed[2]);
+                },
+                scheduler
+        );
+        pixelsChanged();
+    }
+
+    public void transformAllRows(RowTransformer transformer) {
+        transformAllRows(transformer, scheduler);
+    }
+
+    /**
+     * Like {@link #transformAllPixels(PixelTransformer)}, but hands whole rows to the transformer.
+     * The row buffers are allocated once per thread, and reused for every row it processes.
+     */
+    public void transformAllRows(RowTransformer transformer, TileScheduler scheduler) {
+        checkWritable();
+        int rowLength = 3 * width;
+        ThreadLocal<double[]> inBuffers = ThreadLocal.withInitial(() -> new double[rowLength]);
+        ThreadLocal<double[]> outBuffers = ThreadLocal.withInitial(() -> new double[rowLength]);
+        scheduler.forEachRowBand(width, height, band -> {
+            double[] in = inBuffers.get();
+            double[] out = outBuffers.get();
+            for (int row = band.firstRow(); row < band.endRow(); row++) {
+                pixels.readRow(row, in);
+                transformer.transformRow(row, in, out);
+                pixels.writeRow(row, out);
+            }
+        });
+        pixelsChanged();
+    }
+
+    /**
+     * Computes a value from a pixel, for the reductions.
+     */
+    public interface PixelFunction {
+        double apply(int row, int column, double red, double green, double blue);
+    }
+
+    /**
+     * Adds a pixel to a mutable partial result, see {@link #reduce(Supplier, PixelAccumulator, BinaryOperator)}.
+     */
+    public interface PixelAccumulator<A> {
+        void accumulate(A partialResult, int row, int column, double red, double green, double blue);
+    }
+
+    public <A> A reduce(Supplier<A> newPartialResult, PixelAccumulator<A> accumulator, BinaryOperator<A> combiner) {
+        return reduce(newPartialResult, accumulator, combiner, scheduler);
+    }
+
+    /**
+     * A mutable reduction, like {@link java.util.stream.Stream#collect}: each thread accumulates the pixels of its
+     * tiles into its own partial result, without any synchronisation; the partial results are combined at the end.
+     *
+     * @param newPartialResult creates an empty partial result; called once per participating thread
+     * @param combiner         merges two partial results, may return either of them (updated)
+     */
+    public <A> A reduce(
+            Supplier<A> newPartialResult,
+            PixelAccumulator<A> accumulator,
+            BinaryOperator<A> combiner,
+            TileScheduler scheduler
+    ) {
+        Queue<A> partialResults = new ConcurrentLinkedQueue<>();
+        ThreadLocal<A> threadPartialResult = ThreadLocal.withInitial(() -> {
+            A partialResult = newPartialResult.get();
+            partialResults.add(partialResult);
+            return partialResult;
+        });
+        scheduler.forEachTile(width, height, tile -> {
+            A partialResult = threadPartialResult.get();
+            for (int row = tile.firstRow(); row < tile.endRow(); row++) {
+                for (int column = tile.firstColumn(); column < tile.endColumn(); column++) {
+                    accumulator.accumulate(
+                            partialResult,
                             row, column,
-                            redChannel[row][column],
-                            greenChannel[row][column],
-                            blueChannel[row][column]
+                            pixels.red(row, column),
+                            pixels.green(row, column),
+                            pixels.blue(row, column)
                     );
-                    redChannel[row][column] = transformed[0];
-                    greenChannel[row][column] = transformed[1];
-                    blueChannel[row][column] = transformed[2];
                 }
-        );
+            }
+        });
+        return partialResults.stream().reduce(combiner).orElseGet(newPartialResult);
+    }
+
+    /**
+     * Combines the values computed from all pixels using an associative operator, without boxing.
+     *
+     * @param identity the result for an empty image; must not change the result when combined with any value
+     */
+    public double reduceToDouble(PixelFunction function, double identity, DoubleBinaryOperator operator) {
+        return reduce(
+                () -> new DoubleAccumulator(identity),
+                (partialResult, row, column, red, green, blue) -> {
+                    partialResult.value = operator.applyAsDouble(
+                            partialResult.value,
+                            function.apply(row, column, red, green, blue)
+                    );
+                },
+                (partialResult, other) -> {
+                    partialResult.value = operator.applyAsDouble(partialResult.value, other.value);
+                    return partialResult;
+                }
+        ).value;
     }
 
-    public Stream<double[]> pixelStream() {
-        return rows().mapToObj(row ->
-                IntStream.range(0, width).mapToObj(column ->
-                        new double[]{
-                                redChannel[row][column],
-                                greenChannel[row][column],
-                                blueChannel[row][column]
-                        })
-        ).flatMap(Function.identity());
+    /**
+     * @return the maximum of the values computed from the pixels, empty for an empty image
+     */
+    public OptionalDouble max(PixelFunction function) {
+        if (size() == 0) {
+            return OptionalDouble.empty();
+        }
+        return OptionalDouble.of(reduceToDouble(function, Double.NEGATIVE_INFINITY, Math::max));
     }
 
-    private IntStream rows() {
-        var rowNumbers = IntStream.range(0, height);
-        return PARALLEL ? rowNumbers.parallel() : rowNumbers;
+    /**
+     * @return the minimum of the values computed from the pixels, empty for an empty image
+     */
+    public OptionalDouble min(PixelFunction function) {
+        if (size() == 0) {
+            return OptionalDouble.empty();
+        }
+        return OptionalDouble.of(reduceToDouble(function, Double.POSITIVE_INFINITY, Math::min));
+    }
+
+    public double sum(PixelFunction function) {
+        return reduceToDouble(function, 0, Double::sum);
+    }
+
+    /**
+     * Counts the values computed from the pixels in {@code bins} equal-width bins over {@code [min, max)};
+     * values outside the range are counted in the first or last bin, NaNs are ignored.
+     */
+    public long[] histogram(PixelFunction function, double min, double max, int bins) {
+        checkArgument(bins > 0 && min < max, "Invalid histogram: %s bins over [%s, %s)", bins, min, max);
+        double binsPerUnit = bins / (max - min);
+        return reduce(
+                () -> new long[bins],
+                (histogram, row, column, red, green, blue) -> {
+                    double value = function.apply(row, column, red, green, blue);
+                    if (!Double.isNaN(value)) {
+                        int bin = (int) Math.min(bins - 1, Math.max(0, Math.floor((value - min) * binsPerUnit)));
+                        histogram[bin]++;
+                    }
+                },
+                (histogram, other) -> {
+                    for (int bin = 0; bin < bins; bin++) {
+                        histogram[bin] += other[bin];
+                    }
+                    return histogram;
+                }
+        );
+    }
+
+    private static class DoubleAccumulator {
+        private double value;
+
+        private DoubleAccumulator(double value) {
+            this.value = value;
+        }
     }
 }
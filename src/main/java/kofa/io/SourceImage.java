@@ -0,0 +1,136 @@
+package kofa.io;
+
+import kofa.parallel.ProcessingContext;
+import kofa.parallel.TileScheduler;
+
+import java.awt.image.Raster;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An image decoded once, and never modified, handing out {@link RgbImage working copies} for processing that
+ * modifies the pixels in place (e.g. running several gamut mappers on the same input).
+ * The copies are made in bulk, without decoding the raster again; closing a copy returns its buffer to this image,
+ * to be reused by the next copy, so running several mappers one after the other needs a single working buffer.
+ */
+public class SourceImage implements AutoCloseable {
+    private final RgbImage.Storage storage;
+    private final PixelBuffer pixels;
+    private final Deque<PixelBuffer> recycledBuffers = new ConcurrentLinkedDeque<>();
+    private final TileScheduler scheduler;
+    // created on first use, so the statistics of the source are computed once
+    private volatile RgbImage readOnlyView;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    public SourceImage(Raster raster) {
+        this(raster, RgbImage.Storage.PLANAR_DOUBLE);
+    }
+
+    /**
+     * @param storage the storage of the source, and of the working copies
+     */
+    public SourceImage(Raster raster, RgbImage.Storage storage) {
+        this(raster, storage, ProcessingContext.common());
+    }
+
+    /**
+     * @param context used for decoding, and inherited by the working copies
+     */
+    public SourceImage(Raster raster, RgbImage.Storage storage, ProcessingContext context) {
+        this.storage = storage;
+        this.scheduler = context.scheduler();
+        pixels = RgbImage.newPixelBuffer(storage, raster.getWidth(), raster.getHeight());
+        RasterDecoder.decode(raster, pixels, scheduler);
+    }
+
+    /**
+     * @return a copy of the pixels, to be {@link RgbImage#close() closed} when done;
+     * {@link RgbImage#init()} restores the pixels of the copy from this image
+     */
+    public RgbImage workingCopy() {
+        PixelBuffer buffer = recycledBuffers.poll();
+        if (buffer == null) {
+            buffer = RgbImage.newPixelBuffer(storage, pixels.width(), pixels.height());
+        }
+        return new RgbImage(this, buffer);
+    }
+
+    /**
+     * @return the pixels of this image, without copying them, e.g. for the analysis done by the gamut and tone mappers
+     * before {@link RenderPipeline#from(SourceImage) rendering straight from the source}; all methods modifying the
+     * pixels throw {@link UnsupportedOperationException}, and closing the view has no effect
+     */
+    public RgbImage readOnlyView() {
+        RgbImage current = readOnlyView;
+        if (current == null) {
+            synchronized (this) {
+                current = readOnlyView;
+                if (current == null) {
+                    current = new RgbImage(this);
+                    readOnlyView = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public int width() {
+        return pixels.width();
+    }
+
+    public int height() {
+        return pixels.height();
+    }
+
+    TileScheduler scheduler() {
+        return scheduler;
+    }
+
+    PixelBuffer pixels() {
+        return pixels;
+    }
+
+    void readRow(int row, double[] rgb) {
+        pixels.readRow(row, rgb);
+    }
+
+    void copyInto(PixelBuffer target, TileScheduler scheduler) {
+        scheduler.forEachRowBand(pixels.width(), pixels.height(), band ->
+                target.copyRowsFrom(pixels, band.firstRow(), band.endRow())
+        );
+    }
+
+    void recycle(PixelBuffer buffer) {
+        recycledBuffers.push(buffer);
+        // a copy closed after this image: nobody would take the buffer, release it (and any racing with close())
+        if (closed.get()) {
+            closeRecycledBuffers();
+        }
+    }
+
+    // for tests
+    int recycledBufferCount() {
+        return recycledBuffers.size();
+    }
+
+    /**
+     * Releases the source and the recycled buffers; working copies still in use must not be used afterwards, but
+     * closing them releases their buffers.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        pixels.close();
+        closeRecycledBuffers();
+    }
+
+    private void closeRecycledBuffers() {
+        PixelBuffer buffer;
+        while ((buffer = recycledBuffers.poll()) != null) {
+            buffer.close();
+        }
+    }
+}
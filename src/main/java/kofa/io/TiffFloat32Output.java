@@ -13,15 +13,13 @@ public class TiffFloat32Output {
     private TiffFloat32Output() {}
 
     public static void write(String filePrefix, RgbImage image) {
-        double[][] red = image.redChannel();
-        double[][] green = image.greenChannel();
-        double[][] blue = image.blueChannel();
+        float[] interleaved = image.asInterleavedFloats();
 
         int width = image.width();
         int height = image.height();
 
         try {
-            writeFloatTIFF(red, green, blue, width, height, tiffFilenameFrom(filePrefix));
+            writeFloatTIFF(interleaved, width, height, tiffFilenameFrom(filePrefix));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -37,7 +35,7 @@ public class TiffFloat32Output {
         return file;
     }
 
-    private static void writeFloatTIFF(double[][] red, double[][] green, double[][] blue,
+    private static void writeFloatTIFF(float[] interleaved,
                                        int width, int height, String outputPath) throws IOException {
 
         // 1. Create ColorModel for 32-bit float RGB.
@@ -63,8 +61,8 @@ public class TiffFloat32Output {
                 bandOffsets
         );
 
-        // 3. Create DataBufferFloat.
-        DataBufferFloat dataBuffer = new DataBufferFloat(width * height * 3); // 3 components per pixel
+        // 3. Wrap the already interleaved pixels in a DataBufferFloat, without copying.
+        DataBufferFloat dataBuffer = new DataBufferFloat(interleaved, width * height * 3); // 3 components per pixel
 
         // 4. Create WritableRaster.
         WritableRaster raster = Raster.createWritableRaster(sampleModel, dataBuffer, null);
@@ -72,21 +70,7 @@ public class TiffFloat32Output {
         // 5. Create BufferedImage using the custom ColorModel and Raster.
         BufferedImage image = new BufferedImage(colorModel, raster, false, null);
 
-
-        // 6. Get the DataBuffer to directly manipulate pixel data (already have dataBuffer).
-        float[] floatData = dataBuffer.getData();
-
-        // 7. Interleave the red, green, and blue channels into the float array.
-        int index = 0;
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                floatData[index++] = (float) red[y][x];   // Red channel
-                floatData[index++] = (float) green[y][x]; // Green channel
-                floatData[index++] = (float) blue[y][x];  // Blue channel
-            }
-        }
-
-        // 8. Write the BufferedImage to a TIFF file using ImageIO.
+        // 6. Write the BufferedImage to a TIFF file using ImageIO.
         ImageWriter writer = ImageIO.getImageWritersByFormatName("tiff").next();
 
         try (ImageOutputStream ios = ImageIO.createImageOutputStream(new File(outputPath))) {
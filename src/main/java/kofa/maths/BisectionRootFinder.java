@@ -0,0 +1,33 @@
+package kofa.maths;
+
+class BisectionRootFinder extends RootFinder {
+    @Override
+    double refine(
+            PrimitiveDoubleToDoubleFunction function, PrimitiveDoubleToDoubleFunction ignoredDerivative,
+            double lowerBound, double valueAtLowerBound,
+            double upperBound, double valueAtUpperBound,
+            double tolerance
+    ) {
+        // 'low' keeps the sign of the lower bound
+        double low = lowerBound;
+        double high = upperBound;
+        int evaluations = 2;
+        while (high - low > tolerance) {
+            double middle = (low + high) / 2;
+            if (middle == low || middle == high || evaluations == MAX_EVALUATIONS) {
+                return recordEvaluations(evaluations, Double.NaN);
+            }
+            double value = function.apply(middle);
+            evaluations++;
+            if (value == 0) {
+                return recordEvaluations(evaluations, middle);
+            }
+            if (sameSign(value, valueAtLowerBound)) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return recordEvaluations(evaluations, low);
+    }
+}
@@ -0,0 +1,91 @@
+package kofa.maths;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.min;
+
+/**
+ * After https://en.wikipedia.org/wiki/Brent%27s_method, as in Numerical Recipes' zbrent.
+ */
+class BrentRootFinder extends RootFinder {
+    private static final double EPSILON = Math.ulp(1.0);
+
+    @Override
+    double refine(
+            PrimitiveDoubleToDoubleFunction function, PrimitiveDoubleToDoubleFunction ignoredDerivative,
+            double lowerBound, double valueAtLowerBound,
+            double upperBound, double valueAtUpperBound,
+            double tolerance
+    ) {
+        // b: the best estimate; c: the other end of the bracket; a: the previous b
+        double a = lowerBound;
+        double fa = valueAtLowerBound;
+        double b = upperBound;
+        double fb = valueAtUpperBound;
+        double c = b;
+        double fc = fb;
+        double d = b - a;
+        double e = d;
+        int evaluations = 2;
+        while (evaluations < MAX_EVALUATIONS) {
+            if (sameSign(fb, fc)) {
+                c = a;
+                fc = fa;
+                d = b - a;
+                e = d;
+            }
+            if (abs(fc) < abs(fb)) {
+                a = b;
+                b = c;
+                c = a;
+                fa = fb;
+                fb = fc;
+                fc = fa;
+            }
+            double tolerance1 = 2 * EPSILON * abs(b) + 0.5 * tolerance;
+            double halfBracket = 0.5 * (c - b);
+            if (abs(halfBracket) <= tolerance1) {
+                // b and c bracket the root
+                return recordEvaluations(evaluations, sameSign(fb, valueAtLowerBound) ? b : c);
+            }
+            if (abs(e) >= tolerance1 && abs(fa) > abs(fb)) {
+                double s = fb / fa;
+                double p;
+                double q;
+                if (a == c) {
+                    // secant
+                    p = 2 * halfBracket * s;
+                    q = 1 - s;
+                } else {
+                    // inverse quadratic interpolation
+                    double qa = fa / fc;
+                    double r = fb / fc;
+                    p = s * (2 * halfBracket * qa * (qa - r) - (b - a) * (r - 1));
+                    q = (qa - 1) * (r - 1) * (s - 1);
+                }
+                if (p > 0) {
+                    q = -q;
+                }
+                p = abs(p);
+                if (2 * p < min(3 * halfBracket * q - abs(tolerance1 * q), abs(e * q))) {
+                    e = d;
+                    d = p / q;
+                } else {
+                    d = halfBracket;
+                    e = d;
+                }
+            } else {
+                d = halfBracket;
+                e = d;
+            }
+            a = b;
+            fa = fb;
+            b += abs(d) > tolerance1 ? d : (halfBracket > 0 ? tolerance1 : -tolerance1);
+            fb = function.apply(b);
+            evaluations++;
+            if (fb == 0) {
+                return recordEvaluations(evaluations, b);
+            }
+        }
+        return recordEvaluations(evaluations, Double.NaN);
+    }
+}
@@ -2,4 +2,22 @@ package kofa.maths;
 
 public interface Curve {
     double mappedValueOf(double x);
+
+    /**
+     * Maps {@code in.length} values; {@code in} and {@code out} may be the same array.
+     */
+    default void mapAll(double[] in, double[] out) {
+        for (int index = 0; index < in.length; index++) {
+            out[index] = mappedValueOf(in[index]);
+        }
+    }
+
+    /**
+     * @return the gradient at {@code x}; by default a central difference, so the curve must be defined slightly
+     * beyond the values it is evaluated at
+     */
+    default double derivativeOf(double x) {
+        double step = 1E-6 * Math.max(1, Math.abs(x));
+        return (mappedValueOf(x + step) - mappedValueOf(x - step)) / (2 * step);
+    }
 }
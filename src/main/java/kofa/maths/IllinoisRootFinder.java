@@ -0,0 +1,54 @@
+package kofa.maths;
+
+class IllinoisRootFinder extends RootFinder {
+    @Override
+    double refine(
+            PrimitiveDoubleToDoubleFunction function, PrimitiveDoubleToDoubleFunction ignoredDerivative,
+            double lowerBound, double valueAtLowerBound,
+            double upperBound, double valueAtUpperBound,
+            double tolerance
+    ) {
+        // 'low' keeps the sign of the lower bound
+        double low = lowerBound;
+        double valueAtLow = valueAtLowerBound;
+        double high = upperBound;
+        double valueAtHigh = valueAtUpperBound;
+        // which end moved last: -1 low, +1 high, 0 none yet
+        int lastMoved = 0;
+        int evaluations = 2;
+        while (high - low > tolerance) {
+            if (evaluations == MAX_EVALUATIONS) {
+                return recordEvaluations(evaluations, Double.NaN);
+            }
+            double next = (low * valueAtHigh - high * valueAtLow) / (valueAtHigh - valueAtLow);
+            if (!(next > low && next < high)) {
+                // rounding; the bracket cannot be narrowed by interpolation
+                next = (low + high) / 2;
+                if (next == low || next == high) {
+                    return recordEvaluations(evaluations, Double.NaN);
+                }
+            }
+            double value = function.apply(next);
+            evaluations++;
+            if (value == 0) {
+                return recordEvaluations(evaluations, next);
+            }
+            if (sameSign(value, valueAtLowerBound)) {
+                low = next;
+                valueAtLow = value;
+                if (lastMoved == -1) {
+                    valueAtHigh /= 2;
+                }
+                lastMoved = -1;
+            } else {
+                high = next;
+                valueAtHigh = value;
+                if (lastMoved == 1) {
+                    valueAtLow /= 2;
+                }
+                lastMoved = 1;
+            }
+        }
+        return recordEvaluations(evaluations, low);
+    }
+}
@@ -0,0 +1,121 @@
+package kofa.maths;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Applies a 3x3 matrix to many pixels at once, stored either interleaved (c1c2c3c1c2c3...) or planar (one array per
+ * channel), as {@code double}s or {@code float}s. Input and output may be the same arrays (at the same offsets).
+ * <p>
+ * {@link #of(double[][])} returns a kernel using the Vector API ({@code jdk.incubator.vector}) with the widest
+ * species of the platform for planar buffers if the module is available (run with
+ * {@code --add-modules jdk.incubator.vector}), otherwise this scalar implementation. Both evaluate {@code m0 * c1 + m1 * c2 + m2 * c3} in the same order, without
+ * fused multiply-add, so their results are identical; {@code float} buffers are processed in {@code float}
+ * precision.
+ * <p>
+ * For measurements, see {@code Matrix3KernelBenchmark}.
+ */
+public class Matrix3Kernel {
+    private static final boolean VECTOR_API_AVAILABLE =
+            ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    protected final double m00, m01, m02, m10, m11, m12, m20, m21, m22;
+    protected final float f00, f01, f02, f10, f11, f12, f20, f21, f22;
+
+    protected Matrix3Kernel(double[][] matrix) {
+        checkArgument(
+                matrix.length == 3 && matrix[0].length == 3 && matrix[1].length == 3 && matrix[2].length == 3,
+                "Not a 3x3 matrix"
+        );
+        m00 = matrix[0][0];
+        m01 = matrix[0][1];
+        m02 = matrix[0][2];
+        m10 = matrix[1][0];
+        m11 = matrix[1][1];
+        m12 = matrix[1][2];
+        m20 = matrix[2][0];
+        m21 = matrix[2][1];
+        m22 = matrix[2][2];
+        f00 = (float) m00;
+        f01 = (float) m01;
+        f02 = (float) m02;
+        f10 = (float) m10;
+        f11 = (float) m11;
+        f12 = (float) m12;
+        f20 = (float) m20;
+        f21 = (float) m21;
+        f22 = (float) m22;
+    }
+
+    /**
+     * @return the fastest kernel available on this JVM
+     */
+    public static Matrix3Kernel of(double[][] matrix) {
+        return VECTOR_API_AVAILABLE ? new VectorMatrix3Kernel(matrix) : scalar(matrix);
+    }
+
+    public static Matrix3Kernel scalar(double[][] matrix) {
+        return new Matrix3Kernel(matrix);
+    }
+
+    public static boolean isVectorApiAvailable() {
+        return VECTOR_API_AVAILABLE;
+    }
+
+    /**
+     * @param pixels the number of pixels (triplets) to convert
+     */
+    public void applyInterleaved(double[] in, int inOffset, double[] out, int outOffset, int pixels) {
+        for (int pixel = 0, inIndex = inOffset, outIndex = outOffset; pixel < pixels; pixel++, inIndex += 3, outIndex += 3) {
+            double c1 = in[inIndex];
+            double c2 = in[inIndex + 1];
+            double c3 = in[inIndex + 2];
+            out[outIndex] = m00 * c1 + m01 * c2 + m02 * c3;
+            out[outIndex + 1] = m10 * c1 + m11 * c2 + m12 * c3;
+            out[outIndex + 2] = m20 * c1 + m21 * c2 + m22 * c3;
+        }
+    }
+
+    public void applyInterleaved(float[] in, int inOffset, float[] out, int outOffset, int pixels) {
+        for (int pixel = 0, inIndex = inOffset, outIndex = outOffset; pixel < pixels; pixel++, inIndex += 3, outIndex += 3) {
+            float c1 = in[inIndex];
+            float c2 = in[inIndex + 1];
+            float c3 = in[inIndex + 2];
+            out[outIndex] = f00 * c1 + f01 * c2 + f02 * c3;
+            out[outIndex + 1] = f10 * c1 + f11 * c2 + f12 * c3;
+            out[outIndex + 2] = f20 * c1 + f21 * c2 + f22 * c3;
+        }
+    }
+
+    /**
+     * Converts the pixels {@code [offset, offset + pixels)} of the channel arrays.
+     */
+    public void applyPlanar(
+            double[] in1, double[] in2, double[] in3,
+            double[] out1, double[] out2, double[] out3,
+            int offset, int pixels
+    ) {
+        for (int index = offset; index < offset + pixels; index++) {
+            double c1 = in1[index];
+            double c2 = in2[index];
+            double c3 = in3[index];
+            out1[index] = m00 * c1 + m01 * c2 + m02 * c3;
+            out2[index] = m10 * c1 + m11 * c2 + m12 * c3;
+            out3[index] = m20 * c1 + m21 * c2 + m22 * c3;
+        }
+    }
+
+    public void applyPlanar(
+            float[] in1, float[] in2, float[] in3,
+            float[] out1, float[] out2, float[] out3,
+            int offset, int pixels
+    ) {
+        for (int index = offset; index < offset + pixels; index++) {
+            float c1 = in1[index];
+            float c2 = in2[index];
+            float c3 = in3[index];
+            out1[index] = f00 * c1 + f01 * c2 + f02 * c3;
+            out2[index] = f10 * c1 + f11 * c2 + f12 * c3;
+            out3[index] = f20 * c1 + f21 * c2 + f22 * c3;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package kofa.maths;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Newton's method, kept inside the bracket: a step that would leave it, or would not halve it, is replaced by
+ * bisection (as Numerical Recipes' rtsafe).
+ */
+public class NewtonRootFinder extends RootFinder {
+    NewtonRootFinder() {
+    }
+
+    /**
+     * Like {@link #findRoot(PrimitiveDoubleToDoubleFunction, double, double, double)}, with the derivative of the
+     * function.
+     */
+    public double findRoot(
+            PrimitiveDoubleToDoubleFunction function, PrimitiveDoubleToDoubleFunction derivative,
+            double lowerBound, double upperBound, double tolerance
+    ) {
+        return solve(function, derivative, lowerBound, upperBound, tolerance);
+    }
+
+    @Override
+    double refine(
+            PrimitiveDoubleToDoubleFunction function, PrimitiveDoubleToDoubleFunction derivative,
+            double lowerBound, double valueAtLowerBound,
+            double upperBound, double valueAtUpperBound,
+            double tolerance
+    ) {
+        // 'low' keeps the sign of the lower bound
+        double low = lowerBound;
+        double high = upperBound;
+        double x = (low + high) / 2;
+        double previousStep = high - low;
+        int evaluations = 2;
+        while (high - low > tolerance) {
+            if (evaluations >= MAX_EVALUATIONS) {
+                return recordEvaluations(evaluations, Double.NaN);
+            }
+            double value = function.apply(x);
+            evaluations++;
+            if (value == 0) {
+                return recordEvaluations(evaluations, x);
+            }
+            if (sameSign(value, valueAtLowerBound)) {
+                low = x;
+            } else {
+                high = x;
+            }
+            if (high - low <= tolerance) {
+                break;
+            }
+            double slope;
+            if (derivative != null) {
+                slope = derivative.apply(x);
+            } else {
+                double delta = max(tolerance, abs(x) * 1E-8);
+                slope = (function.apply(x + delta) - value) / delta;
+                evaluations++;
+            }
+            double next = x - value / slope;
+            double step = abs(next - x);
+            if (!(next > low && next < high) || 2 * step > abs(previousStep)) {
+                next = (low + high) / 2;
+                step = abs(next - x);
+            } else if (step < tolerance / 2) {
+                // converged: narrow the bracket to the tolerance around the estimate
+                double below = max(low, next - tolerance / 2);
+                double above = min(high, next + tolerance / 2);
+                if (below != low) {
+                    double belowValue = function.apply(below);
+                    evaluations++;
+                    if (belowValue == 0) {
+                        return recordEvaluations(evaluations, below);
+                    }
+                    if (sameSign(belowValue, valueAtLowerBound)) {
+                        low = below;
+                    } else {
+                        high = below;
+                    }
+                }
+                if (above < high && above > low) {
+                    double aboveValue = function.apply(above);
+                    evaluations++;
+                    if (aboveValue == 0) {
+                        return recordEvaluations(evaluations, above);
+                    }
+                    if (sameSign(aboveValue, valueAtLowerBound)) {
+                        low = above;
+                    } else {
+                        high = above;
+                    }
+                }
+                next = (low + high) / 2;
+            }
+            if (next == low || next == high) {
+                break;
+            }
+            previousStep = step;
+            x = next;
+        }
+        return recordEvaluations(evaluations, high - low <= tolerance ? low : Double.NaN);
+    }
+}
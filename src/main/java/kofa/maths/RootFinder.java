@@ -0,0 +1,144 @@
+package kofa.maths;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Finds a root of a continuous function, bracketed by the bounds (the function has opposite signs at them). Unlike
+ * {@link Solver}, which only uses the sign of the error, these use its value, so they converge faster than one bit
+ * per iteration; results are primitive, {@code NaN} if there is no solution.
+ * <p>
+ * The result never crosses the root: it is the end of the final bracket where the function has the same sign as at
+ * the lower bound (or an exact root). E.g. with an error that is negative inside a gamut, and positive outside, the
+ * result is inside.
+ * <p>
+ * Instances are stateless apart from their counters, so they can be shared between threads.
+ */
+public abstract class RootFinder {
+    static final int MAX_EVALUATIONS = 200;
+
+    private final LongAdder solves = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder evaluations = new LongAdder();
+
+    /**
+     * @return a finder halving the bracket in each iteration
+     */
+    public static RootFinder bisection() {
+        return new BisectionRootFinder();
+    }
+
+    /**
+     * @return a finder using the secant of the bracket, halving the value kept at one end if the other end moved
+     * twice in a row (the Illinois variant of regula falsi)
+     */
+    public static RootFinder illinois() {
+        return new IllinoisRootFinder();
+    }
+
+    /**
+     * @return a finder combining inverse quadratic interpolation, the secant method and bisection (Brent's method)
+     */
+    public static RootFinder brent() {
+        return new BrentRootFinder();
+    }
+
+    /**
+     * @return a finder using Newton's method, falling back to bisection if a step would leave the bracket, or does
+     * not shrink it fast enough; without an explicit derivative, it is estimated by a finite difference
+     */
+    public static NewtonRootFinder newton() {
+        return new NewtonRootFinder();
+    }
+
+    /**
+     * @param tolerance the width of the final bracket
+     * @return a root, see {@link RootFinder}, or {@code NaN} if the function has the same sign at both bounds, or
+     * the bracket could not be narrowed to the tolerance
+     */
+    public final double findRoot(
+            PrimitiveDoubleToDoubleFunction function, double lowerBound, double upperBound, double tolerance
+    ) {
+        return solve(function, null, lowerBound, upperBound, tolerance);
+    }
+
+    final double solve(
+            PrimitiveDoubleToDoubleFunction function, PrimitiveDoubleToDoubleFunction derivative,
+            double lowerBound, double upperBound, double tolerance
+    ) {
+        checkArgument(lowerBound < upperBound, "lowerBound %s must be < upperBound %s", lowerBound, upperBound);
+        checkArgument(tolerance > 0, "tolerance %s must be > 0", tolerance);
+        solves.increment();
+        double valueAtLowerBound = function.apply(lowerBound);
+        if (valueAtLowerBound == 0) {
+            return recordEvaluations(1, lowerBound);
+        }
+        double valueAtUpperBound = function.apply(upperBound);
+        if (valueAtUpperBound == 0) {
+            return recordEvaluations(2, upperBound);
+        }
+        if (sameSign(valueAtLowerBound, valueAtUpperBound)) {
+            return recordEvaluations(2, Double.NaN);
+        }
+        return refine(function, derivative, lowerBound, valueAtLowerBound, upperBound, valueAtUpperBound, tolerance);
+    }
+
+    /**
+     * Called with a valid bracket; implementations must report the number of evaluations by returning via
+     * {@link #recordEvaluations(int, double)}, including the 2 at the bounds.
+     *
+     * @param derivative {@code null} unless provided to {@link NewtonRootFinder}
+     */
+    abstract double refine(
+            PrimitiveDoubleToDoubleFunction function, PrimitiveDoubleToDoubleFunction derivative,
+            double lowerBound, double valueAtLowerBound,
+            double upperBound, double valueAtUpperBound,
+            double tolerance
+    );
+
+    final double recordEvaluations(int count, double result) {
+        evaluations.add(count);
+        if (Double.isNaN(result)) {
+            failures.increment();
+        }
+        return result;
+    }
+
+    static boolean sameSign(double value1, double value2) {
+        return (value1 < 0) == (value2 < 0);
+    }
+
+    /**
+     * @return the number of {@link #findRoot} calls
+     */
+    public long solves() {
+        return solves.sum();
+    }
+
+    /**
+     * @return the number of {@link #findRoot} calls that returned {@code NaN}
+     */
+    public long failures() {
+        return failures.sum();
+    }
+
+    /**
+     * @return the number of function evaluations in all calls
+     */
+    public long evaluations() {
+        return evaluations.sum();
+    }
+
+    public double averageEvaluations() {
+        long solves = solves();
+        return solves == 0 ? 0 : (double) evaluations() / solves;
+    }
+
+    @Override
+    public String toString() {
+        return "%s: %d solves, %d failures, %.2f evaluations on average".formatted(
+                getClass().getSimpleName(), solves(), failures(), averageEvaluations()
+        );
+    }
+}
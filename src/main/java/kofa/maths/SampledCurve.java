@@ -0,0 +1,228 @@
+package kofa.maths;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.*;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link Curve} evaluated from a table of samples of another curve, to replace e.g. the {@code exp} of
+ * {@link ThanatomanicCurve6} in per-pixel loops.
+ * <p>
+ * The samples are equally spaced in a coordinate given by the {@link Spacing}, so the segment of a value is found
+ * arithmetically, without a search or a second look-up. The number of samples is doubled until the interpolation is
+ * within the tolerance. Values outside the domain, and {@code NaN}, are passed to the sampled curve.
+ * <p>
+ * {@link #maxError()} is measured while building: the interpolation is compared to the curve at
+ * {@value #CHECKS_PER_SEGMENT} points inside each segment, so it is reliable for curves that are smooth at the scale
+ * of a segment; a kink should be at {@code min} or outside the domain.
+ */
+public final class SampledCurve implements Curve {
+    /**
+     * Far below the step of a 16-bit output.
+     */
+    public static final double DEFAULT_TOLERANCE = 1E-9;
+    static final int CHECKS_PER_SEGMENT = 16;
+    private static final int MAX_SEGMENTS = 1 << 16;
+
+    private final Curve curve;
+    private final Interpolation interpolation;
+    private final Spacing spacing;
+    private final double min;
+    private final double max;
+    private final double inverseRange;
+    private final int segments;
+    private final int lastSegment;
+    // per segment: the coefficients of the polynomial in t, the position inside the segment in [0, 1], constant first
+    private final double[] coefficients;
+    private final double maxError;
+
+    public enum Interpolation {
+        /**
+         * Monotonic curves stay monotonic.
+         */
+        LINEAR(2),
+        /**
+         * Uses the {@link Curve#derivativeOf(double) derivatives} at the samples; needs far fewer samples for the
+         * same error.
+         */
+        CUBIC_HERMITE(4);
+
+        private final int coefficients;
+
+        Interpolation(int coefficients) {
+            this.coefficients = coefficients;
+        }
+    }
+
+    public enum Spacing {
+        UNIFORM,
+        /**
+         * Equally spaced in {@code sqrt(x - min)}: the segments near {@code min} are the shortest, for curves that bend
+         * most there, like a shoulder that starts at {@code min} and flattens out. Costs a {@code sqrt} per value.
+         */
+        DENSE_NEAR_MIN
+    }
+
+    /**
+     * @param tolerance the largest error allowed; if more than 65536 segments would be needed, the curve is left less
+     *                  accurate, see {@link #maxError()}
+     */
+    public static SampledCurve of(
+            Curve curve,
+            double min,
+            double max,
+            double tolerance,
+            Interpolation interpolation,
+            Spacing spacing
+    ) {
+        return new SampledCurve(curve, min, max, tolerance, interpolation, spacing);
+    }
+
+    private SampledCurve(Curve curve, double min, double max, double tolerance, Interpolation interpolation, Spacing spacing) {
+        checkArgument(min < max, "min %s must be < max %s", min, max);
+        checkArgument(tolerance > 0, "tolerance must be > 0, but was %s", tolerance);
+        this.curve = requireNonNull(curve);
+        this.interpolation = requireNonNull(interpolation);
+        this.spacing = requireNonNull(spacing);
+        this.min = min;
+        this.max = max;
+        inverseRange = 1 / (max - min);
+
+        int count = 1;
+        double[] fitted = fit(count);
+        double error = errorOf(fitted, count);
+        // NaN fails the tolerance
+        while (!(error <= tolerance) && count < MAX_SEGMENTS) {
+            count *= 2;
+            fitted = fit(count);
+            error = errorOf(fitted, count);
+        }
+        segments = count;
+        lastSegment = count - 1;
+        coefficients = fitted;
+        maxError = error;
+    }
+
+    @Override
+    public double mappedValueOf(double x) {
+        if (!(x >= min && x <= max)) {
+            return curve.mappedValueOf(x);
+        }
+        double position = positionOf(x);
+        return interpolation == Interpolation.LINEAR ? linear(position) : cubicHermite(position);
+    }
+
+    @Override
+    public void mapAll(double[] in, double[] out) {
+        if (interpolation == Interpolation.LINEAR) {
+            for (int index = 0; index < in.length; index++) {
+                double x = in[index];
+                out[index] = x >= min && x <= max ? linear(positionOf(x)) : curve.mappedValueOf(x);
+            }
+        } else {
+            for (int index = 0; index < in.length; index++) {
+                double x = in[index];
+                out[index] = x >= min && x <= max ? cubicHermite(positionOf(x)) : curve.mappedValueOf(x);
+            }
+        }
+    }
+
+    @Override
+    public double derivativeOf(double x) {
+        return curve.derivativeOf(x);
+    }
+
+    /**
+     * @return the largest difference from the sampled curve found inside the domain
+     */
+    public double maxError() {
+        return maxError;
+    }
+
+    /**
+     * @return the number of interpolated segments
+     */
+    public int segments() {
+        return segments;
+    }
+
+    // in [0, segments]
+    private double positionOf(double x) {
+        double normalised = (x - min) * inverseRange;
+        return (spacing == Spacing.UNIFORM ? normalised : sqrt(normalised)) * segments;
+    }
+
+    private double xAt(double normalisedPosition) {
+        return min + (spacing == Spacing.UNIFORM ? normalisedPosition : normalisedPosition * normalisedPosition) * (max - min);
+    }
+
+    // the derivative of xAt
+    private double dxAt(double normalisedPosition) {
+        return (spacing == Spacing.UNIFORM ? 1 : 2 * normalisedPosition) * (max - min);
+    }
+
+    private double linear(double position) {
+        int segment = min((int) position, lastSegment);
+        double t = position - segment;
+        int base = 2 * segment;
+        return coefficients[base] + t * coefficients[base + 1];
+    }
+
+    private double cubicHermite(double position) {
+        int segment = min((int) position, lastSegment);
+        double t = position - segment;
+        int base = 4 * segment;
+        return coefficients[base] + t * (coefficients[base + 1] + t * (coefficients[base + 2] + t * coefficients[base + 3]));
+    }
+
+    private double[] fit(int count) {
+        int stride = interpolation.coefficients;
+        double[] fitted = new double[count * stride];
+        double f0 = curve.mappedValueOf(min);
+        // the derivative along the position, scaled to a segment
+        double m0 = interpolation == Interpolation.LINEAR ? 0 : curve.derivativeOf(min) * dxAt(0) / count;
+        for (int segment = 0; segment < count; segment++) {
+            double normalisedEnd = (segment + 1.0) / count;
+            double x1 = segment == count - 1 ? max : xAt(normalisedEnd);
+            double f1 = curve.mappedValueOf(x1);
+            int base = segment * stride;
+            fitted[base] = f0;
+            if (interpolation == Interpolation.LINEAR) {
+                fitted[base + 1] = f1 - f0;
+            } else {
+                double m1 = curve.derivativeOf(x1) * dxAt(normalisedEnd) / count;
+                fitted[base + 1] = m0;
+                fitted[base + 2] = 3 * (f1 - f0) - 2 * m0 - m1;
+                fitted[base + 3] = 2 * (f0 - f1) + m0 + m1;
+                m0 = m1;
+            }
+            f0 = f1;
+        }
+        return fitted;
+    }
+
+    private double errorOf(double[] fitted, int count) {
+        int stride = interpolation.coefficients;
+        double error = 0;
+        for (int segment = 0; segment < count; segment++) {
+            int base = segment * stride;
+            for (int check = 1; check <= CHECKS_PER_SEGMENT; check++) {
+                double t = check / (CHECKS_PER_SEGMENT + 1.0);
+                double interpolated = fitted[base] + t * fitted[base + 1];
+                if (interpolation == Interpolation.CUBIC_HERMITE) {
+                    interpolated += t * t * (fitted[base + 2] + t * fitted[base + 3]);
+                }
+                double exact = curve.mappedValueOf(xAt((segment + t) / count));
+                error = max(error, abs(interpolated - exact));
+            }
+        }
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "%s, %s samples of %s on [%s, %s]: %d segments, max error %.3g".formatted(
+                interpolation, spacing, curve, min, max, segments, maxError
+        );
+    }
+}
@@ -5,6 +5,9 @@ import java.util.Optional;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.Math.abs;
 
+/**
+ * Bisection, only using the sign of the error; for continuous errors, {@link RootFinder} converges faster.
+ */
 public class Solver {
     private final PrimitiveDoubleToDoubleFunction errorFunction;
     private double low;
@@ -5,6 +5,7 @@ import org.apache.commons.math3.linear.MatrixUtils;
 public class SpaceConversionMatrix<I extends Vector3, O extends Vector3> {
     private final double[][] matrix;
     private final Vector3Constructor<O> resultConstructor;
+    private final Matrix3Kernel kernel;
 
     public SpaceConversionMatrix(
             Vector3Constructor<O> resultConstructor,
@@ -12,6 +13,7 @@ public class SpaceConversionMatrix<I extends Vector3, O extends Vector3> {
     ) {
         this.resultConstructor = resultConstructor;
         this.matrix = matrix;
+        this.kernel = Matrix3Kernel.of(matrix);
     }
 
     public SpaceConversionMatrix<O, I> invert(Vector3Constructor<I> resultConstructor) {
@@ -28,6 +30,26 @@ public class SpaceConversionMatrix<I extends Vector3, O extends Vector3> {
         return resultConstructor.createFrom(r1, r2, r3);
     }
 
+    /**
+     * Allocation-free variant of {@link #multiply(Vector3)}, working on triplets stored in arrays.
+     * {@code input} and {@code output} may be the same array.
+     */
+    public void multiply(double[] input, int inputOffset, double[] output, int outputOffset) {
+        double c1 = input[inputOffset];
+        double c2 = input[inputOffset + 1];
+        double c3 = input[inputOffset + 2];
+        output[outputOffset] = matrix[0][0] * c1 + matrix[0][1] * c2 + matrix[0][2] * c3;
+        output[outputOffset + 1] = matrix[1][0] * c1 + matrix[1][1] * c2 + matrix[1][2] * c3;
+        output[outputOffset + 2] = matrix[2][0] * c1 + matrix[2][1] * c2 + matrix[2][2] * c3;
+    }
+
+    /**
+     * @return the matrix as a kernel, to convert whole rows or images at a time
+     */
+    public Matrix3Kernel kernel() {
+        return kernel;
+    }
+
     public <S extends Vector3> SpaceConversionMatrix<S, O> multiply(SpaceConversionMatrix<S, I> multiplicand) {
         double[][] otherValues = multiplicand.matrix;
 
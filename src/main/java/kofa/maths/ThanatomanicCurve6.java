@@ -14,6 +14,24 @@ public class ThanatomanicCurve6 implements Curve {
         return new ThanatomanicCurve6(1, shoulderStart);
     }
 
+    /**
+     * The shoulder start of the {@link #linearUntil(double)} curve that maps {@code x} to {@code mappedValue}.
+     * <p>
+     * With {@code d = 1 - shoulderStart}, the curve maps {@code x} to {@code 1 - d * exp(-(x - 1 + d) / d)}, so
+     * {@code d = (x - 1) / W((x - 1) / (e * (1 - mappedValue)))}, where {@code W} is the Lambert W function. A higher
+     * shoulder start maps {@code x} closer to 1.
+     *
+     * @param x           > 1
+     * @param mappedValue in (0, 1)
+     * @return the shoulder start; < 0 if even the curve with no linear part maps {@code x} above {@code mappedValue}
+     */
+    public static double shoulderStartMapping(double x, double mappedValue) {
+        checkArgument(x > 1, "x must be > 1, but was %s", x);
+        checkArgument(mappedValue > 0 && mappedValue < 1, "mappedValue must be in (0, 1), but was %s", mappedValue);
+        double aboveOne = x - 1;
+        return 1 - aboveOne / lambertW(aboveOne / (Math.E * (1 - mappedValue)));
+    }
+
     public ThanatomanicCurve6(double gradient, double shoulderStart) {
         checkArgument(gradient > 0, "gradient must be > 0, but was %s", gradient);
         checkArgument(shoulderStart >= 0, "shoulderStart must be >= 0, but was %s", shoulderStart);
@@ -36,4 +54,57 @@ public class ThanatomanicCurve6 implements Curve {
                 1 + mappedValueOfShoulderStartMinusOne * Math.exp((gradient * x - mappedValueOfShoulderStart) / mappedValueOfShoulderStartMinusOne)
         );
     }
+
+    /**
+     * @return the curve from a table of {@link SampledCurve.Interpolation#CUBIC_HERMITE} samples, within
+     * {@link SampledCurve#DEFAULT_TOLERANCE}; sampled from the shoulder start to where the curve is within the
+     * tolerance of 1, the linear part and the values beyond are calculated
+     */
+    public SampledCurve sampled() {
+        double tolerance = SampledCurve.DEFAULT_TOLERANCE;
+        double oneMinusMappedValueOfShoulderStart = -mappedValueOfShoulderStartMinusOne;
+        double saturation = shoulderStart + oneMinusMappedValueOfShoulderStart / gradient * Math.log(oneMinusMappedValueOfShoulderStart / tolerance);
+        return SampledCurve.of(
+                this, shoulderStart, saturation, tolerance,
+                SampledCurve.Interpolation.CUBIC_HERMITE, SampledCurve.Spacing.DENSE_NEAR_MIN
+        );
+    }
+
+    /**
+     * The inverse of {@link #mappedValueOf(double)}, for a gradient <= 1 (else the curve steps down at the shoulder).
+     *
+     * @param mappedValue < 1, the limit of the curve
+     * @return the value mapped to {@code mappedValue}
+     */
+    public double inverseOf(double mappedValue) {
+        checkArgument(mappedValue < 1, "mappedValue must be < 1, but was %s", mappedValue);
+        if (mappedValue < mappedValueOfShoulderStart) {
+            return mappedValue / gradient;
+        }
+        return (mappedValueOfShoulderStart + mappedValueOfShoulderStartMinusOne * Math.log((mappedValue - 1) / mappedValueOfShoulderStartMinusOne)) / gradient;
+    }
+
+    @Override
+    public double derivativeOf(double x) {
+        if (x < shoulderStart) {
+            return gradient;
+        }
+        // continuous at the shoulder start, decaying towards 0
+        return gradient * Math.exp((gradient * x - mappedValueOfShoulderStart) / mappedValueOfShoulderStartMinusOne);
+    }
+
+    // the principal branch, for z > 0; Halley's iteration
+    private static double lambertW(double z) {
+        double w = z < Math.E ? Math.log1p(z) : Math.log(z) - Math.log(Math.log(z));
+        for (int iteration = 0; iteration < 20; iteration++) {
+            double expW = Math.exp(w);
+            double error = w * expW - z;
+            double step = error / (expW * (w + 1) - (w + 2) * error / (2 * w + 2));
+            w -= step;
+            if (Math.abs(step) <= 1E-15 * (1 + Math.abs(w))) {
+                break;
+            }
+        }
+        return w;
+    }
 }
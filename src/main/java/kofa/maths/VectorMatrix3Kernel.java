@@ -0,0 +1,57 @@
+package kofa.maths;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The Vector API implementation of {@link Matrix3Kernel}; only loaded if the {@code jdk.incubator.vector} module is
+ * present. Only the planar layout is vectorised: the pixels that do not fill a whole vector are processed by the
+ * scalar code. Interleaved buffers use the scalar loop, because both ways to split them into channel vectors were
+ * slower: gather/scatter (which also crashes the C2 compiler of JDK 21.0.1 for floats on AVX-512), and lane
+ * rearrangement (see {@code Matrix3KernelBenchmark}).
+ */
+class VectorMatrix3Kernel extends Matrix3Kernel {
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+
+    VectorMatrix3Kernel(double[][] matrix) {
+        super(matrix);
+    }
+
+    @Override
+    public void applyPlanar(
+            double[] in1, double[] in2, double[] in3,
+            double[] out1, double[] out2, double[] out3,
+            int offset, int pixels
+    ) {
+        int end = offset + pixels - pixels % DOUBLES.length();
+        for (int index = offset; index < end; index += DOUBLES.length()) {
+            var c1 = DoubleVector.fromArray(DOUBLES, in1, index);
+            var c2 = DoubleVector.fromArray(DOUBLES, in2, index);
+            var c3 = DoubleVector.fromArray(DOUBLES, in3, index);
+            c1.mul(m00).add(c2.mul(m01)).add(c3.mul(m02)).intoArray(out1, index);
+            c1.mul(m10).add(c2.mul(m11)).add(c3.mul(m12)).intoArray(out2, index);
+            c1.mul(m20).add(c2.mul(m21)).add(c3.mul(m22)).intoArray(out3, index);
+        }
+        super.applyPlanar(in1, in2, in3, out1, out2, out3, end, offset + pixels - end);
+    }
+
+    @Override
+    public void applyPlanar(
+            float[] in1, float[] in2, float[] in3,
+            float[] out1, float[] out2, float[] out3,
+            int offset, int pixels
+    ) {
+        int end = offset + pixels - pixels % FLOATS.length();
+        for (int index = offset; index < end; index += FLOATS.length()) {
+            var c1 = FloatVector.fromArray(FLOATS, in1, index);
+            var c2 = FloatVector.fromArray(FLOATS, in2, index);
+            var c3 = FloatVector.fromArray(FLOATS, in3, index);
+            c1.mul(f00).add(c2.mul(f01)).add(c3.mul(f02)).intoArray(out1, index);
+            c1.mul(f10).add(c2.mul(f11)).add(c3.mul(f12)).intoArray(out2, index);
+            c1.mul(f20).add(c2.mul(f21)).add(c3.mul(f22)).intoArray(out3, index);
+        }
+        super.applyPlanar(in1, in2, in3, out1, out2, out3, end, offset + pixels - end);
+    }
+}
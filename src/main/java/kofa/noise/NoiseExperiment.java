@@ -5,6 +5,7 @@ import kofa.colours.model.CFA;
 import kofa.colours.model.XYCoordinates;
 import kofa.colours.viewer.GreyscaleImageViewer;
 import kofa.colours.viewer.RGBImageViewer;
+import kofa.parallel.ProcessingContext;
 
 import java.awt.image.Raster;
 import java.io.BufferedReader;
@@ -13,7 +14,6 @@ import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
 import java.util.stream.DoubleStream;
 
@@ -36,8 +36,20 @@ public class NoiseExperiment {
     private final float rMultiplier;
     private final float bMultiplier;
     private final float additionalGamma;
+    private final ProcessingContext context;
 
     public NoiseExperiment(Path rawFilePath, CFA cfa, float rMultiplier, float bMultiplier, float additionalGamma) {
+        this(rawFilePath, cfa, rMultiplier, bMultiplier, additionalGamma, ProcessingContext.common());
+    }
+
+    /**
+     * @param context runs the spectral power measurements and the filtering
+     */
+    public NoiseExperiment(
+            Path rawFilePath, CFA cfa, float rMultiplier, float bMultiplier, float additionalGamma,
+            ProcessingContext context
+    ) {
+        this.context = context;
         this.cfa = cfa;
         if (!Files.isRegularFile(rawFilePath)) {
             die("Not a regular file: " + rawFilePath);
@@ -198,8 +210,6 @@ public class NoiseExperiment {
         long stop = start + SEARCH_SEC * 1_000;
         long counter = 0;
 
-        ForkJoinPool threadPool = ForkJoinPool.commonPool();
-
         var spCalculator0 = new SpectralPowerCalculator(bayerImage.pane0, bayerImage.paneWidth, bayerImage.paneHeight, size);
         var spCalculator1 = new SpectralPowerCalculator(bayerImage.pane1, bayerImage.paneWidth, bayerImage.paneHeight, size);
         var spCalculator2 = new SpectralPowerCalculator(bayerImage.pane2, bayerImage.paneWidth, bayerImage.paneHeight, size);
@@ -210,10 +220,10 @@ public class NoiseExperiment {
         SpectralPowerCalculator.Result result2;
         SpectralPowerCalculator.Result result3;
         do {
-            ForkJoinTask<SpectralPowerCalculator.Result> future0 = threadPool.submit(() -> spCalculator0.measureRandomSquare());
-            ForkJoinTask<SpectralPowerCalculator.Result> future1 = threadPool.submit(() -> spCalculator1.measureRandomSquare());
-            ForkJoinTask<SpectralPowerCalculator.Result> future2 = threadPool.submit(() -> spCalculator2.measureRandomSquare());
-            ForkJoinTask<SpectralPowerCalculator.Result> future3 = threadPool.submit(() -> spCalculator3.measureRandomSquare());
+            ForkJoinTask<SpectralPowerCalculator.Result> future0 = context.submit(() -> spCalculator0.measureRandomSquare());
+            ForkJoinTask<SpectralPowerCalculator.Result> future1 = context.submit(() -> spCalculator1.measureRandomSquare());
+            ForkJoinTask<SpectralPowerCalculator.Result> future2 = context.submit(() -> spCalculator2.measureRandomSquare());
+            ForkJoinTask<SpectralPowerCalculator.Result> future3 = context.submit(() -> spCalculator3.measureRandomSquare());
             try {
                 result0 = future0.get();
                 result1 = future1.get();
@@ -289,10 +299,10 @@ public class NoiseExperiment {
             float originalSum
     ) {
         long filterStartMillis = System.currentTimeMillis();
-        filter.filter(bayerImage.pane0, magnitudes0);
-        filter.filter(bayerImage.pane1, magnitudes1);
-        filter.filter(bayerImage.pane2, magnitudes2);
-        filter.filter(bayerImage.pane3, magnitudes3);
+        filter.filter(bayerImage.pane0, magnitudes0, context.scheduler());
+        filter.filter(bayerImage.pane1, magnitudes1, context.scheduler());
+        filter.filter(bayerImage.pane2, magnitudes2, context.scheduler());
+        filter.filter(bayerImage.pane3, magnitudes3, context.scheduler());
         long filterDurationms = System.currentTimeMillis() - filterStartMillis;
         System.out.println("filtering %d x %d took %d ms".formatted(bayerImage.paneWidth, bayerImage.paneHeight, filterDurationms));
 
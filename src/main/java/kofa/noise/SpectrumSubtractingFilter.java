@@ -1,9 +1,11 @@
 package kofa.noise;
 
+import kofa.parallel.ProcessingContext;
+import kofa.parallel.Tile;
+import kofa.parallel.TileScheduler;
 import org.jtransforms.fft.DoubleFFT_2D;
 
 import java.util.Arrays;
-import java.util.stream.IntStream;
 
 import static java.lang.Math.max;
 import static kofa.noise.FFTUtils.magnitude;
@@ -40,57 +42,79 @@ public class SpectrumSubtractingFilter {
     }
 
     public void filter(float[] monoPane, double[] noiseMagnitudes) {
+        filter(monoPane, noiseMagnitudes, ProcessingContext.common().scheduler());
+    }
+
+    /**
+     * The blocks overlap, and are blended together in the output. The blocks are assigned to the tile that contains
+     * their top-left corner, so a tile writes up to a block size beyond its bounds: that is declared as the halo,
+     * and the scheduler ensures tiles writing the same pixels are not processed at the same time.
+     */
+    public void filter(float[] monoPane, double[] noiseMagnitudes, TileScheduler scheduler) {
         float[] copy = monoPane.clone();
         Arrays.fill(monoPane, 0f);
 
-        IntStream.iterate(0, i -> i < height - blockSize, i -> i + blockSize / 2).parallel().forEach(topLeftY ->
-                processOneRow(topLeftY, copy, monoPane, noiseMagnitudes)
+        int tileSize = 2 * blockSize;
+        TileScheduler blockScheduler = scheduler
+                .withTileSize(max(scheduler.tileWidth(), tileSize), max(scheduler.tileHeight(), tileSize))
+                .withHalo(blockSize);
+        // the area where the top-left corners of the blocks can be
+        blockScheduler.forEachTile(width - blockSize, height - blockSize, tile ->
+                processOneTile(tile, copy, monoPane, noiseMagnitudes)
         );
     }
 
-    private void processOneRow(int topLeftY, float[] copy, float[] monoPane, double[] noiseMagnitudes) {
+    private void processOneTile(Tile tile, float[] copy, float[] monoPane, double[] noiseMagnitudes) {
         DoubleFFT_2D fft = new DoubleFFT_2D(paddedRowLength, paddedRowLength);
-        for (int topLeftX = 0; topLeftX < width - blockSize; topLeftX += blockSize / 2) {
-            double[] padded = pad(copy, width, paddedRowLength, blockSize, topLeftX, topLeftY);
-//            Complex[] buffer = transformer.transform(padded, TransformType.FORWARD);
-            fft.realForward(padded);
-
-            double offset = magnitude(padded[0], padded[1]);
-            double reducedOffset = max(0, offset - noiseMagnitudes[0]);
-            if (offset != 0 && !Double.isNaN(offset) && !Double.isInfinite(offset)) {
-                double multiplier = reducedOffset / offset;
-                padded[0] *= multiplier;
-                padded[1] *= multiplier;
+        int step = blockSize / 2;
+        for (int topLeftY = firstBlockStart(tile.firstRow(), step); topLeftY < tile.endRow(); topLeftY += step) {
+            for (int topLeftX = firstBlockStart(tile.firstColumn(), step); topLeftX < tile.endColumn(); topLeftX += step) {
+                processOneBlock(fft, topLeftX, topLeftY, copy, monoPane, noiseMagnitudes);
             }
+        }
+    }
+
+    private static int firstBlockStart(int tileStart, int step) {
+        return Math.ceilDiv(tileStart, step) * step;
+    }
+
+    private void processOneBlock(DoubleFFT_2D fft, int topLeftX, int topLeftY, float[] copy, float[] monoPane, double[] noiseMagnitudes) {
+        double[] padded = pad(copy, width, paddedRowLength, blockSize, topLeftX, topLeftY);
+//        Complex[] buffer = transformer.transform(padded, TransformType.FORWARD);
+        fft.realForward(padded);
 
-            for (int freqIndex = 1; freqIndex < padded.length - 1; freqIndex += 2) {
-                int imIndex = freqIndex + 1;
-                double magnitudeAtFreq = magnitude(padded[freqIndex], padded[imIndex]);
-                double reducedMagnitude = max(0, magnitudeAtFreq - STRENGTH * noiseMagnitudes[freqIndex / 2]);
-                if (magnitudeAtFreq != 0 && !Double.isNaN(magnitudeAtFreq) && !Double.isInfinite(magnitudeAtFreq)) {
-                    double multiplier = reducedMagnitude / magnitudeAtFreq;
-                    padded[freqIndex] *= multiplier;
-                    padded[imIndex] *= multiplier;
-                }
+        double offset = magnitude(padded[0], padded[1]);
+        double reducedOffset = max(0, offset - noiseMagnitudes[0]);
+        if (offset != 0 && !Double.isNaN(offset) && !Double.isInfinite(offset)) {
+            double multiplier = reducedOffset / offset;
+            padded[0] *= multiplier;
+            padded[1] *= multiplier;
+        }
+
+        for (int freqIndex = 1; freqIndex < padded.length - 1; freqIndex += 2) {
+            int imIndex = freqIndex + 1;
+            double magnitudeAtFreq = magnitude(padded[freqIndex], padded[imIndex]);
+            double reducedMagnitude = max(0, magnitudeAtFreq - STRENGTH * noiseMagnitudes[freqIndex / 2]);
+            if (magnitudeAtFreq != 0 && !Double.isNaN(magnitudeAtFreq) && !Double.isInfinite(magnitudeAtFreq)) {
+                double multiplier = reducedMagnitude / magnitudeAtFreq;
+                padded[freqIndex] *= multiplier;
+                padded[imIndex] *= multiplier;
             }
+        }
 
-            //Complex[] filtered = transformer.transform(buffer, TransformType.INVERSE);
-            fft.realInverse(padded, true);
-
-            // monoPane is updated using read - increment - write, need to sync
-            // It's more efficient to get the lock once for the loop than racing for it for each individual update.
-            // Ideally, each thread would have its own area that can be merged in the end.
-            synchronized (monoPane) {
-                for (int y = 0; y < blockSize; y++) {
-                    int rowStartInPane = (topLeftY + y) * width;
-                    int rowStartInFiltered = (paddingEnd + y) * paddedRowLength;
-                    for (int x = 0; x < blockSize; x++) {
-                        int indexInPane = rowStartInPane + (topLeftX + x);
-                        int indexInFiltered = rowStartInFiltered + (paddingEnd + x);
-                        double filteredValue = padded[indexInFiltered];
-                        monoPane[indexInPane] += multipliers[y][x] * (float) max(0, filteredValue);
-                    }
-                }
+        //Complex[] filtered = transformer.transform(buffer, TransformType.INVERSE);
+        fft.realInverse(padded, true);
+
+        // monoPane is updated using read - increment - write; no locking is needed, because tiles that could
+        // write the same pixels are never processed at the same time
+        for (int y = 0; y < blockSize; y++) {
+            int rowStartInPane = (topLeftY + y) * width;
+            int rowStartInFiltered = (paddingEnd + y) * paddedRowLength;
+            for (int x = 0; x < blockSize; x++) {
+                int indexInPane = rowStartInPane + (topLeftX + x);
+                int indexInFiltered = rowStartInFiltered + (paddingEnd + x);
+                double filteredValue = padded[indexInFiltered];
+                monoPane[indexInPane] += multipliers[y][x] * (float) max(0, filteredValue);
             }
         }
     }
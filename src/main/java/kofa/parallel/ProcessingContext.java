@@ -0,0 +1,159 @@
+package kofa.parallel;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The threads a job may use, and a way to cancel it. Passed through a pipeline (via {@link #scheduler()} for the
+ * image kernels), so that jobs running at the same time do not starve each other in the common pool, and the number
+ * of cores a job uses can be capped.
+ * <p>
+ * Cancellation is cooperative: the parallel loops check the flag before each tile or index, and fail with a
+ * {@link CancellationException}; work already started is completed.
+ */
+public class ProcessingContext implements AutoCloseable {
+    // null: process in the calling thread
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private volatile boolean cancelled;
+
+    private ProcessingContext(ForkJoinPool pool, boolean ownsPool) {
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    /**
+     * @return a context using the common pool, with its own cancellation flag
+     */
+    public static ProcessingContext common() {
+        return new ProcessingContext(ForkJoinPool.commonPool(), false);
+    }
+
+    /**
+     * @return a context with a dedicated pool of {@code parallelism} threads, shut down by {@link #close()}
+     */
+    public static ProcessingContext withParallelism(int parallelism) {
+        checkArgument(parallelism > 0, "Invalid parallelism: %s", parallelism);
+        return new ProcessingContext(new ForkJoinPool(parallelism), true);
+    }
+
+    /**
+     * @param pool the pool to run on, not shut down by {@link #close()}; {@code null} to process in the calling thread
+     */
+    public static ProcessingContext using(ForkJoinPool pool) {
+        return new ProcessingContext(pool, false);
+    }
+
+    /**
+     * @return a context processing everything in the calling thread, for easier debugging
+     */
+    public static ProcessingContext sequential() {
+        return new ProcessingContext(null, false);
+    }
+
+    /**
+     * @return a scheduler with the {@link TileScheduler#DEFAULT_TILE_SIZE default tile size}, running on this context
+     */
+    public TileScheduler scheduler() {
+        return new TileScheduler(this, TileScheduler.DEFAULT_TILE_SIZE, TileScheduler.DEFAULT_TILE_SIZE, 0);
+    }
+
+    /**
+     * @return the pool, or {@code null} if processing in the calling thread
+     */
+    ForkJoinPool pool() {
+        return pool;
+    }
+
+    public int parallelism() {
+        return pool == null ? 1 : pool.getParallelism();
+    }
+
+    /**
+     * Asks the loops running on this context to stop; they fail with a {@link CancellationException}.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Processing was cancelled");
+        }
+    }
+
+    /**
+     * Runs a task on this context; in the calling thread, if the context is sequential.
+     */
+    public <T> ForkJoinTask<T> submit(Callable<T> task) {
+        throwIfCancelled();
+        if (pool == null) {
+            ForkJoinTask<T> forkJoinTask = ForkJoinTask.adapt(task);
+            forkJoinTask.invoke();
+            return forkJoinTask;
+        }
+        return pool.submit(task);
+    }
+
+    /**
+     * Calls {@code body} for each index in {@code [from, to)}, in parallel; returns when all are done.
+     */
+    public void forEachIndex(int from, int to, IntConsumer body) {
+        if (from >= to) {
+            return;
+        }
+        if (pool == null) {
+            for (int index = from; index < to; index++) {
+                throwIfCancelled();
+                body.accept(index);
+            }
+        } else {
+            pool.invoke(new IndexTask(from, to, body));
+        }
+    }
+
+    /**
+     * Shuts down the pool if it was created for this context, waiting for the running tasks.
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.close();
+        }
+    }
+
+    // only used within the pool, never serialized
+    @SuppressWarnings("serial")
+    private class IndexTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final IntConsumer body;
+
+        IndexTask(int from, int to, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                throwIfCancelled();
+                body.accept(from);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new IndexTask(from, middle, body), new IndexTask(middle, to, body));
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package kofa.parallel;
+
+/**
+ * A rectangular area of an image; rows and columns are in [first, end).
+ */
+public record Tile(int firstRow, int firstColumn, int endRow, int endColumn) {
+    public int height() {
+        return endRow - firstRow;
+    }
+
+    public int width() {
+        return endColumn - firstColumn;
+    }
+
+    /**
+     * @return this tile grown by {@code halo} on all sides, clipped to the image
+     */
+    public Tile expandedBy(int halo, int imageWidth, int imageHeight) {
+        return new Tile(
+                Math.max(0, firstRow - halo),
+                Math.max(0, firstColumn - halo),
+                Math.min(imageHeight, endRow + halo),
+                Math.min(imageWidth, endColumn + halo)
+        );
+    }
+}
@@ -0,0 +1,205 @@
+package kofa.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Cuts an image into tiles, and processes them on a {@link ForkJoinPool}. The list of tiles is split recursively,
+ * so idle workers steal the remaining halves from busy ones.
+ * <p>
+ * Tiles are processed concurrently, so a kernel must only write inside its own tile. Neighbourhood kernels that
+ * also write up to {@code halo} pixels outside the tile (e.g. overlapping blocks that are blended together) must
+ * declare the halo: the tiles are then processed in 4 waves, in a checkerboard pattern, so that tiles processed
+ * at the same time never touch the same pixels.
+ * <p>
+ * The threads and the cancellation flag come from a {@link ProcessingContext}; a cancelled context stops the job
+ * before the next tile.
+ * <p>
+ * For throughput by tile size, see {@code TileSchedulerPerformanceTest}.
+ */
+public class TileScheduler {
+    public static final int DEFAULT_TILE_SIZE = 128;
+
+    private static final TileScheduler DEFAULT = new TileScheduler(
+            ProcessingContext.common(), DEFAULT_TILE_SIZE, DEFAULT_TILE_SIZE, 0
+    );
+
+    private final ProcessingContext context;
+    private final int tileWidth;
+    private final int tileHeight;
+    private final int halo;
+
+    /**
+     * @param pool the pool to run on; {@code null} to process in the calling thread
+     */
+    public TileScheduler(ForkJoinPool pool, int tileWidth, int tileHeight, int halo) {
+        this(ProcessingContext.using(pool), tileWidth, tileHeight, halo);
+    }
+
+    public TileScheduler(ProcessingContext context, int tileWidth, int tileHeight, int halo) {
+        checkArgument(tileWidth > 0 && tileHeight > 0, "Invalid tile size: %s x %s", tileWidth, tileHeight);
+        checkArgument(halo >= 0, "Invalid halo: %s", halo);
+        checkArgument(
+                halo == 0 || (tileWidth >= 2 * halo && tileHeight >= 2 * halo),
+                "Tiles of %s x %s are too small for a halo of %s", tileWidth, tileHeight, halo
+        );
+        this.context = requireNonNull(context);
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.halo = halo;
+    }
+
+    /**
+     * @return a scheduler using the common pool and {@link #DEFAULT_TILE_SIZE square tiles}, without halo; its context
+     * is shared, so it must not be cancelled: use {@link ProcessingContext#common()} for a cancellable job instead
+     */
+    public static TileScheduler defaultScheduler() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return a scheduler processing the tiles one after the other in the calling thread, for easier debugging
+     */
+    public static TileScheduler sequential() {
+        return ProcessingContext.sequential().scheduler();
+    }
+
+    /**
+     * @param pool the pool to run on, with a new cancellation flag; {@code null} to process in the calling thread
+     */
+    public TileScheduler withPool(ForkJoinPool pool) {
+        return new TileScheduler(ProcessingContext.using(pool), tileWidth, tileHeight, halo);
+    }
+
+    public TileScheduler withContext(ProcessingContext context) {
+        return new TileScheduler(context, tileWidth, tileHeight, halo);
+    }
+
+    public TileScheduler withTileSize(int tileWidth, int tileHeight) {
+        return new TileScheduler(context, tileWidth, tileHeight, halo);
+    }
+
+    public TileScheduler withHalo(int halo) {
+        return new TileScheduler(context, tileWidth, tileHeight, halo);
+    }
+
+    public ProcessingContext context() {
+        return context;
+    }
+
+    public int tileWidth() {
+        return tileWidth;
+    }
+
+    public int tileHeight() {
+        return tileHeight;
+    }
+
+    public int halo() {
+        return halo;
+    }
+
+    public interface TileProcessor {
+        void process(Tile tile);
+    }
+
+    /**
+     * Processes an area of {@code width x height} in tiles; returns when all tiles are done.
+     */
+    public void forEachTile(int width, int height, TileProcessor processor) {
+        processTiles(width, height, tileWidth, tileHeight, processor);
+    }
+
+    /**
+     * Like {@link #forEachTile}, but each tile spans full rows, for kernels that work on rows.
+     * The bands hold about as many pixels as a tile.
+     */
+    public void forEachRowBand(int width, int height, TileProcessor processor) {
+        int bandHeight = Math.max(1, tileWidth * tileHeight / Math.max(1, width));
+        processTiles(width, height, width, bandHeight, processor);
+    }
+
+    private void processTiles(int width, int height, int tileWidth, int tileHeight, TileProcessor processor) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        int tileColumns = Math.ceilDiv(width, tileWidth);
+        int tileRows = Math.ceilDiv(height, tileHeight);
+        if (halo == 0) {
+            List<Tile> tiles = new ArrayList<>(tileColumns * tileRows);
+            for (int tileRow = 0; tileRow < tileRows; tileRow++) {
+                for (int tileColumn = 0; tileColumn < tileColumns; tileColumn++) {
+                    tiles.add(tile(tileRow, tileColumn, width, height, tileWidth, tileHeight));
+                }
+            }
+            process(tiles, processor);
+        } else {
+            // checkerboard: neighbours (including diagonal ones) are always in different waves
+            for (int wave = 0; wave < 4; wave++) {
+                List<Tile> tiles = new ArrayList<>();
+                for (int tileRow = wave / 2; tileRow < tileRows; tileRow += 2) {
+                    for (int tileColumn = wave % 2; tileColumn < tileColumns; tileColumn += 2) {
+                        tiles.add(tile(tileRow, tileColumn, width, height, tileWidth, tileHeight));
+                    }
+                }
+                process(tiles, processor);
+            }
+        }
+    }
+
+    private static Tile tile(int tileRow, int tileColumn, int width, int height, int tileWidth, int tileHeight) {
+        int firstRow = tileRow * tileHeight;
+        int firstColumn = tileColumn * tileWidth;
+        return new Tile(
+                firstRow, firstColumn,
+                Math.min(height, firstRow + tileHeight), Math.min(width, firstColumn + tileWidth)
+        );
+    }
+
+    private void process(List<Tile> tiles, TileProcessor processor) {
+        ForkJoinPool pool = context.pool();
+        if (pool == null) {
+            for (Tile tile : tiles) {
+                context.throwIfCancelled();
+                processor.process(tile);
+            }
+        } else if (!tiles.isEmpty()) {
+            pool.invoke(new TileTask(tiles, 0, tiles.size(), processor));
+        }
+    }
+
+    // only used within the pool, never serialized
+    @SuppressWarnings("serial")
+    private class TileTask extends RecursiveAction {
+        private final List<Tile> tiles;
+        private final int from;
+        private final int to;
+        private final TileProcessor processor;
+
+        TileTask(List<Tile> tiles, int from, int to, TileProcessor processor) {
+            this.tiles = tiles;
+            this.from = from;
+            this.to = to;
+            this.processor = processor;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                context.throwIfCancelled();
+                processor.process(tiles.get(from));
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new TileTask(tiles, from, middle, processor),
+                        new TileTask(tiles, middle, to, processor)
+                );
+            }
+        }
+    }
+}
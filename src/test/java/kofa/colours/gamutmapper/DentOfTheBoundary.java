@@ -0,0 +1,28 @@
+package kofa.colours.gamutmapper;
+
+import kofa.colours.model.LchKernel;
+import kofa.colours.model.Srgb;
+
+/**
+ * An OkLCh L and h where the sRGB boundary dents inwards along C: red dips below 0 for C in [0.1275, 0.1385], then
+ * stays in gamut until max C, about 0.1439.
+ */
+final class DentOfTheBoundary {
+    static final double L = 0.2079039097;
+    static final double H = 4.6106538522;
+
+    private DentOfTheBoundary() {
+    }
+
+    /**
+     * @return a row of linear Rec2020 pixels with the L and h of the dent, and the given C values
+     */
+    static double[] rec2020Row(double... chromas) {
+        double[] row = new double[3 * chromas.length];
+        for (int i = 0; i < chromas.length; i++) {
+            LchKernel.FOR_OKLAB.toSrgb(L, chromas[i], H, row, 3 * i);
+            Srgb.TO_REC2020.multiply(row, 3 * i, row, 3 * i);
+        }
+        return row;
+    }
+}
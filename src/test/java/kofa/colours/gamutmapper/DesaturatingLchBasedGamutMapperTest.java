@@ -0,0 +1,182 @@
+package kofa.colours.gamutmapper;
+
+import kofa.colours.model.OkLAB;
+import kofa.colours.model.OkLCh;
+import kofa.colours.lut.Lut3D;
+import kofa.colours.lut.LutShaper;
+import kofa.colours.tonemapper.SimpleCurveBasedToneMapper;
+import kofa.colours.tonemapper.ToneMapper;
+import kofa.io.RgbImage;
+import kofa.parallel.ProcessingContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Point;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class DesaturatingLchBasedGamutMapperTest {
+    private static final int WIDTH = 101;
+    private static final int HEIGHT = 67;
+
+    // leaves the pixels unchanged, so the mapping sees the pixels the analysis did
+    private final ToneMapper<OkLAB> toneMapper = () -> (row, in, out) -> System.arraycopy(in, 0, out, 0, in.length);
+    private Raster raster;
+
+    @BeforeEach
+    void setUp() {
+        // mostly muted colours, with a few saturated ones that the subsample is likely to miss
+        var random = new Random(42);
+        WritableRaster writableRaster = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, WIDTH, HEIGHT, 3, new Point());
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int column = 0; column < WIDTH; column++) {
+                int base = 10000 + random.nextInt(30000);
+                int spread = random.nextInt(100) == 0 ? 30000 : 8000;
+                writableRaster.setPixel(column, row, new int[]{
+                        base + random.nextInt(spread) - spread / 2,
+                        base + random.nextInt(spread) - spread / 2,
+                        base + random.nextInt(spread) - spread / 2
+                });
+            }
+        }
+        raster = writableRaster;
+    }
+
+    @Test
+    void subsampledAnalysis_findsTheExactDivisor() {
+        // given
+        var params = GamutBoundarySearchParams.FOR_OKLAB;
+
+        // when
+        var exact = new DesaturatingLchBasedGamutMapper<OkLCh, OkLAB>(
+                new RgbImage(raster), params, toneMapper, DesaturatingLchBasedGamutMapper.Analysis.EXACT
+        );
+        var subsampled = new DesaturatingLchBasedGamutMapper<OkLCh, OkLAB>(
+                new RgbImage(raster), params, toneMapper, DesaturatingLchBasedGamutMapper.Analysis.SUBSAMPLED
+        );
+
+        // then
+        assertThat(exact.cDivisor()).isGreaterThan(1);
+        assertThat(subsampled.cDivisor()).isCloseTo(exact.cDivisor(), within(exact.cDivisor() * 1E-6));
+    }
+
+    @Test
+    void subsampledAnalysis_mapsLikeExact() {
+        // given
+        var params = GamutBoundarySearchParams.FOR_OKLAB;
+        var exactImage = new RgbImage(raster);
+        var subsampledImage = new RgbImage(raster);
+        var exact = new DesaturatingLchBasedGamutMapper<OkLCh, OkLAB>(
+                exactImage, params, toneMapper, DesaturatingLchBasedGamutMapper.Analysis.EXACT
+        );
+        var subsampled = new DesaturatingLchBasedGamutMapper<OkLCh, OkLAB>(
+                subsampledImage, params, toneMapper, DesaturatingLchBasedGamutMapper.Analysis.SUBSAMPLED
+        );
+
+        // when
+        exact.mapToSrgb(exactImage);
+        subsampled.mapToSrgb(subsampledImage);
+
+        // then
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int column = 0; column < WIDTH; column++) {
+                assertThat(subsampledImage.red(row, column)).isCloseTo(exactImage.red(row, column), within(1E-5));
+                assertThat(subsampledImage.green(row, column)).isCloseTo(exactImage.green(row, column), within(1E-5));
+                assertThat(subsampledImage.blue(row, column)).isCloseTo(exactImage.blue(row, column), within(1E-5));
+            }
+        }
+    }
+
+    @Test
+    void subsampledAnalysis_mapsLikeExact_withACurveToneMapper() {
+        // given: the curve changes every pixel before the gamut mapping
+        var params = GamutBoundarySearchParams.FOR_OKLAB;
+        var curveToneMapper = SimpleCurveBasedToneMapper.forOkLab(0.8);
+        var exactImage = new RgbImage(raster);
+        var subsampledImage = new RgbImage(raster);
+        var exact = new DesaturatingLchBasedGamutMapper<OkLCh, OkLAB>(
+                exactImage, params, curveToneMapper, DesaturatingLchBasedGamutMapper.Analysis.EXACT
+        );
+        var subsampled = new DesaturatingLchBasedGamutMapper<OkLCh, OkLAB>(
+                subsampledImage, params, curveToneMapper, DesaturatingLchBasedGamutMapper.Analysis.SUBSAMPLED
+        );
+
+        // when
+        exact.mapToSrgb(exactImage);
+        subsampled.mapToSrgb(subsampledImage);
+
+        // then
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int column = 0; column < WIDTH; column++) {
+                assertThat(subsampledImage.red(row, column)).isCloseTo(exactImage.red(row, column), within(1E-5));
+                assertThat(subsampledImage.green(row, column)).isCloseTo(exactImage.green(row, column), within(1E-5));
+                assertThat(subsampledImage.blue(row, column)).isCloseTo(exactImage.blue(row, column), within(1E-5));
+            }
+        }
+    }
+
+    @Test
+    void chromaRatio_isKeyedOnTheSearchParams_notOnTheSolverInstance() {
+        // given
+        var params = GamutBoundarySearchParams.FOR_OKLAB;
+        var linearSearchParams = params.withSearchProfile(ChromaSearchProfile.linear(0.001, 1E-8));
+        var context = ProcessingContext.sequential();
+
+        // when
+        var ratio = new DesaturatingLchBasedGamutMapper.ChromaRatio(params, new GamutBoundaryMaxCSolver<>(params, 10, context));
+        var sameParams = new DesaturatingLchBasedGamutMapper.ChromaRatio(params, new GamutBoundaryMaxCSolver<>(params, 10, context));
+        var otherParams = new DesaturatingLchBasedGamutMapper.ChromaRatio(
+                linearSearchParams, new GamutBoundaryMaxCSolver<>(linearSearchParams, 10, context)
+        );
+
+        // then
+        assertThat(sameParams).isEqualTo(ratio).hasSameHashCodeAs(ratio);
+        assertThat(otherParams).isNotEqualTo(ratio);
+    }
+
+    @Test
+    void rowsNotFromTheAnalysedImage_areMappedLikeImageRows() {
+        // given
+        var image = new RgbImage(raster);
+        // maps all of the lattice into the range of the gamut mapping
+        var curveToneMapper = SimpleCurveBasedToneMapper.forOkLab(0.8);
+        var mapper = new DesaturatingLchBasedGamutMapper<OkLCh, OkLAB>(
+                image, GamutBoundarySearchParams.FOR_OKLAB, curveToneMapper, DesaturatingLchBasedGamutMapper.Analysis.SUBSAMPLED
+        );
+        var transformer = mapper.rowTransformer();
+        double[] pixel = {image.red(3, 5), image.green(3, 5), image.blue(3, 5)};
+        double[] detached = new double[3];
+
+        // when: a lattice of 33^3 has more rows than the image
+        var lut = Lut3D.bake(mapper, Lut3D.SIZE_33, LutShaper.SCENE_LINEAR, ProcessingContext.common());
+        transformer.transformRow(3, pixel, detached);
+
+        // then
+        assertThat(lut.size()).isEqualTo(Lut3D.SIZE_33);
+        mapper.mapToSrgb(image);
+        assertThat(detached[0]).isCloseTo(image.red(3, 5), within(1E-5));
+        assertThat(detached[1]).isCloseTo(image.green(3, 5), within(1E-5));
+        assertThat(detached[2]).isCloseTo(image.blue(3, 5), within(1E-5));
+    }
+
+    @Test
+    void reducedCInADentOfTheBoundary_isMovedIntoGamut() {
+        // given: along C, red dips below 0 in [0.1275, 0.1385], then stays in gamut until max C, about 0.1439
+        var mapper = new DesaturatingLchBasedGamutMapper<OkLCh, OkLAB>(1.15, GamutBoundarySearchParams.FOR_OKLAB, toneMapper);
+        double[] rec2020 = DentOfTheBoundary.rec2020Row(0.15);
+        double[] mapped = new double[rec2020.length];
+
+        // when: C is reduced to about 0.1304
+        mapper.rowTransformer().transformRow(0, rec2020, mapped);
+
+        // then
+        for (double component : mapped) {
+            assertThat(component).isBetween(0.0, 1.0);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package kofa.colours.gamutmapper;
+
+import kofa.colours.model.CIELCh_ab;
+import kofa.colours.model.LCh;
+import kofa.colours.model.OkLCh;
+import kofa.parallel.ProcessingContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Named.named;
+
+class GamutBoundaryMaxCSolverTest {
+    private final Random random = new Random(42);
+
+    @ParameterizedTest
+    @MethodSource("searchParams")
+    void lut_isConservativeAndInGamut(GamutBoundarySearchParams<?> params) {
+        // given
+        double white = params.maxL();
+        var exact = new GamutBoundaryMaxCSolver<>(params, Integer.MAX_VALUE, ProcessingContext.common());
+        var interpolating = new GamutBoundaryMaxCSolver<>(params.withMaxCLut(50, 90), Integer.MAX_VALUE, ProcessingContext.common());
+
+        // when
+        double sumOfDifferences = 0;
+        int samples = 2000;
+        for (int i = 0; i < samples; i++) {
+            double l = white * (0.01 + 0.98 * random.nextDouble());
+            double h = 2 * Math.PI * random.nextDouble() - Math.PI;
+            double exactMaxC = exact.maxCFor(l, h);
+            double interpolatedMaxC = interpolating.maxCFor(l, h);
+
+            // then
+            assertThat(isInGamut(params, l, interpolatedMaxC, h)).isTrue();
+            // the exact solution stops within a tolerance of the boundary, the interpolated one may be a bit closer
+            assertThat(interpolatedMaxC).isBetween(0.0, exactMaxC * (1 + 1E-3));
+            sumOfDifferences += exactMaxC - interpolatedMaxC;
+        }
+        assertThat(sumOfDifferences / samples).isLessThan(white * 0.005);
+    }
+
+    @ParameterizedTest
+    @MethodSource("searchParams")
+    void gallopingSearch_matchesLinearSearch(GamutBoundarySearchParams<?> galloping) {
+        // given
+        double white = galloping.maxL();
+        double tolerance = galloping.searchProfile().tolerance();
+        var linear = galloping.withSearchProfile(ChromaSearchProfile.linear(white / 100, tolerance));
+        var gallopingSolver = new GamutBoundaryMaxCSolver<>(galloping, 0, ProcessingContext.common());
+        var linearSolver = new GamutBoundaryMaxCSolver<>(linear, 0, ProcessingContext.common());
+
+        for (int i = 0; i < 2000; i++) {
+            double l = white * (0.01 + 0.98 * random.nextDouble());
+            double h = 2 * Math.PI * random.nextDouble() - Math.PI;
+
+            // when
+            double gallopingMaxC = gallopingSolver.maxCFor(l, h);
+
+            // then
+            assertThat(gallopingMaxC).isCloseTo(linearSolver.maxCFor(l, h), within(10 * tolerance));
+            assertThat(isInGamut(galloping, l, gallopingMaxC, h)).isTrue();
+        }
+    }
+
+    @Test
+    void batch_matchesSingleQueries() {
+        // given
+        var params = GamutBoundarySearchParams.FOR_OKLAB;
+        var batchSolver = new GamutBoundaryMaxCSolver<>(params, 0, ProcessingContext.common());
+        var singleSolver = new GamutBoundaryMaxCSolver<>(params, 0, ProcessingContext.common());
+        int count = 1000;
+        double[] l = new double[count + 1];
+        double[] h = new double[count + 1];
+        double[] maxC = new double[count + 1];
+        // like a row of an image: runs of similar colours, with jumps between them
+        double rowL = 0.5;
+        double rowH = 0;
+        for (int i = 0; i < count; i++) {
+            if (i % 50 == 0) {
+                rowL = 0.01 + 0.98 * random.nextDouble();
+                rowH = 2 * Math.PI * random.nextDouble() - Math.PI;
+            }
+            l[i] = Math.min(0.99, Math.max(0.01, rowL + 0.01 * random.nextGaussian()));
+            h[i] = rowH + 0.05 * random.nextGaussian();
+        }
+        maxC[count] = -1;
+
+        // when
+        batchSolver.maxCFor(l, h, maxC, count);
+
+        // then
+        for (int i = 0; i < count; i++) {
+            assertThat(maxC[i]).isCloseTo(singleSolver.maxCFor(l[i], h[i]), within(1E-7));
+            assertThat(params.lchToSrgb().apply(new OkLCh(l[i], maxC[i], h[i])).isOutOfGamut()).isFalse();
+        }
+        assertThat(maxC[count]).isEqualTo(-1);
+    }
+
+    @Test
+    void lut_isStoredAndReused(@TempDir Path atlasDirectory) {
+        // given
+        var params = GamutBoundarySearchParams.FOR_OKLAB.withMaxCLut(10, 36);
+        var computed = new GamutBoundaryMaxCSolver<>(params, Integer.MAX_VALUE, ProcessingContext.common(), atlasDirectory);
+
+        // when
+        var loaded = new GamutBoundaryMaxCSolver<>(params, Integer.MAX_VALUE, ProcessingContext.common(), atlasDirectory);
+
+        // then
+        assertThat(atlasDirectory).isNotEmptyDirectory();
+        for (int i = 0; i < 100; i++) {
+            double l = random.nextDouble();
+            double h = 2 * Math.PI * random.nextDouble() - Math.PI;
+            assertThat(loaded.maxCFor(l, h)).isEqualTo(computed.maxCFor(l, h));
+        }
+    }
+
+    @Test
+    void lut_blackAndWhiteHaveNoChroma() {
+        // given
+        var params = GamutBoundarySearchParams.FOR_CIELAB.withMaxCLut(10, 36);
+        var solver = new GamutBoundaryMaxCSolver<>(params, Integer.MAX_VALUE, ProcessingContext.common());
+
+        // when / then
+        assertThat(solver.maxCFor(0, 1)).isZero();
+        assertThat(solver.maxCFor(CIELCh_ab.WHITE_L, 1)).isZero();
+    }
+
+    // white is at L = 100 in CIELAB, and at 1 in OkLCh; the tests scale their L ranges, steps and tolerances with it
+    private static Stream<Arguments> searchParams() {
+        return Stream.of(
+                Arguments.of(named("CIELAB", GamutBoundarySearchParams.FOR_CIELAB)),
+                Arguments.of(named("OkLCh", GamutBoundarySearchParams.FOR_OKLAB))
+        );
+    }
+
+    private static <L extends LCh<L, ?>> boolean isInGamut(GamutBoundarySearchParams<L> params, double l, double c, double h) {
+        return !params.lchToSrgb().apply(params.lchConstructor().createFrom(l, c, h)).isOutOfGamut();
+    }
+}
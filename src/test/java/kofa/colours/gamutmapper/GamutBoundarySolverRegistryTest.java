@@ -0,0 +1,102 @@
+package kofa.colours.gamutmapper;
+
+import kofa.colours.model.CIELCh_ab;
+import kofa.parallel.ProcessingContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GamutBoundarySolverRegistryTest {
+    private final ProcessingContext context = ProcessingContext.common();
+
+    @Test
+    void sameParams_shareSolver() {
+        // given
+        var registry = new GamutBoundarySolverRegistry(4, 100);
+
+        // when
+        var first = registry.solverFor(GamutBoundarySearchParams.FOR_CIELAB, context);
+        var second = registry.solverFor(GamutBoundarySearchParams.FOR_CIELAB, context);
+        var other = registry.solverFor(GamutBoundarySearchParams.FOR_OKLAB, context);
+
+        // then
+        assertThat(second).isSameAs(first);
+        assertThat(other).isNotSameAs(first);
+        assertThat(registry.hits()).isEqualTo(1);
+        assertThat(registry.misses()).isEqualTo(2);
+        assertThat(registry.size()).isEqualTo(2);
+    }
+
+    @Test
+    void leastRecentlyUsed_isEvicted() {
+        // given
+        var registry = new GamutBoundarySolverRegistry(2, 100);
+        var cielab = registry.solverFor(GamutBoundarySearchParams.FOR_CIELAB, context);
+        var cieluv = registry.solverFor(GamutBoundarySearchParams.FOR_CIELUV, context);
+        registry.solverFor(GamutBoundarySearchParams.FOR_CIELAB, context);
+
+        // when
+        registry.solverFor(GamutBoundarySearchParams.FOR_OKLAB, context);
+
+        // then
+        assertThat(registry.size()).isEqualTo(2);
+        assertThat(registry.solverFor(GamutBoundarySearchParams.FOR_CIELAB, context)).isSameAs(cielab);
+        assertThat(registry.solverFor(GamutBoundarySearchParams.FOR_CIELUV, context)).isNotSameAs(cieluv);
+    }
+
+    @Test
+    void clear_dropsSolvers() {
+        // given
+        var registry = new GamutBoundarySolverRegistry(4, 100);
+        var solver = registry.solverFor(GamutBoundarySearchParams.FOR_CIELAB, context);
+
+        // when
+        registry.clear();
+
+        // then
+        assertThat(registry.size()).isZero();
+        assertThat(registry.solverFor(GamutBoundarySearchParams.FOR_CIELAB, context)).isNotSameAs(solver);
+    }
+
+    @Test
+    void solverCache_isBounded() {
+        // given
+        var registry = new GamutBoundarySolverRegistry(1, 2);
+        var solver = registry.solverFor(GamutBoundarySearchParams.FOR_CIELAB, context);
+        double[] hues = {-2, -1, 0, 1};
+
+        // when
+        for (double h : hues) {
+            solver.maxCFor(new CIELCh_ab(50, 0, h));
+        }
+        for (double h : hues) {
+            solver.maxCFor(new CIELCh_ab(50, 0, h));
+        }
+
+        // then: only the first two solutions were cached
+        assertThat(solver.cacheMisses()).isEqualTo(6);
+        assertThat(solver.cacheHits()).isEqualTo(2);
+    }
+
+    @Test
+    void solverCache_isBounded_whenFilledConcurrently() {
+        // given
+        int maxCachedSolutions = 10;
+        var registry = new GamutBoundarySolverRegistry(1, maxCachedSolutions);
+        var solver = registry.solverFor(GamutBoundarySearchParams.FOR_CIELAB, context);
+
+        // when: each query is a miss, so all threads try to cache their solutions while the cache is filling up
+        try (var pool = new ForkJoinPool(8)) {
+            pool.submit(() -> IntStream.range(0, 400).parallel().forEach(
+                    i -> solver.maxCFor(new CIELCh_ab(10 + i / 10.0, 0, i / 100.0))
+            )).join();
+        }
+
+        // then
+        assertThat(solver.cacheMisses()).isEqualTo(400);
+        assertThat(solver.cachedSolutionCount()).isEqualTo(maxCachedSolutions);
+    }
+}
@@ -1,9 +1,12 @@
 package kofa.colours.gamutmapper;
 
+import kofa.colours.model.OkLAB;
 import kofa.colours.model.OkLCh;
 import kofa.colours.model.Srgb;
+import kofa.colours.tonemapper.ToneMapper;
 import kofa.maths.PrimitiveDoubleToDoubleFunction;
 import kofa.maths.Solver;
+import kofa.parallel.ProcessingContext;
 import org.assertj.core.api.Assertions;
 import org.assertj.core.data.Offset;
 import org.junit.jupiter.api.Test;
@@ -17,6 +20,27 @@ class GradualChromaDampeningLchBasedGamutMapperForOkLabTest {
                 .hasValueSatisfying(value -> Assertions.assertThat(value).isCloseTo(0, Offset.offset(1E-3)));
     }
 
+    @Test
+    void dampenedCInADentOfTheBoundary_isMovedIntoGamut() {
+        // given
+        ToneMapper<OkLAB> unchanged = () -> (row, in, out) -> System.arraycopy(in, 0, out, 0, in.length);
+        var params = GamutBoundarySearchParams.FOR_OKLAB;
+        var mapper = new GradualChromaDampeningLchBasedGamutMapper<>(
+                0.7, params, GamutBoundarySolverRegistry.shared().solverFor(params, ProcessingContext.common()), unchanged
+        );
+        // dampened to between 0.1275 and 0.1385
+        double[] rec2020 = DentOfTheBoundary.rec2020Row(0.148, 0.16, 0.176);
+        double[] mapped = new double[rec2020.length];
+
+        // when
+        mapper.rowTransformer().transformRow(0, rec2020, mapped);
+
+        // then
+        for (double component : mapped) {
+            Assertions.assertThat(component).isBetween(0.0, 1.0);
+        }
+    }
+
     private static final double COMPONENT_MIN = 1E-12;
     private static final double COMPONENT_MAX = 1 - COMPONENT_MIN;
 
@@ -0,0 +1,42 @@
+package kofa.colours.gamutmapper;
+
+import kofa.colours.model.OkLCh;
+import kofa.parallel.ProcessingContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OkLChMaxCSolverTest {
+    private final Random random = new Random(42);
+
+    @Test
+    void matchesBisection() {
+        // given
+        var params = GamutBoundarySearchParams.FOR_OKLAB;
+        var bisection = new GamutBoundaryMaxCSolver<>(params, 0, ProcessingContext.common());
+        var analytic = OkLChMaxCSolver.INSTANCE;
+
+        for (int i = 0; i < 5000; i++) {
+            double l = 0.001 + 0.998 * random.nextDouble();
+            double h = 2 * Math.PI * random.nextDouble() - Math.PI;
+
+            // when
+            double analyticMaxC = analytic.maxCFor(l, h);
+
+            // then
+            assertThat(params.lchToSrgb().apply(new OkLCh(l, analyticMaxC, h)).isOutOfGamut()).isFalse();
+            assertThat(params.lchToSrgb().apply(new OkLCh(l, analyticMaxC * (1 + 1E-6), h)).isOutOfGamut()).isTrue();
+            // bisection stops early where a component only touches 0 or 1, and at very low L
+            assertThat(analyticMaxC).isGreaterThan(bisection.maxCFor(new OkLCh(l, 0, h)) - 1E-6);
+        }
+    }
+
+    @Test
+    void blackAndWhiteHaveNoChroma() {
+        // when / then
+        assertThat(OkLChMaxCSolver.INSTANCE.maxCFor(0, 1)).isZero();
+        assertThat(OkLChMaxCSolver.INSTANCE.maxCFor(OkLCh.WHITE_L, 1)).isZero();
+    }
+}
@@ -0,0 +1,95 @@
+package kofa.colours.lut;
+
+import kofa.parallel.ProcessingContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class CubeFileTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void writtenLut_isReadBack_withItsShaper() {
+        // given
+        var lut = Lut3D.bake(
+                (row, in, out) -> {
+                    for (int index = 0; index < in.length; index++) {
+                        out[index] = Math.sqrt(in[index] / 16);
+                    }
+                },
+                5, LutShaper.log2(1.0 / 256, 16), ProcessingContext.common()
+        );
+        Path file = directory.resolve("test.cube");
+
+        // when
+        CubeFile.write(lut, "sqrt", file);
+        var read = CubeFile.read(file);
+
+        // then
+        assertThat(read.size()).isEqualTo(5);
+        assertThat(read.shaper()).isInstanceOfSatisfying(LutShaper.Log2.class, shaper -> {
+            assertThat(shaper.blackOffset()).isEqualTo(1.0 / 256);
+            assertThat(shaper.max()).isEqualTo(16);
+        });
+        double[] expected = new double[3];
+        double[] actual = new double[3];
+        for (double value : new double[]{0, 0.001, 0.18, 1, 5, 16}) {
+            lut.apply(value, value / 2, value / 4, expected, 0);
+            read.apply(value, value / 2, value / 4, actual, 0);
+            for (int component = 0; component < 3; component++) {
+                assertThat(actual[component]).isCloseTo(expected[component], within(1E-6));
+            }
+        }
+    }
+
+    @Test
+    void plainCubeFile_usesItsDomain() throws IOException {
+        // given: swaps red and blue, over [0, 2]
+        var content = new StringBuilder("""
+                # a comment
+                TITLE "swap"
+                LUT_3D_SIZE 2
+                DOMAIN_MIN 0 0 0
+                DOMAIN_MAX 2 2 2
+                """);
+        for (int blue = 0; blue < 2; blue++) {
+            for (int green = 0; green < 2; green++) {
+                for (int red = 0; red < 2; red++) {
+                    content.append("%d %d %d%n".formatted(2 * blue, 2 * green, 2 * red));
+                }
+            }
+        }
+        Path file = directory.resolve("swap.cube");
+        Files.writeString(file, content);
+
+        // when
+        var lut = CubeFile.read(file);
+
+        // then
+        double[] out = new double[3];
+        lut.apply(0.5, 1, 1.5, out, 0);
+        assertThat(out[0]).isCloseTo(1.5, within(1E-9));
+        assertThat(out[1]).isCloseTo(1, within(1E-9));
+        assertThat(out[2]).isCloseTo(0.5, within(1E-9));
+    }
+
+    @Test
+    void incompleteFile_isRejected() throws IOException {
+        // given
+        Path file = directory.resolve("incomplete.cube");
+        Files.writeString(file, "LUT_3D_SIZE 2\n0 0 0\n1 1 1\n");
+
+        // when / then
+        assertThatThrownBy(() -> CubeFile.read(file))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Expected 24 values");
+    }
+}
@@ -0,0 +1,145 @@
+package kofa.colours.lut;
+
+import kofa.colours.gamutmapper.GradualChromaDampeningLchBasedGamutMapper;
+import kofa.colours.gamutmapper.OkLChMaxCSolver;
+import kofa.colours.model.LchKernel;
+import kofa.colours.model.Srgb;
+import kofa.colours.tonemapper.SimpleCurveBasedToneMapper;
+import kofa.io.RgbImage;
+import kofa.parallel.ProcessingContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class Lut3DTest {
+    private final Random random = new Random(42);
+
+    @Test
+    void affineTransform_isReproducedBetweenTheNodes() {
+        // given
+        RgbImage.RowTransformer affine = (row, in, out) -> {
+            for (int index = 0; index < in.length; index += 3) {
+                out[index] = 0.5 * in[index] + 0.25 * in[index + 1] + 0.1;
+                out[index + 1] = 0.2 * in[index] - 0.3 * in[index + 2] + 0.4;
+                out[index + 2] = 0.1 * in[index] + 0.2 * in[index + 1] + 0.3 * in[index + 2];
+            }
+        };
+        var lut = Lut3D.bake(affine, 9, LutShaper.linear(-1, 2), ProcessingContext.common());
+
+        double[] exact = new double[3];
+        double[] interpolated = new double[3];
+        for (int i = 0; i < 1000; i++) {
+            double[] in = {3 * random.nextDouble() - 1, 3 * random.nextDouble() - 1, 3 * random.nextDouble() - 1};
+
+            // when
+            lut.apply(in[0], in[1], in[2], interpolated, 0);
+
+            // then
+            affine.transformRow(0, in, exact);
+            for (int component = 0; component < 3; component++) {
+                assertThat(interpolated[component]).isCloseTo(exact[component], within(1E-6));
+            }
+        }
+    }
+
+    @Test
+    void nodes_areTheTransformAtTheDecodedCoordinates() {
+        // given
+        var shaper = LutShaper.SCENE_LINEAR;
+
+        // when
+        var lut = Lut3D.bake((row, in, out) -> System.arraycopy(in, 0, out, 0, in.length), 5, shaper, ProcessingContext.common());
+
+        // then
+        assertThat(lut.node(0, 0, 0, 0)).isZero();
+        assertThat(lut.node(4, 1, 2, 0)).isCloseTo(16, within(1E-5));
+        assertThat(lut.node(4, 1, 2, 1)).isCloseTo((float) shaper.decode(0.25), within(1E-12));
+        assertThat(lut.node(4, 1, 2, 2)).isCloseTo((float) shaper.decode(0.5), within(1E-12));
+    }
+
+    @Test
+    void log2Shaper_roundTrips() {
+        // given
+        var shaper = LutShaper.log2(1.0 / 1024, 8);
+
+        for (double value : new double[]{0, 1.0 / 4096, 0.01, 0.18, 1, 7.9}) {
+            // when
+            double encoded = shaper.encode(value);
+
+            // then
+            assertThat(encoded).isBetween(0.0, 1.0);
+            assertThat(shaper.decode(encoded)).isCloseTo(value, within(1E-12 * (1 + value)));
+        }
+        assertThat(shaper.encode(-1)).isZero();
+        assertThat(shaper.encode(100)).isEqualTo(1);
+        // well above the offset, each stop takes the same range
+        assertThat(shaper.encode(2) - shaper.encode(1)).isCloseTo(shaper.encode(4) - shaper.encode(2), within(1E-3));
+    }
+
+    @Test
+    void errorReport_hasValueSemantics() {
+        // given
+        double[] worstInput = {0.1, 0.2, 0.3};
+        var report = new LutErrorReport(1, 0.01, 0.02, 0.03, worstInput);
+
+        // when
+        worstInput[0] = 1;
+        report.worstInput()[1] = 1;
+
+        // then
+        assertThat(report.worstInput()).containsExactly(0.1, 0.2, 0.3);
+        assertThat(report).isEqualTo(new LutErrorReport(1, 0.01, 0.02, 0.03, new double[]{0.1, 0.2, 0.3}));
+        assertThat(report).hasSameHashCodeAs(new LutErrorReport(1, 0.01, 0.02, 0.03, new double[]{0.1, 0.2, 0.3}));
+    }
+
+    @Test
+    void bakedGamutMapper_isCloseToTheExactChainOnAverage() {
+        // given
+        var mapper = GradualChromaDampeningLchBasedGamutMapper.forOkLch(0.7, SimpleCurveBasedToneMapper.forOkLab(0.8));
+        var context = ProcessingContext.common();
+        var lut = Lut3D.bake(mapper, Lut3D.SIZE_33, LutShaper.SCENE_LINEAR, context);
+
+        // when
+        var report = lut.measureError(mapper.rowTransformer(), 20_000, 42, context);
+
+        // then
+        assertThat(report.samples()).isEqualTo(20_000);
+        // measured: mean 0.0031, RMS 0.0115; the max (about 0.25) is not bounded here, see below
+        assertThat(report.meanError()).isLessThan(0.005);
+        assertThat(report.rmsError()).isLessThan(0.02);
+    }
+
+    @Test
+    void bakedGamutMapper_isWithinAFew8BitSteps_awayFromTheGamutBoundary() {
+        // given
+        var mapper = GradualChromaDampeningLchBasedGamutMapper.forOkLch(0.7, SimpleCurveBasedToneMapper.forOkLab(0.8));
+        var lut = Lut3D.bake(mapper, Lut3D.SIZE_33, LutShaper.SCENE_LINEAR, ProcessingContext.common());
+        var transform = mapper.rowTransformer();
+        double[] in = new double[3];
+        double[] exact = new double[3];
+        double[] interpolated = new double[3];
+        for (int i = 0; i < 10_000; i++) {
+            // sRGB colours with L up to the shoulder of the tone curve (0.8), and C up to half of max C (the dampening
+            // starts at 0.7): where the mapper dampens C, max C has kinks at the cusps of the boundary, which a
+            // lattice cannot follow (errors up to 0.25); above L 0.8, the errors grow to 6 steps
+            double l = 0.05 + 0.75 * random.nextDouble();
+            double h = 2 * Math.PI * random.nextDouble();
+            double c = 0.5 * random.nextDouble() * OkLChMaxCSolver.INSTANCE.maxCFor(l, h);
+            LchKernel.FOR_OKLAB.toSrgb(l, c, h, in, 0);
+            Srgb.TO_REC2020.multiply(in, 0, in, 0);
+
+            // when
+            lut.apply(in[0], in[1], in[2], interpolated, 0);
+
+            // then
+            // measured: at most 2.7 steps
+            transform.transformRow(0, in, exact);
+            for (int component = 0; component < 3; component++) {
+                assertThat(interpolated[component]).isCloseTo(exact[component], within(3.0 / 255));
+            }
+        }
+    }
+}
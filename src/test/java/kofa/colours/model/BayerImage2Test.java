@@ -1,10 +1,14 @@
 package kofa.colours.model;
 
+import kofa.parallel.TileScheduler;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.WritableRaster;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -85,6 +89,83 @@ class BayerImage2Test {
         assertBorders(rgb);
     }
 
+    @ParameterizedTest
+    @EnumSource(CFA.class)
+    void bilinearDemosaic_keepsNativeSamples(CFA cfa) {
+        // given
+        var bayerImage = new BayerImage2(raster, cfa, 1, 1);
+        float[] prepared = bayerImage.toRGB();
+
+        // when
+        float[] rgb = bayerImage.bilinearDemosaic(TileScheduler.sequential());
+
+        // then
+        // each pixel holds a single non-zero sample after toRGB, which must survive the interpolation
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int offset = contentPixelOffset(x, y);
+                for (int component = 0; component < 3; component++) {
+                    if (prepared[offset + component] != 0) {
+                        assertThat(rgb[offset + component])
+                                .describedAs("[%d,%d][%d]", x, y, component)
+                                .isEqualTo(prepared[offset + component]);
+                    }
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(CFA.class)
+    void bilinearDemosaic_uniformColour(CFA cfa) {
+        // given
+        // every red sample is 10, every green one is 20, every blue one is 30
+        boolean redOnEvenColumns = cfa == CFA.RGGB;
+        short[] mosaic = new short[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                boolean evenRow = y % 2 == 0;
+                boolean redColumn = (x % 2 == 0) == redOnEvenColumns;
+                mosaic[y * WIDTH + x] = (short) (evenRow ? (redColumn ? 10 : 20) : (redColumn ? 20 : 30));
+            }
+        }
+        raster.setDataElements(0, 0, WIDTH, HEIGHT, mosaic);
+        var bayerImage = new BayerImage2(raster, cfa, 1, 1);
+
+        // when
+        float[] rgb;
+        try (var pool = new ForkJoinPool(2)) {
+            rgb = bayerImage.bilinearDemosaic(new TileScheduler(pool, 1, 1, 0));
+        }
+
+        // then
+        // the rows at the top and the bottom edge are interpolated from the padding, which repeats the wrong rows
+        for (int y = 1; y < HEIGHT - 1; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int offset = contentPixelOffset(x, y);
+                assertThat(rgb[offset]).describedAs("[%d,%d].r", x, y).isEqualTo(10);
+                assertThat(rgb[offset + 1]).describedAs("[%d,%d].g", x, y).isEqualTo(20);
+                assertThat(rgb[offset + 2]).describedAs("[%d,%d].b", x, y).isEqualTo(30);
+            }
+        }
+    }
+
+    @Test
+    void bilinearDemosaic_tiledMatchesSequential() {
+        // given
+        var bayerImage = new BayerImage2(raster, CFA.GRBG, 1, 1);
+
+        // when
+        float[] sequential = bayerImage.bilinearDemosaic(TileScheduler.sequential());
+        float[] tiled;
+        try (var pool = new ForkJoinPool(3)) {
+            tiled = bayerImage.bilinearDemosaic(new TileScheduler(pool, 1, 1, 0));
+        }
+
+        // then
+        assertThat(tiled).isEqualTo(sequential);
+    }
+
     private void assertBorders(float[] rgb) {
         // some arbitrary pixels in the border must match the source image pixels
 
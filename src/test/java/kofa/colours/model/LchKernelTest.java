@@ -0,0 +1,147 @@
+package kofa.colours.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.function.Function;
+
+import static java.lang.Math.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LchKernelTest {
+    private static final int SAMPLES = 10_000;
+    private static final double TOLERANCE = 1E-9;
+
+    private final Random random = new Random(42);
+
+    @Test
+    void fromSrgb_matchesModel_CIELAB() {
+        assertFromSrgbMatches(
+                LchKernel.FOR_CIELAB,
+                sRgb -> CIELAB.from(sRgb.toXyz()).usingD65_2DEGREE_STANDARD_OBSERVER().toLch()
+        );
+    }
+
+    @Test
+    void fromSrgb_matchesModel_CIELUV() {
+        assertFromSrgbMatches(
+                LchKernel.FOR_CIELUV,
+                sRgb -> CIELUV.from(sRgb.toXyz()).usingD65_2DEGREE_STANDARD_OBSERVER().toLch()
+        );
+    }
+
+    @Test
+    void fromSrgb_matchesModel_OkLAB() {
+        assertFromSrgbMatches(
+                LchKernel.FOR_OKLAB,
+                sRgb -> OkLAB.from(sRgb.toXyz()).usingD65_2DEGREE_STANDARD_OBSERVER().toLch()
+        );
+    }
+
+    @Test
+    void toSrgb_matchesModel_CIELAB() {
+        assertToSrgbMatches(
+                LchKernel.FOR_CIELAB,
+                100, 150,
+                lch -> Srgb.from(new CIELCh_ab(lch[0], lch[1], lch[2]).toLab().toXyz().usingD65_2DEGREE_STANDARD_OBSERVER())
+        );
+    }
+
+    @Test
+    void toSrgb_matchesModel_CIELUV() {
+        assertToSrgbMatches(
+                LchKernel.FOR_CIELUV,
+                100, 200,
+                lch -> Srgb.from(new CIELCh_uv(lch[0], lch[1], lch[2]).toLuv().toXyz().usingD65_2DEGREE_STANDARD_OBSERVER())
+        );
+    }
+
+    @Test
+    void toSrgb_matchesModel_OkLAB() {
+        assertToSrgbMatches(
+                LchKernel.FOR_OKLAB,
+                1, 0.4,
+                lch -> Srgb.from(new OkLCh(lch[0], lch[1], lch[2]).toLab().toXyz().usingD65_2DEGREE_STANDARD_OBSERVER())
+        );
+    }
+
+    @Test
+    void black() {
+        // given
+        double[] lch = new double[3];
+        double[] rgb = new double[3];
+
+        for (LchKernel kernel : new LchKernel[]{LchKernel.FOR_CIELAB, LchKernel.FOR_CIELUV, LchKernel.FOR_OKLAB}) {
+            // when
+            kernel.fromSrgb(0, 0, 0, lch, 0);
+            kernel.toSrgb(0, 0, 0, rgb, 0);
+
+            // then
+            assertThat(lch).containsExactly(0, 0, 0);
+            assertThat(rgb).containsExactly(0, 0, 0);
+        }
+    }
+
+    @Test
+    void toSrgbInGamut_reducesCInADentOfTheBoundary() {
+        // given: along C, red dips below 0 in [0.1275, 0.1385], then stays in gamut until max C, about 0.1439
+        double l = 0.2079039097;
+        double h = 4.6106538522;
+        double[] rgb = new double[3];
+        assertThat(LchKernel.FOR_OKLAB.isOutOfGamut(l, 0.13, h, rgb)).isTrue();
+        assertThat(LchKernel.FOR_OKLAB.isOutOfGamut(l, 0.14, h, rgb)).isFalse();
+
+        // when
+        double c = LchKernel.FOR_OKLAB.toSrgbInGamut(l, 0.13, h, rgb, 0);
+
+        // then
+        assertThat(c).isBetween(0.12, 0.13);
+        for (double component : rgb) {
+            assertThat(component).isBetween(0.0, 1.0);
+        }
+        assertThat(LchKernel.FOR_OKLAB.toSrgbInGamut(l, 0.14, h, rgb, 0)).isEqualTo(0.14);
+    }
+
+    private void assertFromSrgbMatches(LchKernel kernel, Function<Srgb, LCh<?, ?>> modelConversion) {
+        double[] lch = new double[4];
+        for (int i = 0; i < SAMPLES; i++) {
+            // given: including out-of-gamut colours
+            var sRgb = new Srgb(randomComponent(), randomComponent(), randomComponent());
+            LCh<?, ?> expected = modelConversion.apply(sRgb);
+
+            // when
+            kernel.fromSrgb(sRgb.r(), sRgb.g(), sRgb.b(), lch, 1);
+
+            // then
+            assertThat(lch[1]).isCloseTo(expected.L(), within(TOLERANCE * max(1, abs(expected.L()))));
+            assertThat(lch[2]).isCloseTo(expected.C(), within(TOLERANCE * max(1, expected.C())));
+            // h is undefined for grey, so compare the Cartesian coordinates
+            assertThat(lch[2] * cos(lch[3])).isCloseTo(expected.C() * cos(expected.h()), within(TOLERANCE * max(1, expected.C())));
+            assertThat(lch[2] * sin(lch[3])).isCloseTo(expected.C() * sin(expected.h()), within(TOLERANCE * max(1, expected.C())));
+            assertThat(lch[3]).isBetween(0.0, 2 * PI);
+        }
+    }
+
+    private void assertToSrgbMatches(LchKernel kernel, double maxL, double maxC, Function<double[], Srgb> modelConversion) {
+        double[] rgb = new double[3];
+        for (int i = 0; i < SAMPLES; i++) {
+            // given
+            double[] lch = {maxL * random.nextDouble(), maxC * random.nextDouble(), 2 * PI * random.nextDouble()};
+            Srgb expected = modelConversion.apply(lch);
+
+            // when
+            kernel.toSrgb(lch[0], lch[1], lch[2], rgb, 0);
+
+            // then
+            assertThat(rgb[0]).isCloseTo(expected.r(), within(TOLERANCE * max(1, abs(expected.r()))));
+            assertThat(rgb[1]).isCloseTo(expected.g(), within(TOLERANCE * max(1, abs(expected.g()))));
+            assertThat(rgb[2]).isCloseTo(expected.b(), within(TOLERANCE * max(1, abs(expected.b()))));
+            assertThat(kernel.isOutOfGamut(lch[0], lch[1], lch[2], rgb)).isEqualTo(expected.isOutOfGamut());
+        }
+    }
+
+    private double randomComponent() {
+        return 1.5 * random.nextDouble() - 0.25;
+    }
+}
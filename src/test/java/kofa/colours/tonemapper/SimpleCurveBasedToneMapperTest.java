@@ -0,0 +1,78 @@
+package kofa.colours.tonemapper;
+
+import kofa.io.PixelMetric;
+import kofa.io.RgbImage;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.Point;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Named.named;
+
+class SimpleCurveBasedToneMapperTest {
+    private static final int WIDTH = 4;
+    private static final int HEIGHT = 3;
+    // the brightest grey of the image, twice diffuse white
+    private static final double BRIGHTEST = 2;
+
+    @ParameterizedTest
+    @MethodSource("params")
+    void brightestPixel_isMappedJustBelowWhite(ToneMappingParams<?> params) {
+        // given
+        var image = greys();
+        var brightness = params.brightness();
+        double[] scratch = new double[PixelMetric.SCRATCH_LENGTH];
+        double[] brightest = {BRIGHTEST, BRIGHTEST, BRIGHTEST};
+        assertThat(brightness.valueOf(BRIGHTEST, BRIGHTEST, BRIGHTEST, scratch)).isGreaterThan(params.brightnessScaling());
+
+        // when
+        var toneMapper = new SimpleCurveBasedToneMapper<>(image, params);
+        double[] mapped = new double[3];
+        toneMapper.rowTransformer().transformRow(0, brightest, mapped);
+
+        // then
+        double white = params.brightnessScaling();
+        assertThat(brightness.valueOf(mapped[0], mapped[1], mapped[2], scratch))
+                .isCloseTo(0.9999 * white, within(0.00005 * white));
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {Double.NaN, Double.POSITIVE_INFINITY})
+    void nonFiniteMaxBrightness_getsTheMinimumShoulder(double maxBrightness) {
+        assertThat(SimpleCurveBasedToneMapper.shoulderStartFor(maxBrightness, 100)).isEqualTo(0.5);
+    }
+
+    private static Stream<Arguments> params() {
+        return Stream.of(
+                Arguments.of(named("CIELAB", ToneMappingParams.FOR_CIELAB)),
+                Arguments.of(named("CIELUV", ToneMappingParams.FOR_CIELUV)),
+                Arguments.of(named("OkLab", ToneMappingParams.FOR_OKLAB))
+        );
+    }
+
+    // neutral greys from black to the brightest
+    private static RgbImage greys() {
+        WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, WIDTH, HEIGHT, 3, new Point());
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int column = 0; column < WIDTH; column++) {
+                int value = (row * WIDTH + column) * 65535 / (WIDTH * HEIGHT - 1);
+                raster.setPixel(column, row, new int[]{value, value, value});
+            }
+        }
+        var image = new RgbImage(raster);
+        image.transformAllRows((row, in, out) -> {
+            for (int index = 0; index < in.length; index++) {
+                out[index] = in[index] * BRIGHTEST;
+            }
+        });
+        return image;
+    }
+}
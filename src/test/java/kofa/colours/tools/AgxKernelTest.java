@@ -0,0 +1,54 @@
+package kofa.colours.tools;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class AgxKernelTest {
+    // not a multiple of the vector length, to exercise the scalar tail
+    private static final int PIXELS = 10_003;
+    private static final double TOLERANCE = 1E-9;
+
+    private final Random random = new Random(42);
+
+    @ParameterizedTest
+    @EnumSource(AgxToneMapper.Look.class)
+    void scalarKernel_matchesPerPixelAgx(AgxToneMapper.Look look) {
+        assertMatchesPerPixelAgx(AgxKernel.scalar(look), look);
+    }
+
+    @ParameterizedTest
+    @EnumSource(AgxToneMapper.Look.class)
+    void vectorisedKernel_matchesPerPixelAgx(AgxToneMapper.Look look) {
+        assertMatchesPerPixelAgx(new VectorAgxKernel(look), look);
+    }
+
+    private void assertMatchesPerPixelAgx(AgxKernel kernel, AgxToneMapper.Look look) {
+        // given: from black to well above the 4 stops of headroom, and slightly negative values
+        double[] in = new double[3 * PIXELS];
+        for (int index = 0; index < in.length; index++) {
+            in[index] = random.nextInt(100) == 0 ? 0 : Math.pow(2, 22 * random.nextDouble() - 16) - 1E-4;
+        }
+        double[] out = new double[in.length];
+
+        // when
+        kernel.rowTransformer().transformRow(0, in, out);
+
+        // then
+        for (int index = 0; index < in.length; index += 3) {
+            double[] expected = AgxToneMapper.agx(in[index], in[index + 1], in[index + 2], look);
+            for (int component = 0; component < 3; component++) {
+                if (Double.isNaN(expected[component])) {
+                    // the looks take a power of the slightly negative sigmoid of black
+                    assertThat(out[index + component]).isNaN();
+                } else {
+                    assertThat(out[index + component]).isCloseTo(expected[component], within(TOLERANCE));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package kofa.colours.tools;
+
+import kofa.maths.ThanatomanicCurve6;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static kofa.colours.tools.CurveSolver.findOptimalShoulderStart;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class CurveSolverTest {
+
+    @ParameterizedTest
+    @ValueSource(doubles = {0, 0.5, 1})
+    void valuesUpToOne_needNoCompression(double maxValue) {
+        assertThat(findOptimalShoulderStart(maxValue)).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {1.001, 1.05, 1.2})
+    void shoulder_mapsTheMaxValueToTheMappedMaxValue(double maxValue) {
+        // when
+        double shoulderStart = findOptimalShoulderStart(maxValue);
+
+        // then
+        assertThat(shoulderStart).isBetween(CurveSolver.MIN_SHOULDER_START, 1.0);
+        assertThat(ThanatomanicCurve6.linearUntil(shoulderStart).mappedValueOf(maxValue))
+                .isCloseTo(CurveSolver.MAPPED_MAX_VALUE, within(1E-9));
+    }
+
+    @Test
+    void largeValues_getTheMinimumShoulder() {
+        // with the minimum shoulder, 3 is mapped to about 0.999997, already above the mapped max value
+        assertThat(findOptimalShoulderStart(3)).isEqualTo(CurveSolver.MIN_SHOULDER_START);
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {Double.NaN, Double.POSITIVE_INFINITY})
+    void nonFiniteValues_getTheMinimumShoulder(double maxValue) {
+        assertThat(findOptimalShoulderStart(maxValue)).isEqualTo(CurveSolver.MIN_SHOULDER_START);
+    }
+}
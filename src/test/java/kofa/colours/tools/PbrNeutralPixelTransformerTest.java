@@ -0,0 +1,48 @@
+package kofa.colours.tools;
+
+import kofa.colours.lut.Lut3D;
+import kofa.parallel.ProcessingContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PbrNeutralPixelTransformerTest {
+    @Test
+    void lut_isCloseToTheAnalyticTransform() {
+        // given
+        var context = ProcessingContext.common();
+        var coarse = PbrNeutralPixelTransformer.lut(Lut3D.SIZE_33, context);
+        var fine = PbrNeutralPixelTransformer.lut(Lut3D.SIZE_65, context);
+
+        // when
+        var coarseReport = coarse.measureError(new PbrNeutralPixelTransformer(), 20_000, 42, context);
+        var fineReport = fine.measureError(new PbrNeutralPixelTransformer(), 20_000, 42, context);
+
+        // then
+        // the largest errors are at saturated colours, where the desaturation towards white starts
+        assertThat(fineReport.rmsError()).isLessThan(0.002);
+        assertThat(fineReport.maxErrorIn8BitSteps()).isLessThan(5);
+        assertThat(coarseReport.rmsError()).isLessThan(0.006);
+        assertThat(fineReport.rmsError()).isLessThan(coarseReport.rmsError() / 2);
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {16, 20, 100, 1E6})
+    void lut_mapsNeutralValuesAboveItsMax_atMostALittleDarker(double value) {
+        // given
+        var lut = PbrNeutralPixelTransformer.lut(Lut3D.SIZE_65, ProcessingContext.common());
+        double[] exact = new double[3];
+        new PbrNeutralPixelTransformer().transformRow(0, new double[]{value, value, value}, exact);
+
+        // when
+        double[] fromLut = new double[3];
+        lut.apply(value, value, value, fromLut, 0);
+
+        // then
+        for (int component = 0; component < 3; component++) {
+            assertThat(fromLut[component]).isBetween(exact[component] * (1 - 0.004), exact[component] * (1 + 1E-6));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package kofa.colours.tools;
+
+import kofa.maths.SampledCurve;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class UchimuraToneMapperTest {
+    @Test
+    void sampledCurve_isWithinTheToleranceOfTheAnalyticCurve() {
+        // given
+        var sampled = UchimuraToneMapper.sampled();
+        var random = new Random(42);
+        double[] in = new double[100_000];
+        for (int index = 0; index < in.length; index++) {
+            // 20 stops, from deep shadows to well past the saturation point
+            in[index] = Math.pow(2, 20 * random.nextDouble() - 14);
+        }
+        double[] out = new double[in.length];
+
+        // when
+        sampled.mapAll(in, out);
+
+        // then
+        assertThat(sampled.maxError()).isLessThanOrEqualTo(SampledCurve.DEFAULT_TOLERANCE);
+        for (int index = 0; index < in.length; index++) {
+            assertThat(out[index]).isCloseTo(UchimuraToneMapper.toneMap(in[index]), within(2 * SampledCurve.DEFAULT_TOLERANCE));
+        }
+        assertThat(sampled.mappedValueOf(0)).isZero();
+        assertThat(sampled.mappedValueOf(-1)).isZero();
+        assertThat(sampled.mappedValueOf(100)).isEqualTo(UchimuraToneMapper.toneMap(100));
+    }
+}
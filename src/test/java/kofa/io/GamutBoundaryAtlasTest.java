@@ -0,0 +1,143 @@
+package kofa.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GamutBoundaryAtlasTest {
+    private static final String KEY = "test atlas";
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger computations = new AtomicInteger();
+
+    @Test
+    void computesOnce_thenMapsStoredValues() {
+        // given
+        var created = GamutBoundaryAtlas.loadOrCreate(directory, KEY, 3, 4, counting(table(3, 4)));
+
+        // when
+        var loaded = GamutBoundaryAtlas.loadOrCreate(directory, KEY, 3, 4, counting(table(3, 4)));
+
+        // then
+        assertThat(computations).hasValue(1);
+        assertThat(Files.exists(GamutBoundaryAtlas.fileFor(directory, KEY))).isTrue();
+        assertSameValues(loaded, table(3, 4).get());
+        assertSameValues(created, table(3, 4).get());
+    }
+
+    @Test
+    void differentKey_isComputedSeparately() {
+        // given
+        GamutBoundaryAtlas.loadOrCreate(directory, KEY, 3, 4, counting(table(3, 4)));
+
+        // when
+        var other = GamutBoundaryAtlas.loadOrCreate(directory, KEY + " 2", 3, 4, counting(table(3, 4)));
+
+        // then
+        assertThat(computations).hasValue(2);
+        assertThat(other.key()).isEqualTo(KEY + " 2");
+    }
+
+    @Test
+    void corruptFile_isRecomputed() throws IOException {
+        // given
+        GamutBoundaryAtlas.loadOrCreate(directory, KEY, 3, 4, counting(table(3, 4)));
+        Path file = GamutBoundaryAtlas.fileFor(directory, KEY);
+        try (var raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(raf.length() - 1);
+            raf.write(raf.read() ^ 0xFF);
+        }
+
+        // when
+        assertThat(GamutBoundaryAtlas.load(file, KEY, 3, 4)).isEmpty();
+        var recomputed = GamutBoundaryAtlas.loadOrCreate(directory, KEY, 3, 4, counting(table(3, 4)));
+
+        // then
+        assertThat(computations).hasValue(2);
+        assertSameValues(recomputed, table(3, 4).get());
+        assertThat(GamutBoundaryAtlas.load(file, KEY, 3, 4)).isPresent();
+    }
+
+    @Test
+    void valuesAreStoredLittleEndian() throws IOException {
+        // when
+        GamutBoundaryAtlas.loadOrCreate(directory, KEY, 3, 4, counting(table(3, 4)));
+
+        // then
+        byte[] bytes = Files.readAllBytes(GamutBoundaryAtlas.fileFor(directory, KEY));
+        double last = ByteBuffer.wrap(bytes, bytes.length - Double.BYTES, Double.BYTES).order(ByteOrder.LITTLE_ENDIAN).getDouble();
+        assertThat(last).isEqualTo(table(3, 4).get()[2][3]);
+    }
+
+    @Test
+    void truncatedFile_isNotLoaded() throws IOException {
+        // given
+        GamutBoundaryAtlas.loadOrCreate(directory, KEY, 3, 4, counting(table(3, 4)));
+        Path file = GamutBoundaryAtlas.fileFor(directory, KEY);
+        try (var raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(raf.length() - Double.BYTES);
+        }
+
+        // when / then
+        assertThat(GamutBoundaryAtlas.load(file, KEY, 3, 4)).isEmpty();
+    }
+
+    @Test
+    void differentResolution_isNotLoaded() {
+        // given
+        GamutBoundaryAtlas.loadOrCreate(directory, KEY, 3, 4, counting(table(3, 4)));
+
+        // when / then
+        assertThat(GamutBoundaryAtlas.load(GamutBoundaryAtlas.fileFor(directory, KEY), KEY, 4, 3)).isEmpty();
+    }
+
+    @Test
+    void withoutDirectory_keepsValuesInMemory() {
+        // when
+        var atlas = GamutBoundaryAtlas.loadOrCreate(null, KEY, 3, 4, counting(table(3, 4)));
+
+        // then
+        assertSameValues(atlas, table(3, 4).get());
+    }
+
+    private Supplier<double[][]> counting(Supplier<double[][]> supplier) {
+        return () -> {
+            computations.incrementAndGet();
+            return supplier.get();
+        };
+    }
+
+    private static Supplier<double[][]> table(int rows, int columns) {
+        return () -> {
+            double[][] values = new double[rows][columns];
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    values[row][column] = row + column / 10.0;
+                }
+            }
+            return values;
+        };
+    }
+
+    private static void assertSameValues(GamutBoundaryAtlas atlas, double[][] expected) {
+        assertThat(atlas.rows()).isEqualTo(expected.length);
+        assertThat(atlas.columns()).isEqualTo(expected[0].length);
+        for (int row = 0; row < expected.length; row++) {
+            for (int column = 0; column < expected[0].length; column++) {
+                assertThat(atlas.get(row, column)).isEqualTo(expected[row][column]);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package kofa.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ImageStatisticsTest {
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 50;
+
+    private final PixelMetric red = (red, green, blue, scratch) -> red;
+    private final PixelMetric blue = (red, green, blue, scratch) -> blue;
+    private RgbImage image;
+
+    @BeforeEach
+    void setup() {
+        // red: 1..5000 in 1/65536 units, with a single hot pixel; blue: 0 in the left half, not applicable in the right
+        WritableRaster writableRaster = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, WIDTH, HEIGHT, 3, new Point());
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int column = 0; column < WIDTH; column++) {
+                int value = row * WIDTH + column + 1;
+                writableRaster.setPixel(column, row, new int[]{value == 1 ? 65535 : value, 0, column < WIDTH / 2 ? 0 : 1});
+            }
+        }
+        image = new RgbImage(writableRaster);
+    }
+
+    @Test
+    void maxIsExact_percentilesIgnoreTheHotPixel() {
+        // when
+        var summary = image.statistics().of(red);
+
+        // then
+        assertThat(summary.count()).isEqualTo(WIDTH * HEIGHT);
+        assertThat(summary.max()).isEqualTo(image.red(0, 0));
+        assertThat(summary.percentile(50)).isCloseTo(image.red(24, 99), within(image.red(24, 99) * 2E-3));
+        assertThat(summary.percentile(99.9)).isCloseTo(image.red(49, 94), within(image.red(49, 94) * 2E-3));
+    }
+
+    @Test
+    void notApplicableValues_areNotCounted() {
+        // given
+        PixelMetric leftHalfBlue = (red, green, blue, scratch) -> blue == 0 ? blue : Double.NaN;
+
+        // when
+        var summary = image.statistics().of(leftHalfBlue);
+
+        // then
+        assertThat(summary.count()).isEqualTo(WIDTH * HEIGHT / 2);
+        assertThat(summary.max()).isZero();
+        assertThat(summary.percentile(100)).isZero();
+    }
+
+    @Test
+    void metricsAreComputedInOnePass_andKept() {
+        // given
+        var evaluations = new AtomicLong();
+        PixelMetric counting = (red, green, blue, scratch) -> {
+            evaluations.incrementAndGet();
+            return red;
+        };
+        var statistics = image.statistics();
+
+        // when
+        statistics.prepare(counting, blue);
+        statistics.prepare(red, blue);
+        var summary = statistics.of(counting);
+
+        // then
+        assertThat(statistics.passes()).isEqualTo(2);
+        assertThat(evaluations).hasValue(WIDTH * HEIGHT);
+        assertThat(summary.max()).isEqualTo(statistics.of(red).max());
+        assertThat(image.statistics()).isSameAs(statistics);
+    }
+
+    @Test
+    void maxOf_skipsThePercentiles() {
+        // given
+        var statistics = image.statistics();
+
+        // when
+        statistics.prepareMaxima(red, blue);
+        double max = statistics.maxOf(red);
+
+        // then
+        assertThat(max).isEqualTo(image.red(0, 0));
+        assertThat(statistics.maxOf(blue)).isEqualTo(image.blue(0, WIDTH - 1));
+        assertThat(statistics.passes()).isEqualTo(1);
+        // the percentiles need a pass of their own, after which the maximum is still known
+        assertThat(statistics.of(red).percentile(50)).isCloseTo(image.red(24, 99), within(image.red(24, 99) * 2E-3));
+        assertThat(statistics.maxOf(red)).isEqualTo(max);
+        assertThat(statistics.passes()).isEqualTo(2);
+    }
+
+    @Test
+    void maxOf_isNaN_ifTheMetricAppliesToNoPixel() {
+        // given
+        PixelMetric notApplicable = (red, green, blue, scratch) -> Double.NaN;
+
+        // when / then
+        assertThat(image.statistics().maxOf(notApplicable)).isNaN();
+    }
+
+    @Test
+    void statisticsAreDropped_whenThePixelsChange() {
+        // given
+        var before = image.statistics();
+        double maxBefore = before.of(red).max();
+
+        // when
+        image.transformAllRows((row, in, out) -> {
+            for (int index = 0; index < in.length; index++) {
+                out[index] = in[index] / 2;
+            }
+        });
+
+        // then
+        var after = image.statistics();
+        assertThat(after).isNotSameAs(before);
+        assertThat(after.isKnown(red)).isFalse();
+        assertThat(after.of(red).max()).isEqualTo(maxBefore / 2);
+    }
+}
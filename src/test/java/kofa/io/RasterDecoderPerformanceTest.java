@@ -0,0 +1,77 @@
+package kofa.io;
+
+import kofa.parallel.TileScheduler;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.stream.IntStream;
+
+/**
+ * Decoding a 6000 x 4000 16-bit interleaved raster (what ImageIO returns for a 16-bit PNG) into planar doubles;
+ * best of 5 runs. 'getPixel' is the former implementation of {@link RgbImage#init()}: one {@code getPixel} call and
+ * one {@code double[3]} per pixel, in a parallel stream of rows. The others decode the underlying
+ * {@code short[]} row by row, using the given number of threads.
+ * <p>
+ * Measured on a single core, so the parallel versions show no speed-up:
+ * <pre>
+ * getPixel:                 452 ms
+ * RasterDecoder, 1 thread:  267 ms
+ * RasterDecoder, default:   254 ms
+ * </pre>
+ * Most of the remaining time is spent writing the {@code double[][]} planes of the default storage.
+ */
+@Disabled("A non-scientific performance test")
+class RasterDecoderPerformanceTest {
+    private static final int WIDTH = 6000;
+    private static final int HEIGHT = 4000;
+    private static final int RUNS = 5;
+
+    @Test
+    void getPixel() {
+        Raster raster = raster();
+        var pixels = new PlanarDoublePixelBuffer(WIDTH, HEIGHT);
+        report("getPixel", () -> IntStream.range(0, HEIGHT).parallel().forEach(row -> {
+            for (int column = 0; column < WIDTH; column++) {
+                double[] components = new double[3];
+                raster.getPixel(column, row, components);
+                pixels.set(row, column, components[0] / 65536, components[1] / 65536, components[2] / 65536);
+            }
+        }));
+    }
+
+    @Test
+    void rasterDecoder_sequential() {
+        var image = new RgbImage(raster());
+        report("RasterDecoder, 1 thread", () -> image.init(TileScheduler.sequential()));
+    }
+
+    @Test
+    void rasterDecoder_default() {
+        var image = new RgbImage(raster());
+        report("RasterDecoder, default", image::init);
+    }
+
+    private static void report(String name, Runnable job) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            job.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%s: %d ms%n", name, best / 1_000_000);
+    }
+
+    private static Raster raster() {
+        WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, WIDTH, HEIGHT, 3, new Point());
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                raster.setPixel(x, y, new int[]{x & 0xFFFF, y & 0xFFFF, (x * y) & 0xFFFF});
+            }
+        }
+        return raster;
+    }
+}
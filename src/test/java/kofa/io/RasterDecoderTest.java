@@ -0,0 +1,83 @@
+package kofa.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RasterDecoderTest {
+    private static final int WIDTH = 5;
+    private static final int HEIGHT = 4;
+
+    @Test
+    void interleavedUShort() {
+        assertDecodedAsViaGetPixel(filled(Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, WIDTH, HEIGHT, 3, new Point())), 65536);
+    }
+
+    @Test
+    void bgrBytes() {
+        var image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        assertDecodedAsViaGetPixel(filled(image.getRaster()), 255);
+    }
+
+    @Test
+    void abgrBytes_alphaIsIgnored() {
+        var image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_4BYTE_ABGR);
+        assertDecodedAsViaGetPixel(filled(image.getRaster()), 255);
+    }
+
+    @Test
+    void interleavedFloats() {
+        var sampleModel = new PixelInterleavedSampleModel(DataBuffer.TYPE_FLOAT, WIDTH, HEIGHT, 3, 3 * WIDTH, new int[]{0, 1, 2});
+        var raster = Raster.createWritableRaster(sampleModel, new DataBufferFloat(3 * WIDTH * HEIGHT), null);
+        assertDecodedAsViaGetPixel(filled(raster), 1);
+    }
+
+    @Test
+    void childRaster() {
+        var parent = filled(Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, WIDTH + 3, HEIGHT + 2, 3, new Point()));
+        var child = parent.createChild(2, 1, WIDTH, HEIGHT, 0, 0, null);
+        assertDecodedAsViaGetPixel(child, 65536);
+    }
+
+    @Test
+    void bandedRaster_fallsBackToRasterApi() {
+        var raster = Raster.createBandedRaster(DataBuffer.TYPE_USHORT, WIDTH, HEIGHT, 3, new Point());
+        assertDecodedAsViaGetPixel(filled(raster), 65536);
+    }
+
+    private static WritableRaster filled(WritableRaster raster) {
+        for (int y = 0; y < raster.getHeight(); y++) {
+            for (int x = 0; x < raster.getWidth(); x++) {
+                for (int band = 0; band < raster.getNumBands(); band++) {
+                    raster.setSample(x, y, band, 1 + 7 * x + 11 * y + 3 * band);
+                }
+            }
+        }
+        return raster;
+    }
+
+    private static void assertDecodedAsViaGetPixel(Raster raster, double divisor) {
+        // given
+        var decoder = new RasterDecoder(raster);
+        double[] rgb = new double[3 * WIDTH];
+        double[] expected = new double[raster.getNumBands()];
+
+        for (int row = 0; row < HEIGHT; row++) {
+            // when
+            decoder.decodeRow(row, rgb);
+
+            // then
+            for (int column = 0; column < WIDTH; column++) {
+                raster.getPixel(raster.getMinX() + column, raster.getMinY() + row, expected);
+                for (int band = 0; band < 3; band++) {
+                    assertThat(rgb[3 * column + band])
+                            .describedAs("[%d, %d].%d", column, row, band)
+                            .isEqualTo(expected[band] / divisor);
+                }
+            }
+        }
+    }
+}
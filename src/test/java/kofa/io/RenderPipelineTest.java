@@ -0,0 +1,122 @@
+package kofa.io;
+
+import kofa.colours.gamutmapper.ChromaClippingLchBasedGamutMapper;
+import kofa.colours.gamutmapper.GamutMapper;
+import kofa.colours.gamutmapper.SrgbClippingGamutMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.*;
+import java.util.Arrays;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RenderPipelineTest {
+    private static final int WIDTH = 7;
+    private static final int HEIGHT = 5;
+    private Raster raster;
+
+    @BeforeEach
+    void setup() {
+        // values above 1 (to be tone mapped) and saturated colours (to be gamut mapped)
+        var sampleModel = new PixelInterleavedSampleModel(DataBuffer.TYPE_FLOAT, WIDTH, HEIGHT, 3, 3 * WIDTH, new int[]{0, 1, 2});
+        WritableRaster writableRaster = Raster.createWritableRaster(sampleModel, new DataBufferFloat(3 * WIDTH * HEIGHT), null);
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int column = 0; column < WIDTH; column++) {
+                writableRaster.setPixel(column, row, new double[]{
+                        0.4 * column,
+                        0.5 * row,
+                        0.1 * ((row + column) % 4)
+                });
+            }
+        }
+        raster = writableRaster;
+    }
+
+    @Test
+    void gamutMapperStages_matchMapToSrgb_clipping() {
+        assertPipelineMatchesMapToSrgb(SrgbClippingGamutMapper::new);
+    }
+
+    @Test
+    void gamutMapperStages_matchMapToSrgb_chromaClipping() {
+        assertPipelineMatchesMapToSrgb(ChromaClippingLchBasedGamutMapper::forOkLch);
+    }
+
+    @Test
+    void gamutMapperStages_fromSourceImage_matchMapToSrgb() {
+        // given
+        var image = new RgbImage(raster);
+        var expectedMapper = ChromaClippingLchBasedGamutMapper.forOkLch(image);
+        expectedMapper.mapToSrgb(image);
+        short[] expected = ((DataBufferUShort) Png16Output.rasterFrom(image).getDataBuffer()).getData();
+
+        try (var source = new SourceImage(raster)) {
+            // when
+            var mapper = ChromaClippingLchBasedGamutMapper.forOkLch(source.readOnlyView());
+            var pipeline = mapper.addStagesTo(RenderPipeline.from(source)).build();
+            short[] rendered = ((DataBufferUShort) pipeline.renderTo16Bits().getDataBuffer()).getData();
+
+            // then
+            assertThat(rendered).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void renderTo8Bits_fromRaster() {
+        // given
+        var pipeline = RenderPipeline.from(raster)
+                .then((row, in, out) -> {
+                    for (int index = 0; index < in.length; index++) {
+                        out[index] = Math.min(1, in[index]) / 2;
+                    }
+                })
+                .build();
+
+        // when
+        byte[] rendered = ((DataBufferByte) pipeline.renderTo8Bits().getDataBuffer()).getData();
+
+        // then
+        double[] expected = new double[3];
+        raster.getPixel(1, 2, expected);
+        int index = 3 * (2 * WIDTH + 1);
+        assertThat(rendered[index] & 0xFF).isEqualTo((int) Math.round(255 * expected[0] / 2));
+        assertThat(rendered[index + 1] & 0xFF).isEqualTo((int) Math.round(255 * expected[1] / 2));
+        assertThat(rendered[index + 2] & 0xFF).isEqualTo((int) Math.round(255 * expected[2] / 2));
+    }
+
+    @Test
+    void outOfRangeValue_reportsPosition() {
+        // given
+        var pipeline = RenderPipeline.from(raster)
+                .then((row, in, out) -> {
+                    Arrays.fill(out, 0.5);
+                    if (row == 3) {
+                        out[3 * 4 + 1] = 2;
+                    }
+                })
+                .build();
+
+        // when / then
+        assertThatThrownBy(pipeline::renderTo16Bits)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageEndingWith("at (3, 4)");
+    }
+
+    private void assertPipelineMatchesMapToSrgb(Function<RgbImage, GamutMapper> mapperFactory) {
+        // given
+        var image = new RgbImage(raster);
+        var mapper = mapperFactory.apply(image);
+
+        // when
+        var pipeline = mapper.addStagesTo(RenderPipeline.from(raster)).build();
+        short[] rendered = ((DataBufferUShort) pipeline.renderTo16Bits().getDataBuffer()).getData();
+
+        // then
+        mapper.mapToSrgb(image);
+        short[] expected = ((DataBufferUShort) Png16Output.rasterFrom(image).getDataBuffer()).getData();
+        assertThat(rendered).isEqualTo(expected);
+    }
+}
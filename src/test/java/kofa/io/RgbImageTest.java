@@ -0,0 +1,229 @@
+package kofa.io;
+
+import kofa.parallel.ProcessingContext;
+import kofa.parallel.TileScheduler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.awt.*;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class RgbImageTest {
+    private static final int WIDTH = 3;
+    private static final int HEIGHT = 2;
+    private Raster raster;
+
+    @BeforeEach
+    void setup() {
+        WritableRaster writableRaster = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, WIDTH, HEIGHT, 3, new Point());
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int column = 0; column < WIDTH; column++) {
+                int value = 1000 * (row * WIDTH + column);
+                writableRaster.setPixel(column, row, new int[]{value, value + 1, value + 2});
+            }
+        }
+        raster = writableRaster;
+    }
+
+    @ParameterizedTest
+    @EnumSource(RgbImage.Storage.class)
+    void init(RgbImage.Storage storage) {
+        // when
+        var image = new RgbImage(raster, storage);
+
+        // then
+        assertThat(image.red(1, 2)).isCloseTo(5000 / 65536.0, within(1E-7));
+        assertThat(image.green(1, 2)).isCloseTo(5001 / 65536.0, within(1E-7));
+        assertThat(image.blue(1, 2)).isCloseTo(5002 / 65536.0, within(1E-7));
+    }
+
+    @ParameterizedTest
+    @EnumSource(RgbImage.Storage.class)
+    void transformAllPixels(RgbImage.Storage storage) {
+        // given
+        var image = new RgbImage(raster, storage);
+
+        // when
+        image.transformAllPixels((row, column, red, green, blue) -> new double[]{row, column, row + column});
+
+        // then
+        float[] interleaved = image.asInterleavedFloats();
+        assertThat(interleaved).hasSize(3 * WIDTH * HEIGHT);
+        int index = 0;
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int column = 0; column < WIDTH; column++) {
+                assertThat(image.red(row, column)).isEqualTo(row);
+                assertThat(image.green(row, column)).isEqualTo(column);
+                assertThat(image.blue(row, column)).isEqualTo(row + column);
+                assertThat(interleaved[index++]).isEqualTo(row);
+                assertThat(interleaved[index++]).isEqualTo(column);
+                assertThat(interleaved[index++]).isEqualTo(row + column);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(RgbImage.Storage.class)
+    void transformAllRows(RgbImage.Storage storage) {
+        // given
+        var image = new RgbImage(raster, storage);
+
+        // when
+        image.transformAllRows((row, in, out) -> {
+            assertThat(in).hasSize(3 * WIDTH);
+            for (int index = 0; index < in.length; index += 3) {
+                int column = index / 3;
+                out[index] = row;
+                out[index + 1] = column;
+                out[index + 2] = in[index] * 2;
+            }
+        });
+
+        // then
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int column = 0; column < WIDTH; column++) {
+                assertThat(image.red(row, column)).isEqualTo(row);
+                assertThat(image.green(row, column)).isEqualTo(column);
+                assertThat(image.blue(row, column)).isCloseTo(2000 * (row * WIDTH + column) / 65536.0, within(1E-7));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(RgbImage.Storage.class)
+    void transformAllRows_doesNotAllocatePerPixel(RgbImage.Storage storage) {
+        // given
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        int size = 512;
+        var image = new RgbImage(Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, size, size, 3, new Point()), storage);
+        RgbImage.RowTransformer halve = (row, in, out) -> {
+            for (int index = 0; index < in.length; index++) {
+                out[index] = in[index] / 2;
+            }
+        };
+        image.transformAllRows(halve, TileScheduler.sequential());
+
+        // when
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        image.transformAllRows(halve, TileScheduler.sequential());
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        // then
+        // a double[3] per pixel would be 32 bytes each; the two row buffers and the per-band bookkeeping are far less
+        assertThat(allocated).isLessThan((long) size * size);
+    }
+
+    @ParameterizedTest
+    @EnumSource(RgbImage.Storage.class)
+    void maxMinSum(RgbImage.Storage storage) {
+        // given
+        var image = new RgbImage(raster, storage);
+        RgbImage.PixelFunction index = (row, column, red, green, blue) -> row * WIDTH + column;
+
+        // when
+        double max = image.max(index).orElseThrow();
+        double min = image.min(index).orElseThrow();
+        double sum = image.sum(index);
+
+        // then
+        assertThat(max).isEqualTo(WIDTH * HEIGHT - 1);
+        assertThat(min).isZero();
+        assertThat(sum).isEqualTo(15);
+    }
+
+    @ParameterizedTest
+    @EnumSource(RgbImage.Storage.class)
+    void histogram(RgbImage.Storage storage) {
+        // given
+        var image = new RgbImage(raster, storage);
+
+        // when
+        long[] histogram = image.histogram(
+                (row, column, red, green, blue) -> column == 0 ? Double.NaN : red * 65536,
+                1000, 5000, 2
+        );
+
+        // then
+        // red: 1000, 2000 | 4000, 5000 (clamped to the last bin); column 0 (0, 3000) is NaN
+        assertThat(histogram).containsExactly(2, 2);
+    }
+
+    @ParameterizedTest
+    @EnumSource(RgbImage.Storage.class)
+    void reduce_combinesPartialResultsOfAllTiles(RgbImage.Storage storage) {
+        // given
+        var image = new RgbImage(raster, storage);
+        var scheduler = TileScheduler.defaultScheduler().withTileSize(1, 1);
+
+        // when
+        List<Integer> indices = image.reduce(
+                ArrayList::new,
+                (partialResult, row, column, red, green, blue) -> partialResult.add(row * WIDTH + column),
+                (partialResult, other) -> {
+                    partialResult.addAll(other);
+                    return partialResult;
+                },
+                scheduler
+        );
+
+        // then
+        assertThat(indices).containsExactlyInAnyOrder(0, 1, 2, 3, 4, 5);
+    }
+
+    @ParameterizedTest
+    @EnumSource(RgbImage.Storage.class)
+    void init_restoresOriginalPixels(RgbImage.Storage storage) {
+        // given
+        var image = new RgbImage(raster, storage);
+        image.transformAllPixels((row, column, red, green, blue) -> new double[]{0, 0, 0});
+
+        // when
+        image.init();
+
+        // then
+        assertThat(image.red(0, 1)).isCloseTo(1000 / 65536.0, within(1E-7));
+    }
+
+    @ParameterizedTest
+    @EnumSource(RgbImage.Storage.class)
+    void setProcessingContext_cancelledContextStopsProcessing(RgbImage.Storage storage) {
+        // given
+        var image = new RgbImage(raster, storage);
+        var context = ProcessingContext.sequential();
+        image.setProcessingContext(context);
+
+        // when
+        context.cancel();
+
+        // then
+        assertThatThrownBy(() -> image.transformAllRows((row, in, out) -> {
+        })).isInstanceOf(CancellationException.class);
+        assertThat(image.scheduler().context()).isSameAs(context);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = RgbImage.Storage.class, names = {"OFF_HEAP_FLOAT", "MAPPED_FLOAT"})
+    void close_releasesOffHeapMemory(RgbImage.Storage storage) {
+        // given
+        var image = new RgbImage(raster, storage);
+
+        // when
+        image.close();
+
+        // then
+        assertThatThrownBy(() -> image.red(0, 0)).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,159 @@
+package kofa.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.awt.*;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class SourceImageTest {
+    private static final int WIDTH = 3;
+    private static final int HEIGHT = 2;
+    private Raster raster;
+
+    @BeforeEach
+    void setup() {
+        WritableRaster writableRaster = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, WIDTH, HEIGHT, 3, new Point());
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int column = 0; column < WIDTH; column++) {
+                int value = 1000 * (row * WIDTH + column);
+                writableRaster.setPixel(column, row, new int[]{value, value + 1, value + 2});
+            }
+        }
+        raster = writableRaster;
+    }
+
+    @ParameterizedTest
+    @EnumSource(RgbImage.Storage.class)
+    void workingCopy_hasSourcePixels(RgbImage.Storage storage) {
+        try (var source = new SourceImage(raster, storage)) {
+            // when
+            try (var copy = source.workingCopy()) {
+                // then
+                assertThat(copy.width()).isEqualTo(WIDTH);
+                assertThat(copy.height()).isEqualTo(HEIGHT);
+                assertOriginalPixels(copy);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(RgbImage.Storage.class)
+    void recycledBuffer_isRestoredFromSource(RgbImage.Storage storage) {
+        try (var source = new SourceImage(raster, storage)) {
+            // given
+            try (var first = source.workingCopy()) {
+                first.transformAllPixels((row, column, red, green, blue) -> new double[]{-1, -2, -3});
+            }
+
+            // when
+            try (var second = source.workingCopy()) {
+                // then
+                assertOriginalPixels(second);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(RgbImage.Storage.class)
+    void init_restoresPixelsFromSource(RgbImage.Storage storage) {
+        try (var source = new SourceImage(raster, storage); var copy = source.workingCopy()) {
+            // given
+            copy.transformAllPixels((row, column, red, green, blue) -> new double[]{0, 0, 0});
+
+            // when
+            copy.init();
+
+            // then
+            assertOriginalPixels(copy);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(RgbImage.Storage.class)
+    void closingACopyTwice_recyclesItsBufferOnce(RgbImage.Storage storage) {
+        try (var source = new SourceImage(raster, storage)) {
+            // given
+            var closedTwice = source.workingCopy();
+            closedTwice.close();
+
+            // when
+            closedTwice.close();
+
+            // then
+            assertThat(source.recycledBufferCount()).isEqualTo(1);
+            try (var first = source.workingCopy(); var second = source.workingCopy()) {
+                first.transformAllPixels((row, column, red, green, blue) -> new double[]{-1, -2, -3});
+                assertOriginalPixels(second);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(RgbImage.Storage.class)
+    void copyClosedAfterTheSource_releasesItsBuffer(RgbImage.Storage storage) {
+        // given
+        var source = new SourceImage(raster, storage);
+        var copy = source.workingCopy();
+        source.close();
+
+        // when
+        copy.close();
+
+        // then
+        assertThat(source.recycledBufferCount()).isZero();
+    }
+
+    @ParameterizedTest
+    @EnumSource(RgbImage.Storage.class)
+    void readOnlyView_hasSourcePixels_andIsShared(RgbImage.Storage storage) {
+        try (var source = new SourceImage(raster, storage)) {
+            // when
+            var view = source.readOnlyView();
+
+            // then
+            assertOriginalPixels(view);
+            assertThat(source.readOnlyView()).isSameAs(view);
+            assertThat(source.recycledBufferCount()).isZero();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(RgbImage.Storage.class)
+    void readOnlyView_cannotBeModified(RgbImage.Storage storage) {
+        try (var source = new SourceImage(raster, storage)) {
+            // given
+            var view = source.readOnlyView();
+
+            // when / then
+            assertThatThrownBy(() -> view.setPixel(0, 0, 1, 1, 1))
+                    .isInstanceOf(UnsupportedOperationException.class);
+            assertThatThrownBy(() -> view.transformAllRows((row, in, out) -> {}))
+                    .isInstanceOf(UnsupportedOperationException.class);
+            assertThatThrownBy(() -> view.transformAllPixels((row, column, red, green, blue) -> new double[3]))
+                    .isInstanceOf(UnsupportedOperationException.class);
+            assertThatThrownBy(view::init)
+                    .isInstanceOf(UnsupportedOperationException.class);
+            view.close();
+            assertOriginalPixels(source.readOnlyView());
+        }
+    }
+
+    private static void assertOriginalPixels(RgbImage image) {
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int column = 0; column < WIDTH; column++) {
+                int value = 1000 * (row * WIDTH + column);
+                assertThat(image.red(row, column)).isCloseTo(value / 65536.0, within(1E-7));
+                assertThat(image.green(row, column)).isCloseTo((value + 1) / 65536.0, within(1E-7));
+                assertThat(image.blue(row, column)).isCloseTo((value + 2) / 65536.0, within(1E-7));
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package kofa.maths;
+
+import kofa.colours.model.Rec2020;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Matrix3KernelTest {
+    private static final double[][] MATRIX = {
+            {1.6604962191478272, -0.5876564441311344, -0.07283977501669414},
+            {-0.12454709558601196, 1.132895109247297, -0.008348013661284223},
+            {-0.01815368138707182, -0.10059737168574254, 1.1187510530728144}
+    };
+
+    private final Matrix3Kernel scalar = Matrix3Kernel.scalar(MATRIX);
+    private final Matrix3Kernel vectorised = new VectorMatrix3Kernel(MATRIX);
+    private final Random random = new Random(42);
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 7, 64, 1001})
+    void interleavedDoubles_vectorisedMatchesScalar(int pixels) {
+        // given
+        double[] in = randomDoubles(3 * pixels + 2);
+        double[] expected = new double[in.length];
+        double[] actual = new double[in.length];
+
+        // when
+        scalar.applyInterleaved(in, 2, expected, 1, pixels);
+        vectorised.applyInterleaved(in, 2, actual, 1, pixels);
+
+        // then
+        assertThat(actual).containsExactly(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 7, 64, 1001})
+    void interleavedFloats_vectorisedMatchesScalar(int pixels) {
+        // given
+        float[] in = randomFloats(3 * pixels + 2);
+        float[] expected = new float[in.length];
+        float[] actual = new float[in.length];
+
+        // when
+        scalar.applyInterleaved(in, 2, expected, 1, pixels);
+        vectorised.applyInterleaved(in, 2, actual, 1, pixels);
+
+        // then
+        assertThat(actual).containsExactly(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 7, 64, 1001})
+    void planarDoubles_vectorisedMatchesScalar(int pixels) {
+        // given
+        double[] red = randomDoubles(pixels + 3);
+        double[] green = randomDoubles(pixels + 3);
+        double[] blue = randomDoubles(pixels + 3);
+        double[][] expected = new double[3][pixels + 3];
+        double[][] actual = new double[3][pixels + 3];
+
+        // when
+        scalar.applyPlanar(red, green, blue, expected[0], expected[1], expected[2], 3, pixels);
+        vectorised.applyPlanar(red, green, blue, actual[0], actual[1], actual[2], 3, pixels);
+
+        // then
+        for (int channel = 0; channel < 3; channel++) {
+            assertThat(actual[channel]).containsExactly(expected[channel]);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 7, 64, 1001})
+    void planarFloats_vectorisedMatchesScalar(int pixels) {
+        // given
+        float[] red = randomFloats(pixels + 3);
+        float[] green = randomFloats(pixels + 3);
+        float[] blue = randomFloats(pixels + 3);
+        float[][] expected = new float[3][pixels + 3];
+        float[][] actual = new float[3][pixels + 3];
+
+        // when
+        scalar.applyPlanar(red, green, blue, expected[0], expected[1], expected[2], 3, pixels);
+        vectorised.applyPlanar(red, green, blue, actual[0], actual[1], actual[2], 3, pixels);
+
+        // then
+        for (int channel = 0; channel < 3; channel++) {
+            assertThat(actual[channel]).containsExactly(expected[channel]);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 64, 1001})
+    void interleaved_inPlace(int pixels) {
+        // given
+        double[] values = randomDoubles(3 * pixels);
+        double[] expected = new double[values.length];
+        scalar.applyInterleaved(values, 0, expected, 0, pixels);
+
+        // when
+        vectorised.applyInterleaved(values, 0, values, 0, pixels);
+
+        // then
+        assertThat(values).containsExactly(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 64, 1001})
+    void matchesSpaceConversionMatrix(int pixels) {
+        // given
+        var matrix = Rec2020.TO_SRGB;
+        double[] in = randomDoubles(3 * pixels);
+        double[] expected = new double[in.length];
+        for (int index = 0; index < in.length; index += 3) {
+            matrix.multiply(in, index, expected, index);
+        }
+        double[] actual = new double[in.length];
+
+        // when
+        matrix.kernel().applyInterleaved(in, 0, actual, 0, pixels);
+
+        // then
+        assertThat(actual).containsExactly(expected);
+    }
+
+    private double[] randomDoubles(int length) {
+        double[] values = new double[length];
+        for (int index = 0; index < length; index++) {
+            values[index] = 4 * random.nextDouble() - 1;
+        }
+        return values;
+    }
+
+    private float[] randomFloats(int length) {
+        float[] values = new float[length];
+        for (int index = 0; index < length; index++) {
+            values[index] = 4 * random.nextFloat() - 1;
+        }
+        return values;
+    }
+}
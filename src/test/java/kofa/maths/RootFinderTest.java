@@ -0,0 +1,110 @@
+package kofa.maths;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class RootFinderTest {
+    static Stream<Supplier<RootFinder>> finders() {
+        return Stream.of(RootFinder::bisection, RootFinder::illinois, RootFinder::brent, RootFinder::newton);
+    }
+
+    @ParameterizedTest
+    @MethodSource("finders")
+    void findsSquareRoot(Supplier<RootFinder> finderSupplier) {
+        // given
+        var finder = finderSupplier.get();
+
+        // when
+        double root = finder.findRoot(x -> x * x - 2, 0, 2, 1E-12);
+
+        // then
+        assertThat(root).isCloseTo(Math.sqrt(2), within(1E-12));
+        // the result is on the side of the lower bound
+        assertThat(root * root - 2).isLessThanOrEqualTo(0);
+    }
+
+    @ParameterizedTest
+    @MethodSource("finders")
+    void staysOnSideOfLowerBound_decreasingFunction(Supplier<RootFinder> finderSupplier) {
+        // given
+        var finder = finderSupplier.get();
+
+        // when
+        double root = finder.findRoot(x -> 1 - x * x * x, 0, 3, 1E-9);
+
+        // then
+        assertThat(root).isCloseTo(1, within(1E-9));
+        assertThat(1 - root * root * root).isGreaterThanOrEqualTo(0);
+    }
+
+    @ParameterizedTest
+    @MethodSource("finders")
+    void handlesKinks(Supplier<RootFinder> finderSupplier) {
+        // given: like the distance from the boundary of a gamut, with a different component limiting on each side
+        var finder = finderSupplier.get();
+        PrimitiveDoubleToDoubleFunction distance = x -> Math.max(0.3 * x - 0.6, Math.max(x * x - 5, -1));
+
+        // when
+        double root = finder.findRoot(distance, 0, 10, 1E-10);
+
+        // then
+        assertThat(root).isCloseTo(2, within(1E-10));
+        assertThat(distance.apply(root)).isLessThanOrEqualTo(0);
+    }
+
+    @ParameterizedTest
+    @MethodSource("finders")
+    void notBracketed_returnsNaN(Supplier<RootFinder> finderSupplier) {
+        // given
+        var finder = finderSupplier.get();
+
+        // when
+        double root = finder.findRoot(x -> x * x + 1, -1, 2, 1E-9);
+
+        // then
+        assertThat(root).isNaN();
+        assertThat(finder.solves()).isEqualTo(1);
+        assertThat(finder.failures()).isEqualTo(1);
+    }
+
+    @Test
+    void fasterThanBisection() {
+        // given
+        var bisection = RootFinder.bisection();
+        var illinois = RootFinder.illinois();
+        var brent = RootFinder.brent();
+
+        // when
+        for (double value = 1; value < 100; value++) {
+            double target = value;
+            bisection.findRoot(x -> x * x - target, 0, 100, 1E-12);
+            illinois.findRoot(x -> x * x - target, 0, 100, 1E-12);
+            brent.findRoot(x -> x * x - target, 0, 100, 1E-12);
+        }
+
+        // then
+        assertThat(bisection.averageEvaluations()).isGreaterThan(40);
+        assertThat(illinois.averageEvaluations()).isLessThan(bisection.averageEvaluations() / 2);
+        assertThat(brent.averageEvaluations()).isLessThan(bisection.averageEvaluations() / 2);
+    }
+
+    @Test
+    void newton_withDerivative() {
+        // given
+        var newton = RootFinder.newton();
+
+        // when
+        double root = newton.findRoot(x -> x * x - 2, x -> 2 * x, 0, 2, 1E-12);
+
+        // then
+        assertThat(root).isCloseTo(Math.sqrt(2), within(1E-12));
+        assertThat(newton.evaluations()).isLessThan(15);
+    }
+}
@@ -0,0 +1,81 @@
+package kofa.maths;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static kofa.maths.SampledCurve.Interpolation.CUBIC_HERMITE;
+import static kofa.maths.SampledCurve.Interpolation.LINEAR;
+import static kofa.maths.SampledCurve.Spacing.DENSE_NEAR_MIN;
+import static kofa.maths.SampledCurve.Spacing.UNIFORM;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SampledCurveTest {
+    private final ThanatomanicCurve6 curve = ThanatomanicCurve6.linearUntil(0.6);
+    private final Random random = new Random(42);
+
+    @Test
+    void errorIsWithinTheReportedBound() {
+        for (var interpolation : SampledCurve.Interpolation.values()) {
+            for (var spacing : SampledCurve.Spacing.values()) {
+                // given
+                double tolerance = interpolation == LINEAR ? 1E-7 : 1E-9;
+                var sampled = SampledCurve.of(curve, 0.6, 8, tolerance, interpolation, spacing);
+
+                // then
+                assertThat(sampled.maxError()).isLessThanOrEqualTo(tolerance);
+                for (int i = 0; i < 100_000; i++) {
+                    double x = 0.6 + 7.4 * random.nextDouble();
+                    assertThat(sampled.mappedValueOf(x)).isCloseTo(curve.mappedValueOf(x), within(tolerance));
+                }
+                assertThat(sampled.mappedValueOf(0.6)).isCloseTo(0.6, within(1E-15));
+                assertThat(sampled.mappedValueOf(8)).isCloseTo(curve.mappedValueOf(8), within(1E-15));
+            }
+        }
+    }
+
+    @Test
+    void denseSamplesAtTheShoulder_needFewerSegments() {
+        // when
+        var uniform = SampledCurve.of(curve, 0.6, 8, 1E-7, LINEAR, UNIFORM);
+        var dense = SampledCurve.of(curve, 0.6, 8, 1E-7, LINEAR, DENSE_NEAR_MIN);
+        var hermite = SampledCurve.of(curve, 0.6, 8, 1E-7, CUBIC_HERMITE, DENSE_NEAR_MIN);
+
+        // then
+        assertThat(dense.segments()).isLessThan(uniform.segments());
+        assertThat(hermite.segments()).isLessThan(dense.segments() / 10);
+    }
+
+    @Test
+    void valuesOutsideTheDomain_areMappedByTheCurve() {
+        // given
+        var sampled = curve.sampled();
+
+        // then
+        assertThat(sampled.mappedValueOf(-1)).isEqualTo(curve.mappedValueOf(-1));
+        assertThat(sampled.mappedValueOf(0.3)).isEqualTo(0.3);
+        assertThat(sampled.mappedValueOf(100)).isEqualTo(curve.mappedValueOf(100));
+        assertThat(sampled.mappedValueOf(Double.NaN)).isNaN();
+    }
+
+    @Test
+    void mapAll_matchesSingleValues() {
+        // given
+        var sampled = curve.sampled();
+        double[] values = new double[1000];
+        for (int index = 0; index < values.length; index++) {
+            values[index] = 30 * random.nextDouble() - 0.5;
+        }
+        double[] expected = new double[values.length];
+        for (int index = 0; index < values.length; index++) {
+            expected[index] = sampled.mappedValueOf(values[index]);
+        }
+
+        // when
+        sampled.mapAll(values, values);
+
+        // then
+        assertThat(values).containsExactly(expected);
+    }
+}
@@ -2,7 +2,11 @@ package kofa.maths;
 
 import org.junit.jupiter.api.Test;
 
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class SpaceConversionMatrixTest {
     private final SpaceConversionMatrix<Source, Interim> sourceToInterim = new SpaceConversionMatrix<>(
@@ -24,6 +28,38 @@ class SpaceConversionMatrixTest {
         assertThat(result.coordinates()).containsExactly(336.0, 1025.0, 1933.0);
     }
 
+    @Test
+    void multiply_array_inPlace() {
+        // given
+        double[] values = {-1, 29, 31, 37};
+
+        // when
+        sourceToInterim.multiply(values, 1, values, 1);
+
+        // then
+        assertThat(values).containsExactly(-1, 336.0, 1025.0, 1933.0);
+    }
+
+    @Test
+    void multiply_array_doesNotAllocate() {
+        // given
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        double[] values = new double[3 * 100_000];
+        Arrays.fill(values, 1);
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+
+        // when
+        for (int offset = 0; offset < values.length; offset += 3) {
+            sourceToInterim.multiply(values, offset, values, offset);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        // then
+        // an Interim per call would be over 3 MB
+        assertThat(allocated).isLessThan(1024);
+    }
+
     @Test
     void multiply_matrix() {
         // given
@@ -5,44 +5,97 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.stream.Stream;
 
 import static kofa.maths.ThanatomanicCurve6.linearUntil;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 
 class ThanatomanicCurve6Test {
     public static final double SHOULDER_START = 0.78;
-    private final ThanatomanicCurve6 curve = linearUntil(SHOULDER_START);
+    // linear interpolation needs far more samples for the same tolerance
+    private static final double LINEAR_SAMPLING_TOLERANCE = 1E-8;
 
     @ParameterizedTest
     @MethodSource("mappings")
-    void testRolloff(double x, double expectedMappedValue) {
+    void testRolloff(Curve curve, double x, double expectedMappedValue) {
         assertThat(curve.mappedValueOf(x)).isEqualTo(expectedMappedValue, Offset.offset(0.0001));
     }
 
-    @Test
-    void upToShoulderValueisMappedToItself() {
+    @ParameterizedTest
+    @MethodSource("curves")
+    void upToShoulderValueisMappedToItself(Curve curve, double tolerance) {
         for (double x = 0; x <= SHOULDER_START; x += 0.001) {
-            assertThat(curve.mappedValueOf(x)).isEqualTo(x);
+            assertThat(curve.mappedValueOf(x)).isCloseTo(x, within(tolerance));
         }
     }
 
-    @Test
-    void aboveShoulderValueIsReduced_mappingIsMonotonicallyIncreasing_andNeverMoreThan1() {
+    @ParameterizedTest
+    @MethodSource("curves")
+    void aboveShoulderValueIsReduced_mappingIsMonotonicallyIncreasing_andNeverMoreThan1(Curve curve, double tolerance) {
         var lastValue = SHOULDER_START;
         for (double x = SHOULDER_START + 1E-4; x < 1_000; x += 1E-4) {
             double mappedValue = curve.mappedValueOf(x);
             assertThat(mappedValue)
                     .isLessThan(x)
-                    .isGreaterThanOrEqualTo(lastValue)
+                    .isGreaterThanOrEqualTo(lastValue - tolerance)
                     .isLessThanOrEqualTo(1);
             lastValue = mappedValue;
         }
     }
 
-    private static Stream<Arguments> mappings() {
+    @Test
+    void inverseOf_undoesTheMapping() {
+        var curve = new ThanatomanicCurve6(0.9, 0.7);
+        for (double x = 0; x < 5; x += 0.01) {
+            double mappedValue = curve.mappedValueOf(x);
+            assertThat(curve.inverseOf(mappedValue)).isCloseTo(x, within(1E-9 * (1 + x)));
+        }
+    }
+
+    @Test
+    void derivativeOf_isTheGradient() {
+        var curve = new ThanatomanicCurve6(0.9, 0.7);
+        for (double x = 0.005; x < 5; x += 0.01) {
+            double numeric = (curve.mappedValueOf(x + 1E-6) - curve.mappedValueOf(x - 1E-6)) / 2E-6;
+            assertThat(curve.derivativeOf(x)).isCloseTo(numeric, within(1E-6));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {1 + 1E-9, 1.0001, 1.01, 1.2, 2, 5, 100, 1E6})
+    void shoulderStartMapping_mapsTheValueToTheTarget(double x) {
+        for (double target : new double[]{0.9, 0.99, 0.9999}) {
+            // when
+            double shoulderStart = ThanatomanicCurve6.shoulderStartMapping(x, target);
+
+            // then
+            assertThat(shoulderStart).isLessThan(1);
+            if (shoulderStart >= 0) {
+                assertThat(linearUntil(shoulderStart).mappedValueOf(x)).isCloseTo(target, within(1E-12));
+            }
+        }
+    }
+
+    private static Stream<Arguments> curves() {
+        var curve = linearUntil(SHOULDER_START);
         return Stream.of(
+                Arguments.of(curve, 0.0),
+                Arguments.of(
+                        SampledCurve.of(
+                                curve, SHOULDER_START, 16, LINEAR_SAMPLING_TOLERANCE,
+                                SampledCurve.Interpolation.LINEAR, SampledCurve.Spacing.DENSE_NEAR_MIN
+                        ),
+                        LINEAR_SAMPLING_TOLERANCE
+                ),
+                Arguments.of(curve.sampled(), SampledCurve.DEFAULT_TOLERANCE)
+        );
+    }
+
+    private static Stream<Arguments> mappings() {
+        return curves().flatMap(curve -> Stream.of(
                 Arguments.of(0, 0),
                 Arguments.of(SHOULDER_START, SHOULDER_START),
                 /*
@@ -54,6 +107,6 @@ class ThanatomanicCurve6Test {
                 Arguments.of(1.0, 0.9191),
                 Arguments.of(1.5, 0.9917),
                 Arguments.of(2.0, 0.9991)
-        );
+        ).map(mapping -> Arguments.of(curve.get()[0], mapping.get()[0], mapping.get()[1])));
     }
 }
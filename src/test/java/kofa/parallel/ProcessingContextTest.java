@@ -0,0 +1,94 @@
+package kofa.parallel;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProcessingContextTest {
+    @Test
+    void forEachIndex_coversEachIndexOnce() {
+        // given
+        var counts = new AtomicIntegerArray(100);
+
+        // when
+        try (var context = ProcessingContext.withParallelism(3)) {
+            context.forEachIndex(10, 100, counts::incrementAndGet);
+        }
+
+        // then
+        for (int index = 0; index < counts.length(); index++) {
+            assertThat(counts.get(index)).isEqualTo(index < 10 ? 0 : 1);
+        }
+    }
+
+    @Test
+    void withParallelism_usesOnlyItsOwnThreads() {
+        // given
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        // when
+        try (var context = ProcessingContext.withParallelism(2)) {
+            context.scheduler().withTileSize(1, 1).forEachTile(50, 50, tile -> threads.add(Thread.currentThread()));
+            assertThat(context.parallelism()).isEqualTo(2);
+        }
+
+        // then
+        assertThat(threads).noneMatch(thread -> thread.getName().contains("commonPool"));
+    }
+
+    @Test
+    void sequential_runsInCallingThread() {
+        // given
+        var context = ProcessingContext.sequential();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        // when
+        context.forEachIndex(0, 10, index -> threads.add(Thread.currentThread()));
+        context.scheduler().withTileSize(1, 1).forEachTile(5, 5, tile -> threads.add(Thread.currentThread()));
+
+        // then
+        assertThat(threads).containsExactly(Thread.currentThread());
+        assertThat(context.parallelism()).isEqualTo(1);
+    }
+
+    @Test
+    void cancel_stopsProcessingBeforeNextTile() {
+        // given
+        var context = ProcessingContext.sequential();
+        var processedTiles = new AtomicInteger();
+
+        // when
+        var scheduler = context.scheduler().withTileSize(1, 1);
+
+        // then
+        assertThatThrownBy(() -> scheduler.forEachTile(10, 10, tile -> {
+            if (processedTiles.incrementAndGet() == 3) {
+                context.cancel();
+            }
+        })).isInstanceOf(CancellationException.class);
+        assertThat(processedTiles).hasValue(3);
+    }
+
+    @Test
+    void cancel_stopsParallelLoops() {
+        try (var context = ProcessingContext.withParallelism(2)) {
+            // given
+            context.cancel();
+
+            // when / then
+            assertThat(context.isCancelled()).isTrue();
+            assertThatThrownBy(() -> context.forEachIndex(0, 10, index -> {
+            })).isInstanceOf(CancellationException.class);
+            assertThatThrownBy(() -> context.scheduler().forEachTile(10, 10, tile -> {
+            })).isInstanceOf(CancellationException.class);
+            assertThatThrownBy(() -> context.submit(() -> 1)).isInstanceOf(CancellationException.class);
+        }
+    }
+}
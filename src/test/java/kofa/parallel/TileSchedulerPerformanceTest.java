@@ -0,0 +1,112 @@
+package kofa.parallel;
+
+import kofa.colours.model.BayerImage2;
+import kofa.colours.model.CFA;
+import kofa.io.RgbImage;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+/**
+ * Throughput of the tile scheduler by tile size; like {@code CopyTest}, this should be a JMH test.
+ * The image is 6000 x 4000; the 'rows' test transforms all rows (Rec2020 to sRGB-like matrix + gamma), the
+ * 'pixels' test visits each pixel in tiles, the 'demosaic' test runs the bilinear demosaic on a Bayer image of
+ * the same size. Best of 5 runs, in Mpixel/s.
+ * <p>
+ * Measured on a single core, so these show the per-tile overhead and locality effects, not the parallel speed-up;
+ * the run-to-run noise was about 15%:
+ * <pre>
+ * tile size    rows    pixels    demosaic
+ *        16    17.4     132.8        98.8
+ *        32    17.2      89.7       139.9
+ *        64    17.9      81.6       145.5
+ *       128    18.2     133.0       135.6
+ *       256    14.5     113.1       153.1
+ *       512    17.8      98.5       170.4
+ * </pre>
+ * Row-based jobs use bands holding as many pixels as a tile, so for them the tile size only decides the number
+ * of tasks; their cost is dominated by the kernel. The demosaic includes allocating and filling the padded
+ * output, and only starts losing throughput below 32 x 32 cells. 128 (the default) keeps enough tasks for
+ * stealing on a many-core machine while staying out of the overhead zone.
+ */
+@Disabled("A non-scientific performance test")
+class TileSchedulerPerformanceTest {
+    private static final int WIDTH = 6000;
+    private static final int HEIGHT = 4000;
+    private static final int RUNS = 5;
+
+    @ParameterizedTest
+    @ValueSource(ints = {16, 32, 64, 128, 256, 512})
+    void rows(int tileSize) {
+        var image = new RgbImage(rgbRaster());
+        var scheduler = TileScheduler.defaultScheduler().withTileSize(tileSize, tileSize);
+        report("rows", tileSize, () -> image.transformAllRows((row, in, out) -> {
+            for (int index = 0; index < in.length; index += 3) {
+                double r = in[index];
+                double g = in[index + 1];
+                double b = in[index + 2];
+                out[index] = Math.pow(1.66 * r - 0.59 * g - 0.07 * b, 1 / 2.4);
+                out[index + 1] = Math.pow(-0.12 * r + 1.13 * g - 0.01 * b, 1 / 2.4);
+                out[index + 2] = Math.pow(-0.02 * r - 0.1 * g + 1.12 * b, 1 / 2.4);
+            }
+        }, scheduler));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {16, 32, 64, 128, 256, 512})
+    void pixels(int tileSize) {
+        var image = new RgbImage(rgbRaster());
+        var scheduler = TileScheduler.defaultScheduler().withTileSize(tileSize, tileSize);
+        report("pixels", tileSize, () -> image.forEachPixel((row, column, red, green, blue) -> {
+            if (red + green + blue < 0) {
+                throw new IllegalStateException();
+            }
+        }, scheduler));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {16, 32, 64, 128, 256, 512})
+    void demosaic(int tileSize) {
+        var bayerImage = new BayerImage2(bayerRaster(), CFA.RGGB, 2, 1.5f);
+        var scheduler = TileScheduler.defaultScheduler().withTileSize(tileSize, tileSize);
+        report("demosaic", tileSize, () -> bayerImage.bilinearDemosaic(scheduler));
+    }
+
+    private static void report(String name, int tileSize, Runnable job) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            job.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double megaPixelsPerSecond = (double) WIDTH * HEIGHT / best * 1000;
+        System.out.printf("%s %4d: %6.1f Mpixel/s%n", name, tileSize, megaPixelsPerSecond);
+    }
+
+    private static Raster rgbRaster() {
+        WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, WIDTH, HEIGHT, 3, new Point());
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                raster.setPixel(x, y, new int[]{x & 0xFFFF, y & 0xFFFF, (x * y) & 0xFFFF});
+            }
+        }
+        return raster;
+    }
+
+    private static Raster bayerRaster() {
+        var image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_USHORT_GRAY);
+        WritableRaster raster = image.getRaster();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                raster.setSample(x, y, 0, (x * 31 + y * 17) & 0xFFFF);
+            }
+        }
+        return raster;
+    }
+}
@@ -0,0 +1,129 @@
+package kofa.parallel;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TileSchedulerTest {
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 23;
+
+    private final List<ForkJoinPool> pools = new ArrayList<>();
+
+    @AfterEach
+    void closePools() {
+        pools.forEach(ForkJoinPool::close);
+    }
+
+    @Test
+    void forEachTile_coversEachPixelOnce() {
+        // given
+        var scheduler = new TileScheduler(pool(4), 8, 5, 0);
+        var counts = new AtomicIntegerArray(WIDTH * HEIGHT);
+
+        // when
+        scheduler.forEachTile(WIDTH, HEIGHT, tile -> {
+            assertThat(tile.width()).isBetween(1, 8);
+            assertThat(tile.height()).isBetween(1, 5);
+            increment(counts, tile);
+        });
+
+        // then
+        assertAllEqualTo(counts, 1);
+    }
+
+    @Test
+    void forEachRowBand_coversEachPixelOnce_withFullRows() {
+        // given
+        var scheduler = TileScheduler.sequential().withTileSize(10, 10);
+        var counts = new AtomicIntegerArray(WIDTH * HEIGHT);
+
+        // when
+        scheduler.forEachRowBand(WIDTH, HEIGHT, band -> {
+            assertThat(band.firstColumn()).isZero();
+            assertThat(band.endColumn()).isEqualTo(WIDTH);
+            // 100 pixels per tile -> 2 rows of 37 pixels
+            assertThat(band.height()).isBetween(1, 2);
+            increment(counts, band);
+        });
+
+        // then
+        assertAllEqualTo(counts, 1);
+    }
+
+    @Test
+    void forEachTile_withHalo_neverProcessesOverlappingTilesConcurrently() {
+        // given
+        int halo = 3;
+        var scheduler = new TileScheduler(pool(4), 6, 6, halo);
+        // number of tiles writing each pixel at the moment
+        var writers = new AtomicIntegerArray(WIDTH * HEIGHT);
+        var counts = new AtomicIntegerArray(WIDTH * HEIGHT);
+
+        // when
+        scheduler.forEachTile(WIDTH, HEIGHT, tile -> {
+            Tile expanded = tile.expandedBy(halo, WIDTH, HEIGHT);
+            for (int row = expanded.firstRow(); row < expanded.endRow(); row++) {
+                for (int column = expanded.firstColumn(); column < expanded.endColumn(); column++) {
+                    assertThat(writers.incrementAndGet(row * WIDTH + column)).isEqualTo(1);
+                }
+            }
+            increment(counts, tile);
+            Thread.yield();
+            for (int row = expanded.firstRow(); row < expanded.endRow(); row++) {
+                for (int column = expanded.firstColumn(); column < expanded.endColumn(); column++) {
+                    writers.decrementAndGet(row * WIDTH + column);
+                }
+            }
+        });
+
+        // then
+        assertAllEqualTo(counts, 1);
+    }
+
+    @Test
+    void tilesMustBeLargeEnoughForHalo() {
+        assertThatThrownBy(() -> TileScheduler.sequential().withTileSize(8, 8).withHalo(5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void exceptionsArePropagated() {
+        // given
+        var scheduler = new TileScheduler(pool(2), 4, 4, 0);
+
+        // when / then
+        assertThatThrownBy(() -> scheduler.forEachTile(WIDTH, HEIGHT, tile -> {
+            if (tile.firstRow() > 10) {
+                throw new IllegalStateException("kernel failed");
+            }
+        })).isInstanceOf(IllegalStateException.class).hasMessageContaining("kernel failed");
+    }
+
+    private ForkJoinPool pool(int parallelism) {
+        var pool = new ForkJoinPool(parallelism);
+        pools.add(pool);
+        return pool;
+    }
+
+    private static void increment(AtomicIntegerArray counts, Tile tile) {
+        for (int row = tile.firstRow(); row < tile.endRow(); row++) {
+            for (int column = tile.firstColumn(); column < tile.endColumn(); column++) {
+                counts.incrementAndGet(row * WIDTH + column);
+            }
+        }
+    }
+
+    private static void assertAllEqualTo(AtomicIntegerArray counts, int expected) {
+        for (int index = 0; index < counts.length(); index++) {
+            assertThat(counts.get(index)).describedAs("pixel %d", index).isEqualTo(expected);
+        }
+    }
+}